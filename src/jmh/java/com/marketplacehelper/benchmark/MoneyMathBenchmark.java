@@ -0,0 +1,128 @@
+package com.marketplacehelper.benchmark;
+
+import com.marketplacehelper.model.Kopecks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение прежнего расчёта маржи и рекомендованной цены на {@link BigDecimal} с расчётом в копейках.
+ * Входные данные — значения из БД (scale 2), как в реальном отчёте.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args=MoneyMathBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyMathBenchmark {
+
+    @Param({"10000"})
+    private int items;
+
+    private BigDecimal[] salePrices;
+    private BigDecimal[] purchasePrices;
+    private BigDecimal[] logisticsCosts;
+    private BigDecimal[] marketingCosts;
+    private BigDecimal[] otherExpenses;
+    private final BigDecimal targetPercent = new BigDecimal("15");
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        salePrices = new BigDecimal[items];
+        purchasePrices = new BigDecimal[items];
+        logisticsCosts = new BigDecimal[items];
+        marketingCosts = new BigDecimal[items];
+        otherExpenses = new BigDecimal[items];
+        for (int i = 0; i < items; i++) {
+            salePrices[i] = money(random, 300, 5000);
+            purchasePrices[i] = money(random, 100, 2500);
+            logisticsCosts[i] = money(random, 50, 400);
+            marketingCosts[i] = random.nextInt(10) == 0 ? null : money(random, 10, 300);
+            otherExpenses[i] = money(random, 0, 200);
+        }
+    }
+
+    @Benchmark
+    public void marginBigDecimal(Blackhole blackhole) {
+        for (int i = 0; i < items; i++) {
+            BigDecimal totalCosts = sum(purchasePrices[i], logisticsCosts[i], marketingCosts[i], otherExpenses[i]);
+            BigDecimal margin = salePrices[i].subtract(totalCosts);
+            blackhole.consume(margin.setScale(2, RoundingMode.HALF_UP));
+            blackhole.consume(margin.divide(salePrices[i], 4, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(100))
+                    .setScale(2, RoundingMode.HALF_UP));
+        }
+    }
+
+    @Benchmark
+    public void marginKopecks(Blackhole blackhole) {
+        for (int i = 0; i < items; i++) {
+            long sale = Kopecks.of(salePrices[i]);
+            long margin = sale - kopecksSum(purchasePrices[i], logisticsCosts[i], marketingCosts[i], otherExpenses[i]);
+            blackhole.consume(margin);
+            blackhole.consume(Kopecks.ratioHundredths(margin, sale));
+        }
+    }
+
+    @Benchmark
+    public void recommendedPriceBigDecimal(Blackhole blackhole) {
+        BigDecimal target = targetPercent.divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
+        for (int i = 0; i < items; i++) {
+            BigDecimal totalCosts = sum(purchasePrices[i], logisticsCosts[i], marketingCosts[i], otherExpenses[i]);
+            BigDecimal price = totalCosts.divide(BigDecimal.ONE.subtract(target), 4, RoundingMode.HALF_UP);
+            blackhole.consume(price.setScale(2, RoundingMode.HALF_UP));
+        }
+    }
+
+    @Benchmark
+    public void recommendedPriceKopecks(Blackhole blackhole) {
+        long target = Kopecks.percentHundredths(targetPercent);
+        for (int i = 0; i < items; i++) {
+            long totalCosts = kopecksSum(purchasePrices[i], logisticsCosts[i], marketingCosts[i], otherExpenses[i]);
+            blackhole.consume(Kopecks.priceForMargin(totalCosts, target));
+        }
+    }
+
+    private static BigDecimal sum(BigDecimal... values) {
+        BigDecimal result = BigDecimal.ZERO;
+        for (BigDecimal value : values) {
+            if (value != null) {
+                result = result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private static long kopecksSum(BigDecimal a, BigDecimal b, BigDecimal c, BigDecimal d) {
+        long result = 0;
+        if (a != null) result += Kopecks.of(a);
+        if (b != null) result += Kopecks.of(b);
+        if (c != null) result += Kopecks.of(c);
+        if (d != null) result += Kopecks.of(d);
+        return result;
+    }
+
+    private static BigDecimal money(Random random, int min, int max) {
+        long kopecks = (min + random.nextInt(max - min)) * 100L + random.nextInt(100);
+        return BigDecimal.valueOf(kopecks, 2);
+    }
+}
@@ -1,6 +1,8 @@
 package com.marketplacehelper.controller;
 
 import com.marketplacehelper.dto.AlertDto;
+import com.marketplacehelper.dto.AlertStreamStatsDto;
+import com.marketplacehelper.service.AlertBroadcaster;
 import com.marketplacehelper.service.AlertService;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,9 +17,11 @@ import java.util.List;
 public class AlertsController {
 
     private final AlertService alertService;
+    private final AlertBroadcaster alertBroadcaster;
 
-    public AlertsController(AlertService alertService) {
+    public AlertsController(AlertService alertService, AlertBroadcaster alertBroadcaster) {
         this.alertService = alertService;
+        this.alertBroadcaster = alertBroadcaster;
     }
 
     @GetMapping
@@ -27,30 +31,11 @@ public class AlertsController {
 
     @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter streamAlerts() {
-        SseEmitter emitter = new SseEmitter(0L);
-        // Initial push
-        try {
-            emitter.send(alertService.buildAlerts());
-        } catch (Exception ignored) {}
-
-        final java.util.concurrent.ScheduledExecutorService scheduler = java.util.concurrent.Executors.newSingleThreadScheduledExecutor();
-        final Runnable task = () -> {
-            try {
-                emitter.send(alertService.buildAlerts());
-            } catch (Exception e) {
-                try { emitter.complete(); } catch (Exception ignored) {}
-                scheduler.shutdownNow();
-            }
-        };
-        // Poll every 10 seconds; simple MVP approach
-        scheduler.scheduleAtFixedRate(task, 10, 10, java.util.concurrent.TimeUnit.SECONDS);
-        emitter.onCompletion(scheduler::shutdown);
-        emitter.onTimeout(() -> {
-            try { emitter.complete(); } catch (Exception ignored) {}
-            scheduler.shutdown();
-        });
-        return emitter;
+        return alertBroadcaster.subscribe();
     }
-}
-
 
+    @GetMapping("/stream/stats")
+    public ResponseEntity<AlertStreamStatsDto> getStreamStats() {
+        return ResponseEntity.ok(alertBroadcaster.getStats());
+    }
+}
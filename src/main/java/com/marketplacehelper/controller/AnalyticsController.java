@@ -1,17 +1,30 @@
 package com.marketplacehelper.controller;
 
+import com.marketplacehelper.dto.AnalyticsCacheStatsDto;
 import com.marketplacehelper.dto.AnalyticsReportDto;
+import com.marketplacehelper.dto.AnalyticsSummaryDto;
+import com.marketplacehelper.dto.IssueViews;
+import com.marketplacehelper.dto.ProductAnalyticsFilter;
+import com.marketplacehelper.dto.WhatIfRequest;
+import com.marketplacehelper.service.AnalyticsColumnStore;
+import com.marketplacehelper.service.AnalyticsExportService;
+import com.marketplacehelper.service.AnalyticsReadModelService;
 import com.marketplacehelper.service.AnalyticsService;
 import com.marketplacehelper.dto.ProductValidationDto;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -19,42 +32,212 @@ import java.time.format.DateTimeFormatter;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final AnalyticsReadModelService readModelService;
+    private final AnalyticsExportService exportService;
+    private final AnalyticsColumnStore columnStore;
+    private final boolean readModelEnabled;
 
-    public AnalyticsController(AnalyticsService analyticsService) {
+    public AnalyticsController(AnalyticsService analyticsService,
+                               AnalyticsReadModelService readModelService,
+                               AnalyticsExportService exportService,
+                               AnalyticsColumnStore columnStore,
+                               @Value("${app.analytics.read-model.enabled:true}") boolean readModelEnabled) {
         this.analyticsService = analyticsService;
+        this.readModelService = readModelService;
+        this.exportService = exportService;
+        this.columnStore = columnStore;
+        this.readModelEnabled = readModelEnabled;
     }
 
     @GetMapping("/products")
-    public ResponseEntity<AnalyticsReportDto> getProductAnalytics(
+    public ResponseEntity<MappingJacksonValue> getProductAnalytics(
             @RequestParam(name = "includeWithoutWb", defaultValue = "false") boolean includeWithoutWb,
             @RequestParam(name = "includeUnprofitable", defaultValue = "false") boolean includeUnprofitable,
+            @RequestParam(name = "minMarginPercent", required = false) BigDecimal minMarginPercent,
+            @RequestParam(name = "issues", defaultValue = "messages") String issues
+    ) {
+        boolean codesOnly = codesOnly(issues);
+        AnalyticsReportDto report = readModelEnabled
+                ? readModelService.buildProductAnalyticsReport(includeWithoutWb, minMarginPercent, includeUnprofitable)
+                : analyticsService.buildProductAnalyticsReport(includeWithoutWb, minMarginPercent, includeUnprofitable);
+        return ResponseEntity.ok(issueView(report, codesOnly));
+    }
+
+    /**
+     * Постраничный список с сортировкой и фильтрами; счётчики — в {@code /products/summary}.
+     */
+    @GetMapping("/products/page")
+    public ResponseEntity<?> getProductAnalyticsPage(
+            ProductAnalyticsFilter filter,
+            @RequestParam(name = "minMarginPercent", required = false) BigDecimal minMarginPercent,
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = "50") int size,
+            @RequestParam(name = "sort", defaultValue = "margin") String sort,
+            @RequestParam(name = "direction", required = false) String direction,
+            @RequestParam(name = "issues", defaultValue = "messages") String issues
+    ) {
+        try {
+            boolean codesOnly = codesOnly(issues);
+            return ResponseEntity.ok(issueView(readModelService.findPage(filter, minMarginPercent, page, size, sort, direction), codesOnly));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @GetMapping("/products/summary")
+    public ResponseEntity<AnalyticsSummaryDto> getProductAnalyticsSummary(
+            ProductAnalyticsFilter filter,
             @RequestParam(name = "minMarginPercent", required = false) BigDecimal minMarginPercent
     ) {
-        return ResponseEntity.ok(analyticsService.buildProductAnalyticsReport(includeWithoutWb, minMarginPercent, includeUnprofitable));
+        if (columnStore.isEnabled()) {
+            return ResponseEntity.ok(columnStore.summarize(filter, minMarginPercent));
+        }
+        return ResponseEntity.ok(readModelService.summarize(filter, minMarginPercent));
+    }
+
+    /**
+     * Итоги по бренду, категории или предмету WB с теми же фильтрами, что и у {@code /products/page}.
+     */
+    @GetMapping("/products/rollup")
+    public ResponseEntity<?> getProductAnalyticsRollup(
+            ProductAnalyticsFilter filter,
+            @RequestParam(name = "groupBy", defaultValue = "brand") String groupBy,
+            @RequestParam(name = "minMarginPercent", required = false) BigDecimal minMarginPercent,
+            @RequestParam(name = "lowStockThreshold", required = false) Integer lowStockThreshold
+    ) {
+        try {
+            if (columnStore.isEnabled()) {
+                return ResponseEntity.ok(columnStore.rollup(groupBy, filter, minMarginPercent, lowStockThreshold));
+            }
+            return ResponseEntity.ok(readModelService.rollup(groupBy, filter, minMarginPercent, lowStockThreshold));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * Топ ({@code order=top}) или антитоп ({@code order=bottom}) по margin, marginPercent, stock или priceDelta.
+     */
+    @GetMapping("/products/top")
+    public ResponseEntity<?> getTopProducts(
+            ProductAnalyticsFilter filter,
+            @RequestParam(name = "metric", defaultValue = "margin") String metric,
+            @RequestParam(name = "order", defaultValue = "top") String order,
+            @RequestParam(name = "limit", defaultValue = "50") int limit,
+            @RequestParam(name = "minMarginPercent", required = false) BigDecimal minMarginPercent,
+            @RequestParam(name = "issues", defaultValue = "messages") String issues
+    ) {
+        if (!"top".equalsIgnoreCase(order) && !"bottom".equalsIgnoreCase(order)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Параметр order должен быть top или bottom"));
+        }
+        try {
+            AnalyticsColumnStore.RankMetric rankMetric = AnalyticsColumnStore.RankMetric.fromParam(metric);
+            boolean codesOnly = codesOnly(issues);
+            boolean highest = "top".equalsIgnoreCase(order);
+            return ResponseEntity.ok(issueView(columnStore.isEnabled()
+                    ? columnStore.top(rankMetric, highest, limit, filter, minMarginPercent)
+                    : readModelService.top(rankMetric, highest, limit, filter, minMarginPercent), codesOnly));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * Моделирование «что если» по всему каталогу или по выборке {@code filter}; ничего не сохраняет.
+     */
+    @PostMapping("/simulate")
+    public ResponseEntity<?> simulate(@RequestBody WhatIfRequest request) {
+        // запрос корректен, недоступна сама функция: моделирование считается только по колоночному снимку
+        if (!columnStore.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Колоночное хранилище аналитики отключено"));
+        }
+        try {
+            return ResponseEntity.ok(columnStore.simulate(request));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
     }
 
     @GetMapping("/products/export")
-    public ResponseEntity<ByteArrayResource> exportProductAnalytics(
+    public ResponseEntity<StreamingResponseBody> exportProductAnalytics(
             @RequestParam(name = "includeWithoutWb", defaultValue = "false") boolean includeWithoutWb,
-            @RequestParam(name = "minMarginPercent", required = false) BigDecimal minMarginPercent
+            @RequestParam(name = "minMarginPercent", required = false) BigDecimal minMarginPercent,
+            @RequestParam(name = "format", defaultValue = "csv") String format
     ) {
-        byte[] report = analyticsService.exportProfitableProductsAsCsv(includeWithoutWb, minMarginPercent);
-        ByteArrayResource resource = new ByteArrayResource(report);
+        AnalyticsExportService.Format exportFormat = exportFormat(format);
+        return streamExport("analytics-report", exportFormat,
+                out -> exportService.exportProfitableProducts(out, exportFormat, includeWithoutWb, minMarginPercent));
+    }
+
+    @GetMapping("/validation/export")
+    public ResponseEntity<StreamingResponseBody> exportValidation(
+            @RequestParam(name = "includeWithoutWb", defaultValue = "true") boolean includeWithoutWb,
+            @RequestParam(name = "minMarginPercent", required = false) BigDecimal minMarginPercent,
+            @RequestParam(name = "format", defaultValue = "csv") String format
+    ) {
+        AnalyticsExportService.Format exportFormat = exportFormat(format);
+        return streamExport("validation-report", exportFormat,
+                out -> exportService.exportValidationReport(out, exportFormat, includeWithoutWb, minMarginPercent));
+    }
+
+    private AnalyticsExportService.Format exportFormat(String format) {
+        try {
+            return AnalyticsExportService.Format.fromParam(format);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    /**
+     * {@code issues=codes} — только коды проблем, без текстов; {@code issues=messages} — коды и тексты.
+     */
+    private boolean codesOnly(String issues) {
+        if ("codes".equalsIgnoreCase(issues)) {
+            return true;
+        }
+        if ("messages".equalsIgnoreCase(issues)) {
+            return false;
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Параметр issues должен быть messages или codes");
+    }
+
+    /**
+     * Тексты проблем собираются при сериализации; в режиме кодов они не вызываются вовсе.
+     */
+    private MappingJacksonValue issueView(Object body, boolean codesOnly) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        if (codesOnly) {
+            value.setSerializationView(IssueViews.Codes.class);
+        }
+        return value;
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamExport(String prefix,
+                                                               AnalyticsExportService.Format format,
+                                                               StreamingResponseBody body) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
-        String filename = String.format("analytics-report-%s.csv", timestamp);
+        String filename = String.format("%s-%s.%s", prefix, timestamp, format.getExtension());
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
-                .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
-                .contentLength(report.length)
-                .body(resource);
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
     }
 
     @GetMapping("/validation")
-    public ResponseEntity<java.util.List<ProductValidationDto>> getValidation(
+    public ResponseEntity<MappingJacksonValue> getValidation(
             @RequestParam(name = "includeWithoutWb", defaultValue = "true") boolean includeWithoutWb,
-            @RequestParam(name = "minMarginPercent", required = false) java.math.BigDecimal minMarginPercent
+            @RequestParam(name = "minMarginPercent", required = false) java.math.BigDecimal minMarginPercent,
+            @RequestParam(name = "issues", defaultValue = "messages") String issues
     ) {
-        return ResponseEntity.ok(analyticsService.buildValidationReport(includeWithoutWb, minMarginPercent));
+        boolean codesOnly = codesOnly(issues);
+        java.util.List<ProductValidationDto> validation = analyticsService.buildValidationReport(includeWithoutWb, minMarginPercent);
+        return ResponseEntity.ok(issueView(validation, codesOnly));
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<AnalyticsCacheStatsDto> getCacheStats() {
+        return ResponseEntity.ok(analyticsService.getCacheStats());
     }
 }
@@ -0,0 +1,64 @@
+package com.marketplacehelper.controller;
+
+import com.marketplacehelper.dto.ImportProfileDto;
+import com.marketplacehelper.service.ImportProfileService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Профили сопоставления колонок; профиль выбирается при загрузке параметром {@code profileId}.
+ */
+@RestController
+@RequestMapping("/api/products/import/profiles")
+@CrossOrigin(origins = "*")
+public class ImportProfileController {
+
+    private final ImportProfileService importProfileService;
+
+    public ImportProfileController(ImportProfileService importProfileService) {
+        this.importProfileService = importProfileService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ImportProfileDto>> getProfiles() {
+        return ResponseEntity.ok(importProfileService.getProfiles());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportProfileDto> getProfile(@PathVariable Long id) {
+        return importProfileService.getProfile(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createProfile(@RequestBody ImportProfileDto request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(importProfileService.create(request));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<?> updateProfile(@PathVariable Long id, @RequestBody ImportProfileDto request) {
+        try {
+            return importProfileService.update(id, request)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteProfile(@PathVariable Long id) {
+        return importProfileService.delete(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
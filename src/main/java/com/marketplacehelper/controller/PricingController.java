@@ -4,6 +4,7 @@ import com.marketplacehelper.dto.PriceRecommendationDto;
 import com.marketplacehelper.service.PricingService;
 import com.marketplacehelper.dto.BatchPriceUpdateRequest;
 import com.marketplacehelper.dto.BatchPriceUpdateResult;
+import com.marketplacehelper.model.Kopecks;
 import com.marketplacehelper.service.ProductService;
 import com.marketplacehelper.service.WbProductService;
 import org.springframework.http.ResponseEntity;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/pricing")
@@ -35,15 +37,26 @@ public class PricingController {
     }
 
     @PostMapping("/batch-update")
-    public ResponseEntity<BatchPriceUpdateResult> applyBatchUpdate(@RequestBody BatchPriceUpdateRequest request) {
+    public ResponseEntity<?> applyBatchUpdate(@RequestBody BatchPriceUpdateRequest request) {
         BatchPriceUpdateResult result = new BatchPriceUpdateResult();
         if (request == null || request.getItems() == null || request.getItems().isEmpty()) {
             return ResponseEntity.ok(result);
         }
         java.math.BigDecimal maxDeltaPct = request.getMaxDeltaPercent();
-        java.math.BigDecimal floor = request.getFloorPrice();
-        java.math.BigDecimal ceil = request.getCeilPrice();
+        Long floor;
+        Long ceil;
+        try {
+            // границы общие для всех позиций: ошибку в них сообщаем сразу, а не в каждой строке результата
+            floor = priceBound(request.getFloorPrice(), "Минимальная цена");
+            ceil = priceBound(request.getCeilPrice(), "Максимальная цена");
+            if (floor != null && ceil != null && floor > ceil) {
+                throw new IllegalArgumentException("Минимальная цена больше максимальной");
+            }
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
         String rounding = request.getRoundingRule();
+        boolean keepKopecks = rounding == null || rounding.isBlank() || "NONE".equalsIgnoreCase(rounding);
         boolean dryRun = Boolean.TRUE.equals(request.getDryRun());
         for (BatchPriceUpdateRequest.Item it : request.getItems()) {
             BatchPriceUpdateResult.ResultItem r = new BatchPriceUpdateResult.ResultItem();
@@ -51,13 +64,12 @@ public class PricingController {
             r.setWbProductId(it.getWbProductId());
             r.setWbArticle(it.getWbArticle());
             try {
-                java.math.BigDecimal candidate = it.getNewPrice();
-                if (candidate == null) throw new IllegalArgumentException("Не указана новая цена");
+                if (it.getNewPrice() == null) throw new IllegalArgumentException("Не указана новая цена");
                 // apply rounding
-                candidate = applyRounding(candidate, rounding);
+                long candidate = applyRounding(it.getNewPrice(), rounding);
                 // bounds
-                if (floor != null && candidate.compareTo(floor) < 0) candidate = floor;
-                if (ceil != null && candidate.compareTo(ceil) > 0) candidate = ceil;
+                if (floor != null && candidate < floor) candidate = floor;
+                if (ceil != null && candidate > ceil) candidate = ceil;
                 // max delta check if current price known
                 java.math.BigDecimal current = null;
                 if (it.getWbProductId() != null) {
@@ -66,19 +78,21 @@ public class PricingController {
                     current = productService.getProductById(it.getProductId()).orElseThrow().getPrice();
                 }
                 if (current != null && maxDeltaPct != null && current.compareTo(java.math.BigDecimal.ZERO) > 0) {
-                    java.math.BigDecimal diffPct = candidate.subtract(current).abs()
-                            .divide(current, 4, java.math.RoundingMode.HALF_UP)
-                            .multiply(java.math.BigDecimal.valueOf(100));
-                    if (diffPct.compareTo(maxDeltaPct) > 0) {
+                    long currentKopecks = Kopecks.of(current);
+                    long diffPct = Kopecks.ratioHundredths(Math.abs(candidate - currentKopecks), currentKopecks);
+                    if (Kopecks.percentToDecimal(diffPct).compareTo(maxDeltaPct) > 0) {
                         throw new IllegalArgumentException("Изменение превышает допустимый порог " + maxDeltaPct + "%");
                     }
                 }
+                java.math.BigDecimal applied = keepKopecks || candidate % Kopecks.PER_RUBLE != 0
+                        ? Kopecks.toRubles(candidate)
+                        : java.math.BigDecimal.valueOf(candidate / Kopecks.PER_RUBLE);
 
                 if (!dryRun) {
                     if (it.getProductId() != null) {
-                        productService.updateProductPrice(it.getProductId(), candidate);
+                        productService.updateProductPrice(it.getProductId(), applied);
                     } else if (it.getWbProductId() != null) {
-                        wbProductService.updateWbProductPrice(it.getWbProductId(), candidate);
+                        wbProductService.updateWbProductPrice(it.getWbProductId(), applied);
                     } else {
                         throw new IllegalArgumentException("Не указан идентификатор товара");
                     }
@@ -87,7 +101,7 @@ public class PricingController {
                 }
                 r.setSuccess(true);
                 r.setMessage(dryRun ? "DRY_RUN" : "OK");
-                r.setAppliedPrice(candidate);
+                r.setAppliedPrice(applied);
                 result.setUpdated(result.getUpdated() + 1);
             } catch (Exception ex) {
                 r.setSuccess(false);
@@ -99,26 +113,45 @@ public class PricingController {
         return ResponseEntity.ok(result);
     }
 
-    private java.math.BigDecimal applyRounding(java.math.BigDecimal value, String rule) {
-        if (rule == null || rule.isBlank() || "NONE".equalsIgnoreCase(rule)) return value.setScale(2, java.math.RoundingMode.HALF_UP);
-        java.math.BigDecimal scaled = value.setScale(0, java.math.RoundingMode.HALF_UP);
+    /**
+     * Граница цены в копейках; {@code null}, если граница не задана.
+     */
+    private Long priceBound(java.math.BigDecimal value, String label) {
+        if (value == null) {
+            return null;
+        }
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException(label + " не может быть отрицательной");
+        }
+        try {
+            return Kopecks.of(value);
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException(label + " вне допустимого диапазона: " + value.toPlainString());
+        }
+    }
+
+    /**
+     * Округление новой цены по правилу; результат в копейках.
+     */
+    private long applyRounding(java.math.BigDecimal value, String rule) {
+        if (rule == null || rule.isBlank() || "NONE".equalsIgnoreCase(rule)) return Kopecks.of(value);
+        long rubles = value.setScale(0, java.math.RoundingMode.HALF_UP).longValueExact();
         switch (rule) {
             case "NEAREST_1":
-                return scaled;
-            case "NEAREST_5": {
-                long v = scaled.longValue();
-                long r = Math.round(v / 5.0) * 5L;
-                return java.math.BigDecimal.valueOf(r);
-            }
-            case "NEAREST_10": {
-                long v = scaled.longValue();
-                long r = Math.round(v / 10.0) * 10L;
-                return java.math.BigDecimal.valueOf(r);
-            }
+                return rubles * Kopecks.PER_RUBLE;
+            case "NEAREST_5":
+                return roundToStep(rubles, 5) * Kopecks.PER_RUBLE;
+            case "NEAREST_10":
+                return roundToStep(rubles, 10) * Kopecks.PER_RUBLE;
             default:
-                return scaled;
+                return rubles * Kopecks.PER_RUBLE;
         }
     }
+
+    // то же, что Math.round(value / (double) step) * step, но без double
+    private long roundToStep(long value, long step) {
+        return Math.floorDiv(2 * value + step, 2 * step) * step;
+    }
 }
 
 
@@ -1,11 +1,15 @@
 package com.marketplacehelper.controller;
 
+import com.marketplacehelper.dto.ImportJobDto;
 import com.marketplacehelper.dto.ProductImportResultDto;
+import com.marketplacehelper.service.ProductImportJobService;
 import com.marketplacehelper.service.ProductImportService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
 
@@ -15,16 +19,23 @@ import java.util.Map;
 public class ProductImportController {
 
     private final ProductImportService productImportService;
+    private final ProductImportJobService productImportJobService;
 
-    public ProductImportController(ProductImportService productImportService) {
+    public ProductImportController(ProductImportService productImportService,
+                                   ProductImportJobService productImportJobService) {
         this.productImportService = productImportService;
+        this.productImportJobService = productImportJobService;
     }
 
     @PostMapping("/excel")
     public ResponseEntity<?> importExcel(@RequestParam("file") MultipartFile file,
-                                         @RequestParam(name = "dryRun", defaultValue = "false") boolean dryRun) {
+                                         @RequestParam(name = "dryRun", defaultValue = "false") boolean dryRun,
+                                         @RequestParam(name = "profileId", required = false) Long profileId,
+                                         @RequestParam(name = "force", defaultValue = "false") boolean force) {
         try {
-            ProductImportResultDto result = productImportService.importFromExcel(file, dryRun);
+            ProductImportResultDto result = profileId != null || force
+                    ? productImportService.importFromExcel(file, dryRun, profileId, force)
+                    : productImportService.importFromExcel(file, dryRun);
             if (dryRun) {
                 return ResponseEntity.ok(result);
             }
@@ -36,4 +47,61 @@ public class ProductImportController {
                     .body(Map.of("error", "Ошибка при импорте файла: " + ex.getMessage()));
         }
     }
+
+    /**
+     * Ставит файл в очередь фонового импорта и сразу отвечает 202 с идентификатором задачи.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestParam("file") MultipartFile file,
+                                       @RequestParam(name = "dryRun", defaultValue = "false") boolean dryRun,
+                                       @RequestParam(name = "profileId", required = false) Long profileId,
+                                       @RequestParam(name = "force", defaultValue = "false") boolean force) {
+        try {
+            ImportJobDto job = profileId != null || force
+                    ? productImportJobService.submit(file, dryRun, profileId, force)
+                    : productImportJobService.submit(file, dryRun);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Ошибка при импорте файла: " + ex.getMessage()));
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ImportJobDto> getJob(@PathVariable String id) {
+        return productImportJobService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(path = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String id) {
+        return productImportJobService.subscribe(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/jobs/{id}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable String id) {
+        try {
+            return productImportJobService.cancel(id)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @PostMapping("/jobs/{id}/resume")
+    public ResponseEntity<?> resumeJob(@PathVariable String id) {
+        try {
+            return productImportJobService.resume(id)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
 }
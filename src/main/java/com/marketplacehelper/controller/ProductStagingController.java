@@ -0,0 +1,82 @@
+package com.marketplacehelper.controller;
+
+import com.marketplacehelper.dto.ProductImportResultDto;
+import com.marketplacehelper.service.ProductStagingImportService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Map;
+
+/**
+ * Импорт через промежуточную таблицу: файл сверяется с товарами целиком и применяется одной транзакцией.
+ * Пробный прогон ({@code dryRun}) оставляет строки с итогами сверки для просмотра и применяется через {@code /apply}.
+ */
+@RestController
+@RequestMapping("/api/products/import/staged")
+@CrossOrigin(origins = "*")
+public class ProductStagingController {
+
+    private final ProductStagingImportService productStagingImportService;
+
+    public ProductStagingController(ProductStagingImportService productStagingImportService) {
+        this.productStagingImportService = productStagingImportService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> importFile(@RequestParam("file") MultipartFile file,
+                                        @RequestParam(name = "dryRun", defaultValue = "false") boolean dryRun,
+                                        @RequestParam(name = "profileId", required = false) Long profileId) {
+        try {
+            ProductImportResultDto result = productStagingImportService.importFile(file, dryRun, profileId);
+            if (dryRun) {
+                return ResponseEntity.ok(result);
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Ошибка при импорте файла: " + ex.getMessage()));
+        }
+    }
+
+    /**
+     * Строки партии по порядку файла; {@code action} — CREATE, UPDATE, UNCHANGED, SUPERSEDED или ERROR.
+     */
+    @GetMapping("/{id}/rows")
+    public ResponseEntity<?> getRows(@PathVariable String id,
+                                     @RequestParam(name = "action", required = false) String action,
+                                     @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                     @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        try {
+            return productStagingImportService.getRows(id, action, offset, limit)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/apply")
+    public ResponseEntity<?> apply(@PathVariable String id) {
+        try {
+            return productStagingImportService.apply(id)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Ошибка при импорте файла: " + ex.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> discard(@PathVariable String id) {
+        return productStagingImportService.discard(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
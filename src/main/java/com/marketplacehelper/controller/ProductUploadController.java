@@ -0,0 +1,96 @@
+package com.marketplacehelper.controller;
+
+import com.marketplacehelper.dto.UploadSessionDto;
+import com.marketplacehelper.service.ProductUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Загрузка файла импорта по частям: создать сессию, отправить части телом {@code PUT} со смещением,
+ * после обрыва узнать принятый объём через {@code GET} и продолжить, затем завершить — файл уходит в фоновый импорт.
+ */
+@RestController
+@RequestMapping("/api/products/import/uploads")
+@CrossOrigin(origins = "*")
+public class ProductUploadController {
+
+    private final ProductUploadService productUploadService;
+
+    public ProductUploadController(ProductUploadService productUploadService) {
+        this.productUploadService = productUploadService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createSession(@RequestParam(name = "fileName", required = false) String fileName,
+                                           @RequestParam(name = "size", required = false) Long size,
+                                           @RequestParam(name = "sha256", required = false) String sha256) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(productUploadService.create(fileName, size, sha256));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDto> getSession(@PathVariable String id) {
+        return productUploadService.getSession(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Тело запроса — байты части как есть ({@code application/octet-stream}); {@code offset} должен совпадать
+     * с {@code received} сессии, иначе 409 с текущим {@code received}.
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<?> appendChunk(@PathVariable String id,
+                                         @RequestParam("offset") long offset,
+                                         HttpServletRequest request) {
+        try {
+            return productUploadService.append(id, offset, request.getInputStream())
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException ex) {
+            long received = productUploadService.getSession(id).map(UploadSessionDto::getReceived).orElse(0L);
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", ex.getMessage(), "received", received));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Ошибка при загрузке файла: " + ex.getMessage()));
+        }
+    }
+
+    /**
+     * Проверяет размер и SHA-256 и ставит файл в очередь импорта; ответ — задача, как у {@code POST /jobs}.
+     */
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<?> complete(@PathVariable String id,
+                                      @RequestParam(name = "sha256", required = false) String sha256,
+                                      @RequestParam(name = "dryRun", defaultValue = "false") boolean dryRun,
+                                      @RequestParam(name = "profileId", required = false) Long profileId,
+                                      @RequestParam(name = "force", defaultValue = "false") boolean force) {
+        try {
+            return productUploadService.complete(id, sha256, dryRun, profileId, force)
+                    .<ResponseEntity<?>>map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Ошибка при импорте файла: " + ex.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancel(@PathVariable String id) {
+        return productUploadService.cancel(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
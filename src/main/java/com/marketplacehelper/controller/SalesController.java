@@ -0,0 +1,65 @@
+package com.marketplacehelper.controller;
+
+import com.marketplacehelper.dto.SalesArticleStatsDto;
+import com.marketplacehelper.service.SalesReportImportService;
+import com.marketplacehelper.service.SalesStatsService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sales")
+@CrossOrigin(origins = "*")
+public class SalesController {
+
+    private final SalesReportImportService salesReportImportService;
+    private final SalesStatsService salesStatsService;
+
+    public SalesController(SalesReportImportService salesReportImportService, SalesStatsService salesStatsService) {
+        this.salesReportImportService = salesReportImportService;
+        this.salesStatsService = salesStatsService;
+    }
+
+    /**
+     * Загружает отчёт WB о реализации (XLSX, XLS или CSV); уже загруженные строки пропускаются.
+     */
+    @PostMapping("/reports")
+    public ResponseEntity<?> importReport(@RequestParam("file") MultipartFile file) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(salesReportImportService.importReport(file));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Ошибка при загрузке отчёта: " + ex.getMessage()));
+        }
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats(@RequestParam(name = "limit", defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(salesStatsService.getStats(limit));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @GetMapping("/stats/{nmId}")
+    public ResponseEntity<SalesArticleStatsDto> getArticleStats(@PathVariable Long nmId) {
+        return salesStatsService.getStats(nmId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Переносит фактическую логистику на штуку в товары, чтобы маржа считалась по ней, а не по введённой вручную.
+     */
+    @PostMapping("/stats/apply-logistics")
+    public ResponseEntity<Map<String, Integer>> applyLogistics(
+            @RequestParam(name = "onlyMissing", defaultValue = "false") boolean onlyMissing) {
+        return ResponseEntity.ok(Map.of("updated", salesStatsService.applyActualLogistics(onlyMissing)));
+    }
+}
@@ -1,13 +1,16 @@
 package com.marketplacehelper.controller;
 
+import com.marketplacehelper.dto.SnapshotChange;
 import com.marketplacehelper.model.DailySnapshot;
 import com.marketplacehelper.service.SnapshotService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/snapshots")
@@ -36,6 +39,24 @@ public class SnapshotController {
     ) {
         return ResponseEntity.ok(snapshotService.getSnapshots(from, to));
     }
+
+    /**
+     * Товары, изменившиеся с даты снимка: пересечение порога маржи, изменение цены, падение остатка.
+     */
+    @GetMapping("/diff")
+    public ResponseEntity<?> getDiff(
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "minMarginPercent", required = false) BigDecimal minMarginPercent,
+            @RequestParam(name = "sort", defaultValue = "marginPercent") String sort,
+            @RequestParam(name = "changes", required = false) List<SnapshotChange> changes,
+            @RequestParam(name = "limit", defaultValue = "100") int limit
+    ) {
+        try {
+            return ResponseEntity.ok(snapshotService.diff(date, minMarginPercent, sort, changes, limit));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
 }
 
 
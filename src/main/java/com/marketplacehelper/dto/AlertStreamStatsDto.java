@@ -0,0 +1,98 @@
+package com.marketplacehelper.dto;
+
+public class AlertStreamStatsDto {
+
+    private long dataVersion;
+    private int subscribers;
+    private long ticks;
+    // пересчёты алертов: не больше одного на изменение каталога, сколько бы ни было подписчиков
+    private long builds;
+    private double lastBuildMillis;
+    private long eventsSent;
+    private long failedSends;
+    // рассылка одного события всем подписчикам
+    private double lastSendMillis;
+    private double averageSendMillis;
+    // алертов в последнем отправленном событии
+    private int alerts;
+
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    public void setDataVersion(long dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
+    public int getSubscribers() {
+        return subscribers;
+    }
+
+    public void setSubscribers(int subscribers) {
+        this.subscribers = subscribers;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public void setTicks(long ticks) {
+        this.ticks = ticks;
+    }
+
+    public long getBuilds() {
+        return builds;
+    }
+
+    public void setBuilds(long builds) {
+        this.builds = builds;
+    }
+
+    public double getLastBuildMillis() {
+        return lastBuildMillis;
+    }
+
+    public void setLastBuildMillis(double lastBuildMillis) {
+        this.lastBuildMillis = lastBuildMillis;
+    }
+
+    public long getEventsSent() {
+        return eventsSent;
+    }
+
+    public void setEventsSent(long eventsSent) {
+        this.eventsSent = eventsSent;
+    }
+
+    public long getFailedSends() {
+        return failedSends;
+    }
+
+    public void setFailedSends(long failedSends) {
+        this.failedSends = failedSends;
+    }
+
+    public double getLastSendMillis() {
+        return lastSendMillis;
+    }
+
+    public void setLastSendMillis(double lastSendMillis) {
+        this.lastSendMillis = lastSendMillis;
+    }
+
+    public double getAverageSendMillis() {
+        return averageSendMillis;
+    }
+
+    public void setAverageSendMillis(double averageSendMillis) {
+        this.averageSendMillis = averageSendMillis;
+    }
+
+    public int getAlerts() {
+        return alerts;
+    }
+
+    public void setAlerts(int alerts) {
+        this.alerts = alerts;
+    }
+}
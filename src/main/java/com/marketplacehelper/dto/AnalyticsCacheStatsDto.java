@@ -0,0 +1,86 @@
+package com.marketplacehelper.dto;
+
+public class AnalyticsCacheStatsDto {
+
+    private long dataVersion;
+    private int entries;
+    private int maxEntries;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long rebuilds;
+    private double lastRebuildMillis;
+    private double averageRebuildMillis;
+
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    public void setDataVersion(long dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public void setEntries(int entries) {
+        this.entries = entries;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    public void setHitRatio(double hitRatio) {
+        this.hitRatio = hitRatio;
+    }
+
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    public void setRebuilds(long rebuilds) {
+        this.rebuilds = rebuilds;
+    }
+
+    public double getLastRebuildMillis() {
+        return lastRebuildMillis;
+    }
+
+    public void setLastRebuildMillis(double lastRebuildMillis) {
+        this.lastRebuildMillis = lastRebuildMillis;
+    }
+
+    public double getAverageRebuildMillis() {
+        return averageRebuildMillis;
+    }
+
+    public void setAverageRebuildMillis(double averageRebuildMillis) {
+        this.averageRebuildMillis = averageRebuildMillis;
+    }
+}
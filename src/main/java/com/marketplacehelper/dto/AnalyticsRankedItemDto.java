@@ -0,0 +1,39 @@
+package com.marketplacehelper.dto;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+import java.math.BigDecimal;
+
+/**
+ * Товар из топа / антитопа и значение показателя, по которому он отобран.
+ */
+@JsonView(IssueViews.Codes.class)
+public class AnalyticsRankedItemDto {
+
+    private BigDecimal value;
+    private ProductAnalyticsDto item;
+
+    public AnalyticsRankedItemDto() {
+    }
+
+    public AnalyticsRankedItemDto(BigDecimal value, ProductAnalyticsDto item) {
+        this.value = value;
+        this.item = item;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public void setValue(BigDecimal value) {
+        this.value = value;
+    }
+
+    public ProductAnalyticsDto getItem() {
+        return item;
+    }
+
+    public void setItem(ProductAnalyticsDto item) {
+        this.item = item;
+    }
+}
@@ -1,11 +1,13 @@
 package com.marketplacehelper.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonView;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonView(IssueViews.Codes.class)
 public class AnalyticsReportDto {
 
     private List<ProductAnalyticsDto> profitable;
@@ -0,0 +1,92 @@
+package com.marketplacehelper.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Итоги по одной группе (бренд, категория или предмет WB).
+ * Выручка и себестоимость учитывают только товары с рассчитанной маржой.
+ */
+public class AnalyticsRollupDto {
+
+    private String group;
+    private long count;
+    private long pricedCount;
+    private BigDecimal revenue;
+    private BigDecimal totalCost;
+    private BigDecimal marginSum;
+    private BigDecimal weightedMarginPercent;
+    private long totalStock;
+    private long lowStockCount;
+
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getPricedCount() {
+        return pricedCount;
+    }
+
+    public void setPricedCount(long pricedCount) {
+        this.pricedCount = pricedCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public BigDecimal getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(BigDecimal totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public BigDecimal getMarginSum() {
+        return marginSum;
+    }
+
+    public void setMarginSum(BigDecimal marginSum) {
+        this.marginSum = marginSum;
+    }
+
+    public BigDecimal getWeightedMarginPercent() {
+        return weightedMarginPercent;
+    }
+
+    public void setWeightedMarginPercent(BigDecimal weightedMarginPercent) {
+        this.weightedMarginPercent = weightedMarginPercent;
+    }
+
+    public long getTotalStock() {
+        return totalStock;
+    }
+
+    public void setTotalStock(long totalStock) {
+        this.totalStock = totalStock;
+    }
+
+    public long getLowStockCount() {
+        return lowStockCount;
+    }
+
+    public void setLowStockCount(long lowStockCount) {
+        this.lowStockCount = lowStockCount;
+    }
+}
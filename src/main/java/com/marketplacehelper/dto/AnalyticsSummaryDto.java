@@ -0,0 +1,79 @@
+package com.marketplacehelper.dto;
+
+import java.math.BigDecimal;
+
+public class AnalyticsSummaryDto {
+
+    private BigDecimal appliedMinMarginPercent;
+    private long totalProducts;
+    private long profitableCount;
+    private long requiresAttentionCount;
+    private long negativeMarginCount;
+    private long mergedCount;
+    private long localOnlyCount;
+    private long wbOnlyCount;
+
+    public BigDecimal getAppliedMinMarginPercent() {
+        return appliedMinMarginPercent;
+    }
+
+    public void setAppliedMinMarginPercent(BigDecimal appliedMinMarginPercent) {
+        this.appliedMinMarginPercent = appliedMinMarginPercent;
+    }
+
+    public long getTotalProducts() {
+        return totalProducts;
+    }
+
+    public void setTotalProducts(long totalProducts) {
+        this.totalProducts = totalProducts;
+    }
+
+    public long getProfitableCount() {
+        return profitableCount;
+    }
+
+    public void setProfitableCount(long profitableCount) {
+        this.profitableCount = profitableCount;
+    }
+
+    public long getRequiresAttentionCount() {
+        return requiresAttentionCount;
+    }
+
+    public void setRequiresAttentionCount(long requiresAttentionCount) {
+        this.requiresAttentionCount = requiresAttentionCount;
+    }
+
+    public long getNegativeMarginCount() {
+        return negativeMarginCount;
+    }
+
+    public void setNegativeMarginCount(long negativeMarginCount) {
+        this.negativeMarginCount = negativeMarginCount;
+    }
+
+    public long getMergedCount() {
+        return mergedCount;
+    }
+
+    public void setMergedCount(long mergedCount) {
+        this.mergedCount = mergedCount;
+    }
+
+    public long getLocalOnlyCount() {
+        return localOnlyCount;
+    }
+
+    public void setLocalOnlyCount(long localOnlyCount) {
+        this.localOnlyCount = localOnlyCount;
+    }
+
+    public long getWbOnlyCount() {
+        return wbOnlyCount;
+    }
+
+    public void setWbOnlyCount(long wbOnlyCount) {
+        this.wbOnlyCount = wbOnlyCount;
+    }
+}
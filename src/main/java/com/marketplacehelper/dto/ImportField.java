@@ -0,0 +1,19 @@
+package com.marketplacehelper.dto;
+
+/**
+ * Поле товара, которое заполняется из колонки импортируемого файла.
+ */
+public enum ImportField {
+    NAME,
+    // артикул WB — ключ, по которому строка обновляет существующий товар
+    WB_ARTICLE,
+    BARCODE,
+    CATEGORY,
+    BRAND,
+    STOCK,
+    PRICE,
+    PURCHASE_PRICE,
+    LOGISTICS_COST,
+    MARKETING_COST,
+    OTHER_EXPENSES
+}
@@ -0,0 +1,14 @@
+package com.marketplacehelper.dto;
+
+/**
+ * Состояние фоновой задачи импорта товаров.
+ */
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    // остановлена пользователем, можно продолжить с последнего записанного чанка
+    CANCELLED,
+    // упала с ошибкой, можно продолжить с последнего записанного чанка
+    FAILED
+}
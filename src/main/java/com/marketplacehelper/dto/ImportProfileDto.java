@@ -0,0 +1,59 @@
+package com.marketplacehelper.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Профиль импорта: заголовок колонки файла для каждого поля товара.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportProfileDto {
+
+    private Long id;
+    private String name;
+    private Map<ImportField, String> columns;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Map<ImportField, String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(Map<ImportField, String> columns) {
+        this.columns = columns;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,17 @@
+package com.marketplacehelper.dto;
+
+/**
+ * Jackson-представления ответов аналитики. По умолчанию представление не задаётся и выводится всё;
+ * с {@link Codes} тексты проблем не выводятся — только их коды.
+ */
+public final class IssueViews {
+
+    private IssueViews() {
+    }
+
+    public interface Codes {
+    }
+
+    public interface Messages extends Codes {
+    }
+}
@@ -1,6 +1,8 @@
 package com.marketplacehelper.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonView;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -8,6 +10,7 @@ import java.util.Collections;
 import java.util.List;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonView(IssueViews.Codes.class)
 public class ProductAnalyticsDto {
 
     private Long productId;
@@ -29,11 +32,13 @@ public class ProductAnalyticsDto {
     private BigDecimal margin;
     private BigDecimal marginPercent;
     private ProductDataSource dataSource;
+    private WbMatchMethod matchMethod;
     private boolean requiresCorrection;
     private boolean profitable;
     private boolean marginBelowThreshold;
     private boolean negativeMargin;
-    private List<String> warnings;
+    private int issueMask;
+    private BigDecimal appliedMarginThreshold;
 
     public Long getProductId() {
         return productId;
@@ -187,6 +192,14 @@ public class ProductAnalyticsDto {
         this.dataSource = dataSource;
     }
 
+    public WbMatchMethod getMatchMethod() {
+        return matchMethod;
+    }
+
+    public void setMatchMethod(WbMatchMethod matchMethod) {
+        this.matchMethod = matchMethod;
+    }
+
     public boolean isRequiresCorrection() {
         return requiresCorrection;
     }
@@ -219,24 +232,52 @@ public class ProductAnalyticsDto {
         this.negativeMargin = negativeMargin;
     }
 
+    /**
+     * Тексты предупреждений; собираются из {@link #getIssueMask()} при каждом вызове.
+     */
+    @JsonView(IssueViews.Messages.class)
     public List<String> getWarnings() {
-        if (warnings == null) {
+        if (issueMask == 0) {
             return Collections.emptyList();
         }
-        return Collections.unmodifiableList(warnings);
+        List<String> warnings = new ArrayList<>(Integer.bitCount(issueMask));
+        for (ProductIssue issue : ProductIssue.fromMask(issueMask)) {
+            warnings.add(issue.warning(appliedMarginThreshold));
+        }
+        return warnings;
     }
 
-    public void setWarnings(List<String> warnings) {
-        this.warnings = warnings;
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<ProductIssue> getIssueCodes() {
+        return ProductIssue.fromMask(issueMask);
     }
 
-    public void addWarning(String warning) {
-        if (warning == null || warning.isBlank()) {
-            return;
-        }
-        if (this.warnings == null) {
-            this.warnings = new ArrayList<>();
-        }
-        this.warnings.add(warning);
+    @JsonIgnore
+    public int getIssueMask() {
+        return issueMask;
+    }
+
+    public void setIssueMask(int issueMask) {
+        this.issueMask = issueMask;
+    }
+
+    public void addIssue(ProductIssue issue) {
+        this.issueMask |= issue.bit();
+    }
+
+    public boolean hasIssue(ProductIssue issue) {
+        return issue.isSet(issueMask);
+    }
+
+    /**
+     * Порог, с которым применены пороговые проверки; нужен для текста {@link ProductIssue#MARGIN_BELOW_THRESHOLD}.
+     */
+    @JsonIgnore
+    public BigDecimal getAppliedMarginThreshold() {
+        return appliedMarginThreshold;
+    }
+
+    public void setAppliedMarginThreshold(BigDecimal appliedMarginThreshold) {
+        this.appliedMarginThreshold = appliedMarginThreshold;
     }
 }
@@ -0,0 +1,92 @@
+package com.marketplacehelper.dto;
+
+import java.util.List;
+
+/**
+ * Фильтры списка аналитики; незаданные поля не ограничивают выборку.
+ * Флаги {@code profitable}, {@code requiresCorrection} и {@code marginBelowThreshold} считаются по порогу маржи запроса.
+ */
+public class ProductAnalyticsFilter {
+
+    private List<ProductDataSource> dataSources;
+    private String brand;
+    private String category;
+    private String subject;
+    private String search;
+    private Boolean profitable;
+    private Boolean requiresCorrection;
+    private Boolean negativeMargin;
+    private Boolean marginBelowThreshold;
+
+    public List<ProductDataSource> getDataSources() {
+        return dataSources;
+    }
+
+    public void setDataSources(List<ProductDataSource> dataSources) {
+        this.dataSources = dataSources;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getSearch() {
+        return search;
+    }
+
+    public void setSearch(String search) {
+        this.search = search;
+    }
+
+    public Boolean getProfitable() {
+        return profitable;
+    }
+
+    public void setProfitable(Boolean profitable) {
+        this.profitable = profitable;
+    }
+
+    public Boolean getRequiresCorrection() {
+        return requiresCorrection;
+    }
+
+    public void setRequiresCorrection(Boolean requiresCorrection) {
+        this.requiresCorrection = requiresCorrection;
+    }
+
+    public Boolean getNegativeMargin() {
+        return negativeMargin;
+    }
+
+    public void setNegativeMargin(Boolean negativeMargin) {
+        this.negativeMargin = negativeMargin;
+    }
+
+    public Boolean getMarginBelowThreshold() {
+        return marginBelowThreshold;
+    }
+
+    public void setMarginBelowThreshold(Boolean marginBelowThreshold) {
+        this.marginBelowThreshold = marginBelowThreshold;
+    }
+}
@@ -0,0 +1,83 @@
+package com.marketplacehelper.dto;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@JsonView(IssueViews.Codes.class)
+public class ProductAnalyticsPageDto {
+
+    private List<ProductAnalyticsDto> items;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+    private String sort;
+    private String direction;
+    private BigDecimal appliedMinMarginPercent;
+
+    public List<ProductAnalyticsDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ProductAnalyticsDto> items) {
+        this.items = items;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public long getTotalElements() {
+        return totalElements;
+    }
+
+    public void setTotalElements(long totalElements) {
+        this.totalElements = totalElements;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public void setTotalPages(int totalPages) {
+        this.totalPages = totalPages;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
+    public BigDecimal getAppliedMinMarginPercent() {
+        return appliedMinMarginPercent;
+    }
+
+    public void setAppliedMinMarginPercent(BigDecimal appliedMinMarginPercent) {
+        this.appliedMinMarginPercent = appliedMinMarginPercent;
+    }
+}
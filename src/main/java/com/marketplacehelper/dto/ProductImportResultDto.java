@@ -10,6 +10,14 @@ public class ProductImportResultDto {
     private int created;
     private int updated;
     private int skipped;
+    // строки, совпавшие с последним импортом товара: не перезаписывались
+    private int unchanged;
+    // true, если такой же файл уже импортирован и строки не читались
+    private Boolean alreadyImported;
+    // импорт через промежуточную таблицу: по этому id смотрятся строки и применяется пробный прогон
+    private String stagingId;
+    private long durationMs;
+    private long rowsPerSecond;
     private List<String> warnings;
     private List<String> errors;
 
@@ -37,6 +45,49 @@ public class ProductImportResultDto {
         this.skipped = skipped;
     }
 
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(int unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public Boolean getAlreadyImported() {
+        return alreadyImported;
+    }
+
+    public void setAlreadyImported(Boolean alreadyImported) {
+        this.alreadyImported = alreadyImported;
+    }
+
+    public String getStagingId() {
+        return stagingId;
+    }
+
+    public void setStagingId(String stagingId) {
+        this.stagingId = stagingId;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    /**
+     * Строк данных (без заголовка, включая пропущенные) в секунду за весь импорт.
+     */
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
     public List<String> getWarnings() {
         return warnings;
     }
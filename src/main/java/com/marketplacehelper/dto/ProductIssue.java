@@ -0,0 +1,113 @@
+package com.marketplacehelper.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Проблемы товара в отчёте. Считаются один раз на товар и хранятся битовой маской
+ * ({@link #bit()}); тексты собираются только при выводе.
+ * Порядок констант — порядок вывода предупреждений.
+ */
+public enum ProductIssue {
+    LOCAL_ONLY_DATA("Загружено из Excel — нет данных из кабинета WB.",
+            "wbData", "Загружено из Excel — нет данных из кабинета WB.", null, false),
+    NO_EXCEL_DATA("Нет корпоративных данных — загрузите Excel для сопоставления.",
+            "excelData", "Нет корпоративных данных — загрузите Excel для сопоставления.", null, true),
+    NO_PURCHASE_PRICE("Не заполнено поле «Закупка».", "purchasePrice", "Пустое значение", "60% от price", true),
+    NO_LOGISTICS_COST("Не указана логистика.", "logisticsCost", "Пустое значение", "70 ₽/шт", true),
+    NO_MARKETING_COST("Не указаны маркетинговые расходы.", "marketingCost", "Пустое значение", "8% от price", false),
+    NO_OTHER_EXPENSES("Не указаны прочие расходы.", "otherExpenses", "Пустое значение", "0 ₽", false),
+    DISCOUNT_ABOVE_PRICE("Цена со скидкой превышает базовую цену WB."),
+    MARGIN_UNKNOWN("Не удалось рассчитать маржу."),
+    NEGATIVE_MARGIN("Маржа отрицательная. Проверьте расходы и цены."),
+    // единственная проблема, зависящая от порога маржи; в read model не хранится
+    MARGIN_BELOW_THRESHOLD("Маржа ниже порога %s%%.");
+
+    private static final ProductIssue[] VALUES = values();
+    private static final int VALIDATION_MASK;
+
+    static {
+        int mask = 0;
+        for (ProductIssue issue : VALUES) {
+            if (issue.field != null) {
+                mask |= issue.bit();
+            }
+        }
+        VALIDATION_MASK = mask;
+    }
+
+    private final String warning;
+    private final String field;
+    private final String reason;
+    private final String suggestion;
+    private final boolean blocking;
+
+    ProductIssue(String warning) {
+        this(warning, null, null, null, false);
+    }
+
+    ProductIssue(String warning, String field, String reason, String suggestion, boolean blocking) {
+        this.warning = warning;
+        this.field = field;
+        this.reason = reason;
+        this.suggestion = suggestion;
+        this.blocking = blocking;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public boolean isSet(int mask) {
+        return (mask & bit()) != 0;
+    }
+
+    /**
+     * Текст предупреждения для аналитики; {@code marginThreshold} нужен только для {@link #MARGIN_BELOW_THRESHOLD}.
+     */
+    public String warning(BigDecimal marginThreshold) {
+        if (this == MARGIN_BELOW_THRESHOLD) {
+            String threshold = marginThreshold != null ? marginThreshold.stripTrailingZeros().toPlainString() : "?";
+            return String.format(Locale.ROOT, warning, threshold);
+        }
+        return warning;
+    }
+
+    /**
+     * Поле в отчёте о полноте данных; {@code null}, если проблема туда не попадает.
+     */
+    public String getField() {
+        return field;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String getSuggestion() {
+        return suggestion;
+    }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * Проблемы, попадающие в отчёт о полноте данных.
+     */
+    public static int validationMask() {
+        return VALIDATION_MASK;
+    }
+
+    public static List<ProductIssue> fromMask(int mask) {
+        List<ProductIssue> result = new ArrayList<>(Integer.bitCount(mask));
+        for (ProductIssue issue : VALUES) {
+            if (issue.isSet(mask)) {
+                result.add(issue);
+            }
+        }
+        return result;
+    }
+}
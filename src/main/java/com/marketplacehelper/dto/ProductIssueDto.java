@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class ProductIssueDto {
 
+    private ProductIssue code;
     private String field;
     private String reason;
     private String suggestion;
@@ -13,6 +14,11 @@ public class ProductIssueDto {
     public ProductIssueDto() {
     }
 
+    public ProductIssueDto(ProductIssue code, String suggestion) {
+        this(code.getField(), code.getReason(), suggestion, code.isBlocking());
+        this.code = code;
+    }
+
     public ProductIssueDto(String field, String reason, String suggestion, boolean blocking) {
         this.field = field;
         this.reason = reason;
@@ -20,6 +26,14 @@ public class ProductIssueDto {
         this.blocking = blocking;
     }
 
+    public ProductIssue getCode() {
+        return code;
+    }
+
+    public void setCode(ProductIssue code) {
+        this.code = code;
+    }
+
     public String getField() {
         return field;
     }
@@ -1,19 +1,22 @@
 package com.marketplacehelper.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonView;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonView(IssueViews.Codes.class)
 public class ProductValidationDto {
 
     private Long productId;
     private String name;
     private String wbArticle;
     private boolean requiresCorrection;
-    private List<ProductIssueDto> issues;
+    private int issueMask;
+    private boolean purchasePriceSuggested;
 
     public Long getProductId() {
         return productId;
@@ -47,26 +50,47 @@ public class ProductValidationDto {
         this.requiresCorrection = requiresCorrection;
     }
 
+    /**
+     * Проблемы полноты данных; собираются из {@link #getIssueMask()} при каждом вызове.
+     */
+    @JsonView(IssueViews.Messages.class)
     public List<ProductIssueDto> getIssues() {
-        if (issues == null) {
-            return Collections.emptyList();
+        List<ProductIssueDto> issues = new ArrayList<>(Integer.bitCount(issueMask));
+        for (ProductIssue issue : ProductIssue.fromMask(issueMask)) {
+            String suggestion = issue == ProductIssue.NO_PURCHASE_PRICE && !purchasePriceSuggested
+                    ? null
+                    : issue.getSuggestion();
+            issues.add(new ProductIssueDto(issue, suggestion));
         }
-        return Collections.unmodifiableList(issues);
+        return issues;
     }
 
-    public void setIssues(List<ProductIssueDto> issues) {
-        this.issues = issues;
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<ProductIssue> getIssueCodes() {
+        return ProductIssue.fromMask(issueMask);
     }
 
-    public void addIssue(ProductIssueDto issue) {
-        if (issue == null) {
-            return;
-        }
-        if (this.issues == null) {
-            this.issues = new ArrayList<>();
-        }
-        this.issues.add(issue);
+    /**
+     * Только проблемы, у которых есть {@link ProductIssue#getField()}.
+     */
+    @JsonIgnore
+    public int getIssueMask() {
+        return issueMask;
+    }
+
+    public void setIssueMask(int issueMask) {
+        this.issueMask = issueMask;
     }
-}
 
+    /**
+     * Предлагать ли закупку «60% от price» — только если цена из Excel известна.
+     */
+    @JsonIgnore
+    public boolean isPurchasePriceSuggested() {
+        return purchasePriceSuggested;
+    }
 
+    public void setPurchasePriceSuggested(boolean purchasePriceSuggested) {
+        this.purchasePriceSuggested = purchasePriceSuggested;
+    }
+}
@@ -0,0 +1,132 @@
+package com.marketplacehelper.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Фактические итоги продаж артикула по отчётам о реализации и расходы на одну проданную штуку.
+ * Расходы на штуку не считаются, пока нет ни одной продажи за вычетом возвратов.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SalesArticleStatsDto {
+
+    private Long nmId;
+    private String vendorCode;
+    private int unitsSold;
+    private int salesCount;
+    private int returnsCount;
+    private BigDecimal revenue;
+    private BigDecimal payout;
+    private BigDecimal logistics;
+    private BigDecimal penalties;
+    private BigDecimal logisticsPerUnit;
+    private BigDecimal penaltiesPerUnit;
+    private BigDecimal payoutPerUnit;
+    private LocalDateTime updatedAt;
+
+    public Long getNmId() {
+        return nmId;
+    }
+
+    public void setNmId(Long nmId) {
+        this.nmId = nmId;
+    }
+
+    public String getVendorCode() {
+        return vendorCode;
+    }
+
+    public void setVendorCode(String vendorCode) {
+        this.vendorCode = vendorCode;
+    }
+
+    public int getUnitsSold() {
+        return unitsSold;
+    }
+
+    public void setUnitsSold(int unitsSold) {
+        this.unitsSold = unitsSold;
+    }
+
+    public int getSalesCount() {
+        return salesCount;
+    }
+
+    public void setSalesCount(int salesCount) {
+        this.salesCount = salesCount;
+    }
+
+    public int getReturnsCount() {
+        return returnsCount;
+    }
+
+    public void setReturnsCount(int returnsCount) {
+        this.returnsCount = returnsCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public BigDecimal getPayout() {
+        return payout;
+    }
+
+    public void setPayout(BigDecimal payout) {
+        this.payout = payout;
+    }
+
+    public BigDecimal getLogistics() {
+        return logistics;
+    }
+
+    public void setLogistics(BigDecimal logistics) {
+        this.logistics = logistics;
+    }
+
+    public BigDecimal getPenalties() {
+        return penalties;
+    }
+
+    public void setPenalties(BigDecimal penalties) {
+        this.penalties = penalties;
+    }
+
+    public BigDecimal getLogisticsPerUnit() {
+        return logisticsPerUnit;
+    }
+
+    public void setLogisticsPerUnit(BigDecimal logisticsPerUnit) {
+        this.logisticsPerUnit = logisticsPerUnit;
+    }
+
+    public BigDecimal getPenaltiesPerUnit() {
+        return penaltiesPerUnit;
+    }
+
+    public void setPenaltiesPerUnit(BigDecimal penaltiesPerUnit) {
+        this.penaltiesPerUnit = penaltiesPerUnit;
+    }
+
+    public BigDecimal getPayoutPerUnit() {
+        return payoutPerUnit;
+    }
+
+    public void setPayoutPerUnit(BigDecimal payoutPerUnit) {
+        this.payoutPerUnit = payoutPerUnit;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
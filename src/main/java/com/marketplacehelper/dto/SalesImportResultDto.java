@@ -0,0 +1,95 @@
+package com.marketplacehelper.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Итог загрузки отчёта о реализации. {@code duplicates} — строки, загруженные раньше (тем же или пересекающимся отчётом).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SalesImportResultDto {
+
+    private long rowsRead;
+    private int inserted;
+    private int duplicates;
+    private int skipped;
+    // артикулов, итоги которых изменились
+    private int articles;
+    private long durationMs;
+    private long rowsPerSecond;
+    private List<String> warnings;
+    private List<String> errors;
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(int inserted) {
+        this.inserted = inserted;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(int duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(int skipped) {
+        this.skipped = skipped;
+    }
+
+    public int getArticles() {
+        return articles;
+    }
+
+    public void setArticles(int articles) {
+        this.articles = articles;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    public void setWarnings(List<String> warnings) {
+        this.warnings = warnings;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+}
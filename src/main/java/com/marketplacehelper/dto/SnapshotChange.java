@@ -0,0 +1,11 @@
+package com.marketplacehelper.dto;
+
+/**
+ * Что изменилось у товара по сравнению со снимком.
+ */
+public enum SnapshotChange {
+    // товар стал прибыльным или перестал быть прибыльным при пороге маржи
+    THRESHOLD_CROSSED,
+    PRICE_CHANGED,
+    STOCK_DROPPED
+}
@@ -0,0 +1,75 @@
+package com.marketplacehelper.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Изменения с даты снимка: счётчики по всем изменившимся товарам и первые {@code limit} по величине изменения.
+ */
+public class SnapshotDiffDto {
+
+    private LocalDate snapshotDate;
+    private BigDecimal appliedMinMarginPercent;
+    private long changedCount;
+    private long thresholdCrossedCount;
+    private long priceChangedCount;
+    private long stockDroppedCount;
+    private List<SnapshotDiffItemDto> items;
+
+    public LocalDate getSnapshotDate() {
+        return snapshotDate;
+    }
+
+    public void setSnapshotDate(LocalDate snapshotDate) {
+        this.snapshotDate = snapshotDate;
+    }
+
+    public BigDecimal getAppliedMinMarginPercent() {
+        return appliedMinMarginPercent;
+    }
+
+    public void setAppliedMinMarginPercent(BigDecimal appliedMinMarginPercent) {
+        this.appliedMinMarginPercent = appliedMinMarginPercent;
+    }
+
+    public long getChangedCount() {
+        return changedCount;
+    }
+
+    public void setChangedCount(long changedCount) {
+        this.changedCount = changedCount;
+    }
+
+    public long getThresholdCrossedCount() {
+        return thresholdCrossedCount;
+    }
+
+    public void setThresholdCrossedCount(long thresholdCrossedCount) {
+        this.thresholdCrossedCount = thresholdCrossedCount;
+    }
+
+    public long getPriceChangedCount() {
+        return priceChangedCount;
+    }
+
+    public void setPriceChangedCount(long priceChangedCount) {
+        this.priceChangedCount = priceChangedCount;
+    }
+
+    public long getStockDroppedCount() {
+        return stockDroppedCount;
+    }
+
+    public void setStockDroppedCount(long stockDroppedCount) {
+        this.stockDroppedCount = stockDroppedCount;
+    }
+
+    public List<SnapshotDiffItemDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<SnapshotDiffItemDto> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,165 @@
+package com.marketplacehelper.dto;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Товар, изменившийся с даты снимка: значения тогда и сейчас.
+ */
+public class SnapshotDiffItemDto {
+
+    private Long productId;
+    private Long wbProductId;
+    private String wbArticle;
+    private String name;
+    private Set<SnapshotChange> changes = EnumSet.noneOf(SnapshotChange.class);
+    private BigDecimal previousPrice;
+    private BigDecimal price;
+    private BigDecimal priceDeltaPercent;
+    private BigDecimal previousMargin;
+    private BigDecimal margin;
+    private BigDecimal previousMarginPercent;
+    private BigDecimal marginPercent;
+    private BigDecimal marginPercentDelta;
+    private boolean previouslyProfitable;
+    private boolean profitable;
+    private Integer previousStock;
+    private Integer stock;
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getWbProductId() {
+        return wbProductId;
+    }
+
+    public void setWbProductId(Long wbProductId) {
+        this.wbProductId = wbProductId;
+    }
+
+    public String getWbArticle() {
+        return wbArticle;
+    }
+
+    public void setWbArticle(String wbArticle) {
+        this.wbArticle = wbArticle;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Set<SnapshotChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(Set<SnapshotChange> changes) {
+        this.changes = changes;
+    }
+
+    public BigDecimal getPreviousPrice() {
+        return previousPrice;
+    }
+
+    public void setPreviousPrice(BigDecimal previousPrice) {
+        this.previousPrice = previousPrice;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getPriceDeltaPercent() {
+        return priceDeltaPercent;
+    }
+
+    public void setPriceDeltaPercent(BigDecimal priceDeltaPercent) {
+        this.priceDeltaPercent = priceDeltaPercent;
+    }
+
+    public BigDecimal getPreviousMargin() {
+        return previousMargin;
+    }
+
+    public void setPreviousMargin(BigDecimal previousMargin) {
+        this.previousMargin = previousMargin;
+    }
+
+    public BigDecimal getMargin() {
+        return margin;
+    }
+
+    public void setMargin(BigDecimal margin) {
+        this.margin = margin;
+    }
+
+    public BigDecimal getPreviousMarginPercent() {
+        return previousMarginPercent;
+    }
+
+    public void setPreviousMarginPercent(BigDecimal previousMarginPercent) {
+        this.previousMarginPercent = previousMarginPercent;
+    }
+
+    public BigDecimal getMarginPercent() {
+        return marginPercent;
+    }
+
+    public void setMarginPercent(BigDecimal marginPercent) {
+        this.marginPercent = marginPercent;
+    }
+
+    public BigDecimal getMarginPercentDelta() {
+        return marginPercentDelta;
+    }
+
+    public void setMarginPercentDelta(BigDecimal marginPercentDelta) {
+        this.marginPercentDelta = marginPercentDelta;
+    }
+
+    public boolean isPreviouslyProfitable() {
+        return previouslyProfitable;
+    }
+
+    public void setPreviouslyProfitable(boolean previouslyProfitable) {
+        this.previouslyProfitable = previouslyProfitable;
+    }
+
+    public boolean isProfitable() {
+        return profitable;
+    }
+
+    public void setProfitable(boolean profitable) {
+        this.profitable = profitable;
+    }
+
+    public Integer getPreviousStock() {
+        return previousStock;
+    }
+
+    public void setPreviousStock(Integer previousStock) {
+        this.previousStock = previousStock;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+}
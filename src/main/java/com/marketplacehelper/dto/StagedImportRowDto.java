@@ -0,0 +1,160 @@
+package com.marketplacehelper.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Строка файла в промежуточной таблице импорта и итог её сверки с товарами.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StagedImportRowDto {
+
+    private int rowNumber;
+    // CREATE, UPDATE, UNCHANGED, SUPERSEDED или ERROR
+    private String action;
+    // существующий товар с тем же артикулом
+    private Long productId;
+    private String name;
+    private String wbArticle;
+    private String wbBarcode;
+    private String category;
+    private String brand;
+    private Integer stockQuantity;
+    private BigDecimal price;
+    private BigDecimal purchasePrice;
+    private BigDecimal logisticsCost;
+    private BigDecimal marketingCost;
+    private BigDecimal otherExpenses;
+    private String error;
+    private List<String> warnings;
+
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    public void setRowNumber(int rowNumber) {
+        this.rowNumber = rowNumber;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getWbArticle() {
+        return wbArticle;
+    }
+
+    public void setWbArticle(String wbArticle) {
+        this.wbArticle = wbArticle;
+    }
+
+    public String getWbBarcode() {
+        return wbBarcode;
+    }
+
+    public void setWbBarcode(String wbBarcode) {
+        this.wbBarcode = wbBarcode;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getPurchasePrice() {
+        return purchasePrice;
+    }
+
+    public void setPurchasePrice(BigDecimal purchasePrice) {
+        this.purchasePrice = purchasePrice;
+    }
+
+    public BigDecimal getLogisticsCost() {
+        return logisticsCost;
+    }
+
+    public void setLogisticsCost(BigDecimal logisticsCost) {
+        this.logisticsCost = logisticsCost;
+    }
+
+    public BigDecimal getMarketingCost() {
+        return marketingCost;
+    }
+
+    public void setMarketingCost(BigDecimal marketingCost) {
+        this.marketingCost = marketingCost;
+    }
+
+    public BigDecimal getOtherExpenses() {
+        return otherExpenses;
+    }
+
+    public void setOtherExpenses(BigDecimal otherExpenses) {
+        this.otherExpenses = otherExpenses;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    public void setWarnings(List<String> warnings) {
+        this.warnings = warnings;
+    }
+}
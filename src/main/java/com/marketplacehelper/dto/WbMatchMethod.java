@@ -0,0 +1,11 @@
+package com.marketplacehelper.dto;
+
+/**
+ * Как товар Excel связан с карточкой WB.
+ */
+public enum WbMatchMethod {
+    // числовой артикул товара совпал с nmId карточки
+    NM_ID,
+    // артикул товара совпал с артикулом поставщика карточки
+    VENDOR_CODE
+}
@@ -0,0 +1,72 @@
+package com.marketplacehelper.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Запрос на моделирование «что если»: набор сценариев применяется к аналитике в памяти, ничего не сохраняя.
+ * Изменения задаются в процентах от текущего значения, скидка — в процентных пунктах от цены WB.
+ */
+public class WhatIfRequest {
+
+    public static class Scenario {
+        private String name;
+        // изменение цены продажи, %
+        private BigDecimal pricePercent;
+        // изменение скидки, п.п. от цены WB до скидки: +5 — цена продажи ниже на 5% цены WB
+        private BigDecimal discountPoints;
+        private BigDecimal purchasePercent;
+        private BigDecimal logisticsPercent;
+        private BigDecimal marketingPercent;
+        // маркетинг как доля новой цены продажи, %; заменяет marketingPercent
+        private BigDecimal marketingShareOfPrice;
+        private BigDecimal otherPercent;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public BigDecimal getPricePercent() { return pricePercent; }
+        public void setPricePercent(BigDecimal pricePercent) { this.pricePercent = pricePercent; }
+
+        public BigDecimal getDiscountPoints() { return discountPoints; }
+        public void setDiscountPoints(BigDecimal discountPoints) { this.discountPoints = discountPoints; }
+
+        public BigDecimal getPurchasePercent() { return purchasePercent; }
+        public void setPurchasePercent(BigDecimal purchasePercent) { this.purchasePercent = purchasePercent; }
+
+        public BigDecimal getLogisticsPercent() { return logisticsPercent; }
+        public void setLogisticsPercent(BigDecimal logisticsPercent) { this.logisticsPercent = logisticsPercent; }
+
+        public BigDecimal getMarketingPercent() { return marketingPercent; }
+        public void setMarketingPercent(BigDecimal marketingPercent) { this.marketingPercent = marketingPercent; }
+
+        public BigDecimal getMarketingShareOfPrice() { return marketingShareOfPrice; }
+        public void setMarketingShareOfPrice(BigDecimal marketingShareOfPrice) { this.marketingShareOfPrice = marketingShareOfPrice; }
+
+        public BigDecimal getOtherPercent() { return otherPercent; }
+        public void setOtherPercent(BigDecimal otherPercent) { this.otherPercent = otherPercent; }
+    }
+
+    private List<Scenario> scenarios;
+    private ProductAnalyticsFilter filter;
+    private BigDecimal minMarginPercent;
+    // brand | category | subject; без значения разбивка по группам не считается
+    private String groupBy;
+    // границы корзин распределения процента маржи; по умолчанию 0, 10, 20, 30, 40, 50
+    private List<BigDecimal> distributionEdges;
+
+    public List<Scenario> getScenarios() { return scenarios; }
+    public void setScenarios(List<Scenario> scenarios) { this.scenarios = scenarios; }
+
+    public ProductAnalyticsFilter getFilter() { return filter; }
+    public void setFilter(ProductAnalyticsFilter filter) { this.filter = filter; }
+
+    public BigDecimal getMinMarginPercent() { return minMarginPercent; }
+    public void setMinMarginPercent(BigDecimal minMarginPercent) { this.minMarginPercent = minMarginPercent; }
+
+    public String getGroupBy() { return groupBy; }
+    public void setGroupBy(String groupBy) { this.groupBy = groupBy; }
+
+    public List<BigDecimal> getDistributionEdges() { return distributionEdges; }
+    public void setDistributionEdges(List<BigDecimal> distributionEdges) { this.distributionEdges = distributionEdges; }
+}
@@ -0,0 +1,130 @@
+package com.marketplacehelper.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Результат моделирования: текущее состояние и по одному блоку на сценарий.
+ * Учитываются только товары с рассчитанной маржой; дельты считаются от текущего состояния.
+ */
+public class WhatIfResultDto {
+
+    public static class ScenarioResult {
+        private String name;
+        private long pricedCount;
+        private BigDecimal revenue;
+        private BigDecimal marginSum;
+        private BigDecimal marginSumDelta;
+        private BigDecimal weightedMarginPercent;
+        private long profitableCount;
+        private long profitableDelta;
+        // были прибыльными при пороге и перестали
+        private long becameUnprofitable;
+        private long becameProfitable;
+        private long negativeMarginCount;
+        private List<Bucket> distribution;
+        private List<GroupDelta> groups;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public long getPricedCount() { return pricedCount; }
+        public void setPricedCount(long pricedCount) { this.pricedCount = pricedCount; }
+
+        public BigDecimal getRevenue() { return revenue; }
+        public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+
+        public BigDecimal getMarginSum() { return marginSum; }
+        public void setMarginSum(BigDecimal marginSum) { this.marginSum = marginSum; }
+
+        public BigDecimal getMarginSumDelta() { return marginSumDelta; }
+        public void setMarginSumDelta(BigDecimal marginSumDelta) { this.marginSumDelta = marginSumDelta; }
+
+        public BigDecimal getWeightedMarginPercent() { return weightedMarginPercent; }
+        public void setWeightedMarginPercent(BigDecimal weightedMarginPercent) { this.weightedMarginPercent = weightedMarginPercent; }
+
+        public long getProfitableCount() { return profitableCount; }
+        public void setProfitableCount(long profitableCount) { this.profitableCount = profitableCount; }
+
+        public long getProfitableDelta() { return profitableDelta; }
+        public void setProfitableDelta(long profitableDelta) { this.profitableDelta = profitableDelta; }
+
+        public long getBecameUnprofitable() { return becameUnprofitable; }
+        public void setBecameUnprofitable(long becameUnprofitable) { this.becameUnprofitable = becameUnprofitable; }
+
+        public long getBecameProfitable() { return becameProfitable; }
+        public void setBecameProfitable(long becameProfitable) { this.becameProfitable = becameProfitable; }
+
+        public long getNegativeMarginCount() { return negativeMarginCount; }
+        public void setNegativeMarginCount(long negativeMarginCount) { this.negativeMarginCount = negativeMarginCount; }
+
+        public List<Bucket> getDistribution() { return distribution; }
+        public void setDistribution(List<Bucket> distribution) { this.distribution = distribution; }
+
+        public List<GroupDelta> getGroups() { return groups; }
+        public void setGroups(List<GroupDelta> groups) { this.groups = groups; }
+    }
+
+    /**
+     * Корзина распределения процента маржи: {@code from} включительно, {@code to} не включительно;
+     * у крайних корзин одна из границ пустая.
+     */
+    public static class Bucket {
+        private BigDecimal from;
+        private BigDecimal to;
+        private long count;
+
+        public BigDecimal getFrom() { return from; }
+        public void setFrom(BigDecimal from) { this.from = from; }
+
+        public BigDecimal getTo() { return to; }
+        public void setTo(BigDecimal to) { this.to = to; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+
+    public static class GroupDelta {
+        private String group;
+        private long pricedCount;
+        private BigDecimal marginSum;
+        private BigDecimal marginSumDelta;
+        private BigDecimal weightedMarginPercent;
+        private long profitableCount;
+        private long profitableDelta;
+
+        public String getGroup() { return group; }
+        public void setGroup(String group) { this.group = group; }
+
+        public long getPricedCount() { return pricedCount; }
+        public void setPricedCount(long pricedCount) { this.pricedCount = pricedCount; }
+
+        public BigDecimal getMarginSum() { return marginSum; }
+        public void setMarginSum(BigDecimal marginSum) { this.marginSum = marginSum; }
+
+        public BigDecimal getMarginSumDelta() { return marginSumDelta; }
+        public void setMarginSumDelta(BigDecimal marginSumDelta) { this.marginSumDelta = marginSumDelta; }
+
+        public BigDecimal getWeightedMarginPercent() { return weightedMarginPercent; }
+        public void setWeightedMarginPercent(BigDecimal weightedMarginPercent) { this.weightedMarginPercent = weightedMarginPercent; }
+
+        public long getProfitableCount() { return profitableCount; }
+        public void setProfitableCount(long profitableCount) { this.profitableCount = profitableCount; }
+
+        public long getProfitableDelta() { return profitableDelta; }
+        public void setProfitableDelta(long profitableDelta) { this.profitableDelta = profitableDelta; }
+    }
+
+    private BigDecimal appliedMinMarginPercent;
+    private ScenarioResult baseline;
+    private List<ScenarioResult> scenarios;
+
+    public BigDecimal getAppliedMinMarginPercent() { return appliedMinMarginPercent; }
+    public void setAppliedMinMarginPercent(BigDecimal appliedMinMarginPercent) { this.appliedMinMarginPercent = appliedMinMarginPercent; }
+
+    public ScenarioResult getBaseline() { return baseline; }
+    public void setBaseline(ScenarioResult baseline) { this.baseline = baseline; }
+
+    public List<ScenarioResult> getScenarios() { return scenarios; }
+    public void setScenarios(List<ScenarioResult> scenarios) { this.scenarios = scenarios; }
+}
@@ -0,0 +1,94 @@
+package com.marketplacehelper.model;
+
+import java.util.Locale;
+
+/**
+ * Нормализация артикулов для сопоставления товаров Excel с карточками WB.
+ * Результат сохраняется в индексируемых колонках, чтобы связь находилась запросом, а не перебором.
+ */
+public final class ArticleKeys {
+
+    private ArticleKeys() {
+    }
+
+    /**
+     * Артикул без пробелов; числовой артикул — без ведущих нулей.
+     */
+    public static String normalizeArticle(String value) {
+        String compact = compact(value);
+        if (compact == null) {
+            return "";
+        }
+        if (isDigits(compact)) {
+            try {
+                return String.valueOf(Long.parseLong(compact));
+            } catch (NumberFormatException ex) {
+                return compact;
+            }
+        }
+        return compact;
+    }
+
+    /**
+     * Ключ для сравнения с артикулом поставщика: нормализованный артикул в нижнем регистре.
+     */
+    public static String articleKey(String wbArticle) {
+        String normalized = normalizeArticle(wbArticle);
+        return normalized.isEmpty() ? null : normalized.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Числовое значение артикула для сравнения с nmId, если артикул состоит только из цифр.
+     */
+    public static Long articleNmId(String wbArticle) {
+        String compact = compact(wbArticle);
+        if (compact == null || !isDigits(compact)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(compact);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    public static String vendorCodeKey(String vendorCode) {
+        String compact = compact(vendorCode);
+        return compact != null ? compact.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static String compact(String value) {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder builder = null;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (isSpace(c)) {
+                if (builder == null) {
+                    builder = new StringBuilder(length);
+                    builder.append(value, 0, i);
+                }
+            } else if (builder != null) {
+                builder.append(c);
+            }
+        }
+        String result = builder != null ? builder.toString() : value;
+        return result.isEmpty() ? null : result;
+    }
+
+    // тот же набор символов, что и у регулярного выражения \s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+package com.marketplacehelper.model;
+
+import com.marketplacehelper.service.CatalogChangeTracker;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Сообщает {@link CatalogChangeTracker} о каждой записи в {@code products} / {@code wb_products}.
+ * Экземпляр создаётся Hibernate через Spring, поэтому трекер подтягивается из контекста,
+ * а в урезанных тестовых контекстах без трекера слушатель просто ничего не делает.
+ */
+public class CatalogChangeListener {
+
+    private final ObjectProvider<CatalogChangeTracker> tracker;
+
+    public CatalogChangeListener(ObjectProvider<CatalogChangeTracker> tracker) {
+        this.tracker = tracker;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        tracker.ifAvailable(t -> {
+            if (entity instanceof Product product) {
+                t.productChanged(product);
+            } else if (entity instanceof WbProduct wbProduct) {
+                t.wbProductChanged(wbProduct);
+            }
+        });
+        if (entity instanceof Product product) {
+            product.rememberArticleKeys();
+        }
+    }
+}
@@ -6,7 +6,9 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "daily_snapshots")
+@Table(name = "daily_snapshots", indexes = {
+        @Index(name = "idx_daily_snapshots_date_article", columnList = "snapshot_date, wb_article")
+})
 public class DailySnapshot {
 
     @Id
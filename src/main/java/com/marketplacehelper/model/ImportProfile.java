@@ -0,0 +1,77 @@
+package com.marketplacehelper.model;
+
+import com.marketplacehelper.dto.ImportField;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Именованное сопоставление колонок файла с полями товара, например «Отчёт о реализации WB» или «Выгрузка 1С».
+ * Поля без колонки в профиле ищутся по встроенным псевдонимам.
+ */
+@Entity
+@Table(name = "import_profiles")
+public class ImportProfile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "name", nullable = false, unique = true, length = 100)
+    private String name;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "import_profile_columns", joinColumns = @JoinColumn(name = "profile_id"))
+    @MapKeyEnumerated(EnumType.STRING)
+    @MapKeyColumn(name = "field", length = 32)
+    @Column(name = "header", nullable = false)
+    private Map<ImportField, String> columns = new EnumMap<>(ImportField.class);
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Map<ImportField, String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(Map<ImportField, String> columns) {
+        this.columns = columns;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
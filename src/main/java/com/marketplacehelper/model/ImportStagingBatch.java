@@ -0,0 +1,83 @@
+package com.marketplacehelper.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Файл, загруженный в промежуточную таблицу импорта. Строки хранятся до применения и после него,
+ * пока партию не удалят вручную или по {@code app.import.staging.keep-hours}.
+ */
+@Entity
+@Table(name = "import_staging_batches")
+public class ImportStagingBatch {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "rows_read", nullable = false)
+    private long rowsRead;
+
+    // пустые строки файла: в промежуточную таблицу не попадают
+    @Column(name = "blank_rows", nullable = false)
+    private int blankRows;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // null — пробный прогон, товары ещё не менялись
+    @Column(name = "applied_at")
+    private LocalDateTime appliedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public int getBlankRows() {
+        return blankRows;
+    }
+
+    public void setBlankRows(int blankRows) {
+        this.blankRows = blankRows;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getAppliedAt() {
+        return appliedAt;
+    }
+
+    public void setAppliedAt(LocalDateTime appliedAt) {
+        this.appliedAt = appliedAt;
+    }
+}
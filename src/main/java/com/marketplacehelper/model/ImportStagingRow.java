@@ -0,0 +1,256 @@
+package com.marketplacehelper.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Разобранная строка файла импорта в промежуточной таблице. Строки пишутся и сверяются с товарами
+ * через JDBC одним набором запросов; сущность задаёт схему таблицы и переносит строку между слоями.
+ * {@code action} — итог сверки: CREATE, UPDATE, UNCHANGED, SUPERSEDED (артикул повторяется ниже в файле) или ERROR.
+ */
+@Entity
+@Table(name = "import_staging_rows", indexes = {
+        @Index(name = "idx_import_staging_rows_line", columnList = "batch_id, line_number"),
+        @Index(name = "idx_import_staging_rows_article", columnList = "batch_id, wb_article")
+})
+public class ImportStagingRow {
+
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String UNCHANGED = "UNCHANGED";
+    public static final String SUPERSEDED = "SUPERSEDED";
+    public static final String ERROR = "ERROR";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "batch_id", nullable = false, length = 36)
+    private String batchId;
+
+    // номер строки в файле
+    @Column(name = "line_number", nullable = false)
+    private int lineNumber;
+
+    private String name;
+
+    @Column(name = "wb_article")
+    private String wbArticle;
+
+    @Column(name = "article_key")
+    private String articleKey;
+
+    @Column(name = "article_nm_id")
+    private Long articleNmId;
+
+    @Column(name = "wb_barcode")
+    private String wbBarcode;
+
+    private String category;
+
+    private String brand;
+
+    @Column(name = "stock_quantity")
+    private Integer stockQuantity;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal price;
+
+    @Column(name = "purchase_price", precision = 10, scale = 2)
+    private BigDecimal purchasePrice;
+
+    @Column(name = "logistics_cost", precision = 10, scale = 2)
+    private BigDecimal logisticsCost;
+
+    @Column(name = "marketing_cost", precision = 10, scale = 2)
+    private BigDecimal marketingCost;
+
+    @Column(name = "other_expenses", precision = 10, scale = 2)
+    private BigDecimal otherExpenses;
+
+    @Column(name = "row_hash", length = 32)
+    private String rowHash;
+
+    // товар с тем же артикулом, найденный при сверке
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(length = 16)
+    private String action;
+
+    @Column(length = 500)
+    private String error;
+
+    // предупреждения строки, по одному на строку текста
+    @Column(length = 2000)
+    private String warning;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getWbArticle() {
+        return wbArticle;
+    }
+
+    public void setWbArticle(String wbArticle) {
+        this.wbArticle = wbArticle;
+    }
+
+    public String getArticleKey() {
+        return articleKey;
+    }
+
+    public void setArticleKey(String articleKey) {
+        this.articleKey = articleKey;
+    }
+
+    public Long getArticleNmId() {
+        return articleNmId;
+    }
+
+    public void setArticleNmId(Long articleNmId) {
+        this.articleNmId = articleNmId;
+    }
+
+    public String getWbBarcode() {
+        return wbBarcode;
+    }
+
+    public void setWbBarcode(String wbBarcode) {
+        this.wbBarcode = wbBarcode;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getPurchasePrice() {
+        return purchasePrice;
+    }
+
+    public void setPurchasePrice(BigDecimal purchasePrice) {
+        this.purchasePrice = purchasePrice;
+    }
+
+    public BigDecimal getLogisticsCost() {
+        return logisticsCost;
+    }
+
+    public void setLogisticsCost(BigDecimal logisticsCost) {
+        this.logisticsCost = logisticsCost;
+    }
+
+    public BigDecimal getMarketingCost() {
+        return marketingCost;
+    }
+
+    public void setMarketingCost(BigDecimal marketingCost) {
+        this.marketingCost = marketingCost;
+    }
+
+    public BigDecimal getOtherExpenses() {
+        return otherExpenses;
+    }
+
+    public void setOtherExpenses(BigDecimal otherExpenses) {
+        this.otherExpenses = otherExpenses;
+    }
+
+    public String getRowHash() {
+        return rowHash;
+    }
+
+    public void setRowHash(String rowHash) {
+        this.rowHash = rowHash;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getWarning() {
+        return warning;
+    }
+
+    public void setWarning(String warning) {
+        this.warning = warning;
+    }
+}
@@ -0,0 +1,108 @@
+package com.marketplacehelper.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежная арифметика в копейках на {@code long}.
+ * Денежные колонки хранятся с двумя знаками после запятой, поэтому перевод в копейки для них точный;
+ * округление везде повторяет {@link RoundingMode#HALF_UP} из прежних расчётов на {@link BigDecimal}.
+ * Проценты хранятся в сотых долях процента (15.25% → 1525).
+ */
+public final class Kopecks {
+
+    public static final long PER_RUBLE = 100;
+    /** 100% в сотых долях процента. */
+    public static final long HUNDRED_PERCENT = 10_000;
+
+    private Kopecks() {
+    }
+
+    /**
+     * Рубли → копейки. Значения с точностью больше копейки округляются HALF_UP.
+     */
+    public static long of(BigDecimal rubles) {
+        BigDecimal value = rubles.scale() == 2 ? rubles : rubles.setScale(2, RoundingMode.HALF_UP);
+        return value.unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toRubles(long kopecks) {
+        return BigDecimal.valueOf(kopecks, 2);
+    }
+
+    /**
+     * Процент → сотые доли процента, с тем же округлением, что и {@code percent.divide(100, 4, HALF_UP)}.
+     */
+    public static long percentHundredths(BigDecimal percent) {
+        BigDecimal value = percent.scale() == 2 ? percent : percent.setScale(2, RoundingMode.HALF_UP);
+        return value.unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal percentToDecimal(long hundredths) {
+        return BigDecimal.valueOf(hundredths, 2);
+    }
+
+    /**
+     * Доля {@code part / whole} в сотых долях процента; то же, что
+     * {@code part.divide(whole, 4, HALF_UP).multiply(100).setScale(2)}.
+     */
+    public static long ratioHundredths(long part, long whole) {
+        return divideHalfUp(Math.multiplyExact(part, HUNDRED_PERCENT), whole);
+    }
+
+    /**
+     * Цена, при которой расходы {@code costs} дают маржу {@code marginHundredths}:
+     * {@code costs / (1 - margin)} с округлением до 4 знаков и затем до копеек, как в прежнем расчёте.
+     */
+    public static long priceForMargin(long costs, long marginHundredths) {
+        long divisor = HUNDRED_PERCENT - marginHundredths;
+        // цена в десятитысячных рубля (4 знака), затем округление до копеек
+        long price4 = divideHalfUp(Math.multiplyExact(costs, PER_RUBLE * HUNDRED_PERCENT), divisor);
+        return divideHalfUp(price4, PER_RUBLE);
+    }
+
+    /**
+     * Процент от суммы, округлённый до копеек: {@code base * percent / 100}.
+     */
+    public static long percentOf(long base, BigDecimal percent) {
+        BigDecimal normalized = percent.stripTrailingZeros();
+        int scale = Math.max(0, normalized.scale());
+        long unscaled = normalized.setScale(scale).unscaledValue().longValueExact();
+        long divisor = Math.multiplyExact(100L, pow10(scale));
+        return divideHalfUp(Math.multiplyExact(base, unscaled), divisor);
+    }
+
+    /**
+     * То же, что {@link #percentOf(long, BigDecimal)}, для процента в сотых долях — без {@link BigDecimal} на строку.
+     */
+    public static long percentOf(long base, long percentHundredths) {
+        return divideHalfUp(Math.multiplyExact(base, percentHundredths), HUNDRED_PERCENT);
+    }
+
+    /**
+     * Округление до целого рубля (HALF_UP), результат в копейках.
+     */
+    public static long roundToRuble(long kopecks) {
+        return Math.multiplyExact(divideHalfUp(kopecks, PER_RUBLE), PER_RUBLE);
+    }
+
+    /**
+     * Деление с округлением HALF_UP (половина — от нуля), как у {@link BigDecimal#divide}.
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder != 0 && Math.abs(remainder) >= Math.abs(divisor) - Math.abs(remainder)) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result = Math.multiplyExact(result, 10L);
+        }
+        return result;
+    }
+}
@@ -1,5 +1,6 @@
 package com.marketplacehelper.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -9,7 +10,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // импорт сопоставляет строки файла с товарами по артикулу
+        @Index(name = "idx_products_wb_article", columnList = "wb_article"),
+        @Index(name = "idx_products_article_nm_id", columnList = "article_nm_id"),
+        @Index(name = "idx_products_article_key", columnList = "article_key")
+})
+@EntityListeners(CatalogChangeListener.class)
 public class Product {
     
     @Id
@@ -23,6 +30,18 @@ public class Product {
     @Column(name = "wb_article")
     private String wbArticle;
     
+    @Column(name = "article_key")
+    private String articleKey;
+
+    @Column(name = "article_nm_id")
+    private Long articleNmId;
+
+    @Transient
+    private String loadedArticleKey;
+
+    @Transient
+    private Long loadedArticleNmId;
+    
     @Column(name = "wb_barcode")
     private String wbBarcode;
     
@@ -57,6 +76,10 @@ public class Product {
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // хеш строки файла, которой товар записан последним импортом; сбрасывается при любом другом изменении
+    @Column(name = "import_hash", length = 32)
+    private String importHash;
     
     // Конструкторы
     public Product() {
@@ -96,6 +119,29 @@ public class Product {
         this.wbArticle = wbArticle;
     }
     
+    @JsonIgnore
+    public String getArticleKey() {
+        return articleKey;
+    }
+
+    @JsonIgnore
+    public Long getArticleNmId() {
+        return articleNmId;
+    }
+
+    /**
+     * Ключи артикула на момент загрузки из БД — нужны, чтобы пересчитать связи, от которых товар ушёл.
+     */
+    @JsonIgnore
+    public String getLoadedArticleKey() {
+        return loadedArticleKey;
+    }
+
+    @JsonIgnore
+    public Long getLoadedArticleNmId() {
+        return loadedArticleNmId;
+    }
+    
     public String getWbBarcode() {
         return wbBarcode;
     }
@@ -184,15 +230,39 @@ public class Product {
         this.updatedAt = updatedAt;
     }
     
+    @JsonIgnore
+    public String getImportHash() {
+        return importHash;
+    }
+
+    public void setImportHash(String importHash) {
+        this.importHash = importHash;
+    }
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = this.createdAt;
+        refreshArticleKeys();
     }
 
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
+        // импорт пишет через JDBC, сюда попадают только правки в обход файла
+        this.importHash = null;
+        refreshArticleKeys();
+    }
+
+    @PostLoad
+    public void rememberArticleKeys() {
+        this.loadedArticleKey = articleKey;
+        this.loadedArticleNmId = articleNmId;
+    }
+
+    public void refreshArticleKeys() {
+        this.articleKey = ArticleKeys.articleKey(wbArticle);
+        this.articleNmId = ArticleKeys.articleNmId(wbArticle);
     }
 }
 
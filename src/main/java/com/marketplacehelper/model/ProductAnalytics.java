@@ -0,0 +1,328 @@
+package com.marketplacehelper.model;
+
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.dto.WbMatchMethod;
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read model аналитики: одна строка на сопоставленный товар, товар без карточки WB
+ * или карточку WB без товара. Хранит всё, что не зависит от порога маржи;
+ * пороговые флаги вычисляются при чтении.
+ * <p>
+ * Строка на товар и строка на карточку без товара уникальны. Карточка WB может быть связана с несколькими
+ * товарами с одинаковым артикулом, поэтому уникален не {@code wb_product_id}, а {@code wb_only_product_id} —
+ * он заполнен только у строк WB_ONLY.
+ */
+@Entity
+@Table(name = "product_analytics", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_analytics_product_id", columnNames = "product_id"),
+        @UniqueConstraint(name = "uk_product_analytics_wb_only_product_id", columnNames = "wb_only_product_id")
+}, indexes = {
+        @Index(name = "idx_product_analytics_wb_product_id", columnList = "wb_product_id"),
+        @Index(name = "idx_product_analytics_wb_article", columnList = "wb_article"),
+        @Index(name = "idx_product_analytics_data_source", columnList = "data_source"),
+        @Index(name = "idx_product_analytics_margin", columnList = "margin"),
+        @Index(name = "idx_product_analytics_margin_percent", columnList = "margin_percent"),
+        @Index(name = "idx_product_analytics_brand", columnList = "brand"),
+        @Index(name = "idx_product_analytics_category", columnList = "category"),
+        @Index(name = "idx_product_analytics_subject", columnList = "subject")
+})
+public class ProductAnalytics {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "wb_product_id")
+    private Long wbProductId;
+
+    // wb_product_id строки без товара; у остальных строк пусто
+    @Column(name = "wb_only_product_id")
+    private Long wbOnlyProductId;
+
+    @Column(name = "wb_article")
+    private String wbArticle;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "vendor_code")
+    private String vendorCode;
+
+    @Column(name = "brand")
+    private String brand;
+
+    @Column(name = "category")
+    private String category;
+
+    @Column(name = "subject")
+    private String subject;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "data_source", nullable = false, length = 16)
+    private ProductDataSource dataSource;
+
+    // способ, которым найдена связь product_id ↔ wb_product_id; только для MERGED
+    @Enumerated(EnumType.STRING)
+    @Column(name = "match_method", length = 16)
+    private WbMatchMethod matchMethod;
+
+    @Column(name = "local_price", precision = 10, scale = 2)
+    private BigDecimal localPrice;
+
+    @Column(name = "wb_price", precision = 10, scale = 2)
+    private BigDecimal wbPrice;
+
+    @Column(name = "wb_discount_price", precision = 10, scale = 2)
+    private BigDecimal wbDiscountPrice;
+
+    @Column(name = "purchase_price", precision = 10, scale = 2)
+    private BigDecimal purchasePrice;
+
+    @Column(name = "logistics_cost", precision = 10, scale = 2)
+    private BigDecimal logisticsCost;
+
+    @Column(name = "marketing_cost", precision = 10, scale = 2)
+    private BigDecimal marketingCost;
+
+    @Column(name = "other_expenses", precision = 10, scale = 2)
+    private BigDecimal otherExpenses;
+
+    @Column(name = "local_stock")
+    private Integer localStock;
+
+    @Column(name = "wb_stock")
+    private Integer wbStock;
+
+    @Column(name = "margin", precision = 12, scale = 2)
+    private BigDecimal margin;
+
+    @Column(name = "margin_percent", precision = 10, scale = 2)
+    private BigDecimal marginPercent;
+
+    @Column(name = "negative_margin", nullable = false)
+    private boolean negativeMargin;
+
+    // битовая маска ProductIssue без пороговых проблем
+    @Column(name = "issue_mask", nullable = false)
+    private int issueMask;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getWbProductId() {
+        return wbProductId;
+    }
+
+    public void setWbProductId(Long wbProductId) {
+        this.wbProductId = wbProductId;
+    }
+
+    public Long getWbOnlyProductId() {
+        return wbOnlyProductId;
+    }
+
+    public String getWbArticle() {
+        return wbArticle;
+    }
+
+    public void setWbArticle(String wbArticle) {
+        this.wbArticle = wbArticle;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getVendorCode() {
+        return vendorCode;
+    }
+
+    public void setVendorCode(String vendorCode) {
+        this.vendorCode = vendorCode;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public ProductDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public void setDataSource(ProductDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public WbMatchMethod getMatchMethod() {
+        return matchMethod;
+    }
+
+    public void setMatchMethod(WbMatchMethod matchMethod) {
+        this.matchMethod = matchMethod;
+    }
+
+    public BigDecimal getLocalPrice() {
+        return localPrice;
+    }
+
+    public void setLocalPrice(BigDecimal localPrice) {
+        this.localPrice = localPrice;
+    }
+
+    public BigDecimal getWbPrice() {
+        return wbPrice;
+    }
+
+    public void setWbPrice(BigDecimal wbPrice) {
+        this.wbPrice = wbPrice;
+    }
+
+    public BigDecimal getWbDiscountPrice() {
+        return wbDiscountPrice;
+    }
+
+    public void setWbDiscountPrice(BigDecimal wbDiscountPrice) {
+        this.wbDiscountPrice = wbDiscountPrice;
+    }
+
+    public BigDecimal getPurchasePrice() {
+        return purchasePrice;
+    }
+
+    public void setPurchasePrice(BigDecimal purchasePrice) {
+        this.purchasePrice = purchasePrice;
+    }
+
+    public BigDecimal getLogisticsCost() {
+        return logisticsCost;
+    }
+
+    public void setLogisticsCost(BigDecimal logisticsCost) {
+        this.logisticsCost = logisticsCost;
+    }
+
+    public BigDecimal getMarketingCost() {
+        return marketingCost;
+    }
+
+    public void setMarketingCost(BigDecimal marketingCost) {
+        this.marketingCost = marketingCost;
+    }
+
+    public BigDecimal getOtherExpenses() {
+        return otherExpenses;
+    }
+
+    public void setOtherExpenses(BigDecimal otherExpenses) {
+        this.otherExpenses = otherExpenses;
+    }
+
+    public Integer getLocalStock() {
+        return localStock;
+    }
+
+    public void setLocalStock(Integer localStock) {
+        this.localStock = localStock;
+    }
+
+    public Integer getWbStock() {
+        return wbStock;
+    }
+
+    public void setWbStock(Integer wbStock) {
+        this.wbStock = wbStock;
+    }
+
+    public BigDecimal getMargin() {
+        return margin;
+    }
+
+    public void setMargin(BigDecimal margin) {
+        this.margin = margin;
+    }
+
+    public BigDecimal getMarginPercent() {
+        return marginPercent;
+    }
+
+    public void setMarginPercent(BigDecimal marginPercent) {
+        this.marginPercent = marginPercent;
+    }
+
+    public boolean isNegativeMargin() {
+        return negativeMargin;
+    }
+
+    public void setNegativeMargin(boolean negativeMargin) {
+        this.negativeMargin = negativeMargin;
+    }
+
+    public int getIssueMask() {
+        return issueMask;
+    }
+
+    public void setIssueMask(int issueMask) {
+        this.issueMask = issueMask;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void refreshWbOnlyProductId() {
+        this.wbOnlyProductId = productId == null ? wbProductId : null;
+    }
+}
@@ -0,0 +1,201 @@
+package com.marketplacehelper.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Строка еженедельного отчёта WB о реализации: продажа, возврат, логистика или штраф по одному заказу.
+ * {@code lineKey} — хеш места строки в отчёте ({@code rrd_id} или отчёт и номер строки), по нему повторная
+ * загрузка того же отчёта не дублирует факты.
+ */
+@Entity
+@Table(name = "sales_facts", indexes = {
+        @Index(name = "idx_sales_facts_nm_id", columnList = "nm_id"),
+        @Index(name = "idx_sales_facts_sale_date", columnList = "sale_date")
+})
+public class SaleFact {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "line_key", nullable = false, unique = true, length = 32)
+    private String lineKey;
+
+    @Column(name = "srid")
+    private String srid;
+
+    @Column(name = "nm_id")
+    private Long nmId;
+
+    @Column(name = "vendor_code")
+    private String vendorCode;
+
+    @Column(name = "barcode")
+    private String barcode;
+
+    // «Продажа» или «Возврат»; у логистики и штрафов пусто
+    @Column(name = "doc_type")
+    private String docType;
+
+    // «Обоснование для оплаты»: продажа, возврат, логистика, штраф…
+    @Column(name = "payment_reason")
+    private String paymentReason;
+
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Column(name = "quantity")
+    private Integer quantity;
+
+    @Column(name = "retail_price", precision = 14, scale = 2)
+    private BigDecimal retailPrice;
+
+    // «Вайлдберриз реализовал Товар (Пр)»
+    @Column(name = "revenue", precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    // «К перечислению Продавцу за реализованный Товар»
+    @Column(name = "payout", precision = 14, scale = 2)
+    private BigDecimal payout;
+
+    @Column(name = "logistics", precision = 14, scale = 2)
+    private BigDecimal logistics;
+
+    @Column(name = "penalties", precision = 14, scale = 2)
+    private BigDecimal penalties;
+
+    @Column(name = "loaded_at", nullable = false)
+    private LocalDateTime loadedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getLineKey() {
+        return lineKey;
+    }
+
+    public void setLineKey(String lineKey) {
+        this.lineKey = lineKey;
+    }
+
+    public String getSrid() {
+        return srid;
+    }
+
+    public void setSrid(String srid) {
+        this.srid = srid;
+    }
+
+    public Long getNmId() {
+        return nmId;
+    }
+
+    public void setNmId(Long nmId) {
+        this.nmId = nmId;
+    }
+
+    public String getVendorCode() {
+        return vendorCode;
+    }
+
+    public void setVendorCode(String vendorCode) {
+        this.vendorCode = vendorCode;
+    }
+
+    public String getBarcode() {
+        return barcode;
+    }
+
+    public void setBarcode(String barcode) {
+        this.barcode = barcode;
+    }
+
+    public String getDocType() {
+        return docType;
+    }
+
+    public void setDocType(String docType) {
+        this.docType = docType;
+    }
+
+    public String getPaymentReason() {
+        return paymentReason;
+    }
+
+    public void setPaymentReason(String paymentReason) {
+        this.paymentReason = paymentReason;
+    }
+
+    public LocalDate getSaleDate() {
+        return saleDate;
+    }
+
+    public void setSaleDate(LocalDate saleDate) {
+        this.saleDate = saleDate;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getRetailPrice() {
+        return retailPrice;
+    }
+
+    public void setRetailPrice(BigDecimal retailPrice) {
+        this.retailPrice = retailPrice;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public BigDecimal getPayout() {
+        return payout;
+    }
+
+    public void setPayout(BigDecimal payout) {
+        this.payout = payout;
+    }
+
+    public BigDecimal getLogistics() {
+        return logistics;
+    }
+
+    public void setLogistics(BigDecimal logistics) {
+        this.logistics = logistics;
+    }
+
+    public BigDecimal getPenalties() {
+        return penalties;
+    }
+
+    public void setPenalties(BigDecimal penalties) {
+        this.penalties = penalties;
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    public void setLoadedAt(LocalDateTime loadedAt) {
+        this.loadedAt = loadedAt;
+    }
+}
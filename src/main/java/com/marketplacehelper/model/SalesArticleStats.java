@@ -0,0 +1,127 @@
+package com.marketplacehelper.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Итоги отчётов о реализации по артикулу WB. Обновляются приращениями при загрузке новых строк,
+ * без пересчёта по всей таблице фактов. Возвраты вычитаются из штук, выручки и выплат; логистика и штрафы — расходы.
+ */
+@Entity
+@Table(name = "sales_article_stats")
+public class SalesArticleStats {
+
+    @Id
+    @Column(name = "nm_id")
+    private Long nmId;
+
+    @Column(name = "vendor_code")
+    private String vendorCode;
+
+    // продано штук за вычетом возвратов
+    @Column(name = "units_sold", nullable = false)
+    private int unitsSold;
+
+    @Column(name = "sales_count", nullable = false)
+    private int salesCount;
+
+    @Column(name = "returns_count", nullable = false)
+    private int returnsCount;
+
+    @Column(name = "revenue", nullable = false, precision = 16, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "payout", nullable = false, precision = 16, scale = 2)
+    private BigDecimal payout;
+
+    @Column(name = "logistics", nullable = false, precision = 16, scale = 2)
+    private BigDecimal logistics;
+
+    @Column(name = "penalties", nullable = false, precision = 16, scale = 2)
+    private BigDecimal penalties;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public Long getNmId() {
+        return nmId;
+    }
+
+    public void setNmId(Long nmId) {
+        this.nmId = nmId;
+    }
+
+    public String getVendorCode() {
+        return vendorCode;
+    }
+
+    public void setVendorCode(String vendorCode) {
+        this.vendorCode = vendorCode;
+    }
+
+    public int getUnitsSold() {
+        return unitsSold;
+    }
+
+    public void setUnitsSold(int unitsSold) {
+        this.unitsSold = unitsSold;
+    }
+
+    public int getSalesCount() {
+        return salesCount;
+    }
+
+    public void setSalesCount(int salesCount) {
+        this.salesCount = salesCount;
+    }
+
+    public int getReturnsCount() {
+        return returnsCount;
+    }
+
+    public void setReturnsCount(int returnsCount) {
+        this.returnsCount = returnsCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public BigDecimal getPayout() {
+        return payout;
+    }
+
+    public void setPayout(BigDecimal payout) {
+        this.payout = payout;
+    }
+
+    public BigDecimal getLogistics() {
+        return logistics;
+    }
+
+    public void setLogistics(BigDecimal logistics) {
+        this.logistics = logistics;
+    }
+
+    public BigDecimal getPenalties() {
+        return penalties;
+    }
+
+    public void setPenalties(BigDecimal penalties) {
+        this.penalties = penalties;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
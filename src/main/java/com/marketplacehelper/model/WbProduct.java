@@ -1,12 +1,16 @@
 package com.marketplacehelper.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "wb_products")
+@Table(name = "wb_products", indexes = {
+        @Index(name = "idx_wb_products_vendor_code_key", columnList = "vendor_code_key")
+})
+@EntityListeners(CatalogChangeListener.class)
 public class WbProduct {
     
     @Id
@@ -29,6 +33,10 @@ public class WbProduct {
     @Column(name = "vendor_code")
     private String vendorCode;
     
+    @JsonIgnore
+    @Column(name = "vendor_code_key")
+    private String vendorCodeKey;
+    
     @JsonProperty("price")
     @Column(name = "price", precision = 10, scale = 2)
     private BigDecimal price;
@@ -150,6 +158,10 @@ public class WbProduct {
         this.vendorCode = vendorCode;
     }
     
+    public String getVendorCodeKey() {
+        return vendorCodeKey;
+    }
+    
     public BigDecimal getPrice() {
         return price;
     }
@@ -306,11 +318,17 @@ public class WbProduct {
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = this.createdAt;
+        refreshVendorCodeKey();
     }
 
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
+        refreshVendorCodeKey();
+    }
+
+    public void refreshVendorCodeKey() {
+        this.vendorCodeKey = ArticleKeys.vendorCodeKey(vendorCode);
     }
 }
 
@@ -0,0 +1,224 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.WbProduct;
+
+import java.math.BigDecimal;
+
+/**
+ * Колонки товара Excel и сопоставленной карточки WB, нужные для расчёта аналитики.
+ * Заполняется конструктором в JPQL, поэтому сущности не попадают в persistence context.
+ */
+public class AnalyticsSourceRow {
+
+    private final Long productId;
+    private final String productName;
+    private final String wbArticle;
+    private final Long articleNmId;
+    private final String productBrand;
+    private final String productCategory;
+    private final BigDecimal localPrice;
+    private final BigDecimal purchasePrice;
+    private final BigDecimal logisticsCost;
+    private final BigDecimal marketingCost;
+    private final BigDecimal otherExpenses;
+    private final Integer localStock;
+
+    private final Long wbProductId;
+    private final Long nmId;
+    private final String wbName;
+    private final String vendorCode;
+    private final String wbBrand;
+    private final String wbCategory;
+    private final BigDecimal wbPrice;
+    private final BigDecimal wbPriceWithDiscount;
+    private final BigDecimal wbSalePrice;
+    private final Integer wbStock;
+
+    private final boolean withProduct;
+    private final boolean withWbProduct;
+
+    public AnalyticsSourceRow(Long productId, String productName, String wbArticle, Long articleNmId,
+                              String productBrand, String productCategory, BigDecimal localPrice,
+                              BigDecimal purchasePrice, BigDecimal logisticsCost, BigDecimal marketingCost,
+                              BigDecimal otherExpenses, Integer localStock,
+                              Long wbProductId, Long nmId, String wbName, String vendorCode,
+                              String wbBrand, String wbCategory, BigDecimal wbPrice,
+                              BigDecimal wbPriceWithDiscount, BigDecimal wbSalePrice, Integer wbStock) {
+        this(productId != null, productId, productName, wbArticle, articleNmId, productBrand, productCategory,
+                localPrice, purchasePrice, logisticsCost, marketingCost, otherExpenses, localStock,
+                wbProductId != null, wbProductId, nmId, wbName, vendorCode, wbBrand, wbCategory, wbPrice,
+                wbPriceWithDiscount, wbSalePrice, wbStock);
+    }
+
+    private AnalyticsSourceRow(boolean withProduct, Long productId, String productName, String wbArticle, Long articleNmId,
+                               String productBrand, String productCategory, BigDecimal localPrice,
+                               BigDecimal purchasePrice, BigDecimal logisticsCost, BigDecimal marketingCost,
+                               BigDecimal otherExpenses, Integer localStock,
+                               boolean withWbProduct, Long wbProductId, Long nmId, String wbName, String vendorCode,
+                               String wbBrand, String wbCategory, BigDecimal wbPrice,
+                               BigDecimal wbPriceWithDiscount, BigDecimal wbSalePrice, Integer wbStock) {
+        this.withProduct = withProduct;
+        this.withWbProduct = withWbProduct;
+        this.productId = productId;
+        this.productName = productName;
+        this.wbArticle = wbArticle;
+        this.articleNmId = articleNmId;
+        this.productBrand = productBrand;
+        this.productCategory = productCategory;
+        this.localPrice = localPrice;
+        this.purchasePrice = purchasePrice;
+        this.logisticsCost = logisticsCost;
+        this.marketingCost = marketingCost;
+        this.otherExpenses = otherExpenses;
+        this.localStock = localStock;
+        this.wbProductId = wbProductId;
+        this.nmId = nmId;
+        this.wbName = wbName;
+        this.vendorCode = vendorCode;
+        this.wbBrand = wbBrand;
+        this.wbCategory = wbCategory;
+        this.wbPrice = wbPrice;
+        this.wbPriceWithDiscount = wbPriceWithDiscount;
+        this.wbSalePrice = wbSalePrice;
+        this.wbStock = wbStock;
+    }
+
+    /**
+     * Карточка WB без товара Excel.
+     */
+    public AnalyticsSourceRow(Long wbProductId, Long nmId, String wbName, String vendorCode,
+                              String wbBrand, String wbCategory, BigDecimal wbPrice,
+                              BigDecimal wbPriceWithDiscount, BigDecimal wbSalePrice, Integer wbStock) {
+        this(null, null, null, null, null, null, null, null, null, null, null, null,
+                wbProductId, nmId, wbName, vendorCode, wbBrand, wbCategory, wbPrice,
+                wbPriceWithDiscount, wbSalePrice, wbStock);
+    }
+
+    /**
+     * Та же строка из загруженных сущностей — для пересчёта read model.
+     */
+    public static AnalyticsSourceRow of(Product product, WbProduct wbProduct) {
+        return new AnalyticsSourceRow(
+                product != null,
+                product != null ? product.getId() : null,
+                product != null ? product.getName() : null,
+                product != null ? product.getWbArticle() : null,
+                product != null ? product.getArticleNmId() : null,
+                product != null ? product.getBrand() : null,
+                product != null ? product.getCategory() : null,
+                product != null ? product.getPrice() : null,
+                product != null ? product.getPurchasePrice() : null,
+                product != null ? product.getLogisticsCost() : null,
+                product != null ? product.getMarketingCost() : null,
+                product != null ? product.getOtherExpenses() : null,
+                product != null ? product.getStockQuantity() : null,
+                wbProduct != null,
+                wbProduct != null ? wbProduct.getId() : null,
+                wbProduct != null ? wbProduct.getNmId() : null,
+                wbProduct != null ? wbProduct.getName() : null,
+                wbProduct != null ? wbProduct.getVendorCode() : null,
+                wbProduct != null ? wbProduct.getBrand() : null,
+                wbProduct != null ? wbProduct.getCategory() : null,
+                wbProduct != null ? wbProduct.getPrice() : null,
+                wbProduct != null ? wbProduct.getPriceWithDiscount() : null,
+                wbProduct != null ? wbProduct.getSalePrice() : null,
+                wbProduct != null ? wbProduct.getTotalQuantity() : null);
+    }
+
+    public boolean hasProduct() {
+        return withProduct;
+    }
+
+    public boolean hasWbProduct() {
+        return withWbProduct;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getWbArticle() {
+        return wbArticle;
+    }
+
+    public Long getArticleNmId() {
+        return articleNmId;
+    }
+
+    public String getProductBrand() {
+        return productBrand;
+    }
+
+    public String getProductCategory() {
+        return productCategory;
+    }
+
+    public BigDecimal getLocalPrice() {
+        return localPrice;
+    }
+
+    public BigDecimal getPurchasePrice() {
+        return purchasePrice;
+    }
+
+    public BigDecimal getLogisticsCost() {
+        return logisticsCost;
+    }
+
+    public BigDecimal getMarketingCost() {
+        return marketingCost;
+    }
+
+    public BigDecimal getOtherExpenses() {
+        return otherExpenses;
+    }
+
+    public Integer getLocalStock() {
+        return localStock;
+    }
+
+    public Long getWbProductId() {
+        return wbProductId;
+    }
+
+    public Long getNmId() {
+        return nmId;
+    }
+
+    public String getWbName() {
+        return wbName;
+    }
+
+    public String getVendorCode() {
+        return vendorCode;
+    }
+
+    public String getWbBrand() {
+        return wbBrand;
+    }
+
+    public String getWbCategory() {
+        return wbCategory;
+    }
+
+    public BigDecimal getWbPrice() {
+        return wbPrice;
+    }
+
+    public BigDecimal getWbPriceWithDiscount() {
+        return wbPriceWithDiscount;
+    }
+
+    public BigDecimal getWbSalePrice() {
+        return wbSalePrice;
+    }
+
+    public Integer getWbStock() {
+        return wbStock;
+    }
+}
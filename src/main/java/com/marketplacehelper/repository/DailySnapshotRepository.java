@@ -1,13 +1,18 @@
 package com.marketplacehelper.repository;
 
 import com.marketplacehelper.model.DailySnapshot;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface DailySnapshotRepository extends JpaRepository<DailySnapshot, Long> {
@@ -16,6 +21,30 @@ public interface DailySnapshotRepository extends JpaRepository<DailySnapshot, Lo
 
     @Query("SELECT s FROM DailySnapshot s WHERE s.snapshotDate BETWEEN :from AND :to")
     List<DailySnapshot> findAllBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    boolean existsBySnapshotDate(LocalDate snapshotDate);
+
+    /**
+     * Строки витрины, у которых по сравнению со снимком за дату изменилась цена, упал остаток
+     * или прибыльность при пороге. Снимок ищется по индексу (дата, артикул); если за дату их несколько,
+     * сравнение идёт с последним (наибольший id), так что на строку витрины — одна строка результата.
+     * Читать внутри транзакции.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.marketplacehelper.repository.SnapshotDiffRow("
+            + "a.id, a.productId, a.wbProductId, a.wbArticle, a.name, "
+            + "COALESCE(a.wbDiscountPrice, a.wbPrice), a.margin, a.marginPercent, COALESCE(a.wbStock, a.localStock), "
+            + "s.price, s.margin, s.marginPercent, COALESCE(s.stockWb, s.stockLocal)) "
+            + "FROM ProductAnalytics a "
+            + "JOIN (SELECT d.wbArticle AS wbArticle, MAX(d.id) AS id FROM DailySnapshot d "
+            + "WHERE d.snapshotDate = :date GROUP BY d.wbArticle) latest ON latest.wbArticle = a.wbArticle "
+            + "JOIN DailySnapshot s ON s.id = latest.id "
+            + "WHERE COALESCE(a.wbDiscountPrice, a.wbPrice, -1) <> COALESCE(s.price, -1) "
+            + "OR COALESCE(a.wbStock, a.localStock) < COALESCE(s.stockWb, s.stockLocal) "
+            + "OR CASE WHEN a.margin >= 0 AND a.marginPercent >= :threshold THEN 1 ELSE 0 END "
+            + "<> CASE WHEN s.margin >= 0 AND s.marginPercent >= :threshold THEN 1 ELSE 0 END")
+    Stream<SnapshotDiffRow> streamChangedSince(@Param("date") LocalDate date,
+                                               @Param("threshold") BigDecimal threshold);
 }
 
 
@@ -0,0 +1,16 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.ImportProfile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImportProfileRepository extends JpaRepository<ImportProfile, Long> {
+
+    Optional<ImportProfile> findByName(String name);
+
+    List<ImportProfile> findAllByOrderByNameAsc();
+}
@@ -0,0 +1,14 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.ImportStagingBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ImportStagingBatchRepository extends JpaRepository<ImportStagingBatch, String> {
+
+    List<ImportStagingBatch> findByCreatedAtBefore(LocalDateTime createdAt);
+}
@@ -0,0 +1,13 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.ImportedFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ImportedFileRepository extends JpaRepository<ImportedFile, Long> {
+
+    Optional<ImportedFile> findByContentHash(String contentHash);
+}
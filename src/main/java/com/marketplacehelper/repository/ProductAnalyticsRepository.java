@@ -0,0 +1,77 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.ProductAnalytics;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ProductAnalyticsRepository extends JpaRepository<ProductAnalytics, Long>,
+        JpaSpecificationExecutor<ProductAnalytics> {
+
+    String REPORT_FILTER = "SELECT a FROM ProductAnalytics a "
+            + "WHERE (:includeWithoutWb = true OR a.dataSource = com.marketplacehelper.dto.ProductDataSource.MERGED) ";
+
+    // маржа без закупки идёт раньше посчитанной, как в AnalyticsService.ANALYTICS_ORDER
+    String REPORT_ORDER = "ORDER BY CASE WHEN a.margin >= 0 AND a.marginPercent >= :threshold THEN 0 ELSE 1 END, "
+            + "CASE WHEN a.dataSource = com.marketplacehelper.dto.ProductDataSource.MERGED "
+            + "AND a.margin >= 0 AND a.marginPercent >= :threshold THEN 0 ELSE 1 END, "
+            + "a.margin DESC NULLS FIRST, LOWER(COALESCE(a.name, ''))";
+
+    String REPORT_QUERY = REPORT_FILTER + REPORT_ORDER;
+
+    // то же условие, что ProductAnalyticsSpecifications.profitable
+    String PROFITABLE_REPORT_QUERY = REPORT_FILTER
+            + "AND a.margin IS NOT NULL AND a.marginPercent IS NOT NULL "
+            + "AND a.margin >= 0 AND a.marginPercent >= :threshold " + REPORT_ORDER;
+
+    List<ProductAnalytics> findByProductIdIn(Collection<Long> productIds);
+
+    List<ProductAnalytics> findByWbProductIdIn(Collection<Long> wbProductIds);
+
+    List<ProductAnalytics> findByWbOnlyProductIdIn(Collection<Long> wbProductIds);
+
+    @Modifying
+    @Query("DELETE FROM ProductAnalytics a WHERE a.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Все строки отчёта в порядке вывода: прибыльные, затем MERGED без проблем, затем по убыванию маржи и имени.
+     */
+    @Query(REPORT_QUERY)
+    List<ProductAnalytics> findForReport(@Param("includeWithoutWb") boolean includeWithoutWb,
+                                         @Param("threshold") BigDecimal threshold);
+
+    /**
+     * То же, что {@link #findForReport}, но построчно — для выгрузок; читать внутри транзакции.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(REPORT_QUERY)
+    Stream<ProductAnalytics> streamForReport(@Param("includeWithoutWb") boolean includeWithoutWb,
+                                             @Param("threshold") BigDecimal threshold);
+
+    /**
+     * Только прибыльные строки {@link #streamForReport} — отбор в запросе, а не при выгрузке.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(PROFITABLE_REPORT_QUERY)
+    Stream<ProductAnalytics> streamProfitableForReport(@Param("includeWithoutWb") boolean includeWithoutWb,
+                                                       @Param("threshold") BigDecimal threshold);
+}
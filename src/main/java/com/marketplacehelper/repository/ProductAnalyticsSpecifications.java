@@ -0,0 +1,96 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.dto.ProductAnalyticsFilter;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.model.ProductAnalytics;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Условия выборки по {@code product_analytics}. Пороговые флаги повторяют
+ * {@code ProductAnalyticsCalculator.applyThreshold}, чтобы фильтр и подсчёт выполнялись в БД.
+ */
+public final class ProductAnalyticsSpecifications {
+
+    private ProductAnalyticsSpecifications() {
+    }
+
+    public static Specification<ProductAnalytics> matching(ProductAnalyticsFilter filter, BigDecimal threshold) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getDataSources() != null && !filter.getDataSources().isEmpty()) {
+                predicates.add(root.get("dataSource").in(filter.getDataSources()));
+            }
+            if (hasText(filter.getBrand())) {
+                predicates.add(cb.equal(cb.lower(root.get("brand")), filter.getBrand().trim().toLowerCase(Locale.ROOT)));
+            }
+            if (hasText(filter.getCategory())) {
+                predicates.add(cb.equal(cb.lower(root.get("category")), filter.getCategory().trim().toLowerCase(Locale.ROOT)));
+            }
+            if (hasText(filter.getSubject())) {
+                predicates.add(cb.equal(cb.lower(root.get("subject")), filter.getSubject().trim().toLowerCase(Locale.ROOT)));
+            }
+            if (hasText(filter.getSearch())) {
+                String pattern = "%" + filter.getSearch().trim().toLowerCase(Locale.ROOT) + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("name")), pattern),
+                        cb.like(cb.lower(root.get("wbArticle")), pattern),
+                        cb.like(cb.lower(root.get("vendorCode")), pattern)));
+            }
+            if (filter.getProfitable() != null) {
+                predicates.add(flag(cb, profitable(root, cb, threshold), filter.getProfitable()));
+            }
+            if (filter.getRequiresCorrection() != null) {
+                predicates.add(flag(cb, requiresCorrection(root, cb, threshold), filter.getRequiresCorrection()));
+            }
+            if (filter.getNegativeMargin() != null) {
+                predicates.add(cb.equal(root.get("negativeMargin"), filter.getNegativeMargin()));
+            }
+            if (filter.getMarginBelowThreshold() != null) {
+                predicates.add(flag(cb, marginBelowThreshold(root, cb, threshold), filter.getMarginBelowThreshold()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Маржа посчитана, неотрицательна и не ниже порога.
+     */
+    public static Predicate profitable(Root<ProductAnalytics> root, CriteriaBuilder cb, BigDecimal threshold) {
+        return cb.and(
+                cb.isNotNull(root.get("margin")),
+                cb.isNotNull(root.get("marginPercent")),
+                cb.greaterThanOrEqualTo(root.get("margin"), BigDecimal.ZERO),
+                cb.greaterThanOrEqualTo(root.get("marginPercent"), threshold));
+    }
+
+    /**
+     * Неполные данные всегда требуют внимания; MERGED — только если товар не прибыльный.
+     */
+    public static Predicate requiresCorrection(Root<ProductAnalytics> root, CriteriaBuilder cb, BigDecimal threshold) {
+        return cb.not(cb.and(
+                cb.equal(root.get("dataSource"), ProductDataSource.MERGED),
+                profitable(root, cb, threshold)));
+    }
+
+    public static Predicate marginBelowThreshold(Root<ProductAnalytics> root, CriteriaBuilder cb, BigDecimal threshold) {
+        return cb.and(
+                cb.isNotNull(root.get("margin")),
+                cb.or(cb.isNull(root.get("marginPercent")), cb.lessThan(root.get("marginPercent"), threshold)));
+    }
+
+    private static Predicate flag(CriteriaBuilder cb, Predicate predicate, boolean expected) {
+        return expected ? predicate : cb.not(predicate);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
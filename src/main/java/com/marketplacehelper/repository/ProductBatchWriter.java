@@ -0,0 +1,139 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.Product;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетная запись товаров через JDBC: одна подготовленная команда на весь список.
+ * Hibernate не пакетирует вставки при {@code IDENTITY}, поэтому массовый импорт пишет здесь.
+ * Entity listener'ы не вызываются — о записанных товарах вызывающий сообщает сам.
+ * Ключи артикулов должны быть уже пересчитаны ({@link Product#refreshArticleKeys()}).
+ */
+@Repository
+public class ProductBatchWriter {
+
+    private static final String INSERT = "INSERT INTO products (name, wb_article, article_key, article_nm_id, "
+            + "wb_barcode, price, stock_quantity, category, brand, purchase_price, logistics_cost, marketing_cost, "
+            + "other_expenses, created_at, updated_at, import_hash) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE = "UPDATE products SET name = ?, wb_article = ?, article_key = ?, "
+            + "article_nm_id = ?, wb_barcode = ?, price = ?, stock_quantity = ?, category = ?, brand = ?, "
+            + "purchase_price = ?, logistics_cost = ?, marketing_cost = ?, other_expenses = ?, created_at = ?, "
+            + "updated_at = ?, import_hash = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Вставляет товары и проставляет им сгенерированные id.
+     */
+    public void insert(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        bind(ps, products.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return products.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < products.size(); i++) {
+            Object id = generated.get(i).values().iterator().next();
+            products.get(i).setId(((Number) id).longValue());
+        }
+    }
+
+    public void update(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Product product = products.get(i);
+                bind(ps, product);
+                ps.setLong(17, product.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return products.size();
+            }
+        });
+    }
+
+    private void bind(PreparedStatement ps, Product product) throws SQLException {
+        ps.setString(1, product.getName());
+        ps.setString(2, product.getWbArticle());
+        ps.setString(3, product.getArticleKey());
+        setLong(ps, 4, product.getArticleNmId());
+        ps.setString(5, product.getWbBarcode());
+        ps.setBigDecimal(6, product.getPrice());
+        setInteger(ps, 7, product.getStockQuantity());
+        ps.setString(8, product.getCategory());
+        ps.setString(9, product.getBrand());
+        setDecimal(ps, 10, product.getPurchasePrice());
+        setDecimal(ps, 11, product.getLogisticsCost());
+        setDecimal(ps, 12, product.getMarketingCost());
+        setDecimal(ps, 13, product.getOtherExpenses());
+        setTimestamp(ps, 14, product.getCreatedAt());
+        setTimestamp(ps, 15, product.getUpdatedAt());
+        ps.setString(16, product.getImportHash());
+    }
+
+    private void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private void setDecimal(PreparedStatement ps, int index, BigDecimal value) throws SQLException {
+        if (value != null) {
+            ps.setBigDecimal(index, value);
+        } else {
+            ps.setNull(index, Types.NUMERIC);
+        }
+    }
+
+    private void setTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        if (value != null) {
+            ps.setTimestamp(index, Timestamp.valueOf(value));
+        } else {
+            ps.setNull(index, Types.TIMESTAMP);
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package com.marketplacehelper.repository;
 
 import com.marketplacehelper.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
     Optional<Product> findByWbArticle(String wbArticle);
+
+    List<Product> findByWbArticleInOrderByIdAsc(Collection<String> wbArticles);
+
+    List<Product> findByArticleNmIdIn(Collection<Long> articleNmIds);
     
     Optional<Product> findByWbBarcode(String wbBarcode);
     
@@ -25,6 +34,42 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     @Query("SELECT p FROM Product p WHERE p.stockQuantity < :threshold")
     List<Product> findLowStockProducts(@Param("threshold") Integer threshold);
+
+    @Query("SELECT p.id FROM Product p WHERE p.articleNmId IN :nmIds")
+    List<Long> findIdsByArticleNmIds(@Param("nmIds") Collection<Long> nmIds);
+
+    @Query("SELECT p.id FROM Product p WHERE p.articleKey IN :keys")
+    List<Long> findIdsByArticleKeys(@Param("keys") Collection<String> keys);
+
+    @Query("SELECT DISTINCT p.articleNmId FROM Product p WHERE p.articleNmId IN :nmIds")
+    List<Long> findMatchedArticleNmIds(@Param("nmIds") Collection<Long> nmIds);
+
+    @Query("SELECT DISTINCT p.articleKey FROM Product p WHERE p.articleKey IN :keys")
+    List<String> findMatchedArticleKeys(@Param("keys") Collection<String> keys);
+
+    /**
+     * Товары вместе с сопоставленной карточкой WB: сначала по nmId, затем по артикулу поставщика,
+     * при нескольких кандидатах — карточка с меньшим id. Кандидаты по каждому ключу сгруппированы один раз
+     * в подзапросах FROM, а не ищутся коррелированным подзапросом для каждого товара. Читать внутри транзакции.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.marketplacehelper.repository.AnalyticsSourceRow("
+            + "p.id, p.name, p.wbArticle, p.articleNmId, p.brand, p.category, p.price, "
+            + "p.purchasePrice, p.logisticsCost, p.marketingCost, p.otherExpenses, p.stockQuantity, "
+            + "w.id, w.nmId, w.name, w.vendorCode, w.brand, w.category, w.price, "
+            + "w.priceWithDiscount, w.salePrice, w.totalQuantity) "
+            + "FROM Product p "
+            + "LEFT JOIN (SELECT n.nmId AS nmId, MIN(n.id) AS wbId FROM WbProduct n "
+            + "WHERE n.nmId IS NOT NULL GROUP BY n.nmId) byNmId ON byNmId.nmId = p.articleNmId "
+            + "LEFT JOIN (SELECT v.vendorCodeKey AS vendorCodeKey, MIN(v.id) AS wbId FROM WbProduct v "
+            + "WHERE v.vendorCodeKey IS NOT NULL GROUP BY v.vendorCodeKey) byCode "
+            + "ON byCode.vendorCodeKey = p.articleKey "
+            + "LEFT JOIN WbProduct w ON w.id = COALESCE(byNmId.wbId, byCode.wbId) "
+            + "WHERE :includeWithoutWb = true OR w.id IS NOT NULL")
+    Stream<AnalyticsSourceRow> streamAnalyticsRows(@Param("includeWithoutWb") boolean includeWithoutWb);
 }
 
 
@@ -0,0 +1,242 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.ImportStagingRow;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Промежуточная таблица импорта товаров: пакетная загрузка разобранных строк, сверка с {@code products}
+ * и применение одним {@code MERGE}. Сверка и применение — запросы над всей партией, без обхода строк в Java.
+ * Entity listener'ы не вызываются — о записанных товарах вызывающий сообщает сам.
+ */
+@Repository
+public class ProductStagingWriter {
+
+    private static final String INSERT = "INSERT INTO import_staging_rows (batch_id, line_number, name, wb_article, "
+            + "article_key, article_nm_id, wb_barcode, category, brand, stock_quantity, price, purchase_price, "
+            + "logistics_cost, marketing_cost, other_expenses, row_hash, action, error, warning) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Товар строки — первый по id с тем же артикулом, как при построчном импорте — ищется один раз во внутреннем
+    // подзапросе, итог сверки считается по найденному product_id; строки партии переписываются одним проходом.
+    // Повторная сверка (применение пробного прогона) пересчитывает всё заново: каталог мог измениться.
+    // Из повторов артикула, как и при построчном импорте, действует последняя строка файла
+    private static final String CLASSIFY = "MERGE INTO import_staging_rows s USING ("
+            + "SELECT m.row_id, m.product_id, CASE "
+            + "WHEN m.superseded THEN 'SUPERSEDED' "
+            + "WHEN m.product_id IS NULL THEN 'CREATE' "
+            + "WHEN EXISTS (SELECT 1 FROM products p WHERE p.id = m.product_id "
+            + "AND p.import_hash = m.row_hash) THEN 'UNCHANGED' "
+            + "ELSE 'UPDATE' END AS action "
+            + "FROM (SELECT t.id AS row_id, t.row_hash, "
+            + "(SELECT MIN(p.id) FROM products p WHERE p.wb_article = t.wb_article) AS product_id, "
+            + "(t.wb_article IS NOT NULL AND EXISTS (SELECT 1 FROM import_staging_rows u "
+            + "WHERE u.batch_id = t.batch_id AND u.wb_article = t.wb_article AND u.error IS NULL "
+            + "AND u.line_number > t.line_number)) AS superseded "
+            + "FROM import_staging_rows t WHERE t.batch_id = ? AND t.error IS NULL) m) c "
+            + "ON (s.id = c.row_id) "
+            + "WHEN MATCHED THEN UPDATE SET product_id = c.product_id, action = c.action";
+
+    // пустое название и цена не затирают значения товара, остальные поля файл задаёт как есть;
+    // значения по умолчанию для нового товара передаёт вызывающий
+    private static final String MERGE = "MERGE INTO products p USING ("
+            + "SELECT * FROM import_staging_rows WHERE batch_id = ? AND action IN ('CREATE', 'UPDATE')) s "
+            + "ON (p.id = s.product_id) "
+            + "WHEN MATCHED THEN UPDATE SET name = COALESCE(s.name, p.name), wb_article = s.wb_article, "
+            + "article_key = s.article_key, article_nm_id = s.article_nm_id, wb_barcode = s.wb_barcode, "
+            + "price = COALESCE(s.price, p.price), stock_quantity = s.stock_quantity, category = s.category, "
+            + "brand = s.brand, purchase_price = s.purchase_price, logistics_cost = s.logistics_cost, "
+            + "marketing_cost = s.marketing_cost, other_expenses = s.other_expenses, updated_at = ?, "
+            + "import_hash = s.row_hash "
+            + "WHEN NOT MATCHED THEN INSERT (name, wb_article, article_key, article_nm_id, wb_barcode, price, "
+            + "stock_quantity, category, brand, purchase_price, logistics_cost, marketing_cost, other_expenses, "
+            + "created_at, updated_at, import_hash) VALUES (COALESCE(s.name, CAST(? AS VARCHAR) || s.wb_article), "
+            + "s.wb_article, s.article_key, s.article_nm_id, s.wb_barcode, "
+            + "COALESCE(s.price, CAST(? AS NUMERIC(10, 2))), s.stock_quantity, s.category, s.brand, s.purchase_price, "
+            + "s.logistics_cost, s.marketing_cost, s.other_expenses, ?, ?, s.row_hash)";
+
+    private static final String SELECT_ROWS = "SELECT id, batch_id, line_number, name, wb_article, article_key, "
+            + "article_nm_id, wb_barcode, category, brand, stock_quantity, price, purchase_price, logistics_cost, "
+            + "marketing_cost, other_expenses, row_hash, product_id, action, error, warning "
+            + "FROM import_staging_rows WHERE batch_id = ?";
+
+    private static final RowMapper<ImportStagingRow> ROW_MAPPER = (rs, rowNum) -> {
+        ImportStagingRow row = new ImportStagingRow();
+        row.setId(rs.getLong("id"));
+        row.setBatchId(rs.getString("batch_id"));
+        row.setLineNumber(rs.getInt("line_number"));
+        row.setName(rs.getString("name"));
+        row.setWbArticle(rs.getString("wb_article"));
+        row.setArticleKey(rs.getString("article_key"));
+        row.setArticleNmId(getLong(rs, "article_nm_id"));
+        row.setWbBarcode(rs.getString("wb_barcode"));
+        row.setCategory(rs.getString("category"));
+        row.setBrand(rs.getString("brand"));
+        row.setStockQuantity(getInteger(rs, "stock_quantity"));
+        row.setPrice(rs.getBigDecimal("price"));
+        row.setPurchasePrice(rs.getBigDecimal("purchase_price"));
+        row.setLogisticsCost(rs.getBigDecimal("logistics_cost"));
+        row.setMarketingCost(rs.getBigDecimal("marketing_cost"));
+        row.setOtherExpenses(rs.getBigDecimal("other_expenses"));
+        row.setRowHash(rs.getString("row_hash"));
+        row.setProductId(getLong(rs, "product_id"));
+        row.setAction(rs.getString("action"));
+        row.setError(rs.getString("error"));
+        row.setWarning(rs.getString("warning"));
+        return row;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductStagingWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insert(List<ImportStagingRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ImportStagingRow row = rows.get(i);
+                ps.setString(1, row.getBatchId());
+                ps.setInt(2, row.getLineNumber());
+                ps.setString(3, row.getName());
+                ps.setString(4, row.getWbArticle());
+                ps.setString(5, row.getArticleKey());
+                setLong(ps, 6, row.getArticleNmId());
+                ps.setString(7, row.getWbBarcode());
+                ps.setString(8, row.getCategory());
+                ps.setString(9, row.getBrand());
+                setInteger(ps, 10, row.getStockQuantity());
+                setDecimal(ps, 11, row.getPrice());
+                setDecimal(ps, 12, row.getPurchasePrice());
+                setDecimal(ps, 13, row.getLogisticsCost());
+                setDecimal(ps, 14, row.getMarketingCost());
+                setDecimal(ps, 15, row.getOtherExpenses());
+                ps.setString(16, row.getRowHash());
+                ps.setString(17, row.getAction());
+                ps.setString(18, row.getError());
+                ps.setString(19, row.getWarning());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    /**
+     * Сверяет строки партии с товарами и проставляет {@code action} и {@code product_id}.
+     *
+     * @return число строк партии по {@code action}
+     */
+    public Map<String, Integer> classify(String batchId) {
+        jdbcTemplate.update(CLASSIFY, batchId);
+        Map<String, Integer> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT action, COUNT(*) FROM import_staging_rows WHERE batch_id = ? GROUP BY action",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getInt(2));
+                }, batchId);
+        return counts;
+    }
+
+    /**
+     * Применяет к товарам строки CREATE и UPDATE сверенной партии.
+     *
+     * @param defaultNamePrefix название нового товара без названия — префикс и артикул
+     * @param defaultPrice      цена нового товара без цены
+     * @return число созданных и изменённых товаров
+     */
+    public int merge(String batchId, LocalDateTime now, String defaultNamePrefix, BigDecimal defaultPrice) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.update(MERGE, batchId, timestamp, defaultNamePrefix, defaultPrice, timestamp, timestamp);
+    }
+
+    /**
+     * Строки партии по порядку файла; {@code action == null} — все.
+     */
+    public List<ImportStagingRow> findRows(String batchId, String action, int offset, int limit) {
+        List<Object> args = new ArrayList<>();
+        args.add(batchId);
+        StringBuilder sql = new StringBuilder(SELECT_ROWS);
+        if (action != null) {
+            sql.append(" AND action = ?");
+            args.add(action);
+        }
+        sql.append(" ORDER BY line_number LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
+    }
+
+    /**
+     * Первые {@code limit} строк с ошибкой.
+     */
+    public List<ImportStagingRow> findErrors(String batchId, int limit) {
+        return jdbcTemplate.query(SELECT_ROWS + " AND error IS NOT NULL ORDER BY line_number LIMIT ?",
+                ROW_MAPPER, batchId, limit);
+    }
+
+    /**
+     * Первые {@code limit} строк с предупреждениями, включая строки CREATE без цены.
+     */
+    public List<ImportStagingRow> findWarnings(String batchId, int limit) {
+        return jdbcTemplate.query(SELECT_ROWS + " AND (warning IS NOT NULL OR (action = 'CREATE' AND price IS NULL)) "
+                + "ORDER BY line_number LIMIT ?", ROW_MAPPER, batchId, limit);
+    }
+
+    public void delete(String batchId) {
+        jdbcTemplate.update("DELETE FROM import_staging_rows WHERE batch_id = ?", batchId);
+    }
+
+    private static Long getLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Integer getInteger(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private void setDecimal(PreparedStatement ps, int index, BigDecimal value) throws SQLException {
+        if (value != null) {
+            ps.setBigDecimal(index, value);
+        } else {
+            ps.setNull(index, Types.NUMERIC);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.SaleFact;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SaleFactRepository extends JpaRepository<SaleFact, Long> {
+}
@@ -0,0 +1,16 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.SalesArticleStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SalesArticleStatsRepository extends JpaRepository<SalesArticleStats, Long> {
+
+    List<SalesArticleStats> findAllByOrderByRevenueDescNmIdAsc(Pageable pageable);
+
+    List<SalesArticleStats> findByUnitsSoldGreaterThan(int unitsSold);
+}
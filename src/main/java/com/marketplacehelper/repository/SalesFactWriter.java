@@ -0,0 +1,148 @@
+package com.marketplacehelper.repository;
+
+import com.marketplacehelper.model.SaleFact;
+import com.marketplacehelper.model.SalesArticleStats;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Пакетная запись фактов продаж и приращений итогов по артикулам через JDBC — загрузка отчётов
+ * на сотни тысяч строк не должна проходить через контекст Hibernate.
+ */
+@Repository
+public class SalesFactWriter {
+
+    private static final String INSERT_FACT = "INSERT INTO sales_facts (line_key, srid, nm_id, vendor_code, barcode, "
+            + "doc_type, payment_reason, sale_date, quantity, retail_price, revenue, payout, logistics, penalties, "
+            + "loaded_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ADD_STATS = "UPDATE sales_article_stats SET "
+            + "vendor_code = COALESCE(?, vendor_code), units_sold = units_sold + ?, sales_count = sales_count + ?, "
+            + "returns_count = returns_count + ?, revenue = revenue + ?, payout = payout + ?, "
+            + "logistics = logistics + ?, penalties = penalties + ?, updated_at = ? WHERE nm_id = ?";
+
+    private static final String INSERT_STATS = "INSERT INTO sales_article_stats (vendor_code, units_sold, sales_count, "
+            + "returns_count, revenue, payout, logistics, penalties, updated_at, nm_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public SalesFactWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Ключи строк, которые уже загружены.
+     */
+    public Set<String> findExistingKeys(Collection<String> lineKeys) {
+        if (lineKeys.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT line_key FROM sales_facts WHERE line_key IN (:keys)",
+                new MapSqlParameterSource("keys", lineKeys), String.class));
+    }
+
+    public void insert(List<SaleFact> facts) {
+        if (facts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_FACT, facts, facts.size(), (ps, fact) -> {
+            ps.setString(1, fact.getLineKey());
+            ps.setString(2, fact.getSrid());
+            setLong(ps, 3, fact.getNmId());
+            ps.setString(4, fact.getVendorCode());
+            ps.setString(5, fact.getBarcode());
+            ps.setString(6, fact.getDocType());
+            ps.setString(7, fact.getPaymentReason());
+            if (fact.getSaleDate() != null) {
+                ps.setDate(8, Date.valueOf(fact.getSaleDate()));
+            } else {
+                ps.setNull(8, Types.DATE);
+            }
+            if (fact.getQuantity() != null) {
+                ps.setInt(9, fact.getQuantity());
+            } else {
+                ps.setNull(9, Types.INTEGER);
+            }
+            setDecimal(ps, 10, fact.getRetailPrice());
+            setDecimal(ps, 11, fact.getRevenue());
+            setDecimal(ps, 12, fact.getPayout());
+            setDecimal(ps, 13, fact.getLogistics());
+            setDecimal(ps, 14, fact.getPenalties());
+            ps.setTimestamp(15, Timestamp.valueOf(fact.getLoadedAt()));
+        });
+    }
+
+    /**
+     * Прибавляет приращения к итогам артикулов; итоги, которых ещё нет, вставляются.
+     * Вызывать в одной транзакции с {@link #insert}, чтобы факты и итоги не расходились.
+     */
+    public void addStats(List<SalesArticleStats> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int[][] updated = jdbcTemplate.batchUpdate(ADD_STATS, deltas, deltas.size(),
+                (ps, delta) -> bindStats(ps, delta, now));
+        List<SalesArticleStats> missing = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : updated) {
+            for (int count : batch) {
+                if (count == 0) {
+                    missing.add(deltas.get(index));
+                }
+                index++;
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_STATS, missing, missing.size(), (ps, delta) -> bindStats(ps, delta, now));
+        }
+    }
+
+    private void bindStats(PreparedStatement ps, SalesArticleStats delta, LocalDateTime now) throws SQLException {
+        ps.setString(1, delta.getVendorCode());
+        ps.setInt(2, delta.getUnitsSold());
+        ps.setInt(3, delta.getSalesCount());
+        ps.setInt(4, delta.getReturnsCount());
+        ps.setBigDecimal(5, delta.getRevenue());
+        ps.setBigDecimal(6, delta.getPayout());
+        ps.setBigDecimal(7, delta.getLogistics());
+        ps.setBigDecimal(8, delta.getPenalties());
+        ps.setTimestamp(9, Timestamp.valueOf(now));
+        ps.setLong(10, delta.getNmId());
+    }
+
+    private void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private void setDecimal(PreparedStatement ps, int index, BigDecimal value) throws SQLException {
+        if (value != null) {
+            ps.setBigDecimal(index, value);
+        } else {
+            ps.setNull(index, Types.NUMERIC);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.marketplacehelper.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Строка витрины аналитики и строка снимка с тем же артикулом; заполняется конструктором в JPQL.
+ * Цена — со скидкой, если она есть; остаток — WB, если он есть, иначе локальный.
+ */
+public class SnapshotDiffRow {
+
+    private final Long analyticsId;
+    private final Long productId;
+    private final Long wbProductId;
+    private final String wbArticle;
+    private final String name;
+    private final BigDecimal price;
+    private final BigDecimal margin;
+    private final BigDecimal marginPercent;
+    private final Integer stock;
+    private final BigDecimal previousPrice;
+    private final BigDecimal previousMargin;
+    private final BigDecimal previousMarginPercent;
+    private final Integer previousStock;
+
+    public SnapshotDiffRow(Long analyticsId, Long productId, Long wbProductId, String wbArticle, String name,
+                           BigDecimal price, BigDecimal margin, BigDecimal marginPercent, Integer stock,
+                           BigDecimal previousPrice, BigDecimal previousMargin, BigDecimal previousMarginPercent,
+                           Integer previousStock) {
+        this.analyticsId = analyticsId;
+        this.productId = productId;
+        this.wbProductId = wbProductId;
+        this.wbArticle = wbArticle;
+        this.name = name;
+        this.price = price;
+        this.margin = margin;
+        this.marginPercent = marginPercent;
+        this.stock = stock;
+        this.previousPrice = previousPrice;
+        this.previousMargin = previousMargin;
+        this.previousMarginPercent = previousMarginPercent;
+        this.previousStock = previousStock;
+    }
+
+    public Long getAnalyticsId() {
+        return analyticsId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Long getWbProductId() {
+        return wbProductId;
+    }
+
+    public String getWbArticle() {
+        return wbArticle;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public BigDecimal getMargin() {
+        return margin;
+    }
+
+    public BigDecimal getMarginPercent() {
+        return marginPercent;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public BigDecimal getPreviousPrice() {
+        return previousPrice;
+    }
+
+    public BigDecimal getPreviousMargin() {
+        return previousMargin;
+    }
+
+    public BigDecimal getPreviousMarginPercent() {
+        return previousMarginPercent;
+    }
+
+    public Integer getPreviousStock() {
+        return previousStock;
+    }
+}
@@ -1,13 +1,18 @@
 package com.marketplacehelper.repository;
 
 import com.marketplacehelper.model.WbProduct;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface WbProductRepository extends JpaRepository<WbProduct, Long> {
@@ -15,6 +20,10 @@ public interface WbProductRepository extends JpaRepository<WbProduct, Long> {
     Optional<WbProduct> findByNmId(Long nmId);
 
     Optional<WbProduct> findByVendorCode(String vendorCode);
+
+    List<WbProduct> findByNmIdIn(Collection<Long> nmIds);
+
+    List<WbProduct> findByVendorCodeKeyIn(Collection<String> vendorCodeKeys);
     
     List<WbProduct> findByVendor(String vendor);
     
@@ -36,6 +45,22 @@ public interface WbProductRepository extends JpaRepository<WbProduct, Long> {
     
     @Query("SELECT w FROM WbProduct w WHERE w.discount > :minDiscount")
     List<WbProduct> findByDiscountGreaterThan(@Param("minDiscount") Integer minDiscount);
+
+    /**
+     * Карточки WB, к которым не привязан ни один товар ни по nmId, ни по артикулу поставщика.
+     * Читать внутри транзакции.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.marketplacehelper.repository.AnalyticsSourceRow("
+            + "w.id, w.nmId, w.name, w.vendorCode, w.brand, w.category, w.price, "
+            + "w.priceWithDiscount, w.salePrice, w.totalQuantity) "
+            + "FROM WbProduct w "
+            + "WHERE NOT EXISTS (SELECT 1 FROM Product p WHERE p.articleNmId = w.nmId) "
+            + "AND NOT EXISTS (SELECT 1 FROM Product k WHERE k.articleKey = w.vendorCodeKey)")
+    Stream<AnalyticsSourceRow> streamUnmatchedAnalyticsRows();
 }
 
 
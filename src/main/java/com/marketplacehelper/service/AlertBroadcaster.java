@@ -0,0 +1,199 @@
+package com.marketplacehelper.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplacehelper.dto.AlertDto;
+import com.marketplacehelper.dto.AlertStreamStatsDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Поток алертов для всех открытых дашбордов: один планировщик на приложение вместо потока на подписчика.
+ * Раз в {@code app.alerts.stream.interval-seconds} алерты пересчитываются, только если с прошлого раза менялся
+ * каталог (версия {@link CatalogChangeTracker}), и одно событие, сериализованное один раз, рассылается всем.
+ * Без изменений подписчики получают SSE-комментарий: так отвалившиеся клиенты обнаруживаются и удаляются.
+ */
+@Service
+public class AlertBroadcaster {
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> KEEPALIVE =
+            SseEmitter.event().comment("keepalive").build();
+
+    private final AlertService alertService;
+    private final CatalogChangeTracker changeTracker;
+    private final ObjectMapper objectMapper;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final Object buildLock = new Object();
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder failedSends = new LongAdder();
+    private final AtomicLong broadcasts = new AtomicLong();
+    private final AtomicLong totalSendNanos = new AtomicLong();
+    private volatile long lastBuildNanos;
+    private volatile long lastSendNanos;
+
+    public AlertBroadcaster(AlertService alertService,
+                            CatalogChangeTracker changeTracker,
+                            ObjectMapper objectMapper,
+                            @Value("${app.alerts.stream.interval-seconds:10}") long intervalSeconds) {
+        this.alertService = alertService;
+        this.changeTracker = changeTracker;
+        this.objectMapper = objectMapper;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alerts-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, intervalSeconds);
+        scheduler.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * Новый подписчик сразу получает текущие алерты, дальше — вместе со всеми.
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        try {
+            Snapshot current = currentSnapshot();
+            emitter.send(current.event());
+            subscriber.version = current.version();
+            eventsSent.increment();
+        } catch (Exception ignored) {
+            // алерты придут со следующим тиком
+        }
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public AlertStreamStatsDto getStats() {
+        Snapshot current = snapshot;
+        long broadcastCount = broadcasts.get();
+        AlertStreamStatsDto stats = new AlertStreamStatsDto();
+        stats.setDataVersion(changeTracker.currentVersion());
+        stats.setSubscribers(subscribers.size());
+        stats.setTicks(ticks.get());
+        stats.setBuilds(builds.get());
+        stats.setLastBuildMillis(lastBuildNanos / 1_000_000d);
+        stats.setEventsSent(eventsSent.sum());
+        stats.setFailedSends(failedSends.sum());
+        stats.setLastSendMillis(lastSendNanos / 1_000_000d);
+        stats.setAverageSendMillis(broadcastCount > 0 ? totalSendNanos.get() / 1_000_000d / broadcastCount : 0d);
+        stats.setAlerts(current != null ? current.alertCount() : 0);
+        return stats;
+    }
+
+    private void tick() {
+        ticks.incrementAndGet();
+        if (subscribers.isEmpty()) {
+            // никто не слушает — ничего не считаем; первый подписчик построит алерты сам
+            return;
+        }
+        try {
+            broadcast(currentSnapshot());
+        } catch (RuntimeException ignored) {
+            // ошибка пересчёта не должна останавливать планировщик; повторим на следующем тике
+        }
+    }
+
+    /**
+     * Алерты уходят тем, кто ещё не получил эту версию, остальным — комментарий.
+     */
+    private void broadcast(Snapshot current) {
+        long started = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            boolean stale = subscriber.version != current.version();
+            try {
+                subscriber.emitter.send(stale ? current.event() : KEEPALIVE);
+                subscriber.version = current.version();
+                eventsSent.increment();
+            } catch (Exception e) {
+                // соединение закрыто; сам эмиттер завершит контейнер
+                failedSends.increment();
+                subscribers.remove(subscriber);
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        lastSendNanos = elapsed;
+        totalSendNanos.addAndGet(elapsed);
+        broadcasts.incrementAndGet();
+    }
+
+    /**
+     * Алерты для текущей версии каталога; пересчитываются только после изменений.
+     */
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.version() == changeTracker.currentVersion()) {
+            return current;
+        }
+        synchronized (buildLock) {
+            // версию фиксируем до чтения данных: запись во время пересчёта пометит результат устаревшим
+            long version = changeTracker.currentVersion();
+            current = snapshot;
+            if (current != null && current.version() == version) {
+                return current;
+            }
+            long started = System.nanoTime();
+            List<AlertDto> alerts = alertService.buildAlerts();
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(alerts);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Не удалось сериализовать алерты: " + e.getMessage(), e);
+            }
+            lastBuildNanos = System.nanoTime() - started;
+            builds.incrementAndGet();
+            current = new Snapshot(version, alerts.size(),
+                    SseEmitter.event().data(json, MediaType.APPLICATION_JSON).build());
+            snapshot = current;
+            return current;
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        // версия каталога последних отправленных алертов
+        private volatile long version = -1;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * Событие уже сериализовано: рассылка подписчикам не вызывает Jackson повторно.
+     */
+    private record Snapshot(long version, int alertCount, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+    }
+}
@@ -0,0 +1,1122 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.AnalyticsRankedItemDto;
+import com.marketplacehelper.dto.AnalyticsRollupDto;
+import com.marketplacehelper.dto.AnalyticsSummaryDto;
+import com.marketplacehelper.dto.ProductAnalyticsFilter;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.dto.WhatIfRequest;
+import com.marketplacehelper.dto.WhatIfResultDto;
+import com.marketplacehelper.model.Kopecks;
+import com.marketplacehelper.model.ProductAnalytics;
+import com.marketplacehelper.repository.ProductAnalyticsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Колоночная копия {@code product_analytics} в памяти для сканов, фильтров и агрегатов без обращения к БД.
+ * Деньги хранятся в копейках в {@code long[]}, остатки — в {@code int[]}, бренд / категория / предмет —
+ * номерами в словаре, флаги — в {@link BitSet}.
+ * <p>
+ * Снимок неизменяем и подменяется целиком: после пересчёта витрины копируются оставшиеся строки
+ * и дочитываются только пересчитанные, поэтому читатели никогда не видят наполовину обновлённые колонки.
+ */
+@Service
+public class AnalyticsColumnStore {
+
+    /**
+     * Показатели для топа / антитопа.
+     */
+    public enum RankMetric {
+        MARGIN("margin"),
+        MARGIN_PERCENT("marginPercent"),
+        STOCK("stock"),
+        // рекомендованная цена при целевой марже минус текущая цена WB, как в рекомендациях по ценам
+        PRICE_DELTA("priceDelta");
+
+        private final String param;
+
+        RankMetric(String param) {
+            this.param = param;
+        }
+
+        public static RankMetric fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return MARGIN;
+            }
+            for (RankMetric metric : values()) {
+                if (metric.param.equalsIgnoreCase(value.trim())) {
+                    return metric;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестный показатель: " + value);
+        }
+    }
+
+    private static final int QUERY_CHUNK = 500;
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+    private static final long NO_ID = -1L;
+    private static final ProductDataSource[] DATA_SOURCES = ProductDataSource.values();
+    private static final long[] DEFAULT_DISTRIBUTION_EDGES = {0, 1_000, 2_000, 3_000, 4_000, 5_000};
+    private static final int MAX_DISTRIBUTION_EDGES = 20;
+    // словарь пересобирается, когда в нём больше вдвое живых значений плюс этот запас
+    private static final int DICTIONARY_SLACK = 64;
+
+    private static final Map<String, Function<Columns, int[]>> GROUP_COLUMNS = Map.of(
+            "brand", columns -> columns.brand,
+            "category", columns -> columns.category,
+            "subject", columns -> columns.subject);
+
+    private final ProductAnalyticsRepository analyticsRepository;
+    private final AnalyticsReadModelService readModelService;
+    private final BigDecimal defaultMinMarginPercent;
+    private final int defaultLowStockThreshold;
+    private final boolean enabled;
+    private final int maxScenarios;
+
+    private volatile Columns columns = Columns.empty();
+
+    public AnalyticsColumnStore(ProductAnalyticsRepository analyticsRepository,
+                                AnalyticsReadModelService readModelService,
+                                @Value("${app.analytics.min-margin-percent:0}") BigDecimal defaultMinMarginPercent,
+                                @Value("${app.alerts.low-stock-threshold:10}") int defaultLowStockThreshold,
+                                @Value("${app.analytics.column-store.enabled:true}") boolean enabled,
+                                @Value("${app.analytics.simulation.max-scenarios:20}") int maxScenarios) {
+        this.analyticsRepository = analyticsRepository;
+        this.readModelService = readModelService;
+        this.defaultMinMarginPercent = defaultMinMarginPercent != null ? defaultMinMarginPercent : BigDecimal.ZERO;
+        this.defaultLowStockThreshold = defaultLowStockThreshold;
+        this.enabled = enabled;
+        this.maxScenarios = maxScenarios;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Вызывается после коммита пересчёта витрины и читает уже закоммиченные строки.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onReadModelUpdated(AnalyticsReadModelUpdatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isFullRebuild()) {
+            rebuild();
+        } else {
+            apply(event.getProductIds(), event.getWbProductIds());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        Columns.Builder builder = new Columns.Builder(Dictionary.empty());
+        analyticsRepository.findAll().forEach(builder::add);
+        columns = builder.build();
+    }
+
+    /**
+     * Заменяет строки перечисленных товаров и строки WB_ONLY перечисленных карточек.
+     */
+    @Transactional(readOnly = true)
+    public synchronized void apply(Collection<Long> productIds, Collection<Long> wbProductIds) {
+        Set<Long> products = Set.copyOf(productIds);
+        Set<Long> wbOnly = Set.copyOf(wbProductIds);
+        List<ProductAnalytics> fresh = new ArrayList<>(inChunks(products, analyticsRepository::findByProductIdIn));
+        for (ProductAnalytics row : inChunks(wbOnly, analyticsRepository::findByWbProductIdIn)) {
+            if (row.getProductId() == null) {
+                fresh.add(row);
+            }
+        }
+
+        Columns current = columns;
+        Columns.Builder builder = new Columns.Builder(current.dictionary);
+        for (int i = 0; i < current.size; i++) {
+            boolean replaced = current.productId[i] != NO_ID
+                    ? products.contains(current.productId[i])
+                    : wbOnly.contains(current.wbProductId[i]);
+            if (!replaced) {
+                builder.copy(current, i);
+            }
+        }
+        fresh.forEach(builder::add);
+        columns = builder.build();
+    }
+
+    public int size() {
+        return columns.size;
+    }
+
+    int dictionarySize() {
+        return columns.dictionary.size();
+    }
+
+    /**
+     * Те же счётчики, что {@link AnalyticsReadModelService#summarize}, одним проходом по колонкам.
+     */
+    public AnalyticsSummaryDto summarize(ProductAnalyticsFilter filter, BigDecimal requestedMinMarginPercent) {
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : defaultMinMarginPercent;
+        Columns snapshot = columns;
+        long threshold = thresholdHundredths(marginThreshold);
+        BitSet rows = snapshot.select(filter, threshold);
+
+        long profitable = 0;
+        long requiresAttention = 0;
+        long[] bySource = new long[DATA_SOURCES.length];
+        for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+            if (snapshot.profitable(i, threshold)) {
+                profitable++;
+            }
+            if (snapshot.requiresCorrection(i, threshold)) {
+                requiresAttention++;
+            }
+            bySource[snapshot.dataSource[i]]++;
+        }
+        BitSet negative = (BitSet) rows.clone();
+        negative.and(snapshot.negativeMargin);
+
+        AnalyticsSummaryDto summary = new AnalyticsSummaryDto();
+        summary.setAppliedMinMarginPercent(marginThreshold);
+        summary.setTotalProducts(rows.cardinality());
+        summary.setProfitableCount(profitable);
+        summary.setRequiresAttentionCount(requiresAttention);
+        summary.setNegativeMarginCount(negative.cardinality());
+        summary.setMergedCount(bySource[ProductDataSource.MERGED.ordinal()]);
+        summary.setLocalOnlyCount(bySource[ProductDataSource.LOCAL_ONLY.ordinal()]);
+        summary.setWbOnlyCount(bySource[ProductDataSource.WB_ONLY.ordinal()]);
+        return summary;
+    }
+
+    /**
+     * Те же итоги, что {@link AnalyticsReadModelService#rollup}: агрегаты копятся в массивах по номеру группы.
+     *
+     * @param groupBy brand, category или subject
+     */
+    public List<AnalyticsRollupDto> rollup(String groupBy,
+                                           ProductAnalyticsFilter filter,
+                                           BigDecimal requestedMinMarginPercent,
+                                           Integer requestedLowStockThreshold) {
+        String groupKey = groupBy != null && !groupBy.isBlank() ? groupBy : "brand";
+        Function<Columns, int[]> groupColumn = GROUP_COLUMNS.get(groupKey.toLowerCase(Locale.ROOT));
+        if (groupColumn == null) {
+            throw new IllegalArgumentException("Неизвестное поле группировки: " + groupKey);
+        }
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : defaultMinMarginPercent;
+        int lowStockThreshold = requestedLowStockThreshold != null ? requestedLowStockThreshold : defaultLowStockThreshold;
+
+        Columns snapshot = columns;
+        BitSet rows = snapshot.select(filter, thresholdHundredths(marginThreshold));
+        int[] group = groupColumn.apply(snapshot);
+        // последняя ячейка — строки без значения группы
+        int slots = snapshot.dictionary.size() + 1;
+        long[] count = new long[slots];
+        long[] pricedCount = new long[slots];
+        long[] revenue = new long[slots];
+        long[] margin = new long[slots];
+        long[] stock = new long[slots];
+        long[] lowStock = new long[slots];
+        for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+            int slot = group[i] >= 0 ? group[i] : slots - 1;
+            count[slot]++;
+            if (snapshot.hasMargin.get(i)) {
+                pricedCount[slot]++;
+                revenue[slot] += snapshot.salePrice[i];
+                margin[slot] += snapshot.margin[i];
+            }
+            int itemStock = snapshot.stock(i);
+            if (itemStock != NO_VALUE) {
+                stock[slot] += itemStock;
+                if (itemStock < lowStockThreshold) {
+                    lowStock[slot]++;
+                }
+            }
+        }
+
+        List<AnalyticsRollupDto> result = new ArrayList<>();
+        for (int slot = 0; slot < slots; slot++) {
+            if (count[slot] == 0) {
+                continue;
+            }
+            AnalyticsRollupDto dto = new AnalyticsRollupDto();
+            dto.setGroup(slot < slots - 1 ? snapshot.dictionary.value(slot) : null);
+            dto.setCount(count[slot]);
+            dto.setPricedCount(pricedCount[slot]);
+            dto.setRevenue(Kopecks.toRubles(revenue[slot]));
+            dto.setTotalCost(Kopecks.toRubles(revenue[slot] - margin[slot]));
+            dto.setMarginSum(Kopecks.toRubles(margin[slot]));
+            if (revenue[slot] > 0) {
+                dto.setWeightedMarginPercent(Kopecks.percentToDecimal(Kopecks.ratioHundredths(margin[slot], revenue[slot])));
+            }
+            dto.setTotalStock(stock[slot]);
+            dto.setLowStockCount(lowStock[slot]);
+            result.add(dto);
+        }
+        result.sort(Comparator.comparingLong(AnalyticsRollupDto::getCount).reversed()
+                .thenComparing(AnalyticsRollupDto::getGroup, Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /**
+     * {@code limit} товаров с наибольшим ({@code highest}) или наименьшим значением показателя.
+     * Отбор — куча фиксированного размера по колонкам, O(n log k); полные строки читаются из БД только для отобранных.
+     * Товары без значения показателя пропускаются, при равенстве выше строка с меньшим id.
+     */
+    @Transactional(readOnly = true)
+    public List<AnalyticsRankedItemDto> top(RankMetric metric,
+                                            boolean highest,
+                                            int limit,
+                                            ProductAnalyticsFilter filter,
+                                            BigDecimal requestedMinMarginPercent) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Некорректный размер выборки");
+        }
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : defaultMinMarginPercent;
+        long targetMargin = Kopecks.percentHundredths(marginThreshold);
+        if (metric == RankMetric.PRICE_DELTA && targetMargin >= Kopecks.HUNDRED_PERCENT) {
+            throw new IllegalArgumentException("Целевая маржа должна быть меньше 100%");
+        }
+
+        Columns snapshot = columns;
+        BitSet rows = snapshot.select(filter, thresholdHundredths(marginThreshold));
+        BoundedHeap heap = new BoundedHeap(Math.min(limit, AnalyticsReadModelService.MAX_PAGE_SIZE));
+        for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+            Long value = snapshot.metric(metric, i, targetMargin);
+            if (value != null) {
+                heap.offer(highest ? value : -value, snapshot.rowId[i], i);
+            }
+        }
+
+        int[] selected = heap.drainBestFirst();
+        List<Long> ids = new ArrayList<>(selected.length);
+        for (int i : selected) {
+            ids.add(snapshot.rowId[i]);
+        }
+        Map<Long, ProductAnalytics> loaded = new HashMap<>();
+        analyticsRepository.findAllById(ids).forEach(row -> loaded.put(row.getId(), row));
+
+        List<AnalyticsRankedItemDto> result = new ArrayList<>(selected.length);
+        for (int i : selected) {
+            ProductAnalytics row = loaded.get(snapshot.rowId[i]);
+            // строка могла быть пересчитана после построения снимка
+            if (row != null) {
+                long value = snapshot.metric(metric, i, targetMargin);
+                result.add(new AnalyticsRankedItemDto(metricValue(metric, value), readModelService.toDto(row, marginThreshold)));
+            }
+        }
+        return result;
+    }
+
+    static BigDecimal metricValue(RankMetric metric, long value) {
+        return switch (metric) {
+            case MARGIN, PRICE_DELTA -> Kopecks.toRubles(value);
+            case MARGIN_PERCENT -> Kopecks.percentToDecimal(value);
+            case STOCK -> BigDecimal.valueOf(value);
+        };
+    }
+
+    /**
+     * Моделирование «что если» по колонкам снимка: каждый сценарий пересчитывает цену продажи, расходы и маржу
+     * отобранных строк в локальных переменных, ничего не меняя в снимке и в БД.
+     * Строки без рассчитанной маржи не участвуют — для них нечего менять.
+     */
+    public WhatIfResultDto simulate(WhatIfRequest request) {
+        List<WhatIfRequest.Scenario> scenarios = request.getScenarios() != null ? request.getScenarios() : List.of();
+        if (scenarios.isEmpty()) {
+            throw new IllegalArgumentException("Не задано ни одного сценария");
+        }
+        if (scenarios.size() > maxScenarios) {
+            throw new IllegalArgumentException("Слишком много сценариев, максимум " + maxScenarios);
+        }
+        List<ScenarioParams> params = new ArrayList<>(scenarios.size());
+        for (int s = 0; s < scenarios.size(); s++) {
+            params.add(ScenarioParams.of(scenarios.get(s), s + 1));
+        }
+        long[] edges = distributionEdges(request.getDistributionEdges());
+        Function<Columns, int[]> groupColumn = null;
+        if (request.getGroupBy() != null && !request.getGroupBy().isBlank()) {
+            groupColumn = GROUP_COLUMNS.get(request.getGroupBy().trim().toLowerCase(Locale.ROOT));
+            if (groupColumn == null) {
+                throw new IllegalArgumentException("Неизвестное поле группировки: " + request.getGroupBy());
+            }
+        }
+        BigDecimal marginThreshold = request.getMinMarginPercent() != null
+                ? request.getMinMarginPercent()
+                : defaultMinMarginPercent;
+        long threshold = thresholdHundredths(marginThreshold);
+
+        Columns snapshot = columns;
+        BitSet selected = snapshot.select(request.getFilter(), threshold);
+        selected.and(snapshot.hasMargin);
+        int[] rows = selected.stream().toArray();
+        int[] group = groupColumn != null ? groupColumn.apply(snapshot) : null;
+        int slots = group != null ? snapshot.dictionary.size() + 1 : 0;
+
+        SimulationTotals baseline = new SimulationTotals("Текущее состояние", edges.length + 1, slots);
+        BitSet baselineProfitable = new BitSet(rows.length);
+        for (int k = 0; k < rows.length; k++) {
+            int i = rows[k];
+            boolean profitable = snapshot.profitable(i, threshold);
+            baselineProfitable.set(k, profitable);
+            baseline.add(slot(group, i, slots), snapshot.salePrice[i], snapshot.margin[i],
+                    snapshot.hasMarginPercent.get(i) ? bucket(edges, snapshot.marginPercent[i]) : -1, profitable);
+        }
+
+        List<WhatIfResultDto.ScenarioResult> results = new ArrayList<>(params.size());
+        for (ScenarioParams scenario : params) {
+            SimulationTotals totals = new SimulationTotals(scenario.name, edges.length + 1, slots);
+            for (int k = 0; k < rows.length; k++) {
+                int i = rows[k];
+                long sale = snapshot.salePrice[i];
+                if (scenario.discountPoints != 0 && snapshot.hasWbPrice.get(i)) {
+                    sale -= Kopecks.percentOf(snapshot.wbPrice[i], scenario.discountPoints);
+                }
+                sale = Math.max(0L, sale + Kopecks.percentOf(sale, scenario.pricePercent));
+                long marketing = scenario.marketingShareOfPrice != NO_VALUE
+                        ? Kopecks.percentOf(sale, scenario.marketingShareOfPrice)
+                        : scaled(snapshot.marketing[i], scenario.marketingPercent);
+                long margin = sale
+                        - scaled(snapshot.purchase[i], scenario.purchasePercent)
+                        - scaled(snapshot.logistics[i], scenario.logisticsPercent)
+                        - marketing
+                        - scaled(snapshot.other[i], scenario.otherPercent);
+                long percent = sale > 0 ? Kopecks.ratioHundredths(margin, sale) : 0L;
+                boolean profitable = sale > 0 && margin >= 0 && percent >= threshold;
+                totals.add(slot(group, i, slots), sale, margin, sale > 0 ? bucket(edges, percent) : -1, profitable);
+                if (profitable != baselineProfitable.get(k)) {
+                    if (profitable) {
+                        totals.becameProfitable++;
+                    } else {
+                        totals.becameUnprofitable++;
+                    }
+                }
+            }
+            results.add(totals.toDto(baseline, edges, snapshot.dictionary));
+        }
+
+        WhatIfResultDto result = new WhatIfResultDto();
+        result.setAppliedMinMarginPercent(marginThreshold);
+        result.setBaseline(baseline.toDto(baseline, edges, snapshot.dictionary));
+        result.setScenarios(results);
+        return result;
+    }
+
+    private static long scaled(long value, long percentHundredths) {
+        return percentHundredths != 0 ? value + Kopecks.percentOf(value, percentHundredths) : value;
+    }
+
+    private static int slot(int[] group, int i, int slots) {
+        if (group == null) {
+            return -1;
+        }
+        return group[i] >= 0 ? group[i] : slots - 1;
+    }
+
+    /**
+     * Номер корзины: 0 — ниже первой границы, далее {@code [edges[b - 1], edges[b])}.
+     */
+    private static int bucket(long[] edges, long percent) {
+        int index = Arrays.binarySearch(edges, percent);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private static long[] distributionEdges(List<BigDecimal> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return DEFAULT_DISTRIBUTION_EDGES;
+        }
+        if (requested.size() > MAX_DISTRIBUTION_EDGES) {
+            throw new IllegalArgumentException("Слишком много границ распределения, максимум " + MAX_DISTRIBUTION_EDGES);
+        }
+        long[] edges = new long[requested.size()];
+        for (int e = 0; e < edges.length; e++) {
+            if (requested.get(e) == null) {
+                throw new IllegalArgumentException("Пустая граница распределения");
+            }
+            edges[e] = Kopecks.percentHundredths(requested.get(e));
+            if (e > 0 && edges[e] <= edges[e - 1]) {
+                throw new IllegalArgumentException("Границы распределения должны возрастать");
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Параметры сценария в сотых долях процента; {@link #NO_VALUE} — доля маркетинга не задана.
+     */
+    private static final class ScenarioParams {
+        private final String name;
+        private final long pricePercent;
+        private final long discountPoints;
+        private final long purchasePercent;
+        private final long logisticsPercent;
+        private final long marketingPercent;
+        private final long marketingShareOfPrice;
+        private final long otherPercent;
+
+        private ScenarioParams(WhatIfRequest.Scenario scenario, String name) {
+            this.name = name;
+            this.pricePercent = change(scenario.getPricePercent(), "pricePercent");
+            this.discountPoints = scenario.getDiscountPoints() != null
+                    ? Kopecks.percentHundredths(scenario.getDiscountPoints()) : 0L;
+            if (Math.abs(discountPoints) >= Kopecks.HUNDRED_PERCENT) {
+                throw new IllegalArgumentException("Изменение скидки должно быть меньше 100 п.п.");
+            }
+            this.purchasePercent = change(scenario.getPurchasePercent(), "purchasePercent");
+            this.logisticsPercent = change(scenario.getLogisticsPercent(), "logisticsPercent");
+            this.marketingPercent = change(scenario.getMarketingPercent(), "marketingPercent");
+            this.otherPercent = change(scenario.getOtherPercent(), "otherPercent");
+            if (scenario.getMarketingShareOfPrice() != null) {
+                if (scenario.getMarketingPercent() != null) {
+                    throw new IllegalArgumentException("Нельзя одновременно задавать marketingPercent и marketingShareOfPrice");
+                }
+                long share = Kopecks.percentHundredths(scenario.getMarketingShareOfPrice());
+                if (share < 0 || share > Kopecks.HUNDRED_PERCENT) {
+                    throw new IllegalArgumentException("Доля маркетинга должна быть от 0 до 100%");
+                }
+                this.marketingShareOfPrice = share;
+            } else {
+                this.marketingShareOfPrice = NO_VALUE;
+            }
+        }
+
+        private static ScenarioParams of(WhatIfRequest.Scenario scenario, int number) {
+            if (scenario == null) {
+                throw new IllegalArgumentException("Пустой сценарий №" + number);
+            }
+            String name = scenario.getName() != null && !scenario.getName().isBlank()
+                    ? scenario.getName().trim()
+                    : "Сценарий " + number;
+            return new ScenarioParams(scenario, name);
+        }
+
+        private static long change(BigDecimal percent, String field) {
+            if (percent == null) {
+                return 0L;
+            }
+            long value = Kopecks.percentHundredths(percent);
+            if (value < -Kopecks.HUNDRED_PERCENT) {
+                throw new IllegalArgumentException("Поле " + field + " не может уменьшать значение больше чем на 100%");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Итоги одного сценария в копейках; по группам — массивы по номеру группы, как в {@link #rollup}.
+     */
+    private static final class SimulationTotals {
+        private final String name;
+        private long pricedCount;
+        private long revenue;
+        private long marginSum;
+        private long profitable;
+        private long negative;
+        private long becameProfitable;
+        private long becameUnprofitable;
+        private final long[] buckets;
+        private final long[] groupCount;
+        private final long[] groupRevenue;
+        private final long[] groupMargin;
+        private final long[] groupProfitable;
+
+        private SimulationTotals(String name, int buckets, int slots) {
+            this.name = name;
+            this.buckets = new long[buckets];
+            this.groupCount = new long[slots];
+            this.groupRevenue = new long[slots];
+            this.groupMargin = new long[slots];
+            this.groupProfitable = new long[slots];
+        }
+
+        private void add(int slot, long sale, long margin, int bucket, boolean isProfitable) {
+            pricedCount++;
+            revenue += sale;
+            marginSum += margin;
+            if (isProfitable) {
+                profitable++;
+            }
+            if (margin < 0) {
+                negative++;
+            }
+            if (bucket >= 0) {
+                buckets[bucket]++;
+            }
+            if (slot >= 0) {
+                groupCount[slot]++;
+                groupRevenue[slot] += sale;
+                groupMargin[slot] += margin;
+                if (isProfitable) {
+                    groupProfitable[slot]++;
+                }
+            }
+        }
+
+        private WhatIfResultDto.ScenarioResult toDto(SimulationTotals baseline, long[] edges, Dictionary dictionary) {
+            WhatIfResultDto.ScenarioResult dto = new WhatIfResultDto.ScenarioResult();
+            dto.setName(name);
+            dto.setPricedCount(pricedCount);
+            dto.setRevenue(Kopecks.toRubles(revenue));
+            dto.setMarginSum(Kopecks.toRubles(marginSum));
+            dto.setMarginSumDelta(Kopecks.toRubles(marginSum - baseline.marginSum));
+            if (revenue > 0) {
+                dto.setWeightedMarginPercent(Kopecks.percentToDecimal(Kopecks.ratioHundredths(marginSum, revenue)));
+            }
+            dto.setProfitableCount(profitable);
+            dto.setProfitableDelta(profitable - baseline.profitable);
+            dto.setBecameProfitable(becameProfitable);
+            dto.setBecameUnprofitable(becameUnprofitable);
+            dto.setNegativeMarginCount(negative);
+
+            List<WhatIfResultDto.Bucket> distribution = new ArrayList<>(buckets.length);
+            for (int b = 0; b < buckets.length; b++) {
+                WhatIfResultDto.Bucket bucket = new WhatIfResultDto.Bucket();
+                bucket.setFrom(b > 0 ? Kopecks.percentToDecimal(edges[b - 1]) : null);
+                bucket.setTo(b < edges.length ? Kopecks.percentToDecimal(edges[b]) : null);
+                bucket.setCount(buckets[b]);
+                distribution.add(bucket);
+            }
+            dto.setDistribution(distribution);
+
+            if (groupCount.length > 0) {
+                List<WhatIfResultDto.GroupDelta> groups = new ArrayList<>();
+                for (int slot = 0; slot < groupCount.length; slot++) {
+                    if (groupCount[slot] == 0) {
+                        continue;
+                    }
+                    WhatIfResultDto.GroupDelta group = new WhatIfResultDto.GroupDelta();
+                    group.setGroup(slot < groupCount.length - 1 ? dictionary.value(slot) : null);
+                    group.setPricedCount(groupCount[slot]);
+                    group.setMarginSum(Kopecks.toRubles(groupMargin[slot]));
+                    group.setMarginSumDelta(Kopecks.toRubles(groupMargin[slot] - baseline.groupMargin[slot]));
+                    if (groupRevenue[slot] > 0) {
+                        group.setWeightedMarginPercent(Kopecks.percentToDecimal(
+                                Kopecks.ratioHundredths(groupMargin[slot], groupRevenue[slot])));
+                    }
+                    group.setProfitableCount(groupProfitable[slot]);
+                    group.setProfitableDelta(groupProfitable[slot] - baseline.groupProfitable[slot]);
+                    groups.add(group);
+                }
+                // сначала группы, которые теряют больше всего
+                groups.sort(Comparator.comparing(WhatIfResultDto.GroupDelta::getMarginSumDelta)
+                        .thenComparing(WhatIfResultDto.GroupDelta::getGroup, Comparator.nullsLast(Comparator.naturalOrder())));
+                dto.setGroups(groups);
+            }
+            return dto;
+        }
+    }
+
+    /**
+     * Процент маржи целый в сотых, поэтому «не ниже порога» равносильно «не ниже порога, округлённого вверх».
+     */
+    private static long thresholdHundredths(BigDecimal threshold) {
+        return Kopecks.percentHundredths(threshold.setScale(2, RoundingMode.CEILING));
+    }
+
+    private static <T, R> List<R> inChunks(Collection<T> values, Function<List<T>, List<R>> query) {
+        List<T> source = values.stream().filter(Objects::nonNull).toList();
+        List<R> result = new ArrayList<>();
+        for (int from = 0; from < source.size(); from += QUERY_CHUNK) {
+            result.addAll(query.apply(source.subList(from, Math.min(source.size(), from + QUERY_CHUNK))));
+        }
+        return result;
+    }
+
+    /**
+     * Min-куча на {@code capacity} лучших строк: в корне худшая из отобранных, новая строка вытесняет её,
+     * только если лучше. Лучше — больший ключ, при равенстве меньший id.
+     */
+    private static final class BoundedHeap {
+        private final long[] keys;
+        private final long[] ids;
+        private final int[] rows;
+        private int size;
+
+        private BoundedHeap(int capacity) {
+            this.keys = new long[capacity];
+            this.ids = new long[capacity];
+            this.rows = new int[capacity];
+        }
+
+        private void offer(long key, long id, int row) {
+            if (size < keys.length) {
+                set(size, key, id, row);
+                siftUp(size++);
+            } else if (better(key, id, keys[0], ids[0])) {
+                set(0, key, id, row);
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Строки от лучшей к худшей; куча после вызова пуста.
+         */
+        private int[] drainBestFirst() {
+            int[] result = new int[size];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = rows[0];
+                size--;
+                set(0, keys[size], ids[size], rows[size]);
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private static boolean better(long key, long id, long otherKey, long otherId) {
+            return key != otherKey ? key > otherKey : id < otherId;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!better(keys[parent], ids[parent], keys[index], ids[index])) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && better(keys[worst], ids[worst], keys[left], ids[left])) {
+                    worst = left;
+                }
+                if (right < size && better(keys[worst], ids[worst], keys[right], ids[right])) {
+                    worst = right;
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(worst, index);
+                index = worst;
+            }
+        }
+
+        private void set(int index, long key, long id, int row) {
+            keys[index] = key;
+            ids[index] = id;
+            rows[index] = row;
+        }
+
+        private void swap(int a, int b) {
+            long key = keys[a];
+            long id = ids[a];
+            int row = rows[a];
+            set(a, keys[b], ids[b], rows[b]);
+            set(b, key, id, row);
+        }
+    }
+
+    /**
+     * Общий словарь строковых значений; только дополняется, поэтому номера старых значений не меняются.
+     */
+    private static final class Dictionary {
+        private final List<String> values;
+        private final Map<String, Integer> ids;
+
+        private Dictionary(List<String> values, Map<String, Integer> ids) {
+            this.values = values;
+            this.ids = ids;
+        }
+
+        private static Dictionary empty() {
+            return new Dictionary(new ArrayList<>(), new HashMap<>());
+        }
+
+        private Dictionary copy() {
+            return new Dictionary(new ArrayList<>(values), new HashMap<>(ids));
+        }
+
+        private int idOf(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return ids.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        private String value(int id) {
+            return values.get(id);
+        }
+
+        private int size() {
+            return values.size();
+        }
+
+        /**
+         * Номера значений, совпадающих с {@code value} без учёта регистра и пробелов по краям.
+         */
+        private boolean[] matching(String value) {
+            String expected = value.trim().toLowerCase(Locale.ROOT);
+            boolean[] result = new boolean[values.size()];
+            for (int id = 0; id < values.size(); id++) {
+                result[id] = values.get(id).toLowerCase(Locale.ROOT).equals(expected);
+            }
+            return result;
+        }
+    }
+
+    private static final class Columns {
+        private final int size;
+        private final Dictionary dictionary;
+        private final long[] rowId;
+        private final long[] productId;
+        private final long[] wbProductId;
+        private final String[] name;
+        private final String[] wbArticle;
+        private final String[] vendorCode;
+        private final int[] brand;
+        private final int[] category;
+        private final int[] subject;
+        private final byte[] dataSource;
+        private final long[] salePrice;
+        private final long[] wbPrice;
+        private final long[] margin;
+        private final int[] marginPercent;
+        // слагаемые маржи для моделирования; отсутствующий расход — 0, как в расчёте маржи
+        private final long[] purchase;
+        private final long[] logistics;
+        private final long[] marketing;
+        private final long[] other;
+        private final int[] localStock;
+        private final int[] wbStock;
+        private final BitSet hasWbPrice;
+        private final BitSet hasMargin;
+        private final BitSet hasMarginPercent;
+        private final BitSet negativeMargin;
+
+        private Columns(Builder builder) {
+            int n = builder.size;
+            this.size = n;
+            this.dictionary = builder.dictionary;
+            this.rowId = Arrays.copyOf(builder.rowId, n);
+            this.productId = Arrays.copyOf(builder.productId, n);
+            this.wbProductId = Arrays.copyOf(builder.wbProductId, n);
+            this.name = Arrays.copyOf(builder.name, n);
+            this.wbArticle = Arrays.copyOf(builder.wbArticle, n);
+            this.vendorCode = Arrays.copyOf(builder.vendorCode, n);
+            this.brand = Arrays.copyOf(builder.brand, n);
+            this.category = Arrays.copyOf(builder.category, n);
+            this.subject = Arrays.copyOf(builder.subject, n);
+            this.dataSource = Arrays.copyOf(builder.dataSource, n);
+            this.salePrice = Arrays.copyOf(builder.salePrice, n);
+            this.wbPrice = Arrays.copyOf(builder.wbPrice, n);
+            this.margin = Arrays.copyOf(builder.margin, n);
+            this.marginPercent = Arrays.copyOf(builder.marginPercent, n);
+            this.purchase = Arrays.copyOf(builder.purchase, n);
+            this.logistics = Arrays.copyOf(builder.logistics, n);
+            this.marketing = Arrays.copyOf(builder.marketing, n);
+            this.other = Arrays.copyOf(builder.other, n);
+            this.localStock = Arrays.copyOf(builder.localStock, n);
+            this.wbStock = Arrays.copyOf(builder.wbStock, n);
+            this.hasWbPrice = builder.hasWbPrice;
+            this.hasMargin = builder.hasMargin;
+            this.hasMarginPercent = builder.hasMarginPercent;
+            this.negativeMargin = builder.negativeMargin;
+        }
+
+        private static Columns empty() {
+            return new Builder(Dictionary.empty()).build();
+        }
+
+        /**
+         * Значение показателя или {@code null}, если для строки его нет.
+         */
+        private Long metric(RankMetric metric, int i, long targetMargin) {
+            switch (metric) {
+                case MARGIN:
+                    return hasMargin.get(i) ? margin[i] : null;
+                case MARGIN_PERCENT:
+                    return hasMarginPercent.get(i) ? (long) marginPercent[i] : null;
+                case STOCK:
+                    int itemStock = stock(i);
+                    return itemStock != NO_VALUE ? (long) itemStock : null;
+                default:
+                    if (!hasWbPrice.get(i) || !hasMargin.get(i)) {
+                        return null;
+                    }
+                    long recommended = Kopecks.priceForMargin(salePrice[i] - margin[i], targetMargin);
+                    return recommended > 0 ? recommended - wbPrice[i] : null;
+            }
+        }
+
+        private int stock(int i) {
+            return wbStock[i] != NO_VALUE ? wbStock[i] : localStock[i];
+        }
+
+        private boolean profitable(int i, long threshold) {
+            return hasMargin.get(i) && hasMarginPercent.get(i) && margin[i] >= 0 && marginPercent[i] >= threshold;
+        }
+
+        private boolean requiresCorrection(int i, long threshold) {
+            return !(dataSource[i] == ProductDataSource.MERGED.ordinal() && profitable(i, threshold));
+        }
+
+        private boolean marginBelowThreshold(int i, long threshold) {
+            return hasMargin.get(i) && (!hasMarginPercent.get(i) || marginPercent[i] < threshold);
+        }
+
+        /**
+         * Строки, прошедшие фильтр; условия те же, что в {@code ProductAnalyticsSpecifications.matching}.
+         */
+        private BitSet select(ProductAnalyticsFilter filter, long threshold) {
+            BitSet rows = new BitSet(size);
+            rows.set(0, size);
+            if (filter == null) {
+                return rows;
+            }
+            if (filter.getDataSources() != null && !filter.getDataSources().isEmpty()) {
+                boolean[] allowed = new boolean[DATA_SOURCES.length];
+                filter.getDataSources().forEach(source -> allowed[source.ordinal()] = true);
+                retain(rows, i -> allowed[dataSource[i]]);
+            }
+            retainGroup(rows, brand, filter.getBrand());
+            retainGroup(rows, category, filter.getCategory());
+            retainGroup(rows, subject, filter.getSubject());
+            if (filter.getSearch() != null && !filter.getSearch().isBlank()) {
+                String pattern = filter.getSearch().trim().toLowerCase(Locale.ROOT);
+                retain(rows, i -> contains(name[i], pattern) || contains(wbArticle[i], pattern)
+                        || contains(vendorCode[i], pattern));
+            }
+            if (filter.getProfitable() != null) {
+                boolean expected = filter.getProfitable();
+                retain(rows, i -> profitable(i, threshold) == expected);
+            }
+            if (filter.getRequiresCorrection() != null) {
+                boolean expected = filter.getRequiresCorrection();
+                retain(rows, i -> requiresCorrection(i, threshold) == expected);
+            }
+            if (filter.getNegativeMargin() != null) {
+                if (filter.getNegativeMargin()) {
+                    rows.and(negativeMargin);
+                } else {
+                    rows.andNot(negativeMargin);
+                }
+            }
+            if (filter.getMarginBelowThreshold() != null) {
+                boolean expected = filter.getMarginBelowThreshold();
+                retain(rows, i -> marginBelowThreshold(i, threshold) == expected);
+            }
+            return rows;
+        }
+
+        private void retainGroup(BitSet rows, int[] column, String value) {
+            if (value == null || value.isBlank()) {
+                return;
+            }
+            boolean[] matching = dictionary.matching(value);
+            retain(rows, i -> column[i] >= 0 && column[i] < matching.length && matching[column[i]]);
+        }
+
+        private static void retain(BitSet rows, IntPredicate predicate) {
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                if (!predicate.test(i)) {
+                    rows.clear(i);
+                }
+            }
+        }
+
+        private static boolean contains(String value, String pattern) {
+            return value != null && value.toLowerCase(Locale.ROOT).contains(pattern);
+        }
+
+        private static final class Builder {
+            private Dictionary dictionary;
+            private int size;
+            private long[] rowId = new long[16];
+            private long[] productId = new long[16];
+            private long[] wbProductId = new long[16];
+            private String[] name = new String[16];
+            private String[] wbArticle = new String[16];
+            private String[] vendorCode = new String[16];
+            private int[] brand = new int[16];
+            private int[] category = new int[16];
+            private int[] subject = new int[16];
+            private byte[] dataSource = new byte[16];
+            private long[] salePrice = new long[16];
+            private long[] wbPrice = new long[16];
+            private long[] margin = new long[16];
+            private int[] marginPercent = new int[16];
+            private long[] purchase = new long[16];
+            private long[] logistics = new long[16];
+            private long[] marketing = new long[16];
+            private long[] other = new long[16];
+            private int[] localStock = new int[16];
+            private int[] wbStock = new int[16];
+            private final BitSet hasWbPrice = new BitSet();
+            private final BitSet hasMargin = new BitSet();
+            private final BitSet hasMarginPercent = new BitSet();
+            private final BitSet negativeMargin = new BitSet();
+
+            private Builder(Dictionary source) {
+                // словарь копируется: опубликованный снимок не должен видеть новых значений
+                this.dictionary = source.copy();
+            }
+
+            private void add(ProductAnalytics row) {
+                int i = next();
+                rowId[i] = row.getId();
+                productId[i] = row.getProductId() != null ? row.getProductId() : NO_ID;
+                wbProductId[i] = row.getWbProductId() != null ? row.getWbProductId() : NO_ID;
+                name[i] = row.getName();
+                wbArticle[i] = row.getWbArticle();
+                vendorCode[i] = row.getVendorCode();
+                brand[i] = dictionary.idOf(row.getBrand());
+                category[i] = dictionary.idOf(row.getCategory());
+                subject[i] = dictionary.idOf(row.getSubject());
+                dataSource[i] = (byte) row.getDataSource().ordinal();
+                BigDecimal sale = row.getWbDiscountPrice() != null ? row.getWbDiscountPrice()
+                        : row.getWbPrice() != null ? row.getWbPrice() : row.getLocalPrice();
+                salePrice[i] = sale != null ? Kopecks.of(sale) : 0L;
+                if (row.getWbPrice() != null) {
+                    wbPrice[i] = Kopecks.of(row.getWbPrice());
+                    hasWbPrice.set(i);
+                }
+                if (row.getMargin() != null) {
+                    margin[i] = Kopecks.of(row.getMargin());
+                    hasMargin.set(i);
+                }
+                if (row.getMarginPercent() != null) {
+                    marginPercent[i] = (int) Kopecks.percentHundredths(row.getMarginPercent());
+                    hasMarginPercent.set(i);
+                }
+                negativeMargin.set(i, row.isNegativeMargin());
+                purchase[i] = kopecksOrZero(row.getPurchasePrice());
+                logistics[i] = kopecksOrZero(row.getLogisticsCost());
+                marketing[i] = kopecksOrZero(row.getMarketingCost());
+                other[i] = kopecksOrZero(row.getOtherExpenses());
+                localStock[i] = row.getLocalStock() != null ? row.getLocalStock() : NO_VALUE;
+                wbStock[i] = row.getWbStock() != null ? row.getWbStock() : NO_VALUE;
+            }
+
+            private void copy(Columns from, int j) {
+                int i = next();
+                rowId[i] = from.rowId[j];
+                productId[i] = from.productId[j];
+                wbProductId[i] = from.wbProductId[j];
+                name[i] = from.name[j];
+                wbArticle[i] = from.wbArticle[j];
+                vendorCode[i] = from.vendorCode[j];
+                brand[i] = from.brand[j];
+                category[i] = from.category[j];
+                subject[i] = from.subject[j];
+                dataSource[i] = from.dataSource[j];
+                salePrice[i] = from.salePrice[j];
+                wbPrice[i] = from.wbPrice[j];
+                hasWbPrice.set(i, from.hasWbPrice.get(j));
+                margin[i] = from.margin[j];
+                marginPercent[i] = from.marginPercent[j];
+                purchase[i] = from.purchase[j];
+                logistics[i] = from.logistics[j];
+                marketing[i] = from.marketing[j];
+                other[i] = from.other[j];
+                localStock[i] = from.localStock[j];
+                wbStock[i] = from.wbStock[j];
+                hasMargin.set(i, from.hasMargin.get(j));
+                hasMarginPercent.set(i, from.hasMarginPercent.get(j));
+                negativeMargin.set(i, from.negativeMargin.get(j));
+            }
+
+            private static long kopecksOrZero(BigDecimal value) {
+                return value != null ? Kopecks.of(value) : 0L;
+            }
+
+            private int next() {
+                if (size == productId.length) {
+                    int capacity = size * 2;
+                    rowId = Arrays.copyOf(rowId, capacity);
+                    productId = Arrays.copyOf(productId, capacity);
+                    wbProductId = Arrays.copyOf(wbProductId, capacity);
+                    name = Arrays.copyOf(name, capacity);
+                    wbArticle = Arrays.copyOf(wbArticle, capacity);
+                    vendorCode = Arrays.copyOf(vendorCode, capacity);
+                    brand = Arrays.copyOf(brand, capacity);
+                    category = Arrays.copyOf(category, capacity);
+                    subject = Arrays.copyOf(subject, capacity);
+                    dataSource = Arrays.copyOf(dataSource, capacity);
+                    salePrice = Arrays.copyOf(salePrice, capacity);
+                    wbPrice = Arrays.copyOf(wbPrice, capacity);
+                    margin = Arrays.copyOf(margin, capacity);
+                    marginPercent = Arrays.copyOf(marginPercent, capacity);
+                    purchase = Arrays.copyOf(purchase, capacity);
+                    logistics = Arrays.copyOf(logistics, capacity);
+                    marketing = Arrays.copyOf(marketing, capacity);
+                    other = Arrays.copyOf(other, capacity);
+                    localStock = Arrays.copyOf(localStock, capacity);
+                    wbStock = Arrays.copyOf(wbStock, capacity);
+                }
+                return size++;
+            }
+
+            private Columns build() {
+                compactDictionary();
+                return new Columns(this);
+            }
+
+            /**
+             * Инкрементальный снимок продолжает словарь предыдущего, и значения заменённых строк в нём остаются.
+             * Когда словарь заметно больше числа живых значений, коды перекладываются в новый словарь:
+             * иначе он растёт без предела, а с ним массивы по группам в rollup и simulate.
+             */
+            private void compactDictionary() {
+                if (dictionary.size() <= DICTIONARY_SLACK) {
+                    return;
+                }
+                boolean[] used = new boolean[dictionary.size()];
+                int live = 0;
+                for (int[] column : List.of(brand, category, subject)) {
+                    for (int i = 0; i < size; i++) {
+                        int id = column[i];
+                        if (id >= 0 && !used[id]) {
+                            used[id] = true;
+                            live++;
+                        }
+                    }
+                }
+                if (dictionary.size() <= 2 * live + DICTIONARY_SLACK) {
+                    return;
+                }
+                Dictionary compact = Dictionary.empty();
+                for (int[] column : List.of(brand, category, subject)) {
+                    for (int i = 0; i < size; i++) {
+                        if (column[i] >= 0) {
+                            column[i] = compact.idOf(dictionary.value(column[i]));
+                        }
+                    }
+                }
+                dictionary = compact;
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.AnalyticsReportDto;
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.dto.ProductIssueDto;
+import com.marketplacehelper.dto.ProductValidationDto;
+import com.marketplacehelper.model.ProductAnalytics;
+import com.marketplacehelper.repository.ProductAnalyticsRepository;
+import jakarta.persistence.EntityManager;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка отчётов в CSV / XLSX построчно: строки читаются из БД курсором и сразу пишутся в поток ответа,
+ * поэтому память не зависит от числа товаров. XLSX пишется через SXSSF — в памяти держится только окно строк.
+ */
+@Service
+public class AnalyticsExportService {
+
+    public enum Format {
+        CSV("csv", "text/csv; charset=UTF-8"),
+        XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Format fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестный формат выгрузки: " + value);
+        }
+    }
+
+    private static final String[] ANALYTICS_HEADER = {
+            "Артикул", "Название", "Источник", "Маржа", "Маржа %", "Цена WB", "Цена со скидкой",
+            "Закупка", "Логистика", "Маркетинг", "Прочие", "Остаток лок.", "Остаток WB"
+    };
+
+    private static final String[] VALIDATION_HEADER = {
+            "ID товара", "Артикул", "Название", "Требует исправления", "Блокирующие", "Проблемы"
+    };
+
+    private final ProductAnalyticsRepository analyticsRepository;
+    private final AnalyticsReadModelService readModelService;
+    private final AnalyticsService analyticsService;
+    private final EntityManager entityManager;
+    private final boolean readModelEnabled;
+    private final int xlsxRowWindow;
+
+    public AnalyticsExportService(ProductAnalyticsRepository analyticsRepository,
+                                  AnalyticsReadModelService readModelService,
+                                  AnalyticsService analyticsService,
+                                  EntityManager entityManager,
+                                  @Value("${app.analytics.read-model.enabled:true}") boolean readModelEnabled,
+                                  @Value("${app.export.xlsx-row-window:100}") int xlsxRowWindow) {
+        this.analyticsRepository = analyticsRepository;
+        this.readModelService = readModelService;
+        this.analyticsService = analyticsService;
+        this.entityManager = entityManager;
+        this.readModelEnabled = readModelEnabled;
+        this.xlsxRowWindow = xlsxRowWindow;
+    }
+
+    /**
+     * Прибыльные товары — те же строки и колонки, что и в прежней CSV-выгрузке.
+     */
+    @Transactional(readOnly = true)
+    public void exportProfitableProducts(OutputStream out,
+                                         Format format,
+                                         boolean includeWithoutWb,
+                                         BigDecimal requestedMinMarginPercent) throws IOException {
+        try (RowWriter writer = openWriter(out, format, "Аналитика")) {
+            writer.row((Object[]) ANALYTICS_HEADER);
+            forEachReportItem(includeWithoutWb, requestedMinMarginPercent, true, dto -> {
+                writer.row(
+                        dto.getWbArticle(),
+                        dto.getName(),
+                        sourceLabel(dto.getDataSource()),
+                        dto.getMargin(),
+                        dto.getMarginPercent(),
+                        dto.getWbPrice(),
+                        dto.getWbDiscountPrice(),
+                        dto.getPurchasePrice(),
+                        dto.getLogisticsCost(),
+                        dto.getMarketingCost(),
+                        dto.getOtherExpenses(),
+                        dto.getLocalStock(),
+                        dto.getWbStock());
+            });
+        }
+    }
+
+    /**
+     * Отчёт о полноте данных: одна строка на товар, проблемы через «; ».
+     */
+    @Transactional(readOnly = true)
+    public void exportValidationReport(OutputStream out,
+                                       Format format,
+                                       boolean includeWithoutWb,
+                                       BigDecimal requestedMinMarginPercent) throws IOException {
+        try (RowWriter writer = openWriter(out, format, "Проверка данных")) {
+            writer.row((Object[]) VALIDATION_HEADER);
+            forEachReportItem(includeWithoutWb, requestedMinMarginPercent, false, dto -> {
+                ProductValidationDto validation = analyticsService.toValidation(dto);
+                // список проблем собирается из маски при каждом вызове
+                List<ProductIssueDto> issues = validation.getIssues();
+                long blocking = issues.stream().filter(ProductIssueDto::isBlocking).count();
+                writer.row(
+                        validation.getProductId(),
+                        validation.getWbArticle(),
+                        validation.getName(),
+                        validation.isRequiresCorrection() ? "Да" : "Нет",
+                        (int) blocking,
+                        issues.stream()
+                                .map(this::issueText)
+                                .collect(Collectors.joining("; ")));
+            });
+        }
+    }
+
+    /**
+     * Строки отчёта в порядке вывода; {@code profitableOnly} отбирает прибыльные в запросе.
+     */
+    private void forEachReportItem(boolean includeWithoutWb,
+                                   BigDecimal requestedMinMarginPercent,
+                                   boolean profitableOnly,
+                                   Consumer<ProductAnalyticsDto> consumer) {
+        if (!readModelEnabled) {
+            AnalyticsReportDto report = analyticsService.buildProductAnalyticsReport(
+                    includeWithoutWb, requestedMinMarginPercent, true);
+            (profitableOnly ? report.getProfitable() : report.getAllItems()).forEach(consumer);
+            return;
+        }
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : analyticsService.getDefaultMinMarginPercent();
+        try (Stream<ProductAnalytics> rows = profitableOnly
+                ? analyticsRepository.streamProfitableForReport(includeWithoutWb, marginThreshold)
+                : analyticsRepository.streamForReport(includeWithoutWb, marginThreshold)) {
+            rows.forEach(row -> {
+                consumer.accept(readModelService.toDto(row, marginThreshold));
+                // не копим прочитанные строки в persistence context
+                entityManager.detach(row);
+            });
+        }
+    }
+
+    private String issueText(ProductIssueDto issue) {
+        String text = issue.getField() + ": " + issue.getReason();
+        return issue.getSuggestion() != null ? text + " (" + issue.getSuggestion() + ")" : text;
+    }
+
+    private String sourceLabel(ProductDataSource dataSource) {
+        if (dataSource == null) {
+            return "";
+        }
+        return switch (dataSource) {
+            case MERGED -> "WB + Excel";
+            case LOCAL_ONLY -> "Excel";
+            case WB_ONLY -> "Wildberries";
+        };
+    }
+
+    private RowWriter openWriter(OutputStream out, Format format, String sheetName) {
+        return format == Format.XLSX ? new XlsxRowWriter(out, sheetName, xlsxRowWindow) : new CsvRowWriter(out);
+    }
+
+    private interface RowWriter extends AutoCloseable {
+        void row(Object... cells);
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        private CsvRowWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void row(Object... cells) {
+            try {
+                for (int i = 0; i < cells.length; i++) {
+                    if (i > 0) {
+                        writer.write(';');
+                    }
+                    writer.write(format(cells[i]));
+                }
+                writer.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+
+        private String format(Object value) {
+            if (value == null) {
+                return "";
+            }
+            if (value instanceof BigDecimal decimal) {
+                return decimal.setScale(2, RoundingMode.HALF_UP).toPlainString();
+            }
+            String text = value.toString();
+            boolean needsQuotes = text.contains(";") || text.contains("\"") || text.contains("\n");
+            String escaped = text.replace("\"", "\"\"");
+            return needsQuotes ? "\"" + escaped + "\"" : escaped;
+        }
+    }
+
+    private static final class XlsxRowWriter implements RowWriter {
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook;
+        private final SXSSFSheet sheet;
+        private final CellStyle headerStyle;
+        private final CellStyle moneyStyle;
+        private int rowIndex;
+
+        private XlsxRowWriter(OutputStream out, String sheetName, int rowWindow) {
+            this.out = out;
+            this.workbook = new SXSSFWorkbook(rowWindow);
+            this.workbook.setCompressTempFiles(true);
+            this.sheet = workbook.createSheet(sheetName);
+            this.headerStyle = workbook.createCellStyle();
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            this.headerStyle.setFont(bold);
+            this.moneyStyle = workbook.createCellStyle();
+            this.moneyStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+        }
+
+        @Override
+        public void row(Object... cells) {
+            Row row = sheet.createRow(rowIndex);
+            for (int i = 0; i < cells.length; i++) {
+                Object value = cells[i];
+                if (value == null) {
+                    continue;
+                }
+                Cell cell = row.createCell(i);
+                if (value instanceof BigDecimal decimal) {
+                    cell.setCellValue(decimal.doubleValue());
+                    cell.setCellStyle(moneyStyle);
+                } else if (value instanceof Number number) {
+                    cell.setCellValue(number.doubleValue());
+                } else {
+                    cell.setCellValue(value.toString());
+                    if (rowIndex == 0) {
+                        cell.setCellStyle(headerStyle);
+                    }
+                }
+            }
+            rowIndex++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                workbook.write(out);
+                out.flush();
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.ProductAnalytics;
+import com.marketplacehelper.model.WbProduct;
+import com.marketplacehelper.repository.ProductAnalyticsRepository;
+import com.marketplacehelper.repository.ProductRepository;
+import com.marketplacehelper.repository.WbProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Поддерживает таблицу {@code product_analytics} в актуальном состоянии.
+ * После коммита, изменившего каталог, пересчитываются только строки затронутых товаров
+ * и карточек WB, включая тех, чья связь появилась или пропала из-за изменения.
+ * Строки обновляются на месте, лишние удаляются; пересчёты выполняются по одному, поэтому
+ * два коммита подряд не создают вторую строку того же товара.
+ */
+@Service
+public class AnalyticsReadModelProjector {
+
+    private static final int QUERY_CHUNK = 500;
+    private static final int SAVE_CHUNK = 500;
+
+    private final ProductRepository productRepository;
+    private final WbProductRepository wbProductRepository;
+    private final ProductAnalyticsRepository analyticsRepository;
+    private final ProductAnalyticsCalculator calculator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxIncrementalChanges;
+    // пересчёт держит блокировку до своего коммита: параллельные пересчёты вставили бы одну строку дважды
+    private final Object writeLock = new Object();
+    private final TransactionTemplate transactions;
+    private final TransactionTemplate newTransactions;
+
+    public AnalyticsReadModelProjector(ProductRepository productRepository,
+                                       WbProductRepository wbProductRepository,
+                                       ProductAnalyticsRepository analyticsRepository,
+                                       ProductAnalyticsCalculator calculator,
+                                       ApplicationEventPublisher eventPublisher,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.analytics.read-model.max-incremental-changes:5000}") int maxIncrementalChanges) {
+        this.productRepository = productRepository;
+        this.wbProductRepository = wbProductRepository;
+        this.analyticsRepository = analyticsRepository;
+        this.calculator = calculator;
+        this.eventPublisher = eventPublisher;
+        this.maxIncrementalChanges = maxIncrementalChanges;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.newTransactions = new TransactionTemplate(transactionManager);
+        this.newTransactions.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuildAll();
+    }
+
+    /**
+     * {@link CatalogChangeTracker} публикует событие из {@code afterCommit} записавшей транзакции,
+     * поэтому пересчёт видит закоммиченные данные и пишет в отдельной транзакции — в потоке,
+     * который писал данные: после ответа на запрос записи витрина уже актуальна.
+     */
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        int changed = event.getProductIds().size() + event.getWbProductIds().size();
+        if (!event.isFullRefresh() && changed == 0) {
+            return;
+        }
+        synchronized (writeLock) {
+            newTransactions.executeWithoutResult(status -> {
+                if (event.isFullRefresh() || changed > maxIncrementalChanges) {
+                    rebuildAll();
+                } else {
+                    refresh(event.getProductIds(), event.getWbProductIds(), event.getArticleKeys(),
+                            event.getArticleNmIds());
+                }
+            });
+        }
+    }
+
+    /**
+     * Полная пересборка: таблица очищается и заполняется заново в одной транзакции.
+     */
+    public void rebuildAll() {
+        synchronized (writeLock) {
+            transactions.executeWithoutResult(status -> doRebuildAll());
+        }
+    }
+
+    private void doRebuildAll() {
+        analyticsRepository.deleteAllInBatch();
+
+        List<Product> products = productRepository.findAll(Sort.by("id"));
+        List<WbProduct> wbProducts = wbProductRepository.findAll(Sort.by("id"));
+        WbIndex index = new WbIndex(wbProducts);
+
+        Set<Long> matchedNmIds = new HashSet<>();
+        Set<String> matchedKeys = new HashSet<>();
+        List<ProductAnalytics> rows = new ArrayList<>();
+        for (Product product : products) {
+            rows.add(fill(new ProductAnalytics(), product, index.match(product)));
+            addIfPresent(matchedNmIds, product.getArticleNmId());
+            addIfPresent(matchedKeys, product.getArticleKey());
+        }
+        for (WbProduct wbProduct : wbProducts) {
+            if (!isMatched(wbProduct, matchedNmIds, matchedKeys)) {
+                rows.add(fill(new ProductAnalytics(), null, wbProduct));
+            }
+        }
+        save(rows);
+        eventPublisher.publishEvent(new AnalyticsReadModelUpdatedEvent(Set.of(), Set.of(), true));
+    }
+
+    /**
+     * Пересчитывает строки для изменённых товаров и карточек.
+     *
+     * @param articleKeys  ключи артикулов изменённых товаров до и после изменения
+     * @param articleNmIds числовые артикулы изменённых товаров до и после изменения
+     */
+    public void refresh(Collection<Long> productIds,
+                        Collection<Long> wbProductIds,
+                        Collection<String> articleKeys,
+                        Collection<Long> articleNmIds) {
+        synchronized (writeLock) {
+            transactions.executeWithoutResult(status -> doRefresh(productIds, wbProductIds, articleKeys, articleNmIds));
+        }
+    }
+
+    private void doRefresh(Collection<Long> productIds,
+                           Collection<Long> wbProductIds,
+                           Collection<String> articleKeys,
+                           Collection<Long> articleNmIds) {
+        Set<Long> affectedProductIds = new HashSet<>(productIds);
+        Set<Long> affectedWbIds = new HashSet<>(wbProductIds);
+        Set<String> keys = new HashSet<>(articleKeys);
+        Set<Long> nmIds = new HashSet<>(articleNmIds);
+
+        // товары, которые были связаны с изменёнными карточками или подходят к ним сейчас
+        for (ProductAnalytics row : inChunks(wbProductIds, analyticsRepository::findByWbProductIdIn)) {
+            addIfPresent(affectedProductIds, row.getProductId());
+        }
+        List<WbProduct> changedWbProducts = inChunks(wbProductIds, wbProductRepository::findAllById);
+        Set<Long> changedNmIds = new HashSet<>();
+        Set<String> changedVendorKeys = new HashSet<>();
+        for (WbProduct wbProduct : changedWbProducts) {
+            addIfPresent(changedNmIds, wbProduct.getNmId());
+            addIfPresent(changedVendorKeys, wbProduct.getVendorCodeKey());
+        }
+        affectedProductIds.addAll(findProductIdsMatching(changedNmIds, changedVendorKeys));
+
+        List<Product> products = inChunks(affectedProductIds, productRepository::findAllById);
+        for (Product product : products) {
+            addIfPresent(nmIds, product.getArticleNmId());
+            addIfPresent(keys, product.getArticleKey());
+        }
+
+        // карточки, которые были или могут быть связаны с затронутыми товарами
+        for (ProductAnalytics row : inChunks(affectedProductIds, analyticsRepository::findByProductIdIn)) {
+            addIfPresent(affectedWbIds, row.getWbProductId());
+        }
+        List<WbProduct> candidates = findWbMatching(nmIds, keys);
+        candidates.forEach(wbProduct -> affectedWbIds.add(wbProduct.getId()));
+        WbIndex index = new WbIndex(candidates);
+
+        List<ProductAnalytics> rows = new ArrayList<>();
+        Map<Long, ProductAnalytics> productRows = new HashMap<>();
+        for (ProductAnalytics row : inChunks(affectedProductIds, analyticsRepository::findByProductIdIn)) {
+            productRows.put(row.getProductId(), row);
+        }
+        for (Product product : products) {
+            ProductAnalytics row = productRows.remove(product.getId());
+            rows.add(fill(row != null ? row : new ProductAnalytics(), product, index.match(product)));
+        }
+
+        List<WbProduct> wbProducts = inChunks(affectedWbIds, wbProductRepository::findAllById);
+        Set<Long> wbNmIds = new HashSet<>();
+        Set<String> wbVendorKeys = new HashSet<>();
+        for (WbProduct wbProduct : wbProducts) {
+            addIfPresent(wbNmIds, wbProduct.getNmId());
+            addIfPresent(wbVendorKeys, wbProduct.getVendorCodeKey());
+        }
+        Set<Long> matchedNmIds = new HashSet<>(inChunks(wbNmIds, productRepository::findMatchedArticleNmIds));
+        Set<String> matchedKeys = new HashSet<>(inChunks(wbVendorKeys, productRepository::findMatchedArticleKeys));
+        Map<Long, ProductAnalytics> wbOnlyRows = new HashMap<>();
+        for (ProductAnalytics row : inChunks(affectedWbIds, analyticsRepository::findByWbOnlyProductIdIn)) {
+            wbOnlyRows.put(row.getWbOnlyProductId(), row);
+        }
+        for (WbProduct wbProduct : wbProducts) {
+            if (!isMatched(wbProduct, matchedNmIds, matchedKeys)) {
+                ProductAnalytics row = wbOnlyRows.remove(wbProduct.getId());
+                rows.add(fill(row != null ? row : new ProductAnalytics(), null, wbProduct));
+            }
+        }
+
+        // оставшиеся строки — удалённые товары и карточки, которые теперь связаны с товаром;
+        // удаляются до вставки новых, чтобы не нарушить уникальность
+        List<Long> staleIds = new ArrayList<>();
+        productRows.values().forEach(row -> staleIds.add(row.getId()));
+        wbOnlyRows.values().forEach(row -> staleIds.add(row.getId()));
+        executeInChunks(staleIds, analyticsRepository::deleteByIds);
+        save(rows);
+        eventPublisher.publishEvent(new AnalyticsReadModelUpdatedEvent(affectedProductIds, affectedWbIds, false));
+    }
+
+    private ProductAnalytics fill(ProductAnalytics row, Product product, WbProduct wbProduct) {
+        ProductAnalyticsDto dto = calculator.toBaseDto(product, wbProduct);
+        row.setProductId(dto.getProductId());
+        row.setWbProductId(dto.getWbProductId());
+        row.setWbArticle(dto.getWbArticle());
+        row.setName(dto.getName());
+        row.setVendorCode(dto.getVendorCode());
+        row.setBrand(dto.getBrand());
+        row.setCategory(dto.getCategory());
+        row.setSubject(wbProduct != null ? wbProduct.getSubject() : null);
+        row.setDataSource(dto.getDataSource());
+        row.setMatchMethod(dto.getMatchMethod());
+        row.setLocalPrice(dto.getLocalPrice());
+        row.setWbPrice(dto.getWbPrice());
+        row.setWbDiscountPrice(dto.getWbDiscountPrice());
+        row.setPurchasePrice(dto.getPurchasePrice());
+        row.setLogisticsCost(dto.getLogisticsCost());
+        row.setMarketingCost(dto.getMarketingCost());
+        row.setOtherExpenses(dto.getOtherExpenses());
+        row.setLocalStock(dto.getLocalStock());
+        row.setWbStock(dto.getWbStock());
+        row.setMargin(dto.getMargin());
+        row.setMarginPercent(dto.getMarginPercent());
+        row.setNegativeMargin(dto.isNegativeMargin());
+        row.setIssueMask(dto.getIssueMask());
+        row.setUpdatedAt(LocalDateTime.now());
+        row.refreshWbOnlyProductId();
+        return row;
+    }
+
+    private boolean isMatched(WbProduct wbProduct, Set<Long> matchedNmIds, Set<String> matchedKeys) {
+        return (wbProduct.getNmId() != null && matchedNmIds.contains(wbProduct.getNmId()))
+                || (wbProduct.getVendorCodeKey() != null && matchedKeys.contains(wbProduct.getVendorCodeKey()));
+    }
+
+    private List<Long> findProductIdsMatching(Set<Long> nmIds, Set<String> keys) {
+        List<Long> result = new ArrayList<>(inChunks(nmIds, productRepository::findIdsByArticleNmIds));
+        result.addAll(inChunks(keys, productRepository::findIdsByArticleKeys));
+        return result;
+    }
+
+    private List<WbProduct> findWbMatching(Set<Long> nmIds, Set<String> keys) {
+        Map<Long, WbProduct> byId = new HashMap<>();
+        inChunks(nmIds, wbProductRepository::findByNmIdIn)
+                .forEach(wbProduct -> byId.put(wbProduct.getId(), wbProduct));
+        inChunks(keys, wbProductRepository::findByVendorCodeKeyIn)
+                .forEach(wbProduct -> byId.put(wbProduct.getId(), wbProduct));
+        List<WbProduct> result = new ArrayList<>(byId.values());
+        result.sort(Comparator.comparing(WbProduct::getId));
+        return result;
+    }
+
+    private void save(List<ProductAnalytics> rows) {
+        for (int from = 0; from < rows.size(); from += SAVE_CHUNK) {
+            analyticsRepository.saveAll(rows.subList(from, Math.min(rows.size(), from + SAVE_CHUNK)));
+        }
+    }
+
+    private static <T> void addIfPresent(Set<T> target, T value) {
+        if (value != null) {
+            target.add(value);
+        }
+    }
+
+    /**
+     * Выполняет запрос с IN-списком порциями; пустой список запрос не выполняет.
+     */
+    private static <T, R> List<R> inChunks(Collection<T> values, Function<List<T>, List<R>> query) {
+        List<T> source = values.stream().filter(Objects::nonNull).toList();
+        List<R> result = new ArrayList<>();
+        for (int from = 0; from < source.size(); from += QUERY_CHUNK) {
+            result.addAll(query.apply(source.subList(from, Math.min(source.size(), from + QUERY_CHUNK))));
+        }
+        return result;
+    }
+
+    private static <T> void executeInChunks(Collection<T> values, ToIntFunction<List<T>> statement) {
+        List<T> source = values.stream().filter(Objects::nonNull).toList();
+        for (int from = 0; from < source.size(); from += QUERY_CHUNK) {
+            statement.applyAsInt(source.subList(from, Math.min(source.size(), from + QUERY_CHUNK)));
+        }
+    }
+
+    /**
+     * Поиск карточки WB для товара: сначала по nmId, затем по артикулу поставщика; при дублях — первая по id.
+     */
+    private static final class WbIndex {
+        private final Map<Long, WbProduct> byNmId = new HashMap<>();
+        private final Map<String, WbProduct> byVendorKey = new HashMap<>();
+
+        private WbIndex(List<WbProduct> wbProducts) {
+            for (WbProduct wbProduct : wbProducts) {
+                if (wbProduct.getNmId() != null) {
+                    byNmId.putIfAbsent(wbProduct.getNmId(), wbProduct);
+                }
+                if (wbProduct.getVendorCodeKey() != null) {
+                    byVendorKey.putIfAbsent(wbProduct.getVendorCodeKey(), wbProduct);
+                }
+            }
+        }
+
+        private WbProduct match(Product product) {
+            WbProduct match = product.getArticleNmId() != null ? byNmId.get(product.getArticleNmId()) : null;
+            if (match == null && product.getArticleKey() != null) {
+                match = byVendorKey.get(product.getArticleKey());
+            }
+            return match;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.AnalyticsRankedItemDto;
+import com.marketplacehelper.dto.AnalyticsReportDto;
+import com.marketplacehelper.dto.AnalyticsRollupDto;
+import com.marketplacehelper.dto.AnalyticsSummaryDto;
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.ProductAnalyticsFilter;
+import com.marketplacehelper.dto.ProductAnalyticsPageDto;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.model.Kopecks;
+import com.marketplacehelper.model.ProductAnalytics;
+import com.marketplacehelper.repository.ProductAnalyticsRepository;
+import com.marketplacehelper.repository.ProductAnalyticsSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Отчёт по марже из предрассчитанной таблицы {@code product_analytics}.
+ * Сопоставление и расчёт маржи уже выполнены {@link AnalyticsReadModelProjector},
+ * здесь применяется только порог маржи из запроса.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AnalyticsReadModelService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final Map<String, List<String>> SORT_PROPERTIES = Map.of(
+            "margin", List.of("margin"),
+            "marginpercent", List.of("marginPercent"),
+            "stock", List.of("wbStock", "localStock"),
+            "name", List.of("name"));
+
+    private static final Map<String, String> ROLLUP_PROPERTIES = Map.of(
+            "brand", "brand",
+            "category", "category",
+            "subject", "subject");
+
+    private final ProductAnalyticsRepository analyticsRepository;
+    private final EntityManager entityManager;
+    private final ProductAnalyticsCalculator calculator;
+    private final BigDecimal defaultMinMarginPercent;
+    private final int defaultLowStockThreshold;
+
+    public AnalyticsReadModelService(ProductAnalyticsRepository analyticsRepository,
+                                     EntityManager entityManager,
+                                     ProductAnalyticsCalculator calculator,
+                                     @Value("${app.analytics.min-margin-percent:0}") BigDecimal defaultMinMarginPercent,
+                                     @Value("${app.alerts.low-stock-threshold:10}") int defaultLowStockThreshold) {
+        this.analyticsRepository = analyticsRepository;
+        this.entityManager = entityManager;
+        this.calculator = calculator;
+        this.defaultMinMarginPercent = defaultMinMarginPercent != null ? defaultMinMarginPercent : BigDecimal.ZERO;
+        this.defaultLowStockThreshold = defaultLowStockThreshold;
+    }
+
+    public AnalyticsReportDto buildProductAnalyticsReport(boolean includeWithoutWb,
+                                                          BigDecimal requestedMinMarginPercent,
+                                                          boolean includeUnprofitable) {
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : defaultMinMarginPercent;
+
+        List<ProductAnalyticsDto> allItems = new ArrayList<>();
+        List<ProductAnalyticsDto> profitable = new ArrayList<>();
+        List<ProductAnalyticsDto> requiresAttention = new ArrayList<>();
+        for (ProductAnalytics row : analyticsRepository.findForReport(includeWithoutWb, marginThreshold)) {
+            ProductAnalyticsDto dto = toDto(row, marginThreshold);
+            allItems.add(dto);
+            if (dto.isProfitable()) {
+                profitable.add(dto);
+            }
+            if (dto.isRequiresCorrection()) {
+                requiresAttention.add(dto);
+            }
+        }
+
+        AnalyticsReportDto report = new AnalyticsReportDto();
+        report.setAppliedMinMarginPercent(marginThreshold);
+        report.setProfitable(profitable);
+        report.setRequiresAttention(requiresAttention);
+        report.setProfitableCount(profitable.size());
+        report.setRequiresAttentionCount(requiresAttention.size());
+        report.setTotalProducts(allItems.size());
+        report.setAllItems(includeUnprofitable ? allItems : profitable);
+        return report;
+    }
+
+    /**
+     * Одна страница отфильтрованного списка; из БД читаются только строки этой страницы.
+     *
+     * @param sort      margin, marginPercent, stock или name
+     * @param direction asc или desc
+     */
+    public ProductAnalyticsPageDto findPage(ProductAnalyticsFilter filter,
+                                            BigDecimal requestedMinMarginPercent,
+                                            int page,
+                                            int size,
+                                            String sort,
+                                            String direction) {
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : defaultMinMarginPercent;
+        String sortKey = sort != null && !sort.isBlank() ? sort : "margin";
+        List<String> properties = SORT_PROPERTIES.get(sortKey.toLowerCase(Locale.ROOT));
+        if (properties == null) {
+            throw new IllegalArgumentException("Неизвестное поле сортировки: " + sortKey);
+        }
+        Sort.Direction sortDirection = direction != null && !direction.isBlank()
+                ? Sort.Direction.fromString(direction)
+                : "name".equalsIgnoreCase(sortKey) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("Некорректные параметры страницы");
+        }
+
+        // id в конце — стабильный порядок между страницами при равных значениях
+        Sort order = Sort.by(sortDirection, properties.toArray(new String[0])).and(Sort.by("id"));
+        Page<ProductAnalytics> rows = analyticsRepository.findAll(
+                ProductAnalyticsSpecifications.matching(filter, marginThreshold),
+                PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE), order));
+
+        ProductAnalyticsPageDto result = new ProductAnalyticsPageDto();
+        result.setItems(rows.map(row -> toDto(row, marginThreshold)).getContent());
+        result.setPage(rows.getNumber());
+        result.setSize(rows.getSize());
+        result.setTotalElements(rows.getTotalElements());
+        result.setTotalPages(rows.getTotalPages());
+        result.setSort(sortKey);
+        result.setDirection(sortDirection.name().toLowerCase(Locale.ROOT));
+        result.setAppliedMinMarginPercent(marginThreshold);
+        return result;
+    }
+
+    /**
+     * Счётчики по тем же фильтрам одним агрегирующим запросом.
+     */
+    public AnalyticsSummaryDto summarize(ProductAnalyticsFilter filter, BigDecimal requestedMinMarginPercent) {
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : defaultMinMarginPercent;
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<ProductAnalytics> root = query.from(ProductAnalytics.class);
+        query.multiselect(
+                cb.count(root),
+                countIf(cb, ProductAnalyticsSpecifications.profitable(root, cb, marginThreshold)),
+                countIf(cb, ProductAnalyticsSpecifications.requiresCorrection(root, cb, marginThreshold)),
+                countIf(cb, cb.isTrue(root.get("negativeMargin"))),
+                countIf(cb, cb.equal(root.get("dataSource"), ProductDataSource.MERGED)),
+                countIf(cb, cb.equal(root.get("dataSource"), ProductDataSource.LOCAL_ONLY)),
+                countIf(cb, cb.equal(root.get("dataSource"), ProductDataSource.WB_ONLY)));
+        query.where(ProductAnalyticsSpecifications.matching(filter, marginThreshold).toPredicate(root, query, cb));
+        Tuple counts = entityManager.createQuery(query).getSingleResult();
+
+        AnalyticsSummaryDto summary = new AnalyticsSummaryDto();
+        summary.setAppliedMinMarginPercent(marginThreshold);
+        summary.setTotalProducts(count(counts, 0));
+        summary.setProfitableCount(count(counts, 1));
+        summary.setRequiresAttentionCount(count(counts, 2));
+        summary.setNegativeMarginCount(count(counts, 3));
+        summary.setMergedCount(count(counts, 4));
+        summary.setLocalOnlyCount(count(counts, 5));
+        summary.setWbOnlyCount(count(counts, 6));
+        return summary;
+    }
+
+    /**
+     * Итоги по группам одним {@code GROUP BY}: в ответе по строке на группу, а не на товар.
+     * Цена продажи та же, что в расчёте маржи: цена со скидкой, затем цена WB, затем цена из Excel.
+     *
+     * @param groupBy brand, category или subject
+     */
+    public List<AnalyticsRollupDto> rollup(String groupBy,
+                                           ProductAnalyticsFilter filter,
+                                           BigDecimal requestedMinMarginPercent,
+                                           Integer requestedLowStockThreshold) {
+        String groupKey = groupBy != null && !groupBy.isBlank() ? groupBy : "brand";
+        String property = ROLLUP_PROPERTIES.get(groupKey.toLowerCase(Locale.ROOT));
+        if (property == null) {
+            throw new IllegalArgumentException("Неизвестное поле группировки: " + groupKey);
+        }
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : defaultMinMarginPercent;
+        int lowStockThreshold = requestedLowStockThreshold != null ? requestedLowStockThreshold : defaultLowStockThreshold;
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<ProductAnalytics> root = query.from(ProductAnalytics.class);
+        Expression<String> group = root.get(property);
+        Predicate priced = cb.isNotNull(root.get("margin"));
+        Expression<BigDecimal> salePrice = cb.<BigDecimal>coalesce()
+                .value(root.get("wbDiscountPrice"))
+                .value(root.get("wbPrice"))
+                .value(root.get("localPrice"));
+        Expression<Integer> stock = cb.<Integer>coalesce()
+                .value(root.get("wbStock"))
+                .value(root.get("localStock"));
+        Expression<BigDecimal> marginSum = cb.sum(root.get("margin"));
+        query.multiselect(
+                group,
+                cb.count(root),
+                countIf(cb, priced),
+                cb.sum(cb.<BigDecimal>selectCase().when(priced, salePrice).otherwise(BigDecimal.ZERO)),
+                marginSum,
+                cb.sum(cb.<Integer>selectCase().when(cb.isNotNull(stock), stock).otherwise(0)),
+                countIf(cb, cb.lessThan(stock, lowStockThreshold)));
+        query.where(ProductAnalyticsSpecifications.matching(filter, marginThreshold).toPredicate(root, query, cb));
+        query.groupBy(group);
+        query.orderBy(cb.desc(cb.count(root)), cb.asc(group));
+
+        List<AnalyticsRollupDto> result = new ArrayList<>();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            long revenue = Kopecks.of(decimal(row, 3));
+            long margin = Kopecks.of(decimal(row, 4));
+            AnalyticsRollupDto dto = new AnalyticsRollupDto();
+            dto.setGroup(row.get(0, String.class));
+            dto.setCount(count(row, 1));
+            dto.setPricedCount(count(row, 2));
+            dto.setRevenue(Kopecks.toRubles(revenue));
+            dto.setTotalCost(Kopecks.toRubles(revenue - margin));
+            dto.setMarginSum(Kopecks.toRubles(margin));
+            if (revenue > 0) {
+                dto.setWeightedMarginPercent(Kopecks.percentToDecimal(Kopecks.ratioHundredths(margin, revenue)));
+            }
+            dto.setTotalStock(count(row, 5));
+            dto.setLowStockCount(count(row, 6));
+            result.add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * Топ / антитоп без колоночного хранилища: {@code ORDER BY} показателя с {@code LIMIT} по тем же фильтрам.
+     * Как и в {@link AnalyticsColumnStore#top}, товары без значения показателя пропускаются,
+     * при равенстве выше строка с меньшим id.
+     */
+    public List<AnalyticsRankedItemDto> top(AnalyticsColumnStore.RankMetric metric,
+                                            boolean highest,
+                                            int limit,
+                                            ProductAnalyticsFilter filter,
+                                            BigDecimal requestedMinMarginPercent) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Некорректный размер выборки");
+        }
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : defaultMinMarginPercent;
+        long targetMargin = Kopecks.percentHundredths(marginThreshold);
+        if (metric == AnalyticsColumnStore.RankMetric.PRICE_DELTA && targetMargin >= Kopecks.HUNDRED_PERCENT) {
+            throw new IllegalArgumentException("Целевая маржа должна быть меньше 100%");
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductAnalytics> query = cb.createQuery(ProductAnalytics.class);
+        Root<ProductAnalytics> root = query.from(ProductAnalytics.class);
+        List<Predicate> where = new ArrayList<>();
+        where.add(ProductAnalyticsSpecifications.matching(filter, marginThreshold).toPredicate(root, query, cb));
+        Expression<?> value = switch (metric) {
+            case MARGIN -> root.get("margin");
+            case MARGIN_PERCENT -> root.get("marginPercent");
+            case STOCK -> cb.<Integer>coalesce().value(root.get("wbStock")).value(root.get("localStock"));
+            case PRICE_DELTA -> {
+                // рекомендованная цена (цена продажи - маржа) / (1 - целевая маржа) минус цена WB
+                Expression<BigDecimal> costs = cb.diff(cb.<BigDecimal>coalesce()
+                        .value(root.get("wbDiscountPrice"))
+                        .value(root.get("wbPrice"))
+                        .value(root.get("localPrice")), root.<BigDecimal>get("margin"));
+                where.add(cb.gt(costs, BigDecimal.ZERO));
+                yield cb.diff(cb.quot(cb.prod(costs, BigDecimal.valueOf(Kopecks.HUNDRED_PERCENT)),
+                                BigDecimal.valueOf(Kopecks.HUNDRED_PERCENT - targetMargin)),
+                        root.<BigDecimal>get("wbPrice"));
+            }
+        };
+        where.add(cb.isNotNull(value));
+        query.where(where.toArray(new Predicate[0]));
+        query.orderBy(highest ? cb.desc(value) : cb.asc(value), cb.asc(root.get("id")));
+
+        List<AnalyticsRankedItemDto> result = new ArrayList<>();
+        for (ProductAnalytics row : entityManager.createQuery(query)
+                .setMaxResults(Math.min(limit, MAX_PAGE_SIZE))
+                .getResultList()) {
+            Long rankValue = rankValue(metric, row, targetMargin);
+            if (rankValue != null) {
+                result.add(new AnalyticsRankedItemDto(AnalyticsColumnStore.metricValue(metric, rankValue),
+                        toDto(row, marginThreshold)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Значение показателя в копейках (сотых долях процента, штуках) — тот же расчёт, что в колоночном снимке.
+     */
+    private static Long rankValue(AnalyticsColumnStore.RankMetric metric, ProductAnalytics row, long targetMargin) {
+        switch (metric) {
+            case MARGIN:
+                return row.getMargin() != null ? Kopecks.of(row.getMargin()) : null;
+            case MARGIN_PERCENT:
+                return row.getMarginPercent() != null ? Kopecks.percentHundredths(row.getMarginPercent()) : null;
+            case STOCK:
+                Integer stock = row.getWbStock() != null ? row.getWbStock() : row.getLocalStock();
+                return stock != null ? stock.longValue() : null;
+            default:
+                BigDecimal sale = row.getWbDiscountPrice() != null ? row.getWbDiscountPrice()
+                        : row.getWbPrice() != null ? row.getWbPrice() : row.getLocalPrice();
+                if (row.getWbPrice() == null || row.getMargin() == null || sale == null) {
+                    return null;
+                }
+                long recommended = Kopecks.priceForMargin(Kopecks.of(sale) - Kopecks.of(row.getMargin()), targetMargin);
+                return recommended > 0 ? recommended - Kopecks.of(row.getWbPrice()) : null;
+        }
+    }
+
+    private BigDecimal decimal(Tuple tuple, int index) {
+        Object value = tuple.get(index);
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    private Expression<Long> countIf(CriteriaBuilder cb, Predicate predicate) {
+        return cb.sum(cb.<Long>selectCase().when(predicate, 1L).otherwise(0L));
+    }
+
+    private long count(Tuple tuple, int index) {
+        Number value = (Number) tuple.get(index);
+        return value != null ? value.longValue() : 0L;
+    }
+
+    ProductAnalyticsDto toDto(ProductAnalytics row, BigDecimal marginThreshold) {
+        ProductAnalyticsDto dto = new ProductAnalyticsDto();
+        dto.setProductId(row.getProductId());
+        dto.setWbProductId(row.getWbProductId());
+        dto.setName(row.getName());
+        dto.setWbArticle(row.getWbArticle());
+        dto.setVendorCode(row.getVendorCode());
+        dto.setBrand(row.getBrand());
+        dto.setCategory(row.getCategory());
+        dto.setDataSource(row.getDataSource());
+        dto.setMatchMethod(row.getMatchMethod());
+        dto.setLocalPrice(row.getLocalPrice());
+        dto.setWbPrice(row.getWbPrice());
+        dto.setWbDiscountPrice(row.getWbDiscountPrice());
+        dto.setPurchasePrice(row.getPurchasePrice());
+        dto.setLogisticsCost(row.getLogisticsCost());
+        dto.setMarketingCost(row.getMarketingCost());
+        dto.setOtherExpenses(row.getOtherExpenses());
+        dto.setLocalStock(row.getLocalStock());
+        dto.setWbStock(row.getWbStock());
+        dto.setMargin(row.getMargin());
+        dto.setMarginPercent(row.getMarginPercent());
+        dto.setNegativeMargin(row.isNegativeMargin());
+        dto.setIssueMask(row.getIssueMask());
+        calculator.applyThreshold(dto, marginThreshold);
+        return dto;
+    }
+}
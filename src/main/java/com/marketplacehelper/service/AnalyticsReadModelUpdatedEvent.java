@@ -0,0 +1,36 @@
+package com.marketplacehelper.service;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Публикуется {@link AnalyticsReadModelProjector} внутри транзакции, пересчитавшей {@code product_analytics}.
+ * Перечисляет товары и карточки WB, чьи строки были удалены и записаны заново.
+ */
+public class AnalyticsReadModelUpdatedEvent {
+
+    private final Set<Long> productIds;
+    private final Set<Long> wbProductIds;
+    private final boolean fullRebuild;
+
+    public AnalyticsReadModelUpdatedEvent(Set<Long> productIds, Set<Long> wbProductIds, boolean fullRebuild) {
+        this.productIds = Collections.unmodifiableSet(productIds);
+        this.wbProductIds = Collections.unmodifiableSet(wbProductIds);
+        this.fullRebuild = fullRebuild;
+    }
+
+    public Set<Long> getProductIds() {
+        return productIds;
+    }
+
+    /**
+     * Карточки, строки WB_ONLY которых пересчитаны.
+     */
+    public Set<Long> getWbProductIds() {
+        return wbProductIds;
+    }
+
+    public boolean isFullRebuild() {
+        return fullRebuild;
+    }
+}
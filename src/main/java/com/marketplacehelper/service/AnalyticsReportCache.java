@@ -0,0 +1,183 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.AnalyticsCacheStatsDto;
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Кэш рассчитанной аналитики по ключу (includeWithoutWb, порог маржи).
+ * Каждая запись помечена версией данных из {@link CatalogChangeTracker}: пока в
+ * {@code products}/{@code wb_products} ничего не писали, отчёт отдаётся из памяти,
+ * а параллельные запросы одного ключа ждут единственного пересчёта.
+ */
+@Component
+public class AnalyticsReportCache {
+
+    private final CatalogChangeTracker changeTracker;
+    private final int maxEntries;
+    private final Map<Key, Slot> slots = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong totalRebuildNanos = new AtomicLong();
+    private volatile long lastRebuildNanos;
+
+    public AnalyticsReportCache(CatalogChangeTracker changeTracker,
+                                @Value("${app.analytics.cache.max-entries:16}") int maxEntries) {
+        this.changeTracker = changeTracker;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    public Report get(boolean includeWithoutWb, BigDecimal marginThreshold, Supplier<Report> loader) {
+        Key key = new Key(includeWithoutWb, marginThreshold);
+        Slot slot = slots.computeIfAbsent(key, k -> new Slot());
+        slot.lastAccess = System.nanoTime();
+
+        Report cached = slot.report;
+        if (cached != null && cached.version == changeTracker.currentVersion()) {
+            hits.increment();
+            return cached;
+        }
+
+        Report result;
+        synchronized (slot) {
+            // версию фиксируем до чтения данных: запись во время пересчёта пометит результат устаревшим
+            long version = changeTracker.currentVersion();
+            cached = slot.report;
+            if (cached != null && cached.version == version) {
+                hits.increment();
+                return cached;
+            }
+            misses.increment();
+            long started = System.nanoTime();
+            result = loader.get();
+            long elapsed = System.nanoTime() - started;
+            result.version = version;
+            slot.report = result;
+            rebuilds.incrementAndGet();
+            totalRebuildNanos.addAndGet(elapsed);
+            lastRebuildNanos = elapsed;
+        }
+        evictIfNeeded();
+        return result;
+    }
+
+    public void clear() {
+        slots.clear();
+    }
+
+    public AnalyticsCacheStatsDto getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long rebuildCount = rebuilds.get();
+
+        AnalyticsCacheStatsDto stats = new AnalyticsCacheStatsDto();
+        stats.setDataVersion(changeTracker.currentVersion());
+        stats.setEntries(slots.size());
+        stats.setMaxEntries(maxEntries);
+        stats.setHits(hitCount);
+        stats.setMisses(missCount);
+        stats.setHitRatio(hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0d);
+        stats.setRebuilds(rebuildCount);
+        stats.setLastRebuildMillis(lastRebuildNanos / 1_000_000d);
+        stats.setAverageRebuildMillis(rebuildCount > 0 ? totalRebuildNanos.get() / 1_000_000d / rebuildCount : 0d);
+        return stats;
+    }
+
+    private void evictIfNeeded() {
+        while (slots.size() > maxEntries) {
+            Key eldest = null;
+            long eldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<Key, Slot> entry : slots.entrySet()) {
+                if (entry.getValue().lastAccess < eldestAccess) {
+                    eldestAccess = entry.getValue().lastAccess;
+                    eldest = entry.getKey();
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            slots.remove(eldest);
+        }
+    }
+
+    /**
+     * Неизменяемый результат расчёта: отсортированные строки и готовые срезы для отчёта.
+     * Элементы разделяются между всеми потребителями кэша и не должны модифицироваться.
+     */
+    public static final class Report {
+
+        private final List<ProductAnalyticsDto> allItems;
+        private final List<ProductAnalyticsDto> profitable;
+        private final List<ProductAnalyticsDto> requiresAttention;
+        private volatile long version;
+
+        public Report(List<ProductAnalyticsDto> allItems,
+                      List<ProductAnalyticsDto> profitable,
+                      List<ProductAnalyticsDto> requiresAttention) {
+            this.allItems = Collections.unmodifiableList(allItems);
+            this.profitable = Collections.unmodifiableList(profitable);
+            this.requiresAttention = Collections.unmodifiableList(requiresAttention);
+        }
+
+        public List<ProductAnalyticsDto> getAllItems() {
+            return allItems;
+        }
+
+        public List<ProductAnalyticsDto> getProfitable() {
+            return profitable;
+        }
+
+        public List<ProductAnalyticsDto> getRequiresAttention() {
+            return requiresAttention;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    private static final class Slot {
+        private volatile Report report;
+        private volatile long lastAccess;
+    }
+
+    private static final class Key {
+        private final boolean includeWithoutWb;
+        private final BigDecimal marginThreshold;
+
+        private Key(boolean includeWithoutWb, BigDecimal marginThreshold) {
+            this.includeWithoutWb = includeWithoutWb;
+            // 15 и 15.00 — один и тот же порог
+            this.marginThreshold = marginThreshold != null ? marginThreshold.stripTrailingZeros() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return includeWithoutWb == other.includeWithoutWb && Objects.equals(marginThreshold, other.marginThreshold);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(includeWithoutWb, marginThreshold);
+        }
+    }
+}
@@ -1,444 +1,171 @@
 package com.marketplacehelper.service;
 
+import com.marketplacehelper.dto.AnalyticsCacheStatsDto;
 import com.marketplacehelper.dto.AnalyticsReportDto;
 import com.marketplacehelper.dto.ProductAnalyticsDto;
-import com.marketplacehelper.dto.ProductDataSource;
-import com.marketplacehelper.dto.ProductIssueDto;
+import com.marketplacehelper.dto.ProductIssue;
 import com.marketplacehelper.dto.ProductValidationDto;
-import com.marketplacehelper.model.Product;
-import com.marketplacehelper.model.WbProduct;
+import com.marketplacehelper.repository.AnalyticsSourceRow;
 import com.marketplacehelper.repository.ProductRepository;
 import com.marketplacehelper.repository.WbProductRepository;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class AnalyticsService {
 
+    private static final Comparator<ProductAnalyticsDto> ANALYTICS_ORDER = Comparator
+            .comparing(ProductAnalyticsDto::isProfitable).reversed()
+            .thenComparing(ProductAnalyticsDto::isRequiresCorrection)
+            .thenComparing(Comparator.comparing(ProductAnalyticsDto::getMargin,
+                    Comparator.nullsLast(Comparator.<BigDecimal>naturalOrder())).reversed())
+            .thenComparing(dto -> Optional.ofNullable(dto.getName()).orElse(""), String.CASE_INSENSITIVE_ORDER);
+
     private final ProductRepository productRepository;
     private final WbProductRepository wbProductRepository;
     private final BigDecimal defaultMinMarginPercent;
-    private final boolean filterNegativeMargin;
+    private final AnalyticsReportCache reportCache;
+    private final ProductAnalyticsCalculator calculator;
+    private final ForkJoinPool parallelPool;
+    private final int parallelThreshold;
 
     public AnalyticsService(ProductRepository productRepository,
                             WbProductRepository wbProductRepository,
+                            AnalyticsReportCache reportCache,
+                            ProductAnalyticsCalculator calculator,
                             @Value("${app.analytics.min-margin-percent:0}") BigDecimal defaultMinMarginPercent,
-                            @Value("${app.analytics.filter-negative-margin:true}") boolean filterNegativeMargin) {
+                            @Value("${app.analytics.parallel.enabled:true}") boolean parallelEnabled,
+                            @Value("${app.analytics.parallel.pool-size:0}") int parallelPoolSize,
+                            @Value("${app.analytics.parallel.threshold:5000}") int parallelThreshold) {
         this.productRepository = productRepository;
         this.wbProductRepository = wbProductRepository;
+        this.reportCache = reportCache;
+        this.calculator = calculator;
         this.defaultMinMarginPercent = defaultMinMarginPercent != null ? defaultMinMarginPercent : BigDecimal.ZERO;
-        this.filterNegativeMargin = filterNegativeMargin;
+        this.parallelThreshold = parallelThreshold;
+        if (parallelEnabled) {
+            int poolSize = parallelPoolSize > 0 ? parallelPoolSize : Runtime.getRuntime().availableProcessors();
+            this.parallelPool = new ForkJoinPool(poolSize, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("analytics-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        } else {
+            this.parallelPool = null;
+        }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (parallelPool != null) {
+            parallelPool.shutdownNow();
+        }
+    }
+
+    public BigDecimal getDefaultMinMarginPercent() {
+        return defaultMinMarginPercent;
+    }
+
+    @Transactional(readOnly = true)
     public AnalyticsReportDto buildProductAnalyticsReport(boolean includeWithoutWb,
                                                           BigDecimal requestedMinMarginPercent,
                                                           boolean includeUnprofitable) {
-        List<Product> products = productRepository.findAll();
-        List<WbProduct> wbProducts = wbProductRepository.findAll();
-
-        Map<String, WbProduct> wbByArticle = wbProducts.stream()
-                .filter(product -> product.getNmId() != null)
-                .collect(Collectors.toMap(product -> String.valueOf(product.getNmId()), product -> product, (a, b) -> a));
-
-        Map<String, WbProduct> wbByVendorCode = wbProducts.stream()
-                .filter(product -> product.getVendorCode() != null && !product.getVendorCode().isBlank())
-                .collect(Collectors.toMap(product -> normalizeVendorCode(product.getVendorCode()), product -> product, (a, b) -> a));
-
         BigDecimal marginThreshold = requestedMinMarginPercent != null
                 ? requestedMinMarginPercent
                 : defaultMinMarginPercent;
 
-        List<ProductAnalyticsDto> allItems = new ArrayList<>();
-        for (Product product : products) {
-            Optional<WbProduct> wbProduct = findMatchingWbProduct(product, wbByArticle, wbByVendorCode);
-            if (wbProduct.isEmpty() && !includeWithoutWb) {
-                continue;
-            }
-            allItems.add(toDto(product, wbProduct.orElse(null), marginThreshold));
-        }
-
-        wbProducts.stream()
-                .filter(wb -> includeWithoutWb && products.stream().noneMatch(p -> matches(p, wb)))
-                .forEach(wb -> allItems.add(toDto(null, wb, marginThreshold)));
-
-        sortAnalytics(allItems);
-
-        List<ProductAnalyticsDto> profitable = allItems.stream()
-                .filter(ProductAnalyticsDto::isProfitable)
-                .collect(Collectors.toList());
-
-        List<ProductAnalyticsDto> requiresAttention = allItems.stream()
-                .filter(ProductAnalyticsDto::isRequiresCorrection)
-                .collect(Collectors.toList());
+        AnalyticsReportCache.Report report = reportCache.get(includeWithoutWb, marginThreshold,
+                () -> computeReport(includeWithoutWb, marginThreshold));
 
         AnalyticsReportDto reportDto = new AnalyticsReportDto();
         reportDto.setAppliedMinMarginPercent(marginThreshold);
-        reportDto.setProfitable(profitable);
-        reportDto.setRequiresAttention(requiresAttention);
-        reportDto.setProfitableCount(profitable.size());
-        reportDto.setRequiresAttentionCount(requiresAttention.size());
-        reportDto.setTotalProducts(allItems.size());
-        reportDto.setAllItems(includeUnprofitable ? new ArrayList<>(allItems) : new ArrayList<>(profitable));
+        reportDto.setProfitable(report.getProfitable());
+        reportDto.setRequiresAttention(report.getRequiresAttention());
+        reportDto.setProfitableCount(report.getProfitable().size());
+        reportDto.setRequiresAttentionCount(report.getRequiresAttention().size());
+        reportDto.setTotalProducts(report.getAllItems().size());
+        reportDto.setAllItems(includeUnprofitable ? report.getAllItems() : report.getProfitable());
         return reportDto;
     }
 
-    private Optional<WbProduct> findMatchingWbProduct(Product product,
-                                                      Map<String, WbProduct> wbByArticle,
-                                                      Map<String, WbProduct> wbByVendorCode) {
-        if (product == null) {
-            return Optional.empty();
-        }
-        if (product.getWbArticle() != null && !product.getWbArticle().isBlank()) {
-            String normalizedArticle = normalizeArticle(product.getWbArticle());
-            if (!normalizedArticle.isBlank()) {
-                WbProduct byArticle = wbByArticle.get(normalizedArticle);
-                if (byArticle == null) {
-                    byArticle = wbByVendorCode.get(normalizedArticle.toLowerCase(Locale.ROOT));
-                }
-                if (byArticle == null) {
-                    byArticle = parseAsNumber(normalizedArticle)
-                            .map(number -> wbByArticle.get(String.valueOf(number)))
-                            .orElse(null);
-                }
-                if (byArticle != null) {
-                    return Optional.of(byArticle);
-                }
-            }
-        }
-        return Optional.empty();
+    public AnalyticsCacheStatsDto getCacheStats() {
+        return reportCache.getStats();
     }
 
-    private boolean matches(Product product, WbProduct wbProduct) {
-        if (product.getWbArticle() == null) {
-            return false;
-        }
-        String normalizedArticle = normalizeArticle(product.getWbArticle());
-        if (normalizedArticle.isBlank()) {
-            return false;
+    private AnalyticsReportCache.Report computeReport(boolean includeWithoutWb, BigDecimal marginThreshold) {
+        // связь товара с карточкой WB ищется в SQL; в память попадают только нужные колонки, без сущностей
+        List<AnalyticsSourceRow> sourceRows = new ArrayList<>();
+        try (Stream<AnalyticsSourceRow> rows = productRepository.streamAnalyticsRows(includeWithoutWb)) {
+            rows.forEach(sourceRows::add);
         }
-
-        Long nmId = wbProduct.getNmId();
-        if (nmId != null && normalizedArticle.equals(String.valueOf(nmId))) {
-            return true;
-        }
-
-        String normalizedVendorCode = normalizeVendorCode(wbProduct.getVendorCode());
-        if (!normalizedVendorCode.isBlank() && normalizedArticle.toLowerCase(Locale.ROOT).equals(normalizedVendorCode)) {
-            return true;
-        }
-
-        return parseAsNumber(normalizedArticle)
-                .map(number -> nmId != null && number.equals(nmId))
-                .orElse(false);
-    }
-
-    private Optional<Long> parseAsNumber(String value) {
-        if (value == null) {
-            return Optional.empty();
-        }
-        String sanitized = value.trim();
-        if (sanitized.isEmpty()) {
-            return Optional.empty();
-        }
-        String digitsOnly = sanitized.replaceAll("\\s+", "");
-        if (!digitsOnly.chars().allMatch(Character::isDigit)) {
-            return Optional.empty();
-        }
-        try {
-            return Optional.of(Long.parseLong(digitsOnly));
-        } catch (NumberFormatException ex) {
-            return Optional.empty();
-        }
-    }
-
-    private String normalizeArticle(String value) {
-        if (value == null) {
-            return "";
-        }
-        String trimmed = value.trim();
-        if (trimmed.isEmpty()) {
-            return "";
-        }
-        String withoutSpaces = trimmed.replaceAll("\\s+", "");
-        if (withoutSpaces.chars().allMatch(Character::isDigit)) {
-            try {
-                return String.valueOf(Long.parseLong(withoutSpaces));
-            } catch (NumberFormatException ex) {
-                return withoutSpaces;
+        if (includeWithoutWb) {
+            try (Stream<AnalyticsSourceRow> rows = wbProductRepository.streamUnmatchedAnalyticsRows()) {
+                rows.forEach(sourceRows::add);
             }
         }
-        return withoutSpaces;
-    }
-
-    private String normalizeVendorCode(String value) {
-        if (value == null) {
-            return "";
-        }
-        String trimmed = value.trim();
-        if (trimmed.isEmpty()) {
-            return "";
-        }
-        return trimmed.replaceAll("\\s+", "").toLowerCase(Locale.ROOT);
-    }
-
-    private ProductAnalyticsDto toDto(Product product, WbProduct wbProduct, BigDecimal marginThreshold) {
-        ProductAnalyticsDto dto = new ProductAnalyticsDto();
-        if (product != null && wbProduct != null) {
-            dto.setDataSource(ProductDataSource.MERGED);
-        } else if (product != null) {
-            dto.setDataSource(ProductDataSource.LOCAL_ONLY);
-        } else {
-            dto.setDataSource(ProductDataSource.WB_ONLY);
-        }
-
-        if (product != null) {
-            dto.setProductId(product.getId());
-            dto.setName(product.getName());
-            dto.setWbArticle(product.getWbArticle());
-            dto.setBrand(product.getBrand());
-            dto.setCategory(product.getCategory());
-            dto.setLocalPrice(product.getPrice());
-            dto.setPurchasePrice(product.getPurchasePrice());
-            dto.setLogisticsCost(product.getLogisticsCost());
-            dto.setMarketingCost(product.getMarketingCost());
-            dto.setOtherExpenses(product.getOtherExpenses());
-            dto.setLocalStock(product.getStockQuantity());
-        }
-        if (wbProduct != null) {
-            dto.setWbProductId(wbProduct.getId());
-            dto.setVendorCode(wbProduct.getVendorCode());
-            dto.setBrand(Optional.ofNullable(dto.getBrand()).orElse(wbProduct.getBrand()));
-            dto.setCategory(Optional.ofNullable(dto.getCategory()).orElse(wbProduct.getCategory()));
-            dto.setWbPrice(wbProduct.getPrice());
-            dto.setWbDiscountPrice(Optional.ofNullable(wbProduct.getPriceWithDiscount()).orElse(wbProduct.getSalePrice()));
-            dto.setWbStock(wbProduct.getTotalQuantity());
-            dto.setName(Optional.ofNullable(dto.getName()).orElse(wbProduct.getName()));
-            dto.setWbArticle(Optional.ofNullable(dto.getWbArticle())
-                    .orElseGet(() -> wbProduct.getNmId() != null ? String.valueOf(wbProduct.getNmId()) : wbProduct.getVendorCode()));
-        }
 
-        calculateMargins(dto);
-        applyValidation(dto, marginThreshold);
-        return dto;
-    }
-
-    private void sortAnalytics(List<ProductAnalyticsDto> items) {
-        Comparator<ProductAnalyticsDto> byProfitable = Comparator
-                .comparing(ProductAnalyticsDto::isProfitable)
-                .reversed();
-        Comparator<ProductAnalyticsDto> byMargin = Comparator
-                .comparing(ProductAnalyticsDto::getMargin, Comparator.nullsLast(Comparator.naturalOrder()))
-                .reversed();
-        Comparator<ProductAnalyticsDto> byName = Comparator
-                .comparing(dto -> Optional.ofNullable(dto.getName()).orElse(""), String.CASE_INSENSITIVE_ORDER);
-
-        items.sort(byProfitable
-                .thenComparing(ProductAnalyticsDto::isRequiresCorrection)
-                .thenComparing(byMargin)
-                .thenComparing(byName));
-    }
-
-    private void applyValidation(ProductAnalyticsDto dto, BigDecimal marginThreshold) {
-        if (dto.getDataSource() == ProductDataSource.LOCAL_ONLY) {
-            dto.addWarning("Загружено из Excel — нет данных из кабинета WB.");
-        } else if (dto.getDataSource() == ProductDataSource.WB_ONLY) {
-            dto.addWarning("Нет корпоративных данных — загрузите Excel для сопоставления.");
-        }
-
-        if (dto.getPurchasePrice() == null) {
-            dto.addWarning("Не заполнено поле «Закупка».");
-        }
-        if (dto.getLogisticsCost() == null) {
-            dto.addWarning("Не указана логистика.");
-        }
-        if (dto.getMarketingCost() == null) {
-            dto.addWarning("Не указаны маркетинговые расходы.");
-        }
-        if (dto.getOtherExpenses() == null) {
-            dto.addWarning("Не указаны прочие расходы.");
-        }
-        if (dto.getWbPrice() != null && dto.getWbDiscountPrice() != null
-                && dto.getWbDiscountPrice().compareTo(dto.getWbPrice()) > 0) {
-            dto.addWarning("Цена со скидкой превышает базовую цену WB.");
-        }
-
-        if (dto.getMargin() == null) {
-            dto.addWarning("Не удалось рассчитать маржу.");
+        // расчёт строк и сортировка большого отчёта — в отдельном пуле, курсоры БД читаются в вызывающем потоке
+        List<ProductAnalyticsDto> sorted;
+        if (parallelPool != null && sourceRows.size() >= parallelThreshold) {
+            sorted = parallelPool.submit(() -> sourceRows.parallelStream()
+                    .map(row -> calculator.toDto(row, marginThreshold))
+                    .sorted(ANALYTICS_ORDER)
+                    .collect(Collectors.toList())).join();
         } else {
-            if (dto.getMargin().compareTo(BigDecimal.ZERO) < 0) {
-                dto.setNegativeMargin(true);
-                if (filterNegativeMargin) {
-                    dto.addWarning("Маржа отрицательная. Проверьте расходы и цены.");
-                }
-            }
-            if (dto.getMarginPercent() == null || dto.getMarginPercent().compareTo(marginThreshold) < 0) {
-                dto.setMarginBelowThreshold(true);
-                dto.addWarning(String.format(Locale.ROOT,
-                        "Маржа ниже порога %s%%.",
-                        marginThreshold.stripTrailingZeros().toPlainString()));
+            sorted = new ArrayList<>(sourceRows.size());
+            for (AnalyticsSourceRow row : sourceRows) {
+                sorted.add(calculator.toDto(row, marginThreshold));
             }
+            sorted.sort(ANALYTICS_ORDER);
         }
 
-        // В MERGED режиме отдельные предупреждения не должны автоматически относить товар к проблемным
-        boolean profitable = dto.getMargin() != null
-                && dto.getMarginPercent() != null
-                && dto.getMargin().compareTo(BigDecimal.ZERO) >= 0
-                && dto.getMarginPercent().compareTo(marginThreshold) >= 0;
-        dto.setProfitable(profitable);
+        List<ProductAnalyticsDto> profitable = sorted.stream()
+                .filter(ProductAnalyticsDto::isProfitable)
+                .collect(Collectors.toList());
 
-        boolean requiresCorrection;
-        if (dto.getDataSource() == ProductDataSource.WB_ONLY || dto.getDataSource() == ProductDataSource.LOCAL_ONLY) {
-            // Неполные данные всегда требуют внимания
-            requiresCorrection = true;
-        } else {
-            // Для MERGED используем бизнес-порог маржи, а не любые предупреждения
-            requiresCorrection = !profitable || dto.isNegativeMargin() || dto.isMarginBelowThreshold() || dto.getMargin() == null;
-        }
-        dto.setRequiresCorrection(requiresCorrection);
+        List<ProductAnalyticsDto> requiresAttention = sorted.stream()
+                .filter(ProductAnalyticsDto::isRequiresCorrection)
+                .collect(Collectors.toList());
+
+        return new AnalyticsReportCache.Report(sorted, profitable, requiresAttention);
     }
 
+    @Transactional(readOnly = true)
     public List<ProductValidationDto> buildValidationReport(boolean includeWithoutWb,
                                                             BigDecimal requestedMinMarginPercent) {
         AnalyticsReportDto analytics = buildProductAnalyticsReport(includeWithoutWb, requestedMinMarginPercent, true);
         List<ProductValidationDto> result = new ArrayList<>();
         for (ProductAnalyticsDto item : analytics.getAllItems()) {
-            ProductValidationDto validation = new ProductValidationDto();
-            validation.setProductId(item.getProductId());
-            validation.setName(item.getName());
-            validation.setWbArticle(item.getWbArticle());
-
-            if (item.getDataSource() == ProductDataSource.WB_ONLY) {
-                validation.addIssue(new ProductIssueDto(
-                        "excelData",
-                        "Нет корпоративных данных — загрузите Excel для сопоставления.",
-                        null,
-                        true
-                ));
-            }
-            if (item.getDataSource() == ProductDataSource.LOCAL_ONLY) {
-                validation.addIssue(new ProductIssueDto(
-                        "wbData",
-                        "Загружено из Excel — нет данных из кабинета WB.",
-                        null,
-                        false
-                ));
-            }
-            if (item.getPurchasePrice() == null) {
-                String suggestion = item.getLocalPrice() != null ? "60% от price" : null;
-                validation.addIssue(new ProductIssueDto("purchasePrice", "Пустое значение", suggestion, true));
-            }
-            if (item.getLogisticsCost() == null) {
-                validation.addIssue(new ProductIssueDto("logisticsCost", "Пустое значение", "70 ₽/шт", true));
-            }
-            if (item.getMarketingCost() == null) {
-                validation.addIssue(new ProductIssueDto("marketingCost", "Пустое значение", "8% от price", false));
-            }
-            if (item.getOtherExpenses() == null) {
-                validation.addIssue(new ProductIssueDto("otherExpenses", "Пустое значение", "0 ₽", false));
-            }
-            // Валидация для блока корректировок отражает только полноту данных, без маржинальных предупреждений
-
-            validation.setRequiresCorrection(item.isRequiresCorrection());
-            result.add(validation);
+            result.add(toValidation(item));
         }
         return result;
     }
 
-    private void calculateMargins(ProductAnalyticsDto dto) {
-        BigDecimal salePrice = Optional.ofNullable(dto.getWbDiscountPrice())
-                .orElse(Optional.ofNullable(dto.getWbPrice())
-                        .orElse(dto.getLocalPrice()));
-        if (salePrice == null) {
-            return;
-        }
-
-        BigDecimal totalCosts = sum(dto.getPurchasePrice(), dto.getLogisticsCost(), dto.getMarketingCost(), dto.getOtherExpenses());
-        if (totalCosts == null) {
-            return;
-        }
-
-        BigDecimal margin = salePrice.subtract(totalCosts);
-        dto.setMargin(margin.setScale(2, RoundingMode.HALF_UP));
-        if (salePrice.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal percent = margin.divide(salePrice, 4, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(100))
-                    .setScale(2, RoundingMode.HALF_UP);
-            dto.setMarginPercent(percent);
-        }
-    }
-
-    private BigDecimal sum(BigDecimal... values) {
-        BigDecimal result = BigDecimal.ZERO;
-        boolean hasValue = false;
-        for (BigDecimal value : values) {
-            if (value != null) {
-                result = result.add(value);
-                hasValue = true;
-            }
-        }
-        return hasValue ? result : null;
-    }
-
-    public byte[] exportProfitableProductsAsCsv(boolean includeWithoutWb,
-                                                BigDecimal requestedMinMarginPercent) {
-        AnalyticsReportDto report = buildProductAnalyticsReport(includeWithoutWb, requestedMinMarginPercent, false);
-        StringBuilder builder = new StringBuilder();
-        builder.append("Артикул;Название;Источник;Маржа;Маржа %;Цена WB;Цена со скидкой;Закупка;Логистика;Маркетинг;Прочие;Остаток лок.;Остаток WB\n");
-        for (ProductAnalyticsDto dto : report.getProfitable()) {
-            builder.append(csv(dto.getWbArticle()))
-                    .append(';').append(csv(dto.getName()))
-                    .append(';').append(csv(sourceLabel(dto.getDataSource())))
-                    .append(';').append(decimal(dto.getMargin()))
-                    .append(';').append(decimal(dto.getMarginPercent()))
-                    .append(';').append(decimal(dto.getWbPrice()))
-                    .append(';').append(decimal(dto.getWbDiscountPrice()))
-                    .append(';').append(decimal(dto.getPurchasePrice()))
-                    .append(';').append(decimal(dto.getLogisticsCost()))
-                    .append(';').append(decimal(dto.getMarketingCost()))
-                    .append(';').append(decimal(dto.getOtherExpenses()))
-                    .append(';').append(integer(dto.getLocalStock()))
-                    .append(';').append(integer(dto.getWbStock()))
-                    .append('\n');
-        }
-        return builder.toString().getBytes(StandardCharsets.UTF_8);
-    }
-
-    private String csv(String value) {
-        if (value == null) {
-            return "";
-        }
-        boolean needsQuotes = value.contains(";") || value.contains("\"") || value.contains("\n");
-        String escaped = value.replace("\"", "\"\"");
-        return needsQuotes ? "\"" + escaped + "\"" : escaped;
-    }
-
-    private String decimal(BigDecimal value) {
-        return value != null ? value.setScale(2, RoundingMode.HALF_UP).toPlainString() : "";
-    }
-
-    private String integer(Integer value) {
-        return value != null ? value.toString() : "";
-    }
-
-    private String sourceLabel(ProductDataSource dataSource) {
-        if (dataSource == null) {
-            return "";
-        }
-        return switch (dataSource) {
-            case MERGED -> "WB + Excel";
-            case LOCAL_ONLY -> "Excel";
-            case WB_ONLY -> "Wildberries";
-        };
+    /**
+     * Проверка полноты данных одной строки отчёта.
+     */
+    public ProductValidationDto toValidation(ProductAnalyticsDto item) {
+        ProductValidationDto validation = new ProductValidationDto();
+        validation.setProductId(item.getProductId());
+        validation.setName(item.getName());
+        validation.setWbArticle(item.getWbArticle());
+
+        // Валидация для блока корректировок отражает только полноту данных, без маржинальных предупреждений
+        validation.setIssueMask(item.getIssueMask() & ProductIssue.validationMask());
+        validation.setPurchasePriceSuggested(item.getLocalPrice() != null);
+        validation.setRequiresCorrection(item.isRequiresCorrection());
+        return validation;
     }
 }
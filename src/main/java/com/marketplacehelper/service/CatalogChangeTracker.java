@@ -0,0 +1,123 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.WbProduct;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Монотонная версия данных каталога (таблицы {@code products} и {@code wb_products}).
+ * Любая запись увеличивает версию, а при работе внутри транзакции версия повторно
+ * увеличивается после её завершения — так читатели, успевшие построить отчёт по
+ * незакоммиченным данным, гарантированно увидят новую версию.
+ * <p>
+ * Изменения одной транзакции накапливаются и после коммита публикуются одним {@link CatalogChangedEvent}.
+ */
+@Component
+public class CatalogChangeTracker {
+
+    private final AtomicLong version = new AtomicLong();
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CatalogChangeTracker(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public long currentVersion() {
+        return version.get();
+    }
+
+    public void productChanged(Product product) {
+        ChangeSet changes = markChanged();
+        changes.productIds.add(product.getId());
+        addKeys(changes, product.getArticleKey(), product.getArticleNmId());
+        addKeys(changes, product.getLoadedArticleKey(), product.getLoadedArticleNmId());
+        publishIfOutsideTransaction(changes);
+    }
+
+    public void wbProductChanged(WbProduct wbProduct) {
+        ChangeSet changes = markChanged();
+        changes.wbProductIds.add(wbProduct.getId());
+        publishIfOutsideTransaction(changes);
+    }
+
+    /**
+     * Для массовых операций в обход JPA (JDBC, bulk-запросы), которые не вызывают entity listener'ы.
+     */
+    public void catalogChanged() {
+        ChangeSet changes = markChanged();
+        changes.fullRefresh = true;
+        publishIfOutsideTransaction(changes);
+    }
+
+    private ChangeSet markChanged() {
+        version.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new ChangeSet(false);
+        }
+        ChangeSet bound = (ChangeSet) TransactionSynchronizationManager.getResource(this);
+        if (bound != null) {
+            return bound;
+        }
+        ChangeSet changes = new ChangeSet(true);
+        TransactionSynchronizationManager.bindResource(this, changes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(changes);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CatalogChangeTracker.this);
+                version.incrementAndGet();
+            }
+        });
+        return changes;
+    }
+
+    private void addKeys(ChangeSet changes, String articleKey, Long articleNmId) {
+        if (articleKey != null) {
+            changes.articleKeys.add(articleKey);
+        }
+        if (articleNmId != null) {
+            changes.articleNmIds.add(articleNmId);
+        }
+    }
+
+    private void publishIfOutsideTransaction(ChangeSet changes) {
+        if (!changes.transactional) {
+            publish(changes);
+        }
+    }
+
+    private void publish(ChangeSet changes) {
+        changes.productIds.remove(null);
+        changes.wbProductIds.remove(null);
+        eventPublisher.publishEvent(new CatalogChangedEvent(
+                changes.productIds,
+                changes.wbProductIds,
+                changes.articleKeys,
+                changes.articleNmIds,
+                changes.fullRefresh));
+    }
+
+    private static final class ChangeSet {
+        private final boolean transactional;
+        private final Set<Long> productIds = new HashSet<>();
+        private final Set<Long> wbProductIds = new HashSet<>();
+        private final Set<String> articleKeys = new HashSet<>();
+        private final Set<Long> articleNmIds = new HashSet<>();
+        private boolean fullRefresh;
+
+        private ChangeSet(boolean transactional) {
+            this.transactional = transactional;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.marketplacehelper.service;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Публикуется после коммита транзакции, изменившей {@code products} / {@code wb_products}.
+ * Содержит идентификаторы затронутых строк и ключи артикулов (старые и новые) изменённых товаров,
+ * чтобы подписчики могли пересчитать только затронутые связи.
+ */
+public class CatalogChangedEvent {
+
+    private final Set<Long> productIds;
+    private final Set<Long> wbProductIds;
+    private final Set<String> articleKeys;
+    private final Set<Long> articleNmIds;
+    private final boolean fullRefresh;
+
+    public CatalogChangedEvent(Set<Long> productIds,
+                               Set<Long> wbProductIds,
+                               Set<String> articleKeys,
+                               Set<Long> articleNmIds,
+                               boolean fullRefresh) {
+        this.productIds = Collections.unmodifiableSet(productIds);
+        this.wbProductIds = Collections.unmodifiableSet(wbProductIds);
+        this.articleKeys = Collections.unmodifiableSet(articleKeys);
+        this.articleNmIds = Collections.unmodifiableSet(articleNmIds);
+        this.fullRefresh = fullRefresh;
+    }
+
+    public Set<Long> getProductIds() {
+        return productIds;
+    }
+
+    public Set<Long> getWbProductIds() {
+        return wbProductIds;
+    }
+
+    public Set<String> getArticleKeys() {
+        return articleKeys;
+    }
+
+    public Set<Long> getArticleNmIds() {
+        return articleNmIds;
+    }
+
+    /**
+     * Изменение, границы которого неизвестны (массовая запись в обход JPA) — нужен полный пересчёт.
+     */
+    public boolean isFullRefresh() {
+        return fullRefresh;
+    }
+}
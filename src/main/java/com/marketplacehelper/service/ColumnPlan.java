@@ -0,0 +1,151 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ImportField;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Колонки файла для каждого поля товара, вычисленные один раз по строке заголовков.
+ * Строки данных читаются по готовым номерам колонок, без работы со строками заголовков.
+ * <p>
+ * Без профиля поле ищется по встроенным псевдонимам; у артикула и цены несколько групп псевдонимов,
+ * и следующая группа используется, если значение предыдущей пустое. Колонка из профиля заменяет псевдонимы поля.
+ */
+final class ColumnPlan {
+
+    static final int MISSING = -1;
+
+    // псевдонимы колонок в порядке приоритета; группы артикула и цены проверяются по очереди
+    private static final Map<ImportField, String[][]> ALIASES = new EnumMap<>(ImportField.class);
+
+    static {
+        aliases(ImportField.NAME, new String[][]{{"name", "название", "товар", "наименование"}});
+        aliases(ImportField.WB_ARTICLE, new String[][]{
+                {"wb_article", "артикулwb", "артикул"},
+                {"кодноменклатуры", "nm_id", "nmid", "кодтовара", "номенклатура"},
+                {"артикулпоставщика", "supplierarticle", "поставщикаартикул"},
+                {"srid", "корзина", "idкорзинызаказа"}
+        });
+        aliases(ImportField.BARCODE, new String[][]{{"wb_barcode", "штрихкод", "barcode", "баркод", "шк"}});
+        aliases(ImportField.CATEGORY, new String[][]{{"category", "категория", "предмет", "категориятовара"}});
+        aliases(ImportField.BRAND, new String[][]{{"brand", "бренд"}});
+        aliases(ImportField.STOCK, new String[][]{{"stock", "остаток", "stock_quantity", "колво", "количество"}});
+        aliases(ImportField.PRICE, new String[][]{
+                {"price", "продажнаяцена", "цена", "ценарозничная", "розничнаяцена"},
+                {"вайлдберризреализовалтоварпр", "реализация", "продажапоакции"}
+        });
+        aliases(ImportField.PURCHASE_PRICE,
+                new String[][]{{"purchaseprice", "закупка", "purchase_price", "закупочнаяцена"}});
+        aliases(ImportField.LOGISTICS_COST,
+                new String[][]{{"logistics", "логистика", "logistics_cost", "возмещениеиздержек", "доставка"}});
+        aliases(ImportField.MARKETING_COST,
+                new String[][]{{"marketing", "маркетинг", "marketing_cost", "промокод", "реклама"}});
+        aliases(ImportField.OTHER_EXPENSES,
+                new String[][]{{"other", "прочие", "other_expenses", "прочиерасходы", "штрафы"}});
+    }
+
+    // по полю — колонки групп в порядке приоритета, без отсутствующих
+    private final int[][] columns;
+    private final int[] usedColumns;
+
+    private ColumnPlan(int[][] columns) {
+        this.columns = columns;
+        TreeSet<Integer> used = new TreeSet<>();
+        for (int[] fieldColumns : columns) {
+            for (int column : fieldColumns) {
+                used.add(column);
+            }
+        }
+        this.usedColumns = used.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @param profileColumns заголовки колонок из профиля импорта по полям; пустая карта — только псевдонимы
+     * @throws IllegalArgumentException если каких-то колонок из профиля нет в файле
+     */
+    static ColumnPlan compile(ImportRow headerRow, Map<ImportField, String> profileColumns) {
+        Map<String, Integer> headerMap = new HashMap<>();
+        for (int column : headerRow.columns()) {
+            String value = headerRow.text(column);
+            if (value != null && !value.isBlank()) {
+                headerMap.put(normalize(value), column);
+            }
+        }
+
+        ImportField[] fields = ImportField.values();
+        int[][] columns = new int[fields.length][];
+        List<String> missing = new ArrayList<>();
+        for (ImportField field : fields) {
+            String profileHeader = profileColumns.get(field);
+            if (profileHeader != null) {
+                Integer column = headerMap.get(normalize(profileHeader));
+                if (column == null) {
+                    missing.add("«" + profileHeader + "»");
+                    column = MISSING;
+                }
+                columns[field.ordinal()] = column != MISSING ? new int[]{column} : new int[0];
+                continue;
+            }
+            String[][] groups = ALIASES.get(field);
+            int[] resolved = new int[groups.length];
+            int count = 0;
+            for (String[] group : groups) {
+                for (String alias : group) {
+                    Integer column = headerMap.get(alias);
+                    if (column != null) {
+                        resolved[count++] = column;
+                        break;
+                    }
+                }
+            }
+            columns[field.ordinal()] = Arrays.copyOf(resolved, count);
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("В файле нет колонок из профиля импорта: " + String.join(", ", missing));
+        }
+        return new ColumnPlan(columns);
+    }
+
+    /**
+     * Первая найденная колонка поля или {@link #MISSING}.
+     */
+    int column(ImportField field) {
+        int[] fieldColumns = columns[field.ordinal()];
+        return fieldColumns.length > 0 ? fieldColumns[0] : MISSING;
+    }
+
+    /**
+     * Все найденные колонки поля в порядке приоритета групп псевдонимов.
+     */
+    int[] columns(ImportField field) {
+        return columns[field.ordinal()];
+    }
+
+    /**
+     * Номера всех колонок, которые читает план, по возрастанию.
+     */
+    int[] usedColumns() {
+        return usedColumns;
+    }
+
+    // псевдонимы нормализуются один раз, при загрузке класса
+    private static void aliases(ImportField field, String[][] groups) {
+        for (String[] group : groups) {
+            for (int i = 0; i < group.length; i++) {
+                group[i] = normalize(group[i]);
+            }
+        }
+        ALIASES.put(field, groups);
+    }
+
+    static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9а-яё]", "");
+    }
+}
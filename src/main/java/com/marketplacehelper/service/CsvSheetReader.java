@@ -0,0 +1,309 @@
+package com.marketplacehelper.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Построчное чтение CSV/TSV. Разделитель ({@code ;}, табуляция или {@code ,}) определяется по строке заголовков,
+ * кодировка — UTF-8 (с BOM или без) либо Windows-1251. Кавычки — по RFC 4180, включая переводы строк внутри.
+ * <p>
+ * Поля не копируются: строка — это смещения в буфере чтения, {@link String} создаётся только для
+ * запрошенной колонки. Поэтому строка действительна лишь внутри вызова {@code consumer}.
+ * Пустые строки файла пропускаются, но учитываются в номерах строк.
+ */
+final class CsvSheetReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final Charset WINDOWS_1251 = Charset.forName("windows-1251");
+
+    private CsvSheetReader() {
+    }
+
+    static void read(File file, Consumer<ImportRow> consumer) throws IOException {
+        Charset charset = detectCharset(file);
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), charset)) {
+            new Tokenizer(reader, consumer).run();
+        }
+    }
+
+    /**
+     * UTF-8, если начало файла декодируется без ошибок, иначе Windows-1251 — так выгружает Excel «CSV (разделители — точка с запятой)».
+     */
+    private static Charset detectCharset(File file) throws IOException {
+        byte[] sample = new byte[BUFFER_SIZE];
+        int length;
+        try (InputStream in = new FileInputStream(file)) {
+            length = in.readNBytes(sample, 0, sample.length);
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer out = CharBuffer.allocate(length + 1);
+        // endOfInput=false: обрезанный на границе выборки многобайтный символ ошибкой не считается
+        CoderResult result = decoder.decode(ByteBuffer.wrap(sample, 0, length), out, false);
+        if (result.isError()) {
+            return WINDOWS_1251;
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static final class Tokenizer implements ImportRow {
+        private final Reader reader;
+        private final Consumer<ImportRow> consumer;
+
+        private char[] buf = new char[BUFFER_SIZE];
+        private int limit;
+        private int pos;
+        private boolean eof;
+        // начало текущей записи в буфере; смещения полей считаются от него и не меняются при сдвиге буфера
+        private int recordStart;
+        private char delimiter;
+        private int rowNumber;
+
+        private int[] starts = new int[32];
+        private int[] ends = new int[32];
+        private boolean[] escaped = new boolean[32];
+        private boolean[] quoted = new boolean[32];
+        private int fieldCount;
+
+        private Tokenizer(Reader reader, Consumer<ImportRow> consumer) {
+            this.reader = reader;
+            this.consumer = consumer;
+        }
+
+        private void run() throws IOException {
+            refill();
+            if (limit > 0 && buf[0] == '\uFEFF') {
+                pos = 1;
+            }
+            delimiter = detectDelimiter();
+            while (parseRecord()) {
+                rowNumber++;
+                if (fieldCount == 1 && !quoted[0] && starts[0] == ends[0]) {
+                    continue;
+                }
+                consumer.accept(this);
+            }
+        }
+
+        /**
+         * Самый частый из {@code ; \t ,} вне кавычек в первой строке; при равенстве — в этом порядке.
+         */
+        private char detectDelimiter() {
+            int semicolons = 0;
+            int tabs = 0;
+            int commas = 0;
+            boolean inQuotes = false;
+            for (int i = pos; i < limit; i++) {
+                char c = buf[i];
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                } else if (!inQuotes) {
+                    if (c == '\n' || c == '\r') {
+                        break;
+                    } else if (c == ';') {
+                        semicolons++;
+                    } else if (c == '\t') {
+                        tabs++;
+                    } else if (c == ',') {
+                        commas++;
+                    }
+                }
+            }
+            if (semicolons >= tabs && semicolons >= commas && semicolons > 0) {
+                return ';';
+            }
+            if (tabs >= commas && tabs > 0) {
+                return '\t';
+            }
+            return ',';
+        }
+
+        private boolean parseRecord() throws IOException {
+            fieldCount = 0;
+            recordStart = pos;
+            if (pos >= limit && !refill()) {
+                return false;
+            }
+            while (true) {
+                if (pos >= limit && !refill()) {
+                    // разделитель в самом конце файла — последнее поле пустое
+                    addField(pos - recordStart, pos - recordStart, false, false);
+                    return true;
+                }
+                if (buf[pos] == '"') {
+                    if (parseQuotedField()) {
+                        return true;
+                    }
+                } else if (parseField()) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return {@code true}, если поле закончило запись
+         */
+        private boolean parseField() throws IOException {
+            int fieldStart = pos - recordStart;
+            while (true) {
+                if (pos >= limit && !refill()) {
+                    addField(fieldStart, pos - recordStart, false, false);
+                    return true;
+                }
+                char c = buf[pos];
+                if (c == delimiter) {
+                    addField(fieldStart, pos - recordStart, false, false);
+                    pos++;
+                    return false;
+                }
+                if (c == '\n' || c == '\r') {
+                    addField(fieldStart, pos - recordStart, false, false);
+                    skipLineBreak();
+                    return true;
+                }
+                pos++;
+            }
+        }
+
+        private boolean parseQuotedField() throws IOException {
+            pos++;
+            int fieldStart = pos - recordStart;
+            boolean escapedQuotes = false;
+            int fieldEnd;
+            while (true) {
+                if (pos >= limit && !refill()) {
+                    // незакрытая кавычка: поле до конца файла
+                    addField(fieldStart, pos - recordStart, escapedQuotes, true);
+                    return true;
+                }
+                if (buf[pos] == '"') {
+                    if (pos + 1 >= limit) {
+                        refill();
+                    }
+                    if (pos + 1 < limit && buf[pos + 1] == '"') {
+                        escapedQuotes = true;
+                        pos += 2;
+                        continue;
+                    }
+                    fieldEnd = pos - recordStart;
+                    pos++;
+                    break;
+                }
+                pos++;
+            }
+            // символы между закрывающей кавычкой и разделителем отбрасываются
+            while (true) {
+                if (pos >= limit && !refill()) {
+                    addField(fieldStart, fieldEnd, escapedQuotes, true);
+                    return true;
+                }
+                char c = buf[pos];
+                if (c == delimiter) {
+                    addField(fieldStart, fieldEnd, escapedQuotes, true);
+                    pos++;
+                    return false;
+                }
+                if (c == '\n' || c == '\r') {
+                    addField(fieldStart, fieldEnd, escapedQuotes, true);
+                    skipLineBreak();
+                    return true;
+                }
+                pos++;
+            }
+        }
+
+        private void skipLineBreak() throws IOException {
+            if (buf[pos++] == '\r') {
+                if (pos >= limit) {
+                    refill();
+                }
+                if (pos < limit && buf[pos] == '\n') {
+                    pos++;
+                }
+            }
+        }
+
+        private void addField(int start, int end, boolean escapedQuotes, boolean wasQuoted) {
+            if (fieldCount == starts.length) {
+                int capacity = fieldCount * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                escaped = Arrays.copyOf(escaped, capacity);
+                quoted = Arrays.copyOf(quoted, capacity);
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            escaped[fieldCount] = escapedQuotes;
+            quoted[fieldCount] = wasQuoted;
+            fieldCount++;
+        }
+
+        /**
+         * Дочитывает данные, сдвинув текущую запись в начало буфера; буфер растёт, только если запись в него не влезает.
+         */
+        private boolean refill() throws IOException {
+            if (eof) {
+                return false;
+            }
+            if (recordStart > 0) {
+                System.arraycopy(buf, recordStart, buf, 0, limit - recordStart);
+                pos -= recordStart;
+                limit -= recordStart;
+                recordStart = 0;
+            }
+            if (limit == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            int read = reader.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                eof = true;
+                return false;
+            }
+            limit += read;
+            return true;
+        }
+
+        @Override
+        public int rowNumber() {
+            return rowNumber;
+        }
+
+        @Override
+        public String text(int column) {
+            if (column >= fieldCount) {
+                return null;
+            }
+            String value = new String(buf, recordStart + starts[column], ends[column] - starts[column]);
+            return escaped[column] ? value.replace("\"\"", "\"") : value;
+        }
+
+        @Override
+        public Double number(int column) {
+            // в тексте нет типов ячеек: числа разбираются из текста, с запятой и пробелами
+            return null;
+        }
+
+        @Override
+        public int[] columns() {
+            int[] columns = new int[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                columns[i] = i;
+            }
+            return columns;
+        }
+    }
+}
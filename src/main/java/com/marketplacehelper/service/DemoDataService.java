@@ -2,6 +2,7 @@ package com.marketplacehelper.service;
 
 import com.marketplacehelper.dto.AutoFillRequestDto;
 import com.marketplacehelper.dto.AutoFillResultDto;
+import com.marketplacehelper.model.Kopecks;
 import com.marketplacehelper.model.Product;
 import com.marketplacehelper.model.WbProduct;
 import com.marketplacehelper.repository.ProductRepository;
@@ -124,7 +125,7 @@ public class DemoDataService {
     }
 
     private BigDecimal percentageOf(BigDecimal base, BigDecimal percent) {
-        return base.multiply(percent).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        return Kopecks.toRubles(Kopecks.percentOf(Kopecks.of(base), percent));
     }
 
     @Transactional
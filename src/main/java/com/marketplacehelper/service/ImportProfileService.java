@@ -0,0 +1,104 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ImportField;
+import com.marketplacehelper.dto.ImportProfileDto;
+import com.marketplacehelper.model.ImportProfile;
+import com.marketplacehelper.repository.ImportProfileRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Сохранённые профили сопоставления колонок для импорта товаров.
+ */
+@Service
+public class ImportProfileService {
+
+    private final ImportProfileRepository importProfileRepository;
+
+    public ImportProfileService(ImportProfileRepository importProfileRepository) {
+        this.importProfileRepository = importProfileRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ImportProfileDto> getProfiles() {
+        return importProfileRepository.findAllByOrderByNameAsc().stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ImportProfileDto> getProfile(Long id) {
+        return importProfileRepository.findById(id).map(this::toDto);
+    }
+
+    @Transactional
+    public ImportProfileDto create(ImportProfileDto request) {
+        ImportProfile profile = new ImportProfile();
+        profile.setCreatedAt(LocalDateTime.now());
+        return toDto(apply(profile, request));
+    }
+
+    @Transactional
+    public Optional<ImportProfileDto> update(Long id, ImportProfileDto request) {
+        return importProfileRepository.findById(id).map(profile -> toDto(apply(profile, request)));
+    }
+
+    @Transactional
+    public boolean delete(Long id) {
+        if (!importProfileRepository.existsById(id)) {
+            return false;
+        }
+        importProfileRepository.deleteById(id);
+        return true;
+    }
+
+    private ImportProfile apply(ImportProfile profile, ImportProfileDto request) {
+        String name = request.getName() != null ? request.getName().trim() : "";
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Не указано название профиля");
+        }
+        if (name.length() > 100) {
+            throw new IllegalArgumentException("Название профиля длиннее 100 символов");
+        }
+        importProfileRepository.findByName(name)
+                .filter(other -> !other.getId().equals(profile.getId()))
+                .ifPresent(other -> {
+                    throw new IllegalArgumentException("Профиль «" + name + "» уже существует");
+                });
+
+        Map<ImportField, String> columns = new EnumMap<>(ImportField.class);
+        if (request.getColumns() != null) {
+            for (Map.Entry<ImportField, String> entry : request.getColumns().entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null || entry.getValue().isBlank()) {
+                    throw new IllegalArgumentException("Для каждого поля профиля нужен заголовок колонки");
+                }
+                columns.put(entry.getKey(), entry.getValue().trim());
+            }
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("В профиле не указано ни одной колонки");
+        }
+
+        profile.setName(name);
+        profile.getColumns().clear();
+        profile.getColumns().putAll(columns);
+        profile.setUpdatedAt(LocalDateTime.now());
+        return importProfileRepository.save(profile);
+    }
+
+    private ImportProfileDto toDto(ImportProfile profile) {
+        ImportProfileDto dto = new ImportProfileDto();
+        dto.setId(profile.getId());
+        dto.setName(profile.getName());
+        dto.setColumns(new EnumMap<>(profile.getColumns()));
+        dto.setCreatedAt(profile.getCreatedAt());
+        dto.setUpdatedAt(profile.getUpdatedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,22 @@
+package com.marketplacehelper.service;
+
+import java.util.List;
+
+/**
+ * Состояние импорта на момент последнего применённого чанка.
+ * {@code lastRowNumber} — номер последней обработанной строки файла, с него продолжается прерванный импорт.
+ * {@code alreadyImported} — файл с тем же содержимым уже был импортирован, строки не читались.
+ * Сообщения хранятся не полностью, {@code warningCount}/{@code errorCount} — их полное число.
+ */
+record ImportProgress(int lastRowNumber,
+                      long rowsRead,
+                      int created,
+                      int updated,
+                      int skipped,
+                      int unchanged,
+                      boolean alreadyImported,
+                      int warningCount,
+                      int errorCount,
+                      List<String> warnings,
+                      List<String> errors) {
+}
@@ -0,0 +1,12 @@
+package com.marketplacehelper.service;
+
+/**
+ * Наблюдатель фонового импорта: получает состояние после каждого чанка и может попросить остановиться.
+ * Вызывается из потока импорта.
+ */
+interface ImportProgressListener {
+
+    boolean isCancelled();
+
+    void chunkCommitted(ImportProgress progress);
+}
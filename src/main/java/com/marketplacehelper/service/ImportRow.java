@@ -0,0 +1,22 @@
+package com.marketplacehelper.service;
+
+/**
+ * Строка файла импорта независимо от способа чтения.
+ * Текст ячейки — как его показывает Excel; число — только для числовых ячеек.
+ */
+interface ImportRow {
+
+    /**
+     * Номер строки в файле, с единицы.
+     */
+    int rowNumber();
+
+    String text(int column);
+
+    Double number(int column);
+
+    /**
+     * Номера колонок, для которых в строке есть ячейки, по возрастанию; нужен для строки заголовков.
+     */
+    int[] columns();
+}
@@ -0,0 +1,191 @@
+package com.marketplacehelper.service;
+
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Построчное чтение первого листа импортируемого файла независимо от формата:
+ * XLSX — потоково (SAX), XLS — через обычную книгу POI, текстовые файлы — как CSV/TSV; остальное отклоняется.
+ * Здесь же — разбор значений ячеек, общий для импортов; колонка {@code -1} означает, что её нет в файле.
+ */
+final class ImportSheets {
+
+    private static final int TEXT_SAMPLE_SIZE = 8192;
+
+    private ImportSheets() {
+    }
+
+    static void read(File file, Consumer<ImportRow> consumer) throws IOException {
+        FileMagic magic = FileMagic.valueOf(file);
+        if (magic == FileMagic.OOXML) {
+            XlsxSheetReader.read(file, consumer);
+        } else if (magic == FileMagic.OLE2) {
+            readWorkbook(file, consumer);
+        } else if (magic == FileMagic.UNKNOWN && (hasTextExtension(file) || looksLikeText(file))) {
+            CsvSheetReader.read(file, consumer);
+        } else {
+            throw new IllegalArgumentException("Неподдерживаемый формат файла: ожидается XLSX, XLS, CSV или TSV");
+        }
+    }
+
+    private static boolean hasTextExtension(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".tsv") || name.endsWith(".txt");
+    }
+
+    /**
+     * Загрузки сохраняются во временный файл без исходного расширения, поэтому текст узнаётся по началу файла:
+     * без нулевых байтов и почти без управляющих символов (кроме табуляции и переводов строк).
+     */
+    private static boolean looksLikeText(File file) throws IOException {
+        byte[] sample = new byte[TEXT_SAMPLE_SIZE];
+        int length;
+        try (InputStream in = new FileInputStream(file)) {
+            length = in.readNBytes(sample, 0, sample.length);
+        }
+        int control = 0;
+        for (int i = 0; i < length; i++) {
+            int b = sample[i] & 0xFF;
+            if (b == 0) {
+                return false;
+            }
+            if ((b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f') || b == 0x7F) {
+                control++;
+            }
+        }
+        return control * 100 <= length;
+    }
+
+    static String text(ImportRow row, int column) {
+        if (column < 0) {
+            return null;
+        }
+        String value = row.text(column);
+        return value != null ? value.trim() : null;
+    }
+
+    static Integer integer(ImportRow row, int column) {
+        if (column < 0) {
+            return null;
+        }
+        Double number = row.number(column);
+        if (number != null) {
+            return number.intValue();
+        }
+        String text = row.text(column);
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(stripSpaces(text));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    static BigDecimal decimal(ImportRow row, int column) {
+        if (column < 0) {
+            return null;
+        }
+        Double number = row.number(column);
+        if (number != null) {
+            return BigDecimal.valueOf(number).setScale(2, RoundingMode.HALF_UP);
+        }
+        String text = row.text(column);
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        text = stripSpaces(text).replace("%", "").replace(",", ".");
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Убирает разделители разрядов: обычный, неразрывный и узкий неразрывный пробелы (их ставят выгрузки в CSV).
+     */
+    private static String stripSpaces(String text) {
+        StringBuilder result = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean space = c == ' ' || c == '\u00A0' || c == '\u202F';
+            if (space && result == null) {
+                result = new StringBuilder(text.length()).append(text, 0, i);
+            } else if (!space && result != null) {
+                result.append(c);
+            }
+        }
+        return result != null ? result.toString() : text;
+    }
+
+    private static void readWorkbook(File file, Consumer<ImportRow> consumer) throws IOException {
+        try (Workbook workbook = WorkbookFactory.create(file, null, true)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            if (sheet == null) {
+                throw new IllegalArgumentException("Не удалось прочитать первый лист Excel");
+            }
+            DataFormatter formatter = new DataFormatter();
+            for (Row row : sheet) {
+                consumer.accept(new WorkbookRow(row, formatter));
+            }
+        }
+    }
+
+    /**
+     * Строка книги POI для файлов, которые нельзя прочитать потоково (XLS).
+     */
+    private static final class WorkbookRow implements ImportRow {
+        private final Row row;
+        private final DataFormatter formatter;
+
+        private WorkbookRow(Row row, DataFormatter formatter) {
+            this.row = row;
+            this.formatter = formatter;
+        }
+
+        @Override
+        public int rowNumber() {
+            return row.getRowNum() + 1;
+        }
+
+        @Override
+        public String text(int column) {
+            Cell cell = row.getCell(column);
+            return cell != null ? formatter.formatCellValue(cell) : null;
+        }
+
+        @Override
+        public Double number(int column) {
+            Cell cell = row.getCell(column);
+            return cell != null && cell.getCellType() == CellType.NUMERIC ? cell.getNumericCellValue() : null;
+        }
+
+        @Override
+        public int[] columns() {
+            List<Integer> columns = new ArrayList<>();
+            for (Cell cell : row) {
+                columns.add(cell.getColumnIndex());
+            }
+            return columns.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
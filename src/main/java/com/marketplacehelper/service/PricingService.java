@@ -3,10 +3,10 @@ package com.marketplacehelper.service;
 import com.marketplacehelper.dto.PriceRecommendationDto;
 import com.marketplacehelper.dto.AnalyticsReportDto;
 import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.model.Kopecks;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,48 +21,47 @@ public class PricingService {
 
     public List<PriceRecommendationDto> buildRecommendations(BigDecimal targetMarginPercent) {
         BigDecimal target = targetMarginPercent != null ? targetMarginPercent : BigDecimal.valueOf(15);
+        long targetHundredths = Kopecks.percentHundredths(target);
         AnalyticsReportDto analytics = analyticsService.buildProductAnalyticsReport(true, target, true);
         List<PriceRecommendationDto> result = new ArrayList<>();
         for (ProductAnalyticsDto item : analytics.getAllItems()) {
-            BigDecimal recommended = recommendPrice(item, target);
-            if (recommended != null && item.getWbPrice() != null) {
+            if (item.getWbPrice() == null) {
+                continue;
+            }
+            long recommended = recommendPrice(item, targetHundredths);
+            if (recommended > 0) {
                 PriceRecommendationDto dto = new PriceRecommendationDto();
                 dto.setWbProductId(item.getWbProductId());
                 dto.setWbArticle(item.getWbArticle());
                 dto.setName(item.getName());
                 dto.setCurrentPrice(item.getWbPrice());
                 dto.setTargetMarginPercent(target);
-                dto.setRecommendedPrice(recommended);
-                dto.setPriceDelta(recommended.subtract(item.getWbPrice()).setScale(2, RoundingMode.HALF_UP));
+                dto.setRecommendedPrice(Kopecks.toRubles(recommended));
+                dto.setPriceDelta(Kopecks.toRubles(recommended - Kopecks.of(item.getWbPrice())));
                 result.add(dto);
             }
         }
         return result;
     }
 
-    private BigDecimal recommendPrice(ProductAnalyticsDto item, BigDecimal targetMarginPercent) {
-        BigDecimal totalCosts = sum(item.getPurchasePrice(), item.getLogisticsCost(), item.getMarketingCost(), item.getOtherExpenses());
-        if (totalCosts == null) {
-            return null;
-        }
-        BigDecimal target = targetMarginPercent.divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
-        BigDecimal price = totalCosts.divide(BigDecimal.ONE.subtract(target), 4, RoundingMode.HALF_UP);
-        if (price.compareTo(BigDecimal.ZERO) <= 0) {
-            return null;
+    /**
+     * Рекомендованная цена в копейках; 0, если расходы неизвестны или цена получается неположительной.
+     */
+    private long recommendPrice(ProductAnalyticsDto item, long targetHundredths) {
+        if (item.getPurchasePrice() == null && item.getLogisticsCost() == null
+                && item.getMarketingCost() == null && item.getOtherExpenses() == null) {
+            return 0;
         }
-        return price.setScale(2, RoundingMode.HALF_UP);
+        long totalCosts = kopecksOrZero(item.getPurchasePrice())
+                + kopecksOrZero(item.getLogisticsCost())
+                + kopecksOrZero(item.getMarketingCost())
+                + kopecksOrZero(item.getOtherExpenses());
+        long price = Kopecks.priceForMargin(totalCosts, targetHundredths);
+        return Math.max(price, 0);
     }
 
-    private BigDecimal sum(BigDecimal... values) {
-        BigDecimal result = BigDecimal.ZERO;
-        boolean has = false;
-        for (BigDecimal v : values) {
-            if (v != null) {
-                result = result.add(v);
-                has = true;
-            }
-        }
-        return has ? result : null;
+    private long kopecksOrZero(BigDecimal value) {
+        return value != null ? Kopecks.of(value) : 0L;
     }
 }
 
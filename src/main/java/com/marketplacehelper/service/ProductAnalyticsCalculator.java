@@ -0,0 +1,182 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.dto.ProductIssue;
+import com.marketplacehelper.dto.WbMatchMethod;
+import com.marketplacehelper.model.Kopecks;
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.WbProduct;
+import com.marketplacehelper.repository.AnalyticsSourceRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Расчёт маржи и проверок для одной пары «товар Excel / карточка WB».
+ * Разделён на часть, не зависящую от порога маржи (её можно хранить в read model),
+ * и пороговую часть, которая применяется при чтении.
+ */
+@Component
+public class ProductAnalyticsCalculator {
+
+    private final boolean filterNegativeMargin;
+
+    public ProductAnalyticsCalculator(@Value("${app.analytics.filter-negative-margin:true}") boolean filterNegativeMargin) {
+        this.filterNegativeMargin = filterNegativeMargin;
+    }
+
+    public ProductAnalyticsDto toDto(Product product, WbProduct wbProduct, BigDecimal marginThreshold) {
+        return toDto(AnalyticsSourceRow.of(product, wbProduct), marginThreshold);
+    }
+
+    public ProductAnalyticsDto toDto(AnalyticsSourceRow row, BigDecimal marginThreshold) {
+        ProductAnalyticsDto dto = toBaseDto(row);
+        applyThreshold(dto, marginThreshold);
+        return dto;
+    }
+
+    public ProductAnalyticsDto toBaseDto(Product product, WbProduct wbProduct) {
+        return toBaseDto(AnalyticsSourceRow.of(product, wbProduct));
+    }
+
+    /**
+     * Заполняет поля, считает маржу и предупреждения, не зависящие от порога.
+     */
+    public ProductAnalyticsDto toBaseDto(AnalyticsSourceRow row) {
+        ProductAnalyticsDto dto = new ProductAnalyticsDto();
+        if (row.hasProduct() && row.hasWbProduct()) {
+            dto.setDataSource(ProductDataSource.MERGED);
+            dto.setMatchMethod(row.getArticleNmId() != null && row.getArticleNmId().equals(row.getNmId())
+                    ? WbMatchMethod.NM_ID
+                    : WbMatchMethod.VENDOR_CODE);
+        } else if (row.hasProduct()) {
+            dto.setDataSource(ProductDataSource.LOCAL_ONLY);
+        } else {
+            dto.setDataSource(ProductDataSource.WB_ONLY);
+        }
+
+        if (row.hasProduct()) {
+            dto.setProductId(row.getProductId());
+            dto.setName(row.getProductName());
+            dto.setWbArticle(row.getWbArticle());
+            dto.setBrand(row.getProductBrand());
+            dto.setCategory(row.getProductCategory());
+            dto.setLocalPrice(row.getLocalPrice());
+            dto.setPurchasePrice(row.getPurchasePrice());
+            dto.setLogisticsCost(row.getLogisticsCost());
+            dto.setMarketingCost(row.getMarketingCost());
+            dto.setOtherExpenses(row.getOtherExpenses());
+            dto.setLocalStock(row.getLocalStock());
+        }
+        if (row.hasWbProduct()) {
+            dto.setWbProductId(row.getWbProductId());
+            dto.setVendorCode(row.getVendorCode());
+            dto.setBrand(Optional.ofNullable(dto.getBrand()).orElse(row.getWbBrand()));
+            dto.setCategory(Optional.ofNullable(dto.getCategory()).orElse(row.getWbCategory()));
+            dto.setWbPrice(row.getWbPrice());
+            dto.setWbDiscountPrice(Optional.ofNullable(row.getWbPriceWithDiscount()).orElse(row.getWbSalePrice()));
+            dto.setWbStock(row.getWbStock());
+            dto.setName(Optional.ofNullable(dto.getName()).orElse(row.getWbName()));
+            dto.setWbArticle(Optional.ofNullable(dto.getWbArticle())
+                    .orElseGet(() -> row.getNmId() != null ? String.valueOf(row.getNmId()) : row.getVendorCode()));
+        }
+
+        calculateMargins(dto);
+        applyDataWarnings(dto);
+        return dto;
+    }
+
+    private void applyDataWarnings(ProductAnalyticsDto dto) {
+        if (dto.getDataSource() == ProductDataSource.LOCAL_ONLY) {
+            dto.addIssue(ProductIssue.LOCAL_ONLY_DATA);
+        } else if (dto.getDataSource() == ProductDataSource.WB_ONLY) {
+            dto.addIssue(ProductIssue.NO_EXCEL_DATA);
+        }
+
+        if (dto.getPurchasePrice() == null) {
+            dto.addIssue(ProductIssue.NO_PURCHASE_PRICE);
+        }
+        if (dto.getLogisticsCost() == null) {
+            dto.addIssue(ProductIssue.NO_LOGISTICS_COST);
+        }
+        if (dto.getMarketingCost() == null) {
+            dto.addIssue(ProductIssue.NO_MARKETING_COST);
+        }
+        if (dto.getOtherExpenses() == null) {
+            dto.addIssue(ProductIssue.NO_OTHER_EXPENSES);
+        }
+        if (dto.getWbPrice() != null && dto.getWbDiscountPrice() != null
+                && dto.getWbDiscountPrice().compareTo(dto.getWbPrice()) > 0) {
+            dto.addIssue(ProductIssue.DISCOUNT_ABOVE_PRICE);
+        }
+
+        if (dto.getMargin() == null) {
+            dto.addIssue(ProductIssue.MARGIN_UNKNOWN);
+        } else if (dto.getMargin().compareTo(BigDecimal.ZERO) < 0) {
+            dto.setNegativeMargin(true);
+            if (filterNegativeMargin) {
+                dto.addIssue(ProductIssue.NEGATIVE_MARGIN);
+            }
+        }
+    }
+
+    /**
+     * Пороговая часть проверки: предупреждение о низкой марже и итоговые флаги.
+     */
+    public void applyThreshold(ProductAnalyticsDto dto, BigDecimal marginThreshold) {
+        if (dto.getMargin() != null
+                && (dto.getMarginPercent() == null || dto.getMarginPercent().compareTo(marginThreshold) < 0)) {
+            dto.setMarginBelowThreshold(true);
+            dto.addIssue(ProductIssue.MARGIN_BELOW_THRESHOLD);
+        }
+        dto.setAppliedMarginThreshold(marginThreshold);
+
+        // В MERGED режиме отдельные предупреждения не должны автоматически относить товар к проблемным
+        boolean profitable = dto.getMargin() != null
+                && dto.getMarginPercent() != null
+                && dto.getMargin().compareTo(BigDecimal.ZERO) >= 0
+                && dto.getMarginPercent().compareTo(marginThreshold) >= 0;
+        dto.setProfitable(profitable);
+
+        boolean requiresCorrection;
+        if (dto.getDataSource() == ProductDataSource.WB_ONLY || dto.getDataSource() == ProductDataSource.LOCAL_ONLY) {
+            // Неполные данные всегда требуют внимания
+            requiresCorrection = true;
+        } else {
+            // Для MERGED используем бизнес-порог маржи, а не любые предупреждения
+            requiresCorrection = !profitable || dto.isNegativeMargin() || dto.isMarginBelowThreshold() || dto.getMargin() == null;
+        }
+        dto.setRequiresCorrection(requiresCorrection);
+    }
+
+    private void calculateMargins(ProductAnalyticsDto dto) {
+        BigDecimal salePrice = Optional.ofNullable(dto.getWbDiscountPrice())
+                .orElse(Optional.ofNullable(dto.getWbPrice())
+                        .orElse(dto.getLocalPrice()));
+        if (salePrice == null) {
+            return;
+        }
+        if (dto.getPurchasePrice() == null && dto.getLogisticsCost() == null
+                && dto.getMarketingCost() == null && dto.getOtherExpenses() == null) {
+            return;
+        }
+
+        long sale = Kopecks.of(salePrice);
+        long totalCosts = kopecksOrZero(dto.getPurchasePrice())
+                + kopecksOrZero(dto.getLogisticsCost())
+                + kopecksOrZero(dto.getMarketingCost())
+                + kopecksOrZero(dto.getOtherExpenses());
+        long margin = sale - totalCosts;
+        dto.setMargin(Kopecks.toRubles(margin));
+        if (sale > 0) {
+            dto.setMarginPercent(Kopecks.percentToDecimal(Kopecks.ratioHundredths(margin, sale)));
+        }
+    }
+
+    private long kopecksOrZero(BigDecimal value) {
+        return value != null ? Kopecks.of(value) : 0L;
+    }
+}
@@ -0,0 +1,410 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ImportField;
+import com.marketplacehelper.dto.ImportJobDto;
+import com.marketplacehelper.dto.ImportJobStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Фоновые задачи импорта товаров. Загруженный файл сохраняется в {@code app.import.jobs.dir}
+ * и обрабатывается отдельным потоком, по одной задаче за раз: ни HTTP-запрос, ни транзакция
+ * не держатся на всё время импорта — каждый чанк пишется своей транзакцией.
+ * После каждого чанка состояние рассылается подписчикам SSE.
+ * <p>
+ * Отменённую или упавшую задачу можно продолжить: строки до последнего записанного чанка пропускаются,
+ * счётчики продолжаются. Задачи живут в памяти процесса; после перезапуска файлы остаются на диске,
+ * но продолжить их уже нельзя.
+ */
+@Service
+public class ProductImportJobService {
+
+    private static final ImportProgress EMPTY = new ImportProgress(0, 0, 0, 0, 0, 0, false, 0, 0, List.of(), List.of());
+
+    private final ProductImportService productImportService;
+    private final Path directory;
+    private final int maxMessages;
+    private final int maxRetainedJobs;
+    private final ExecutorService executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ProductImportJobService(ProductImportService productImportService,
+                                   @Value("${app.import.jobs.dir:${java.io.tmpdir}/marketplace-helper-imports}") String directory,
+                                   @Value("${app.import.jobs.max-messages:100}") int maxMessages,
+                                   @Value("${app.import.jobs.max-retained:50}") int maxRetainedJobs) {
+        this.productImportService = productImportService;
+        this.directory = Path.of(directory);
+        this.maxMessages = Math.max(0, maxMessages);
+        this.maxRetainedJobs = Math.max(1, maxRetainedJobs);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public ImportJobDto submit(MultipartFile file, boolean dryRun) {
+        return submit(file, dryRun, null, false);
+    }
+
+    /**
+     * Колонки профиля {@code profileId} фиксируются при постановке в очередь и используются и при продолжении задачи.
+     * {@code force} — импортировать, даже если такой же файл уже импортирован.
+     */
+    public ImportJobDto submit(MultipartFile file, boolean dryRun, Long profileId, boolean force) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Файл Excel не загружен");
+        }
+        Map<ImportField, String> columns = productImportService.profileColumns(profileId);
+        String id = UUID.randomUUID().toString();
+        Path spool = directory.resolve(id + ".upload");
+        try {
+            Files.createDirectories(directory);
+            file.transferTo(spool);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось сохранить файл импорта: " + e.getMessage(), e);
+        }
+        return enqueue(id, file.getOriginalFilename(), dryRun, columns, force, spool);
+    }
+
+    /**
+     * Ставит в очередь уже собранный на диске файл (например, загруженный по частям); файл переносится в каталог задач.
+     */
+    public ImportJobDto submit(Path file, String fileName, boolean dryRun, Long profileId, boolean force) {
+        Map<ImportField, String> columns = productImportService.profileColumns(profileId);
+        String id = UUID.randomUUID().toString();
+        Path spool = directory.resolve(id + ".upload");
+        try {
+            Files.createDirectories(directory);
+            Files.move(file, spool);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось сохранить файл импорта: " + e.getMessage(), e);
+        }
+        return enqueue(id, fileName, dryRun, columns, force, spool);
+    }
+
+    private ImportJobDto enqueue(String id, String fileName, boolean dryRun, Map<ImportField, String> columns,
+                                 boolean force, Path spool) {
+        Job job = new Job(id, fileName, dryRun, columns, force, spool);
+        jobs.put(id, job);
+        evictFinished();
+        executor.execute(() -> run(job));
+        return job.toDto();
+    }
+
+    public Optional<ImportJobDto> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::toDto);
+    }
+
+    /**
+     * Задача в очереди отменяется сразу, выполняющаяся — на следующей строке файла.
+     */
+    public Optional<ImportJobDto> cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (!job.requestCancel()) {
+            throw new IllegalArgumentException("Задача импорта уже завершена");
+        }
+        publish(job);
+        return Optional.of(job.toDto());
+    }
+
+    public Optional<ImportJobDto> resume(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (!Files.exists(job.file)) {
+            throw new IllegalArgumentException("Файл задачи импорта уже удалён");
+        }
+        if (!job.requeue()) {
+            throw new IllegalArgumentException("Продолжить можно только отменённую или упавшую задачу");
+        }
+        executor.execute(() -> run(job));
+        publish(job);
+        return Optional.of(job.toDto());
+    }
+
+    /**
+     * Поток событий {@code progress} с состоянием задачи; для завершённой задачи — одно событие.
+     */
+    public Optional<SseEmitter> subscribe(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        emitter.onError(e -> job.emitters.remove(emitter));
+        job.emitters.add(emitter);
+        ImportJobDto state = job.toDto();
+        send(job, emitter, state);
+        if (isFinished(state.getStatus())) {
+            job.emitters.remove(emitter);
+            emitter.complete();
+        }
+        return Optional.of(emitter);
+    }
+
+    private void run(Job job) {
+        if (!job.start()) {
+            // отменена, пока ждала в очереди
+            return;
+        }
+        publish(job);
+        try {
+            ImportProgress result = productImportService.importFromFile(job.file.toFile(), job.dryRun,
+                    job.columns, job.force, job.lastCommittedRow(), maxMessages, new ImportProgressListener() {
+                        @Override
+                        public boolean isCancelled() {
+                            return job.isCancelRequested();
+                        }
+
+                        @Override
+                        public void chunkCommitted(ImportProgress progress) {
+                            job.progress(progress);
+                            publish(job);
+                        }
+                    });
+            job.finish(ImportJobStatus.COMPLETED, result, null);
+            deleteQuietly(job.file);
+        } catch (CancellationException e) {
+            job.finish(ImportJobStatus.CANCELLED, null, null);
+        } catch (RuntimeException e) {
+            job.finish(ImportJobStatus.FAILED, null, e.getMessage());
+        } catch (Error e) {
+            // задача в статусе RUNNING не завершилась бы для подписчиков и не могла бы быть продолжена
+            job.finish(ImportJobStatus.FAILED, null, e.toString());
+            publish(job);
+            throw e;
+        }
+        publish(job);
+    }
+
+    private void publish(Job job) {
+        ImportJobDto state = job.toDto();
+        for (SseEmitter emitter : job.emitters) {
+            send(job, emitter, state);
+        }
+        if (isFinished(state.getStatus())) {
+            for (SseEmitter emitter : job.emitters) {
+                emitter.complete();
+            }
+            job.emitters.clear();
+        }
+    }
+
+    private void send(Job job, SseEmitter emitter, ImportJobDto state) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(state));
+        } catch (Exception e) {
+            job.emitters.remove(emitter);
+        }
+    }
+
+    private void evictFinished() {
+        int excess = jobs.size() - maxRetainedJobs;
+        if (excess <= 0) {
+            return;
+        }
+        List<Job> finished = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (isFinished(job.status())) {
+                finished.add(job);
+            }
+        }
+        finished.sort(Comparator.comparing(job -> job.createdAt));
+        for (Job job : finished.subList(0, Math.min(excess, finished.size()))) {
+            jobs.remove(job.id);
+            deleteQuietly(job.file);
+        }
+    }
+
+    private static boolean isFinished(ImportJobStatus status) {
+        return status == ImportJobStatus.COMPLETED
+                || status == ImportJobStatus.CANCELLED
+                || status == ImportJobStatus.FAILED;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // файл останется в каталоге задач
+        }
+    }
+
+    private ImportProgress merge(ImportProgress base, ImportProgress run) {
+        return new ImportProgress(
+                run.lastRowNumber(),
+                base.rowsRead() + run.rowsRead(),
+                base.created() + run.created(),
+                base.updated() + run.updated(),
+                base.skipped() + run.skipped(),
+                base.unchanged() + run.unchanged(),
+                run.alreadyImported(),
+                base.warningCount() + run.warningCount(),
+                base.errorCount() + run.errorCount(),
+                concat(base.warnings(), run.warnings()),
+                concat(base.errors(), run.errors()));
+    }
+
+    private List<String> concat(List<String> first, List<String> second) {
+        if (second.isEmpty() || first.size() >= maxMessages) {
+            return first;
+        }
+        List<String> result = new ArrayList<>(first);
+        result.addAll(second.subList(0, Math.min(second.size(), maxMessages - first.size())));
+        return List.copyOf(result);
+    }
+
+    /**
+     * Состояние задачи меняет поток импорта, читают HTTP-потоки — поэтому все переходы под монитором задачи.
+     */
+    private final class Job {
+        private final String id;
+        private final String fileName;
+        private final boolean dryRun;
+        private final Map<ImportField, String> columns;
+        private final boolean force;
+        private final Path file;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+        private ImportJobStatus status = ImportJobStatus.QUEUED;
+        private volatile boolean cancelRequested;
+        // итог предыдущих запусков и итог на последнем записанном чанке текущего
+        private ImportProgress base = EMPTY;
+        private ImportProgress current = EMPTY;
+        private String message;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+
+        private Job(String id, String fileName, boolean dryRun, Map<ImportField, String> columns, boolean force,
+                    Path file) {
+            this.id = id;
+            this.fileName = fileName;
+            this.dryRun = dryRun;
+            this.columns = columns;
+            this.force = force;
+            this.file = file;
+        }
+
+        private synchronized ImportJobStatus status() {
+            return status;
+        }
+
+        private boolean isCancelRequested() {
+            return cancelRequested;
+        }
+
+        private synchronized int lastCommittedRow() {
+            return current.lastRowNumber();
+        }
+
+        private synchronized boolean start() {
+            if (status != ImportJobStatus.QUEUED) {
+                return false;
+            }
+            status = ImportJobStatus.RUNNING;
+            base = current;
+            message = null;
+            startedAt = LocalDateTime.now();
+            finishedAt = null;
+            return true;
+        }
+
+        private synchronized boolean requestCancel() {
+            if (status == ImportJobStatus.QUEUED) {
+                status = ImportJobStatus.CANCELLED;
+                finishedAt = LocalDateTime.now();
+                return true;
+            }
+            if (status == ImportJobStatus.RUNNING) {
+                cancelRequested = true;
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized boolean requeue() {
+            if (status != ImportJobStatus.CANCELLED && status != ImportJobStatus.FAILED) {
+                return false;
+            }
+            status = ImportJobStatus.QUEUED;
+            cancelRequested = false;
+            return true;
+        }
+
+        private synchronized void progress(ImportProgress progress) {
+            current = merge(base, progress);
+        }
+
+        private synchronized void finish(ImportJobStatus status, ImportProgress result, String message) {
+            if (result != null) {
+                current = merge(base, result);
+            }
+            this.status = status;
+            this.message = message;
+            this.cancelRequested = false;
+            this.finishedAt = LocalDateTime.now();
+        }
+
+        private synchronized ImportJobDto toDto() {
+            ImportJobDto dto = new ImportJobDto();
+            dto.setId(id);
+            dto.setFileName(fileName);
+            dto.setDryRun(dryRun);
+            dto.setStatus(status);
+            dto.setRowsRead(current.rowsRead());
+            dto.setLastCommittedRow(current.lastRowNumber());
+            dto.setCreated(current.created());
+            dto.setUpdated(current.updated());
+            dto.setSkipped(current.skipped());
+            dto.setUnchanged(current.unchanged());
+            if (current.alreadyImported()) {
+                dto.setAlreadyImported(true);
+            }
+            dto.setWarningCount(current.warningCount());
+            dto.setErrorCount(current.errorCount());
+            if (!current.warnings().isEmpty()) {
+                dto.setWarnings(current.warnings());
+            }
+            if (!current.errors().isEmpty()) {
+                dto.setErrors(current.errors());
+            }
+            dto.setMessage(message);
+            dto.setCreatedAt(createdAt);
+            dto.setStartedAt(startedAt);
+            dto.setFinishedAt(finishedAt);
+            return dto;
+        }
+    }
+}
@@ -1,30 +1,108 @@
 package com.marketplacehelper.service;
 
+import com.marketplacehelper.dto.ImportField;
 import com.marketplacehelper.dto.ProductImportResultDto;
+import com.marketplacehelper.model.ImportProfile;
+import com.marketplacehelper.model.ImportedFile;
 import com.marketplacehelper.model.Product;
+import com.marketplacehelper.repository.ImportProfileRepository;
+import com.marketplacehelper.repository.ImportedFileRepository;
+import com.marketplacehelper.repository.ProductBatchWriter;
 import com.marketplacehelper.repository.ProductRepository;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.usermodel.Row;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 public class ProductImportService {
 
-    private final ProductRepository productRepository;
+    // строк в одном блоке параллельного разбора
+    private static final int PARSE_BLOCK_SIZE = 256;
+
+    // значения нового товара, если в файле нет названия или цены; их же подставляет импорт через промежуточную таблицу
+    static final String DEFAULT_NAME_PREFIX = "Товар ";
+    static final BigDecimal DEFAULT_PRICE = BigDecimal.ONE;
 
-    public ProductImportService(ProductRepository productRepository) {
+    private final ProductRepository productRepository;
+    private final ProductBatchWriter productBatchWriter;
+    private final CatalogChangeTracker catalogChangeTracker;
+    private final ImportProfileRepository importProfileRepository;
+    private final ImportedFileRepository importedFileRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactions;
+    private final TransactionTemplate readOnlyTransactions;
+    private final int chunkSize;
+    private final ExecutorService parsePool;
+    private final int parseWorkers;
+
+    public ProductImportService(ProductRepository productRepository,
+                                ProductBatchWriter productBatchWriter,
+                                CatalogChangeTracker catalogChangeTracker,
+                                ImportProfileRepository importProfileRepository,
+                                ImportedFileRepository importedFileRepository,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.import.chunk-size:1000}") int chunkSize,
+                                @Value("${app.import.parallel.enabled:true}") boolean parallelEnabled,
+                                @Value("${app.import.parallel.workers:0}") int parallelWorkers) {
         this.productRepository = productRepository;
+        this.productBatchWriter = productBatchWriter;
+        this.catalogChangeTracker = catalogChangeTracker;
+        this.importProfileRepository = importProfileRepository;
+        this.importedFileRepository = importedFileRepository;
+        this.entityManager = entityManager;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactions = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactions.setReadOnly(true);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parseWorkers = parallelWorkers > 0 ? parallelWorkers : Runtime.getRuntime().availableProcessors();
+        if (parallelEnabled) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            this.parsePool = Executors.newFixedThreadPool(parseWorkers, runnable -> {
+                Thread thread = new Thread(runnable, "import-parse-" + threadIndex.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.parsePool = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (parsePool != null) {
+            parsePool.shutdownNow();
+        }
     }
 
-    @Transactional
     public ProductImportResultDto importFromExcel(MultipartFile file) {
         return importFromExcel(file, false);
     }
@@ -32,163 +110,526 @@ public class ProductImportService {
     /**
      * Parses Excel and either persists results or returns a dry-run summary.
      * When dryRun=true, no entities are saved/updated in the repository.
+     * XLSX читается потоково (SAX), по одной строке; XLS — через обычную книгу POI; прочие файлы — как CSV/TSV.
+     * Строки применяются чанками по {@code app.import.chunk-size}, каждый чанк — в своей транзакции,
+     * поэтому при сбое посередине файла уже записанные чанки остаются в базе.
      */
-    @Transactional(readOnly = true)
     public ProductImportResultDto importFromExcel(MultipartFile file, boolean dryRun) {
+        return importFromExcel(file, dryRun, null, false);
+    }
+
+    /**
+     * То же, но колонки полей из профиля импорта {@code profileId} заменяют встроенные псевдонимы.
+     * Файл, который уже импортировался с теми же колонками и после которого каталог не менялся, не читается;
+     * {@code force} отключает эту проверку. Строки, совпадающие со строкой последнего импорта товара,
+     * товар не меняют и считаются в {@code unchanged}.
+     */
+    public ProductImportResultDto importFromExcel(MultipartFile file, boolean dryRun, Long profileId, boolean force) {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("Файл Excel не загружен");
         }
+        Map<ImportField, String> columns = profileColumns(profileId);
 
-        try (InputStream inputStream = file.getInputStream(); Workbook workbook = WorkbookFactory.create(inputStream)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            if (sheet == null) {
-                throw new IllegalArgumentException("Не удалось прочитать первый лист Excel");
+        Path spool = null;
+        try {
+            // OPCPackage читает zip с диска без загрузки всего файла в память
+            spool = Files.createTempFile("product-import-", ".upload");
+            file.transferTo(spool);
+            return run(spool.toFile(), dryRun, columns, force, 0, Integer.MAX_VALUE, null).toResult();
+        } catch (IOException e) {
+            throw new IllegalStateException("Ошибка чтения Excel файла: " + e.getMessage(), e);
+        } finally {
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException ignored) {
+                    // временный файл удалит ОС
+                }
             }
+        }
+    }
+
+    /**
+     * Импорт уже сохранённого на диск файла для фоновых задач: строки до {@code resumeAfterRow} включительно
+     * пропускаются, о каждом применённом чанке сообщается слушателю, сообщений хранится не больше
+     * {@code maxMessages} каждого вида. Отмена через слушателя прерывает чтение
+     * с {@link java.util.concurrent.CancellationException}; незаписанный чанк при этом отбрасывается.
+     */
+    ImportProgress importFromFile(File file, boolean dryRun, Map<ImportField, String> columns, boolean force,
+                                  int resumeAfterRow, int maxMessages, ImportProgressListener listener) {
+        try {
+            return run(file, dryRun, columns, force, resumeAfterRow, maxMessages, listener).progress();
+        } catch (IOException e) {
+            throw new IllegalStateException("Ошибка чтения Excel файла: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Только чтение и разбор файла для импорта через промежуточную таблицу: чанки разобранных строк
+     * отдаются {@code sink} в порядке файла, товары не читаются и не меняются.
+     * Пустые строки в чанки не попадают и считаются в {@code skipped}.
+     */
+    ImportProgress readFile(File file, Map<ImportField, String> columns, Consumer<List<PendingRow>> sink)
+            throws IOException {
+        ImportState state = new ImportState(false, columns, 0, 0, null);
+        state.sink = sink;
+        read(file, state);
+        return state.progress();
+    }
+
+    /**
+     * Заголовки колонок из профиля импорта по полям; без профиля — пустая карта.
+     * Профиль читается один раз до начала импорта, поэтому его правка не влияет на уже идущую загрузку.
+     */
+    Map<ImportField, String> profileColumns(Long profileId) {
+        if (profileId == null) {
+            return Map.of();
+        }
+        return importProfileRepository.findById(profileId)
+                .map(ImportProfile::getColumns)
+                .<Map<ImportField, String>>map(columns -> Collections.unmodifiableMap(new EnumMap<>(columns)))
+                .orElseThrow(() -> new IllegalArgumentException("Профиль импорта не найден: " + profileId));
+    }
 
-            Iterator<Row> rowIterator = sheet.rowIterator();
-            if (!rowIterator.hasNext()) {
-                ProductImportResultDto emptyResult = new ProductImportResultDto();
-                emptyResult.setCreated(0);
-                emptyResult.setUpdated(0);
-                emptyResult.setSkipped(0);
-                return emptyResult;
+    /**
+     * Файл запоминается только после полного импорта с первой строки: продолженный импорт не знает,
+     * сколько строк было в предыдущих запусках. Запись действует, пока версия каталога не ушла дальше
+     * записанной: после другого файла или ручной правки (A → B → A) тот же файл снова применяется.
+     */
+    private ImportState run(File file, boolean dryRun, Map<ImportField, String> columns, boolean force,
+                            int resumeAfterRow, int maxMessages, ImportProgressListener listener) throws IOException {
+        ImportState state = new ImportState(dryRun, columns, resumeAfterRow, maxMessages, listener);
+        String contentHash = resumeAfterRow == 0 ? contentHash(file, columns) : null;
+        if (contentHash != null && !force) {
+            Optional<ImportedFile> previous = importedFileRepository.findByContentHash(contentHash)
+                    .filter(imported -> imported.getCatalogVersion() == catalogChangeTracker.currentVersion());
+            if (previous.isPresent()) {
+                state.alreadyImported = true;
+                state.unchanged = previous.get().getRowCount();
+                return state;
             }
+        }
+        read(file, state);
+        if (contentHash != null && !dryRun) {
+            rememberFile(contentHash, state);
+        }
+        return state;
+    }
 
-            Row headerRow = rowIterator.next();
-            Map<String, Integer> headerMap = buildHeaderMap(headerRow);
-            DataFormatter formatter = new DataFormatter();
-
-            int created = 0;
-            int updated = 0;
-            int skipped = 0;
-            List<String> warnings = new ArrayList<>();
-            List<String> errors = new ArrayList<>();
-            while (rowIterator.hasNext()) {
-                Row row = rowIterator.next();
-                if (row == null) {
-                    continue;
-                }
+    private void read(File file, ImportState state) throws IOException {
+        if (parsePool != null) {
+            runPipelined(file, state);
+        } else {
+            ImportSheets.read(file, row -> acceptRow(row, state));
+        }
+        flushChunk(state);
+    }
 
-                String name = getString(row, headerMap, formatter,
-                        "name", "название", "товар", "наименование");
+    private void rememberFile(String contentHash, ImportState state) {
+        ImportedFile imported = importedFileRepository.findByContentHash(contentHash).orElseGet(ImportedFile::new);
+        imported.setContentHash(contentHash);
+        imported.setRowCount(state.created + state.updated + state.unchanged);
+        // чанки уже закоммичены, так что версия включает записи самого файла
+        imported.setCatalogVersion(catalogChangeTracker.currentVersion());
+        imported.setImportedAt(LocalDateTime.now());
+        importedFileRepository.save(imported);
+    }
 
-                String wbArticle = getString(row, headerMap, formatter,
-                        "wb_article", "артикулwb", "артикул");
-                if (wbArticle == null || wbArticle.isBlank()) {
-                    wbArticle = getString(row, headerMap, formatter,
-                            "кодноменклатуры", "nm_id", "nmid", "кодтовара", "номенклатура");
-                }
-                if (wbArticle == null || wbArticle.isBlank()) {
-                    wbArticle = getString(row, headerMap, formatter,
-                            "артикулпоставщика", "supplierarticle", "поставщикаартикул");
-                }
-                if (wbArticle == null || wbArticle.isBlank()) {
-                    wbArticle = getString(row, headerMap, formatter,
-                            "srid", "корзина", "idкорзинызаказа");
-                }
-                if ((name == null || name.isBlank()) && (wbArticle == null || wbArticle.isBlank())) {
-                    // пустая строка
-                    skipped++;
-                    continue;
-                }
+    /**
+     * SHA-256 байтов файла и колонок профиля: тот же файл с другим сопоставлением колонок — другой импорт.
+     */
+    private String contentHash(File file, Map<ImportField, String> columns) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        for (ImportField field : ImportField.values()) {
+            String header = columns.get(field);
+            if (header != null) {
+                digest.update((field.name() + '=' + header + '\n').getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-                // Determine if existing product exists (for counting created/updated)
-                Product existing = Optional.ofNullable(wbArticle)
-                        .filter(value -> !value.isBlank())
-                        .flatMap(productRepository::findByWbArticle)
-                        .orElse(null);
+    /**
+     * Хеш разобранных значений строки, а не её текста: «950» и «950,00», лишние пробелы и порядок колонок
+     * на результат не влияют. 128 бит SHA-256 в hex.
+     */
+    private String rowHash(String name, String wbArticle, String barcode, String category, String brand,
+                           Integer stock, BigDecimal... amounts) {
+        StringBuilder content = new StringBuilder(128);
+        for (String value : new String[]{name, wbArticle, barcode, category, brand}) {
+            appendHashPart(content, value);
+        }
+        appendHashPart(content, stock != null ? stock.toString() : null);
+        for (BigDecimal amount : amounts) {
+            appendHashPart(content, amount != null ? amount.stripTrailingZeros().toPlainString() : null);
+        }
+        byte[] hash = sha256().digest(content.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 16);
+    }
 
-                Product product = existing != null ? cloneProduct(existing) : new Product();
+    private void appendHashPart(StringBuilder content, String value) {
+        // \u0000 отличает null от пустой строки, \u001F разделяет поля
+        content.append(value != null ? value : "\u0000").append('\u001F');
+    }
 
-                if (product.getId() == null) {
-                    product.setCreatedAt(java.time.LocalDateTime.now());
-                }
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-                product.setName(Optional.ofNullable(name).orElse(product.getName()));
-                if (wbArticle != null) {
-                    product.setWbArticle(wbArticle.trim());
-                }
-                product.setWbBarcode(getString(row, headerMap, formatter,
-                        "wb_barcode", "штрихкод", "barcode", "баркод", "шк"));
-                product.setCategory(getString(row, headerMap, formatter,
-                        "category", "категория", "предмет", "категориятовара"));
-                product.setBrand(getString(row, headerMap, formatter, "brand", "бренд"));
-                product.setStockQuantity(getInteger(row, headerMap, formatter,
-                        "stock", "остаток", "stock_quantity", "колво", "количество"));
-
-                if ((product.getName() == null || product.getName().isBlank()) && wbArticle != null) {
-                    product.setName("Товар " + wbArticle);
-                }
+    private void acceptRow(ImportRow row, ImportState state) {
+        if (state.plan == null) {
+            state.plan = ColumnPlan.compile(row, state.profileColumns);
+            return;
+        }
+        if (row.rowNumber() <= state.resumeAfterRow) {
+            return;
+        }
+        acceptParsed(row.rowNumber(), parseRow(row, state.plan), state);
+    }
 
-                boolean isNew = existing == null;
+    /**
+     * Стадия записи: строки приходят сюда строго в порядке файла, в том числе из параллельного разбора.
+     */
+    private void acceptParsed(int rowNumber, PendingRow pending, ImportState state) {
+        if (state.listener != null && state.listener.isCancelled()) {
+            throw new CancellationException("Импорт отменён");
+        }
+        state.rows++;
+        state.lastRowNumber = rowNumber;
+        if (pending == null) {
+            // пустая строка
+            state.skipped++;
+            return;
+        }
+        state.chunk.add(pending);
+        if (state.chunk.size() >= chunkSize) {
+            flushChunk(state);
+        }
+    }
 
-                BigDecimal plannedPrice = getDecimal(row, headerMap, formatter,
-                        "price", "продажнаяцена", "цена", "ценарозничная", "розничнаяцена");
-                if (plannedPrice == null) {
-                    plannedPrice = getDecimal(row, headerMap, formatter,
-                            "вайлдберризреализовалтоварпр", "реализация", "продажапоакции");
+    /**
+     * Чтение файла идёт в отдельном потоке, разбор строк — блоками в пуле {@code app.import.parallel},
+     * а запись — в вызывающем потоке (его транзакция и слушатель остаются прежними).
+     * Блоки забираются из очереди в порядке чтения, поэтому порядок строк, предупреждений и ошибок
+     * тот же, что и при последовательном разборе. Очередь ограничена: чтение не убегает далеко вперёд записи.
+     */
+    private void runPipelined(File file, ImportState state) throws IOException {
+        BlockingQueue<Future<ParsedBlock>> queue = new ArrayBlockingQueue<>(parseWorkers * 2);
+        ReaderStage reader = new ReaderStage(file, state.profileColumns, state.resumeAfterRow, queue);
+        Thread thread = new Thread(reader, "product-import-reader");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            while (true) {
+                ParsedBlock block = queue.take().get();
+                if (block == ParsedBlock.END) {
+                    break;
                 }
-                if (plannedPrice != null) {
-                    if (plannedPrice.compareTo(BigDecimal.ZERO) <= 0) {
-                        errors.add(String.format(Locale.ROOT,
-                                "Строка %d: цена должна быть больше нуля", row.getRowNum() + 1));
-                        skipped++;
-                        continue;
-                    }
-                    product.setPrice(plannedPrice);
-                } else if (product.getPrice() == null) {
-                    product.setPrice(BigDecimal.ONE);
-                    warnings.add(String.format(Locale.ROOT,
-                            "Строка %d: не указана цена, установлено значение по умолчанию 1", row.getRowNum() + 1));
+                for (int i = 0; i < block.rowNumbers().length; i++) {
+                    acceptParsed(block.rowNumbers()[i], block.rows()[i], state);
                 }
+            }
+            reader.rethrowFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Импорт прерван");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            reader.stopped = true;
+            thread.interrupt();
+        }
+    }
 
-                BigDecimal purchase = getDecimal(row, headerMap, formatter,
-                        "purchaseprice", "закупка", "purchase_price", "закупочнаяцена");
-                if (purchase == null) {
-                    warnings.add(String.format(Locale.ROOT,
-                            "Строка %d: не заполнено поле «Закупка».", row.getRowNum() + 1));
-                }
-                product.setPurchasePrice(purchase);
+    private PendingRow parseRow(ImportRow row, ColumnPlan plan) {
+        String name = ImportSheets.text(row, plan.column(ImportField.NAME));
 
-                BigDecimal logistics = getDecimal(row, headerMap, formatter,
-                        "logistics", "логистика", "logistics_cost", "возмещениеиздержек", "доставка");
-                if (logistics == null) {
-                    warnings.add(String.format(Locale.ROOT,
-                            "Строка %d: не указаны логистические расходы.", row.getRowNum() + 1));
-                }
-                product.setLogisticsCost(logistics);
+        String wbArticle = null;
+        for (int column : plan.columns(ImportField.WB_ARTICLE)) {
+            if (wbArticle == null || wbArticle.isBlank()) {
+                wbArticle = ImportSheets.text(row, column);
+            }
+        }
+        if ((name == null || name.isBlank()) && (wbArticle == null || wbArticle.isBlank())) {
+            return null;
+        }
 
-                BigDecimal marketing = getDecimal(row, headerMap, formatter,
-                        "marketing", "маркетинг", "marketing_cost", "промокод", "реклама");
-                if (marketing == null) {
-                    warnings.add(String.format(Locale.ROOT,
-                            "Строка %d: не указаны маркетинговые расходы.", row.getRowNum() + 1));
-                }
-                product.setMarketingCost(marketing);
+        BigDecimal price = null;
+        for (int column : plan.columns(ImportField.PRICE)) {
+            if (price == null) {
+                price = ImportSheets.decimal(row, column);
+            }
+        }
 
-                BigDecimal other = getDecimal(row, headerMap, formatter,
-                        "other", "прочие", "other_expenses", "прочиерасходы", "штрафы");
-                if (other == null) {
-                    warnings.add(String.format(Locale.ROOT,
-                            "Строка %d: не указаны прочие расходы.", row.getRowNum() + 1));
-                }
-                product.setOtherExpenses(other);
+        String barcode = ImportSheets.text(row, plan.column(ImportField.BARCODE));
+        String category = ImportSheets.text(row, plan.column(ImportField.CATEGORY));
+        String brand = ImportSheets.text(row, plan.column(ImportField.BRAND));
+        Integer stock = ImportSheets.integer(row, plan.column(ImportField.STOCK));
+        BigDecimal purchase = ImportSheets.decimal(row, plan.column(ImportField.PURCHASE_PRICE));
+        BigDecimal logistics = ImportSheets.decimal(row, plan.column(ImportField.LOGISTICS_COST));
+        BigDecimal marketing = ImportSheets.decimal(row, plan.column(ImportField.MARKETING_COST));
+        BigDecimal other = ImportSheets.decimal(row, plan.column(ImportField.OTHER_EXPENSES));
+        String trimmedArticle = wbArticle != null ? wbArticle.trim() : null;
+        return new PendingRow(row.rowNumber(), name, wbArticle, barcode, category, brand, stock, price,
+                purchase, logistics, marketing, other,
+                rowHash(name, trimmedArticle, barcode, category, brand, stock, price, purchase, logistics, marketing, other));
+    }
 
-                product.setUpdatedAt(java.time.LocalDateTime.now());
-                if (!dryRun) {
-                    productRepository.save(product);
-                }
-                if (isNew) {
-                    created++;
-                } else {
-                    updated++;
+    private ParsedBlock parseBlock(List<ImportRow> rows, ColumnPlan plan) {
+        int[] rowNumbers = new int[rows.size()];
+        PendingRow[] parsed = new PendingRow[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            rowNumbers[i] = rows.get(i).rowNumber();
+            parsed[i] = parseRow(rows.get(i), plan);
+        }
+        return new ParsedBlock(rowNumbers, parsed);
+    }
+
+    /**
+     * Применяет накопленные строки в отдельной транзакции: существующие товары чанка читаются
+     * одним запросом по артикулам, новые и изменённые пишутся JDBC-пакетами.
+     */
+    private void flushChunk(ImportState state) {
+        if (state.chunk.isEmpty()) {
+            return;
+        }
+        if (state.sink != null) {
+            state.sink.accept(List.copyOf(state.chunk));
+        } else {
+            (state.dryRun ? readOnlyTransactions : transactions).executeWithoutResult(status -> applyChunk(state));
+        }
+        state.chunk.clear();
+        if (state.listener != null) {
+            state.listener.chunkCommitted(state.progress());
+        }
+    }
+
+    private void applyChunk(ImportState state) {
+        Set<String> articles = new HashSet<>();
+        for (PendingRow row : state.chunk) {
+            if (row.wbArticle() != null && !row.wbArticle().isBlank()) {
+                articles.add(row.wbArticle());
+            }
+        }
+        Map<String, Product> byArticle = new HashMap<>();
+        if (!articles.isEmpty()) {
+            for (Product product : productRepository.findByWbArticleInOrderByIdAsc(articles)) {
+                // дальше товар меняется в памяти и пишется через JDBC, Hibernate не должен сбрасывать его сам
+                entityManager.detach(product);
+                byArticle.putIfAbsent(product.getWbArticle(), product);
+            }
+        }
+
+        List<Product> inserts = new ArrayList<>();
+        Set<Product> updates = new LinkedHashSet<>();
+        for (PendingRow row : state.chunk) {
+            applyRow(row, byArticle, inserts, updates, state);
+        }
+        if (state.dryRun) {
+            return;
+        }
+
+        productBatchWriter.insert(inserts);
+        productBatchWriter.update(List.copyOf(updates));
+        // то же, что делает CatalogChangeListener для записей через JPA
+        for (Product product : inserts) {
+            catalogChangeTracker.productChanged(product);
+            product.rememberArticleKeys();
+        }
+        for (Product product : updates) {
+            catalogChangeTracker.productChanged(product);
+            product.rememberArticleKeys();
+        }
+    }
+
+    private void applyRow(PendingRow row, Map<String, Product> byArticle, List<Product> inserts,
+                          Set<Product> updates, ImportState state) {
+        String wbArticle = row.wbArticle();
+        Product existing = wbArticle != null && !wbArticle.isBlank() ? byArticle.get(wbArticle) : null;
+
+        if (row.price() != null && row.price().compareTo(BigDecimal.ZERO) <= 0) {
+            state.error(String.format(Locale.ROOT,
+                    "Строка %d: цена должна быть больше нуля", row.rowNumber()));
+            state.skipped++;
+            return;
+        }
+
+        // до проверки на совпадение: повторная загрузка того же файла даёт тот же отчёт
+        warnMissingFields(row, existing, state);
+
+        if (existing != null && row.hash().equals(existing.getImportHash())) {
+            // товар уже записан точно такой же строкой и с тех пор не менялся
+            state.unchanged++;
+            return;
+        }
+
+        Product product = existing != null ? existing : new Product();
+        if (existing == null) {
+            product.setCreatedAt(java.time.LocalDateTime.now());
+        }
+
+        // пустая ячейка названия, как и в импорте через промежуточную таблицу, не затирает название товара
+        if (row.name() != null && !row.name().isBlank()) {
+            product.setName(row.name());
+        }
+        if (wbArticle != null) {
+            product.setWbArticle(wbArticle.trim());
+        }
+        product.setWbBarcode(row.barcode());
+        product.setCategory(row.category());
+        product.setBrand(row.brand());
+        product.setStockQuantity(row.stock());
+
+        if ((product.getName() == null || product.getName().isBlank()) && wbArticle != null) {
+            product.setName(DEFAULT_NAME_PREFIX + wbArticle);
+        }
+
+        if (row.price() != null) {
+            product.setPrice(row.price());
+        } else if (product.getPrice() == null) {
+            product.setPrice(DEFAULT_PRICE);
+        }
+
+        product.setPurchasePrice(row.purchase());
+        product.setLogisticsCost(row.logistics());
+        product.setMarketingCost(row.marketing());
+        product.setOtherExpenses(row.other());
+
+        product.setUpdatedAt(java.time.LocalDateTime.now());
+        product.setImportHash(row.hash());
+        product.refreshArticleKeys();
+        if (existing == null) {
+            state.created++;
+            if (!state.dryRun) {
+                inserts.add(product);
+                // повтор артикула дальше в файле обновит этот же товар
+                if (wbArticle != null && !wbArticle.isBlank()) {
+                    byArticle.put(wbArticle, product);
                 }
             }
+        } else {
+            state.updated++;
+            updates.add(product);
+        }
+    }
 
+    private void warnMissingFields(PendingRow row, Product existing, ImportState state) {
+        if (row.price() == null && (existing == null || existing.getPrice() == null)) {
+            state.warn(missingPriceWarning(row.rowNumber()));
+        }
+        missingCostWarnings(row).forEach(state::warn);
+    }
+
+    static String missingPriceWarning(int rowNumber) {
+        return String.format(Locale.ROOT, "Строка %d: не указана цена, установлено значение по умолчанию %s",
+                rowNumber, DEFAULT_PRICE.toPlainString());
+    }
+
+    /**
+     * Предупреждения о пустых затратах строки — не зависят от каталога.
+     */
+    static List<String> missingCostWarnings(PendingRow row) {
+        List<String> warnings = new ArrayList<>(4);
+        if (row.purchase() == null) {
+            warnings.add(String.format(Locale.ROOT,
+                    "Строка %d: не заполнено поле «Закупка».", row.rowNumber()));
+        }
+        if (row.logistics() == null) {
+            warnings.add(String.format(Locale.ROOT,
+                    "Строка %d: не указаны логистические расходы.", row.rowNumber()));
+        }
+        if (row.marketing() == null) {
+            warnings.add(String.format(Locale.ROOT,
+                    "Строка %d: не указаны маркетинговые расходы.", row.rowNumber()));
+        }
+        if (row.other() == null) {
+            warnings.add(String.format(Locale.ROOT,
+                    "Строка %d: не указаны прочие расходы.", row.rowNumber()));
+        }
+        return warnings;
+    }
+
+    /**
+     * Счётчики и сообщения одного импорта; заголовок — первая строка листа, по нему строится план колонок.
+     */
+    private static final class ImportState {
+        private final boolean dryRun;
+        private final Map<ImportField, String> profileColumns;
+        private final int resumeAfterRow;
+        private final int maxMessages;
+        private final ImportProgressListener listener;
+        private final List<String> warnings = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private final List<PendingRow> chunk = new ArrayList<>();
+        private final long startedAt = System.nanoTime();
+        private ColumnPlan plan;
+        // чанки уходят сюда вместо записи в товары
+        private Consumer<List<PendingRow>> sink;
+        private int created;
+        private int updated;
+        private int skipped;
+        private int unchanged;
+        private boolean alreadyImported;
+        private int warningCount;
+        private int errorCount;
+        private int lastRowNumber;
+        private long rows;
+
+        private ImportState(boolean dryRun, Map<ImportField, String> profileColumns, int resumeAfterRow,
+                            int maxMessages, ImportProgressListener listener) {
+            this.dryRun = dryRun;
+            this.profileColumns = profileColumns;
+            this.resumeAfterRow = resumeAfterRow;
+            this.maxMessages = maxMessages;
+            this.listener = listener;
+            this.lastRowNumber = resumeAfterRow;
+        }
+
+        private void warn(String message) {
+            warningCount++;
+            if (warnings.size() < maxMessages) {
+                warnings.add(message);
+            }
+        }
+
+        private void error(String message) {
+            errorCount++;
+            if (errors.size() < maxMessages) {
+                errors.add(message);
+            }
+        }
+
+        private ImportProgress progress() {
+            return new ImportProgress(lastRowNumber, rows, created, updated, skipped, unchanged, alreadyImported,
+                    warningCount, errorCount, List.copyOf(warnings), List.copyOf(errors));
+        }
+
+        private ProductImportResultDto toResult() {
             ProductImportResultDto result = new ProductImportResultDto();
             result.setCreated(created);
             result.setUpdated(updated);
             result.setSkipped(skipped);
+            result.setUnchanged(unchanged);
+            if (alreadyImported) {
+                result.setAlreadyImported(true);
+            }
+            long elapsedNanos = Math.max(1, System.nanoTime() - startedAt);
+            result.setDurationMs(elapsedNanos / 1_000_000);
+            result.setRowsPerSecond(rows * 1_000_000_000L / elapsedNanos);
             if (!warnings.isEmpty()) {
                 result.setWarnings(List.copyOf(warnings));
             }
@@ -196,113 +637,186 @@ public class ProductImportService {
                 result.setErrors(List.copyOf(errors));
             }
             return result;
-        } catch (IOException e) {
-            throw new IllegalStateException("Ошибка чтения Excel файла: " + e.getMessage(), e);
         }
     }
 
-    private Product cloneProduct(Product source) {
-        Product clone = new Product();
-        clone.setId(source.getId());
-        clone.setCreatedAt(source.getCreatedAt());
-        clone.setUpdatedAt(source.getUpdatedAt());
-        clone.setName(source.getName());
-        clone.setWbArticle(source.getWbArticle());
-        clone.setWbBarcode(source.getWbBarcode());
-        clone.setCategory(source.getCategory());
-        clone.setBrand(source.getBrand());
-        clone.setStockQuantity(source.getStockQuantity());
-        clone.setPrice(source.getPrice());
-        clone.setPurchasePrice(source.getPurchasePrice());
-        clone.setLogisticsCost(source.getLogisticsCost());
-        clone.setMarketingCost(source.getMarketingCost());
-        clone.setOtherExpenses(source.getOtherExpenses());
-        return clone;
+    /**
+     * Значения строки файла до применения к товару; {@code hash} — хеш этих значений для пропуска неизменённых строк.
+     */
+    record PendingRow(int rowNumber,
+                      String name,
+                      String wbArticle,
+                      String barcode,
+                      String category,
+                      String brand,
+                      Integer stock,
+                      BigDecimal price,
+                      BigDecimal purchase,
+                      BigDecimal logistics,
+                      BigDecimal marketing,
+                      BigDecimal other,
+                      String hash) {
     }
 
-    private Map<String, Integer> buildHeaderMap(Row headerRow) {
-        Map<String, Integer> headerMap = new HashMap<>();
-        DataFormatter formatter = new DataFormatter();
-        for (Cell cell : headerRow) {
-            String value = formatter.formatCellValue(cell);
-            if (value != null && !value.isBlank()) {
-                headerMap.put(normalize(value), cell.getColumnIndex());
-            }
-        }
-        return headerMap;
+    /**
+     * Разобранные строки блока; {@code null} — пустая строка файла.
+     */
+    private record ParsedBlock(int[] rowNumbers, PendingRow[] rows) {
+        private static final ParsedBlock END = new ParsedBlock(new int[0], new PendingRow[0]);
     }
 
-    private String getString(Row row, Map<String, Integer> headerMap, DataFormatter formatter, String... keys) {
-        Integer index = getColumnIndex(headerMap, keys);
-        if (index == null) {
-            return null;
-        }
-        Cell cell = row.getCell(index);
-        if (cell == null) {
-            return null;
+    /**
+     * Копия нужных колонок строки: строки читателей действительны только внутри обратного вызова.
+     */
+    private static final class CopiedRow implements ImportRow {
+        private final int rowNumber;
+        private final int[] slotByColumn;
+        private final String[] texts;
+        private final Double[] numbers;
+
+        private CopiedRow(ImportRow row, int[] columns, int[] slotByColumn) {
+            this.rowNumber = row.rowNumber();
+            this.slotByColumn = slotByColumn;
+            this.texts = new String[columns.length];
+            this.numbers = new Double[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                texts[i] = row.text(columns[i]);
+                numbers[i] = row.number(columns[i]);
+            }
         }
-        String value = formatter.formatCellValue(cell);
-        return value != null ? value.trim() : null;
-    }
 
-    private Integer getInteger(Row row, Map<String, Integer> headerMap, DataFormatter formatter, String... keys) {
-        Integer index = getColumnIndex(headerMap, keys);
-        if (index == null) {
-            return null;
+        private int slot(int column) {
+            return column < slotByColumn.length ? slotByColumn[column] : -1;
         }
-        Cell cell = row.getCell(index);
-        if (cell == null) {
-            return null;
+
+        @Override
+        public int rowNumber() {
+            return rowNumber;
         }
-        if (cell.getCellType() == CellType.NUMERIC) {
-            return (int) cell.getNumericCellValue();
+
+        @Override
+        public String text(int column) {
+            int slot = slot(column);
+            return slot >= 0 ? texts[slot] : null;
         }
-        String text = formatter.formatCellValue(cell);
-        if (text == null || text.isBlank()) {
-            return null;
+
+        @Override
+        public Double number(int column) {
+            int slot = slot(column);
+            return slot >= 0 ? numbers[slot] : null;
         }
-        try {
-            return Integer.parseInt(text.replace(" ", ""));
-        } catch (NumberFormatException ex) {
-            return null;
+
+        @Override
+        public int[] columns() {
+            List<Integer> columns = new ArrayList<>();
+            for (int column = 0; column < slotByColumn.length; column++) {
+                if (slotByColumn[column] >= 0 && texts[slotByColumn[column]] != null) {
+                    columns.add(column);
+                }
+            }
+            return columns.stream().mapToInt(Integer::intValue).toArray();
         }
     }
 
-    private BigDecimal getDecimal(Row row, Map<String, Integer> headerMap, DataFormatter formatter, String... keys) {
-        Integer index = getColumnIndex(headerMap, keys);
-        if (index == null) {
-            return null;
-        }
-        Cell cell = row.getCell(index);
-        if (cell == null) {
-            return null;
+    /**
+     * Стадия чтения: читает файл, копирует нужные колонки и отдаёт блоки строк в пул разбора.
+     * В очередь кладутся задачи пула в порядке чтения; в конце — {@link ParsedBlock#END}.
+     */
+    private final class ReaderStage implements Runnable {
+        private final File file;
+        private final Map<ImportField, String> profileColumns;
+        private final int resumeAfterRow;
+        private final BlockingQueue<Future<ParsedBlock>> queue;
+        private volatile boolean stopped;
+        private volatile Throwable failure;
+
+        private ColumnPlan plan;
+        private int[] columns;
+        private int[] slotByColumn;
+        private List<ImportRow> block = new ArrayList<>(PARSE_BLOCK_SIZE);
+
+        private ReaderStage(File file, Map<ImportField, String> profileColumns, int resumeAfterRow,
+                            BlockingQueue<Future<ParsedBlock>> queue) {
+            this.file = file;
+            this.profileColumns = profileColumns;
+            this.resumeAfterRow = resumeAfterRow;
+            this.queue = queue;
         }
-        if (cell.getCellType() == CellType.NUMERIC) {
-            return BigDecimal.valueOf(cell.getNumericCellValue()).setScale(2, RoundingMode.HALF_UP);
+
+        @Override
+        public void run() {
+            try {
+                ImportSheets.read(file, this::accept);
+                submitBlock();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                try {
+                    enqueue(CompletableFuture.completedFuture(ParsedBlock.END));
+                } catch (CancellationException ignored) {
+                    // запись уже остановлена и очередь никто не читает
+                }
+            }
         }
-        String text = formatter.formatCellValue(cell);
-        if (text == null || text.isBlank()) {
-            return null;
+
+        private void accept(ImportRow row) {
+            if (stopped) {
+                throw new CancellationException("Импорт остановлен");
+            }
+            if (plan == null) {
+                plan = ColumnPlan.compile(row, profileColumns);
+                columns = plan.usedColumns();
+                int maxColumn = columns.length > 0 ? columns[columns.length - 1] : -1;
+                slotByColumn = new int[maxColumn + 1];
+                Arrays.fill(slotByColumn, -1);
+                for (int i = 0; i < columns.length; i++) {
+                    slotByColumn[columns[i]] = i;
+                }
+                return;
+            }
+            if (row.rowNumber() <= resumeAfterRow) {
+                return;
+            }
+            block.add(new CopiedRow(row, columns, slotByColumn));
+            if (block.size() >= PARSE_BLOCK_SIZE) {
+                submitBlock();
+            }
         }
-        text = text.replace(" ", "").replace("%", "").replace(",", ".");
-        try {
-            return new BigDecimal(text);
-        } catch (NumberFormatException ex) {
-            return null;
+
+        private void submitBlock() {
+            if (block.isEmpty()) {
+                return;
+            }
+            List<ImportRow> rows = block;
+            ColumnPlan rowPlan = plan;
+            block = new ArrayList<>(PARSE_BLOCK_SIZE);
+            enqueue(parsePool.submit(() -> parseBlock(rows, rowPlan)));
         }
-    }
 
-    private Integer getColumnIndex(Map<String, Integer> headerMap, String... keys) {
-        for (String key : keys) {
-            Integer idx = headerMap.get(normalize(key));
-            if (idx != null) {
-                return idx;
+        private void enqueue(Future<ParsedBlock> future) {
+            try {
+                while (!queue.offer(future, 100, TimeUnit.MILLISECONDS)) {
+                    if (stopped) {
+                        throw new CancellationException("Импорт остановлен");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Импорт остановлен");
             }
         }
-        return null;
-    }
 
-    private String normalize(String value) {
-        return value.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9а-яё]", "");
+        private void rethrowFailure() throws IOException {
+            Throwable error = failure;
+            if (error instanceof IOException io) {
+                throw io;
+            }
+            if (error instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (error instanceof Error fatal) {
+                throw fatal;
+            }
+        }
     }
 }
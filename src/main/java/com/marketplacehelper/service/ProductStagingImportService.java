@@ -0,0 +1,290 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ImportField;
+import com.marketplacehelper.dto.ProductImportResultDto;
+import com.marketplacehelper.dto.StagedImportRowDto;
+import com.marketplacehelper.model.ArticleKeys;
+import com.marketplacehelper.model.ImportStagingBatch;
+import com.marketplacehelper.model.ImportStagingRow;
+import com.marketplacehelper.repository.ImportStagingBatchRepository;
+import com.marketplacehelper.repository.ProductStagingWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Импорт товаров через промежуточную таблицу: разобранные строки файла пакетами пишутся в
+ * {@code import_staging_rows}, затем одна транзакция сверяет всю партию с {@code products} запросами
+ * над множеством строк и применяет её одним {@code MERGE}. Пробный прогон выполняет ту же сверку
+ * для всего файла и оставляет строки с итогами и ошибками для просмотра; его можно применить без повторной загрузки.
+ * <p>
+ * В отличие от построчного импорта, файл применяется целиком или не применяется вовсе.
+ */
+@Service
+public class ProductStagingImportService {
+
+    // сообщений каждого вида в ответе; все строки доступны через просмотр партии
+    private static final int MAX_MESSAGES = 100;
+
+    private final ProductImportService productImportService;
+    private final ProductStagingWriter productStagingWriter;
+    private final ImportStagingBatchRepository importStagingBatchRepository;
+    private final CatalogChangeTracker catalogChangeTracker;
+    private final TransactionTemplate transactions;
+    private final Duration keepTime;
+    // параллельные сверки создали бы один и тот же артикул дважды
+    private final Object mergeLock = new Object();
+
+    public ProductStagingImportService(ProductImportService productImportService,
+                                       ProductStagingWriter productStagingWriter,
+                                       ImportStagingBatchRepository importStagingBatchRepository,
+                                       CatalogChangeTracker catalogChangeTracker,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.import.staging.keep-hours:24}") long keepHours) {
+        this.productImportService = productImportService;
+        this.productStagingWriter = productStagingWriter;
+        this.importStagingBatchRepository = importStagingBatchRepository;
+        this.catalogChangeTracker = catalogChangeTracker;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.keepTime = Duration.ofHours(Math.max(1, keepHours));
+    }
+
+    /**
+     * Загружает файл в промежуточную таблицу и сверяет с товарами; без {@code dryRun} сразу применяет.
+     * В ответе {@code stagingId} — партия для просмотра строк и применения пробного прогона.
+     */
+    public ProductImportResultDto importFile(MultipartFile file, boolean dryRun, Long profileId) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Файл Excel не загружен");
+        }
+        Map<ImportField, String> columns = productImportService.profileColumns(profileId);
+        evictExpired();
+        long startedAt = System.nanoTime();
+
+        ImportStagingBatch batch = new ImportStagingBatch();
+        batch.setId(UUID.randomUUID().toString());
+        batch.setFileName(file.getOriginalFilename());
+        batch.setCreatedAt(LocalDateTime.now());
+        importStagingBatchRepository.save(batch);
+
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("product-staging-", ".upload");
+            file.transferTo(spool);
+            ImportProgress progress = productImportService.readFile(spool.toFile(), columns,
+                    rows -> productStagingWriter.insert(toStagingRows(batch.getId(), rows)));
+            batch.setRowsRead(progress.rowsRead());
+            batch.setBlankRows(progress.skipped());
+            importStagingBatchRepository.save(batch);
+        } catch (IOException e) {
+            discard(batch.getId());
+            throw new IllegalStateException("Ошибка чтения Excel файла: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            discard(batch.getId());
+            throw e;
+        } finally {
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException ignored) {
+                    // временный файл удалит ОС
+                }
+            }
+        }
+        return reconcile(batch, dryRun, startedAt);
+    }
+
+    /**
+     * Применяет партию пробного прогона. Сверка повторяется: товары могли измениться после прогона.
+     *
+     * @throws IllegalArgumentException если партия уже применена
+     */
+    public Optional<ProductImportResultDto> apply(String stagingId) {
+        Optional<ImportStagingBatch> batch = importStagingBatchRepository.findById(stagingId);
+        if (batch.isEmpty()) {
+            return Optional.empty();
+        }
+        if (batch.get().getAppliedAt() != null) {
+            throw new IllegalArgumentException("Файл уже применён");
+        }
+        return Optional.of(reconcile(batch.get(), false, System.nanoTime()));
+    }
+
+    /**
+     * Строки партии по порядку файла, при {@code action} — только с этим итогом сверки.
+     */
+    public Optional<List<StagedImportRowDto>> getRows(String stagingId, String action, int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException("offset не может быть отрицательным, limit должен быть больше нуля");
+        }
+        if (!importStagingBatchRepository.existsById(stagingId)) {
+            return Optional.empty();
+        }
+        String normalizedAction = action != null && !action.isBlank() ? action.trim().toUpperCase(Locale.ROOT) : null;
+        return Optional.of(productStagingWriter.findRows(stagingId, normalizedAction, offset, limit).stream()
+                .map(this::toDto)
+                .toList());
+    }
+
+    public boolean discard(String stagingId) {
+        if (!importStagingBatchRepository.existsById(stagingId)) {
+            return false;
+        }
+        productStagingWriter.delete(stagingId);
+        importStagingBatchRepository.deleteById(stagingId);
+        return true;
+    }
+
+    private ProductImportResultDto reconcile(ImportStagingBatch batch, boolean dryRun, long startedAt) {
+        synchronized (mergeLock) {
+            return transactions.execute(status -> {
+                Map<String, Integer> counts = productStagingWriter.classify(batch.getId());
+                if (!dryRun) {
+                    LocalDateTime now = LocalDateTime.now();
+                    int written = productStagingWriter.merge(batch.getId(), now,
+                            ProductImportService.DEFAULT_NAME_PREFIX, ProductImportService.DEFAULT_PRICE);
+                    batch.setAppliedAt(now);
+                    importStagingBatchRepository.save(batch);
+                    if (written > 0) {
+                        // MERGE идёт в обход JPA, поэтому аналитика пересобирается целиком
+                        catalogChangeTracker.catalogChanged();
+                    }
+                }
+                return toResult(batch, counts, startedAt);
+            });
+        }
+    }
+
+    private ProductImportResultDto toResult(ImportStagingBatch batch, Map<String, Integer> counts, long startedAt) {
+        ProductImportResultDto result = new ProductImportResultDto();
+        result.setStagingId(batch.getId());
+        result.setCreated(counts.getOrDefault(ImportStagingRow.CREATE, 0));
+        result.setUpdated(counts.getOrDefault(ImportStagingRow.UPDATE, 0));
+        result.setUnchanged(counts.getOrDefault(ImportStagingRow.UNCHANGED, 0));
+        result.setSkipped(batch.getBlankRows() + counts.getOrDefault(ImportStagingRow.ERROR, 0)
+                + counts.getOrDefault(ImportStagingRow.SUPERSEDED, 0));
+        long elapsedNanos = Math.max(1, System.nanoTime() - startedAt);
+        result.setDurationMs(elapsedNanos / 1_000_000);
+        result.setRowsPerSecond(batch.getRowsRead() * 1_000_000_000L / elapsedNanos);
+
+        List<String> warnings = new ArrayList<>();
+        for (ImportStagingRow row : productStagingWriter.findWarnings(batch.getId(), MAX_MESSAGES)) {
+            for (String warning : warnings(row)) {
+                if (warnings.size() < MAX_MESSAGES) {
+                    warnings.add(warning);
+                }
+            }
+        }
+        if (!warnings.isEmpty()) {
+            result.setWarnings(warnings);
+        }
+        List<String> errors = productStagingWriter.findErrors(batch.getId(), MAX_MESSAGES).stream()
+                .map(ImportStagingRow::getError)
+                .toList();
+        if (!errors.isEmpty()) {
+            result.setErrors(errors);
+        }
+        return result;
+    }
+
+    /**
+     * Проверки, не зависящие от каталога, выполняются здесь; их итог хранится в строке.
+     */
+    private List<ImportStagingRow> toStagingRows(String batchId, List<ProductImportService.PendingRow> rows) {
+        List<ImportStagingRow> staged = new ArrayList<>(rows.size());
+        for (ProductImportService.PendingRow row : rows) {
+            ImportStagingRow stagingRow = new ImportStagingRow();
+            stagingRow.setBatchId(batchId);
+            stagingRow.setLineNumber(row.rowNumber());
+            stagingRow.setName(row.name() != null && !row.name().isBlank() ? row.name() : null);
+            String wbArticle = row.wbArticle() != null && !row.wbArticle().isBlank() ? row.wbArticle().trim() : null;
+            stagingRow.setWbArticle(wbArticle);
+            stagingRow.setArticleKey(ArticleKeys.articleKey(wbArticle));
+            stagingRow.setArticleNmId(ArticleKeys.articleNmId(wbArticle));
+            stagingRow.setWbBarcode(row.barcode());
+            stagingRow.setCategory(row.category());
+            stagingRow.setBrand(row.brand());
+            stagingRow.setStockQuantity(row.stock());
+            stagingRow.setPrice(row.price());
+            stagingRow.setPurchasePrice(row.purchase());
+            stagingRow.setLogisticsCost(row.logistics());
+            stagingRow.setMarketingCost(row.marketing());
+            stagingRow.setOtherExpenses(row.other());
+            stagingRow.setRowHash(row.hash());
+
+            if (row.price() != null && row.price().compareTo(BigDecimal.ZERO) <= 0) {
+                stagingRow.setAction(ImportStagingRow.ERROR);
+                stagingRow.setError(String.format(Locale.ROOT,
+                        "Строка %d: цена должна быть больше нуля", row.rowNumber()));
+            } else {
+                // предупреждение о цене зависит от сверки и добавляется при чтении строк CREATE
+                List<String> warnings = ProductImportService.missingCostWarnings(row);
+                if (!warnings.isEmpty()) {
+                    stagingRow.setWarning(String.join("\n", warnings));
+                }
+            }
+            staged.add(stagingRow);
+        }
+        return staged;
+    }
+
+    private StagedImportRowDto toDto(ImportStagingRow row) {
+        StagedImportRowDto dto = new StagedImportRowDto();
+        dto.setRowNumber(row.getLineNumber());
+        dto.setAction(row.getAction());
+        dto.setProductId(row.getProductId());
+        dto.setName(row.getName());
+        dto.setWbArticle(row.getWbArticle());
+        dto.setWbBarcode(row.getWbBarcode());
+        dto.setCategory(row.getCategory());
+        dto.setBrand(row.getBrand());
+        dto.setStockQuantity(row.getStockQuantity());
+        dto.setPrice(row.getPrice());
+        dto.setPurchasePrice(row.getPurchasePrice());
+        dto.setLogisticsCost(row.getLogisticsCost());
+        dto.setMarketingCost(row.getMarketingCost());
+        dto.setOtherExpenses(row.getOtherExpenses());
+        dto.setError(row.getError());
+        List<String> warnings = warnings(row);
+        if (!warnings.isEmpty()) {
+            dto.setWarnings(warnings);
+        }
+        return dto;
+    }
+
+    /**
+     * Предупреждения строки в том же порядке, что у построчного импорта: цена — только у создаваемого товара.
+     */
+    private List<String> warnings(ImportStagingRow row) {
+        List<String> warnings = new ArrayList<>();
+        if (ImportStagingRow.CREATE.equals(row.getAction()) && row.getPrice() == null) {
+            warnings.add(ProductImportService.missingPriceWarning(row.getLineNumber()));
+        }
+        if (row.getWarning() != null) {
+            warnings.addAll(List.of(row.getWarning().split("\n")));
+        }
+        return warnings;
+    }
+
+    private void evictExpired() {
+        LocalDateTime threshold = LocalDateTime.now().minus(keepTime);
+        for (ImportStagingBatch batch : importStagingBatchRepository.findByCreatedAtBefore(threshold)) {
+            discard(batch.getId());
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ImportJobDto;
+import com.marketplacehelper.dto.UploadSessionDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Загрузка больших файлов импорта по частям. Каждая часть дописывается в файл сессии на диске через
+ * {@link FileChannel#transferFrom}, без накопления в куче; при обрыве клиент узнаёт {@code received}
+ * и продолжает с этого смещения. Завершение проверяет размер и SHA-256 и отдаёт файл фоновым задачам импорта.
+ * <p>
+ * Сессии живут в памяти процесса; брошенные удаляются вместе с файлами через {@code app.import.uploads.idle-hours}.
+ */
+@Service
+public class ProductUploadService {
+
+    // сколько байт за один вызов transferFrom; сам канал читает тело запроса небольшим буфером
+    private static final long TRANSFER_SIZE = 1 << 20;
+
+    private final ProductImportJobService productImportJobService;
+    private final Path directory;
+    private final long maxSize;
+    private final Duration idleTimeout;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public ProductUploadService(ProductImportJobService productImportJobService,
+                                @Value("${app.import.uploads.dir:${java.io.tmpdir}/marketplace-helper-uploads}") String directory,
+                                @Value("${app.import.uploads.max-size-mb:2048}") long maxSizeMb,
+                                @Value("${app.import.uploads.idle-hours:24}") long idleHours) {
+        this.productImportJobService = productImportJobService;
+        this.directory = Path.of(directory);
+        this.maxSize = Math.max(1, maxSizeMb) * 1024 * 1024;
+        this.idleTimeout = Duration.ofHours(Math.max(1, idleHours));
+    }
+
+    /**
+     * @param size   размер файла в байтах, если известен: лишние байты не принимаются, а завершение ждёт все
+     * @param sha256 ожидаемая SHA-256 файла; можно передать и при завершении
+     */
+    public UploadSessionDto create(String fileName, Long size, String sha256) {
+        if (size != null && (size <= 0 || size > maxSize)) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT,
+                    "Размер файла должен быть от 1 байта до %d МБ", maxSize / 1024 / 1024));
+        }
+        evictIdle();
+        String id = UUID.randomUUID().toString();
+        Path file = directory.resolve(id + ".part");
+        try {
+            Files.createDirectories(directory);
+            Files.createFile(file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось создать файл загрузки: " + e.getMessage(), e);
+        }
+        Session session = new Session(id, fileName, size, normalizeChecksum(sha256), file);
+        sessions.put(id, session);
+        return session.toDto();
+    }
+
+    public Optional<UploadSessionDto> getSession(String id) {
+        return Optional.ofNullable(sessions.get(id)).map(Session::toDto);
+    }
+
+    /**
+     * Дописывает часть, начинающуюся со смещения {@code offset}. Принятые до обрыва байты остаются в файле
+     * и учитываются в {@code received}.
+     *
+     * @throws IllegalStateException если {@code offset} не совпадает с уже принятым объёмом
+     */
+    public Optional<UploadSessionDto> append(String id, long offset, InputStream body) throws IOException {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return Optional.empty();
+        }
+        synchronized (session) {
+            if (session.closed) {
+                return Optional.empty();
+            }
+            if (offset != session.received) {
+                throw new IllegalStateException(String.format(Locale.ROOT,
+                        "Ожидалась часть со смещения %d, получено %d", session.received, offset));
+            }
+            long limit = session.size != null ? session.size : maxSize;
+            try (FileChannel channel = FileChannel.open(session.file, StandardOpenOption.WRITE);
+                 ReadableByteChannel source = Channels.newChannel(body)) {
+                try {
+                    while (true) {
+                        long written = channel.transferFrom(source, session.received, TRANSFER_SIZE);
+                        if (written == 0) {
+                            break;
+                        }
+                        if (session.received + written > limit) {
+                            throw new IllegalArgumentException(String.format(Locale.ROOT,
+                                    "Файл больше %s: принято %d байт", session.size != null
+                                            ? "заявленного размера" : "допустимого размера", session.received));
+                        }
+                        session.received += written;
+                        session.updatedAt = LocalDateTime.now();
+                    }
+                } finally {
+                    // хвост незаконченной или отклонённой записи не должен попасть в файл
+                    channel.truncate(session.received);
+                }
+            }
+            return Optional.of(session.toDto());
+        }
+    }
+
+    /**
+     * Проверяет размер и контрольную сумму и ставит файл в очередь импорта; сессия при этом закрывается.
+     */
+    public Optional<ImportJobDto> complete(String id, String sha256, boolean dryRun, Long profileId, boolean force)
+            throws IOException {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return Optional.empty();
+        }
+        synchronized (session) {
+            if (session.closed) {
+                return Optional.empty();
+            }
+            String expected = sha256 != null && !sha256.isBlank() ? normalizeChecksum(sha256) : session.sha256;
+            if (expected == null) {
+                throw new IllegalArgumentException("Не указана контрольная сумма SHA-256 файла");
+            }
+            if (session.received == 0) {
+                throw new IllegalArgumentException("Файл не загружен");
+            }
+            if (session.size != null && session.received != session.size) {
+                throw new IllegalArgumentException(String.format(Locale.ROOT,
+                        "Загружено %d из %d байт", session.received, session.size));
+            }
+            String actual = checksum(session.file);
+            if (!actual.equals(expected)) {
+                throw new IllegalArgumentException("Контрольная сумма файла не совпадает: получено " + actual);
+            }
+            ImportJobDto job = productImportJobService.submit(session.file, session.fileName, dryRun, profileId, force);
+            session.closed = true;
+            sessions.remove(id);
+            return Optional.of(job);
+        }
+    }
+
+    public boolean cancel(String id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        synchronized (session) {
+            session.closed = true;
+            deleteQuietly(session.file);
+        }
+        return true;
+    }
+
+    private void evictIdle() {
+        LocalDateTime threshold = LocalDateTime.now().minus(idleTimeout);
+        for (Session session : sessions.values()) {
+            if (session.updatedAt.isBefore(threshold)) {
+                cancel(session.id);
+            }
+        }
+    }
+
+    private String checksum(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String normalizeChecksum(String sha256) {
+        if (sha256 == null || sha256.isBlank()) {
+            return null;
+        }
+        String value = sha256.trim().toLowerCase(Locale.ROOT);
+        if (!value.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("SHA-256 должна быть 64 шестнадцатеричными символами");
+        }
+        return value;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // файл останется в каталоге загрузок
+        }
+    }
+
+    /**
+     * Части одной сессии пишутся по очереди под монитором сессии.
+     */
+    private static final class Session {
+        private final String id;
+        private final String fileName;
+        private final Long size;
+        private final String sha256;
+        private final Path file;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile LocalDateTime updatedAt = createdAt;
+        private volatile long received;
+        private boolean closed;
+
+        private Session(String id, String fileName, Long size, String sha256, Path file) {
+            this.id = id;
+            this.fileName = fileName;
+            this.size = size;
+            this.sha256 = sha256;
+            this.file = file;
+        }
+
+        private UploadSessionDto toDto() {
+            UploadSessionDto dto = new UploadSessionDto();
+            dto.setId(id);
+            dto.setFileName(fileName);
+            dto.setSize(size);
+            dto.setReceived(received);
+            dto.setSha256(sha256);
+            dto.setCreatedAt(createdAt);
+            dto.setUpdatedAt(updatedAt);
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.SalesImportResultDto;
+import com.marketplacehelper.model.SaleFact;
+import com.marketplacehelper.model.SalesArticleStats;
+import com.marketplacehelper.repository.SalesFactWriter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Загрузка еженедельных отчётов WB о реализации в таблицу фактов продаж.
+ * Файл читается построчно (XLSX, XLS или CSV), строки копятся чанками по {@code app.import.chunk-size};
+ * каждый чанк — одна транзакция: один запрос уже загруженных ключей, JDBC-пакет новых фактов
+ * и приращения итогов по артикулам. Таблица фактов целиком не пересчитывается.
+ * <p>
+ * Ключ строки — её место в отчёте, а не суммы: одинаковые по значениям строки одного отчёта
+ * (несколько логистик или штрафов по заказу) — разные факты. Строка с {@code rrd_id} (выгрузка API)
+ * определяется им; иначе — отчётом ({@code realizationreport_id}) и номером строки, а без номера отчёта —
+ * собственными полями строки (Srid, тип документа, обоснование для оплаты, код номенклатуры) и номером.
+ * Байты файла в ключ не входят: пересохранённая или заново скачанная копия отчёта даёт те же ключи.
+ */
+@Service
+public class SalesReportImportService {
+
+    // сообщений в ответе каждого вида: отчёт на сотни тысяч строк не должен давать ответ на сотни тысяч строк
+    private static final int MAX_MESSAGES = 100;
+
+    private static final DateTimeFormatter RUSSIAN_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    // колонки отчёта: названия из выгрузки Excel личного кабинета и поля API reportDetailByPeriod
+    private static final String[] RRD_ID = {"rrd_id"};
+    private static final String[] REPORT_ID = {"realizationreport_id", "Номер отчета", "Номер отчёта"};
+    // номер строки в выгрузке Excel: «№»; после нормализации от него ничего не остаётся, поэтому ищется как есть
+    private static final String LINE_NUMBER = "№";
+    private static final String[] SRID = {"Srid", "srid"};
+    private static final String[] NM_ID = {"Код номенклатуры", "nm_id", "Артикул WB"};
+    private static final String[] VENDOR_CODE = {"Артикул поставщика", "sa_name"};
+    private static final String[] BARCODE = {"Баркод", "barcode", "Штрихкод"};
+    private static final String[] DOC_TYPE = {"Тип документа", "doc_type_name"};
+    private static final String[] PAYMENT_REASON = {"Обоснование для оплаты", "supplier_oper_name"};
+    private static final String[] SALE_DATE = {"Дата продажи", "sale_dt"};
+    private static final String[] QUANTITY = {"Кол-во", "quantity"};
+    private static final String[] RETAIL_PRICE = {"Цена розничная", "retail_price"};
+    private static final String[] REVENUE = {"Вайлдберриз реализовал Товар (Пр)", "retail_amount"};
+    private static final String[] PAYOUT = {"К перечислению Продавцу за реализованный Товар", "ppvz_for_pay"};
+    private static final String[] DELIVERY = {"Услуги по доставке товара покупателю", "delivery_rub"};
+    private static final String[] REBILL_LOGISTICS = {"Возмещение издержек по перевозке", "rebill_logistic_cost"};
+    private static final String[] PENALTIES = {"Общая сумма штрафов", "penalty", "Штрафы"};
+
+    // длинные названия колонок WB меняются в хвосте («…по перевозке/по складским операциям с товаром»),
+    // поэтому псевдоним такой длины совпадает и с началом заголовка
+    private static final int PREFIX_MATCH_LENGTH = 12;
+
+    private final SalesFactWriter salesFactWriter;
+    private final TransactionTemplate transactions;
+    private final int chunkSize;
+    // пересекающиеся отчёты, загружаемые одновременно, конфликтовали бы на уникальном ключе строки
+    private final Object loadLock = new Object();
+
+    public SalesReportImportService(SalesFactWriter salesFactWriter,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.import.chunk-size:1000}") int chunkSize) {
+        this.salesFactWriter = salesFactWriter;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public SalesImportResultDto importReport(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Файл отчёта не загружен");
+        }
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("sales-report-", ".upload");
+            file.transferTo(spool);
+            synchronized (loadLock) {
+                LoadState state = new LoadState();
+                ImportSheets.read(spool.toFile(), row -> accept(row, state));
+                flush(state);
+                return state.toResult();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Ошибка чтения отчёта: " + e.getMessage(), e);
+        } finally {
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException ignored) {
+                    // временный файл удалит ОС
+                }
+            }
+        }
+    }
+
+    private void accept(ImportRow row, LoadState state) {
+        if (state.columns == null) {
+            state.columns = new ReportColumns(row);
+            return;
+        }
+        state.rows++;
+        ReportColumns columns = state.columns;
+        String nmIdText = ImportSheets.text(row, columns.nmId);
+        if (nmIdText == null || nmIdText.isEmpty()) {
+            state.skipped++;
+            if (!isBlank(row)) {
+                state.error(String.format(Locale.ROOT, "Строка %d: не указан код номенклатуры", row.rowNumber()));
+            }
+            return;
+        }
+        Long nmId = parseNmId(row, columns.nmId, nmIdText);
+        if (nmId == null) {
+            state.skipped++;
+            state.error(String.format(Locale.ROOT,
+                    "Строка %d: код номенклатуры «%s» не число", row.rowNumber(), nmIdText));
+            return;
+        }
+
+        SaleFact fact = new SaleFact();
+        fact.setNmId(nmId);
+        fact.setSrid(ImportSheets.text(row, columns.srid));
+        fact.setVendorCode(ImportSheets.text(row, columns.vendorCode));
+        fact.setBarcode(ImportSheets.text(row, columns.barcode));
+        fact.setDocType(ImportSheets.text(row, columns.docType));
+        fact.setPaymentReason(ImportSheets.text(row, columns.paymentReason));
+        fact.setSaleDate(parseDate(row, columns.saleDate, state));
+        fact.setQuantity(ImportSheets.integer(row, columns.quantity));
+        fact.setRetailPrice(ImportSheets.decimal(row, columns.retailPrice));
+        fact.setRevenue(ImportSheets.decimal(row, columns.revenue));
+        fact.setPayout(ImportSheets.decimal(row, columns.payout));
+        fact.setLogistics(sum(ImportSheets.decimal(row, columns.delivery),
+                ImportSheets.decimal(row, columns.rebillLogistics)));
+        fact.setPenalties(ImportSheets.decimal(row, columns.penalties));
+        fact.setLineKey(lineKey(row, nmId, state));
+        state.chunk.add(fact);
+        if (state.chunk.size() >= chunkSize) {
+            flush(state);
+        }
+    }
+
+    private void flush(LoadState state) {
+        if (state.chunk.isEmpty()) {
+            return;
+        }
+        transactions.executeWithoutResult(status -> {
+            Set<String> keys = new HashSet<>();
+            for (SaleFact fact : state.chunk) {
+                keys.add(fact.getLineKey());
+            }
+            Set<String> existing = salesFactWriter.findExistingKeys(keys);
+            LocalDateTime now = LocalDateTime.now();
+            List<SaleFact> fresh = new ArrayList<>();
+            Map<Long, SalesArticleStats> deltas = new LinkedHashMap<>();
+            Set<String> seen = new HashSet<>();
+            for (SaleFact fact : state.chunk) {
+                if (existing.contains(fact.getLineKey()) || !seen.add(fact.getLineKey())) {
+                    state.duplicates++;
+                    continue;
+                }
+                fact.setLoadedAt(now);
+                fresh.add(fact);
+                addToStats(deltas.computeIfAbsent(fact.getNmId(), SalesReportImportService::emptyStats), fact);
+            }
+            salesFactWriter.insert(fresh);
+            salesFactWriter.addStats(new ArrayList<>(deltas.values()));
+            state.inserted += fresh.size();
+            state.articles.addAll(deltas.keySet());
+        });
+        state.chunk.clear();
+    }
+
+    /**
+     * Возврат уменьшает штуки, выручку и выплату; логистика и штрафы всегда расходы.
+     */
+    private static void addToStats(SalesArticleStats stats, SaleFact fact) {
+        boolean isReturn = fact.getDocType() != null
+                && fact.getDocType().toLowerCase(Locale.ROOT).contains("возврат");
+        int quantity = fact.getQuantity() != null ? Math.abs(fact.getQuantity()) : 0;
+        if (isReturn) {
+            stats.setUnitsSold(stats.getUnitsSold() - quantity);
+            stats.setReturnsCount(stats.getReturnsCount() + quantity);
+        } else {
+            stats.setUnitsSold(stats.getUnitsSold() + quantity);
+            stats.setSalesCount(stats.getSalesCount() + quantity);
+        }
+        BigDecimal sign = isReturn ? BigDecimal.ONE.negate() : BigDecimal.ONE;
+        stats.setRevenue(stats.getRevenue().add(orZero(fact.getRevenue()).abs().multiply(sign)));
+        stats.setPayout(stats.getPayout().add(orZero(fact.getPayout()).abs().multiply(sign)));
+        stats.setLogistics(stats.getLogistics().add(orZero(fact.getLogistics())));
+        stats.setPenalties(stats.getPenalties().add(orZero(fact.getPenalties())));
+        if (fact.getVendorCode() != null && !fact.getVendorCode().isEmpty()) {
+            stats.setVendorCode(fact.getVendorCode());
+        }
+    }
+
+    private static SalesArticleStats emptyStats(Long nmId) {
+        SalesArticleStats stats = new SalesArticleStats();
+        stats.setNmId(nmId);
+        stats.setRevenue(BigDecimal.ZERO);
+        stats.setPayout(BigDecimal.ZERO);
+        stats.setLogistics(BigDecimal.ZERO);
+        stats.setPenalties(BigDecimal.ZERO);
+        return stats;
+    }
+
+    private Long parseNmId(ImportRow row, int column, String text) {
+        Double number = row.number(column);
+        if (number != null) {
+            return number.longValue();
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Дата ячейкой Excel, {@code 2024-03-05} (в том числе с временем, как в API) или {@code 05.03.2024}.
+     */
+    private LocalDate parseDate(ImportRow row, int column, LoadState state) {
+        if (column < 0) {
+            return null;
+        }
+        Double number = row.number(column);
+        if (number != null && DateUtil.isValidExcelDate(number)) {
+            return DateUtil.getLocalDateTime(number).toLocalDate();
+        }
+        String text = ImportSheets.text(row, column);
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        try {
+            if (text.length() >= 10 && text.charAt(4) == '-') {
+                return LocalDate.parse(text.substring(0, 10));
+            }
+            if (text.length() >= 10 && text.charAt(2) == '.') {
+                return LocalDate.parse(text.substring(0, 10), RUSSIAN_DATE);
+            }
+        } catch (DateTimeParseException ignored) {
+            // ниже — предупреждение
+        }
+        state.warn(String.format(Locale.ROOT, "Строка %d: не удалось разобрать дату продажи «%s»", row.rowNumber(), text));
+        return null;
+    }
+
+    /**
+     * Место строки в отчёте: {@code rrd_id} уникален среди всех отчётов WB; без него — отчёт и номер строки в нём,
+     * а без номера отчёта — операция строки (Srid, тип документа, обоснование, код номенклатуры) и номер строки.
+     */
+    private static String lineKey(ImportRow row, long nmId, LoadState state) {
+        ReportColumns columns = state.columns;
+        String rrdId = ImportSheets.text(row, columns.rrdId);
+        String place;
+        if (rrdId != null && !rrdId.isEmpty()) {
+            place = "rrd\u001F" + rrdId;
+        } else {
+            String reportId = ImportSheets.text(row, columns.reportId);
+            String lineNumber = ImportSheets.text(row, columns.lineNumber);
+            String line = lineNumber != null && !lineNumber.isEmpty() ? lineNumber : "#" + row.rowNumber();
+            if (reportId != null && !reportId.isEmpty()) {
+                place = "report\u001F" + reportId + '\u001F' + line;
+            } else {
+                place = "line\u001F" + orEmpty(ImportSheets.text(row, columns.srid))
+                        + '\u001F' + orEmpty(ImportSheets.text(row, columns.docType))
+                        + '\u001F' + orEmpty(ImportSheets.text(row, columns.paymentReason))
+                        + '\u001F' + nmId + '\u001F' + line;
+            }
+        }
+        byte[] hash = sha256().digest(place.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 16);
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static BigDecimal sum(BigDecimal first, BigDecimal second) {
+        if (first == null) {
+            return second;
+        }
+        return second != null ? first.add(second) : first;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static boolean isBlank(ImportRow row) {
+        for (int column : row.columns()) {
+            String text = row.text(column);
+            if (text != null && !text.isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Номера колонок отчёта, найденные один раз по строке заголовков; {@code -1} — колонки нет.
+     */
+    private static final class ReportColumns {
+        private final int rrdId;
+        private final int reportId;
+        private final int lineNumber;
+        private final int srid;
+        private final int nmId;
+        private final int vendorCode;
+        private final int barcode;
+        private final int docType;
+        private final int paymentReason;
+        private final int saleDate;
+        private final int quantity;
+        private final int retailPrice;
+        private final int revenue;
+        private final int payout;
+        private final int delivery;
+        private final int rebillLogistics;
+        private final int penalties;
+
+        private ReportColumns(ImportRow headerRow) {
+            Map<String, Integer> headers = new LinkedHashMap<>();
+            int lineNumberColumn = -1;
+            for (int column : headerRow.columns()) {
+                String value = headerRow.text(column);
+                if (value != null && !value.isBlank()) {
+                    headers.putIfAbsent(ColumnPlan.normalize(value), column);
+                    if (lineNumberColumn < 0 && LINE_NUMBER.equals(value.trim())) {
+                        lineNumberColumn = column;
+                    }
+                }
+            }
+            lineNumber = lineNumberColumn;
+            rrdId = find(headers, RRD_ID);
+            reportId = find(headers, REPORT_ID);
+            srid = find(headers, SRID);
+            nmId = find(headers, NM_ID);
+            vendorCode = find(headers, VENDOR_CODE);
+            barcode = find(headers, BARCODE);
+            docType = find(headers, DOC_TYPE);
+            paymentReason = find(headers, PAYMENT_REASON);
+            saleDate = find(headers, SALE_DATE);
+            quantity = find(headers, QUANTITY);
+            retailPrice = find(headers, RETAIL_PRICE);
+            revenue = find(headers, REVENUE);
+            payout = find(headers, PAYOUT);
+            delivery = find(headers, DELIVERY);
+            rebillLogistics = find(headers, REBILL_LOGISTICS);
+            penalties = find(headers, PENALTIES);
+            if (nmId < 0) {
+                throw new IllegalArgumentException("В отчёте нет колонки «Код номенклатуры» (nm_id)");
+            }
+        }
+
+        private static int find(Map<String, Integer> headers, String[] aliases) {
+            for (String alias : aliases) {
+                Integer column = headers.get(ColumnPlan.normalize(alias));
+                if (column != null) {
+                    return column;
+                }
+            }
+            for (String alias : aliases) {
+                String key = ColumnPlan.normalize(alias);
+                if (key.length() < PREFIX_MATCH_LENGTH) {
+                    continue;
+                }
+                for (Map.Entry<String, Integer> header : headers.entrySet()) {
+                    if (header.getKey().startsWith(key)) {
+                        return header.getValue();
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class LoadState {
+        private final List<SaleFact> chunk = new ArrayList<>();
+        private final Set<Long> articles = new HashSet<>();
+        private final List<String> warnings = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private final long startedAt = System.nanoTime();
+        private ReportColumns columns;
+        private long rows;
+        private int inserted;
+        private int duplicates;
+        private int skipped;
+
+        private void warn(String message) {
+            if (warnings.size() < MAX_MESSAGES) {
+                warnings.add(message);
+            }
+        }
+
+        private void error(String message) {
+            if (errors.size() < MAX_MESSAGES) {
+                errors.add(message);
+            }
+        }
+
+        private SalesImportResultDto toResult() {
+            SalesImportResultDto result = new SalesImportResultDto();
+            result.setRowsRead(rows);
+            result.setInserted(inserted);
+            result.setDuplicates(duplicates);
+            result.setSkipped(skipped);
+            result.setArticles(articles.size());
+            long elapsedNanos = Math.max(1, System.nanoTime() - startedAt);
+            result.setDurationMs(elapsedNanos / 1_000_000);
+            result.setRowsPerSecond(rows * 1_000_000_000L / elapsedNanos);
+            if (!warnings.isEmpty()) {
+                result.setWarnings(List.copyOf(warnings));
+            }
+            if (!errors.isEmpty()) {
+                result.setErrors(List.copyOf(errors));
+            }
+            return result;
+        }
+    }
+}
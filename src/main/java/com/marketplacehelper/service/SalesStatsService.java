@@ -0,0 +1,106 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.SalesArticleStatsDto;
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.SalesArticleStats;
+import com.marketplacehelper.repository.ProductRepository;
+import com.marketplacehelper.repository.SalesArticleStatsRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Фактические итоги продаж по артикулам и перенос фактических расходов в карточки товаров.
+ */
+@Service
+public class SalesStatsService {
+
+    private final SalesArticleStatsRepository salesArticleStatsRepository;
+    private final ProductRepository productRepository;
+
+    public SalesStatsService(SalesArticleStatsRepository salesArticleStatsRepository,
+                             ProductRepository productRepository) {
+        this.salesArticleStatsRepository = salesArticleStatsRepository;
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Артикулы по убыванию выручки.
+     */
+    @Transactional(readOnly = true)
+    public List<SalesArticleStatsDto> getStats(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть больше нуля");
+        }
+        return salesArticleStatsRepository.findAllByOrderByRevenueDescNmIdAsc(PageRequest.of(0, limit)).stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<SalesArticleStatsDto> getStats(Long nmId) {
+        return salesArticleStatsRepository.findById(nmId).map(this::toDto);
+    }
+
+    /**
+     * Записывает фактическую логистику на проданную штуку в {@code logisticsCost} товаров с тем же nmId.
+     * Товары сохраняются через JPA, поэтому аналитика пересчитывается обычным путём.
+     * При {@code onlyMissing} не трогает товары, у которых логистика уже заполнена.
+     *
+     * @return сколько товаров изменено
+     */
+    @Transactional
+    public int applyActualLogistics(boolean onlyMissing) {
+        Map<Long, BigDecimal> perUnit = new HashMap<>();
+        for (SalesArticleStats stats : salesArticleStatsRepository.findByUnitsSoldGreaterThan(0)) {
+            perUnit.put(stats.getNmId(), perUnit(stats.getLogistics(), stats.getUnitsSold()));
+        }
+        if (perUnit.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        for (Product product : productRepository.findByArticleNmIdIn(perUnit.keySet())) {
+            BigDecimal actual = perUnit.get(product.getArticleNmId());
+            if (onlyMissing && product.getLogisticsCost() != null) {
+                continue;
+            }
+            if (product.getLogisticsCost() != null && product.getLogisticsCost().compareTo(actual) == 0) {
+                continue;
+            }
+            product.setLogisticsCost(actual);
+            updated++;
+        }
+        return updated;
+    }
+
+    private SalesArticleStatsDto toDto(SalesArticleStats stats) {
+        SalesArticleStatsDto dto = new SalesArticleStatsDto();
+        dto.setNmId(stats.getNmId());
+        dto.setVendorCode(stats.getVendorCode());
+        dto.setUnitsSold(stats.getUnitsSold());
+        dto.setSalesCount(stats.getSalesCount());
+        dto.setReturnsCount(stats.getReturnsCount());
+        dto.setRevenue(stats.getRevenue());
+        dto.setPayout(stats.getPayout());
+        dto.setLogistics(stats.getLogistics());
+        dto.setPenalties(stats.getPenalties());
+        if (stats.getUnitsSold() > 0) {
+            dto.setLogisticsPerUnit(perUnit(stats.getLogistics(), stats.getUnitsSold()));
+            dto.setPenaltiesPerUnit(perUnit(stats.getPenalties(), stats.getUnitsSold()));
+            dto.setPayoutPerUnit(perUnit(stats.getPayout(), stats.getUnitsSold()));
+        }
+        dto.setUpdatedAt(stats.getUpdatedAt());
+        return dto;
+    }
+
+    private static BigDecimal perUnit(BigDecimal total, int units) {
+        return total.divide(BigDecimal.valueOf(units), 2, RoundingMode.HALF_UP);
+    }
+}
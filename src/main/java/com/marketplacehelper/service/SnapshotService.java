@@ -2,17 +2,43 @@ package com.marketplacehelper.service;
 
 import com.marketplacehelper.dto.AnalyticsReportDto;
 import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.SnapshotChange;
+import com.marketplacehelper.dto.SnapshotDiffDto;
+import com.marketplacehelper.dto.SnapshotDiffItemDto;
 import com.marketplacehelper.model.DailySnapshot;
 import com.marketplacehelper.repository.DailySnapshotRepository;
+import com.marketplacehelper.repository.SnapshotDiffRow;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class SnapshotService {
 
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    // величина изменения для сортировки; null — сравнить нечего, такие товары идут последними
+    private static final Map<String, Function<SnapshotDiffItemDto, BigDecimal>> DIFF_MAGNITUDES = Map.of(
+            "marginpercent", item -> item.getMarginPercentDelta() != null ? item.getMarginPercentDelta().abs() : null,
+            "price", item -> item.getPriceDeltaPercent() != null ? item.getPriceDeltaPercent().abs() : null,
+            "stock", item -> item.getPreviousStock() != null && item.getStock() != null
+                    ? BigDecimal.valueOf((long) item.getPreviousStock() - item.getStock()).abs() : null);
+
     private final AnalyticsService analyticsService;
     private final DailySnapshotRepository snapshotRepository;
 
@@ -41,6 +67,118 @@ public class SnapshotService {
     public List<DailySnapshot> getSnapshots(LocalDate from, LocalDate to) {
         return snapshotRepository.findAllBetween(from, to);
     }
-}
 
+    /**
+     * Что изменилось с даты снимка: текущая витрина аналитики соединяется со снимком по артикулу в БД,
+     * в память попадают только изменившиеся товары, из них держатся {@code limit} крупнейших изменений.
+     *
+     * @param sort    marginPercent, price или stock — по модулю изменения, от большего к меньшему
+     * @param changes если задано, только товары хотя бы с одним из этих изменений
+     */
+    @Transactional(readOnly = true)
+    public SnapshotDiffDto diff(LocalDate date,
+                                BigDecimal requestedMinMarginPercent,
+                                String sort,
+                                Collection<SnapshotChange> changes,
+                                int limit) {
+        String sortKey = sort != null && !sort.isBlank() ? sort.trim().toLowerCase(Locale.ROOT) : "marginpercent";
+        Function<SnapshotDiffItemDto, BigDecimal> magnitude = DIFF_MAGNITUDES.get(sortKey);
+        if (magnitude == null) {
+            throw new IllegalArgumentException("Неизвестное поле сортировки: " + sort);
+        }
+        if (limit < 1 || limit > AnalyticsReadModelService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер выборки должен быть от 1 до " + AnalyticsReadModelService.MAX_PAGE_SIZE);
+        }
+        if (!snapshotRepository.existsBySnapshotDate(date)) {
+            throw new IllegalArgumentException("Нет снимка за " + date);
+        }
+        BigDecimal marginThreshold = requestedMinMarginPercent != null
+                ? requestedMinMarginPercent
+                : analyticsService.getDefaultMinMarginPercent();
+        Set<SnapshotChange> wanted = changes != null && !changes.isEmpty()
+                ? EnumSet.copyOf(changes)
+                : EnumSet.allOf(SnapshotChange.class);
+
+        Comparator<SnapshotDiffItemDto> order = Comparator
+                .comparing(magnitude, Comparator.nullsLast(Comparator.<BigDecimal>reverseOrder()))
+                .thenComparing(SnapshotDiffItemDto::getWbArticle, Comparator.nullsLast(Comparator.naturalOrder()));
+        // в корне очереди худший из отобранных
+        PriorityQueue<SnapshotDiffItemDto> best = new PriorityQueue<>(limit + 1, order.reversed());
+        SnapshotDiffDto result = new SnapshotDiffDto();
+        try (Stream<SnapshotDiffRow> rows = snapshotRepository.streamChangedSince(date, marginThreshold)) {
+            rows.forEach(row -> {
+                SnapshotDiffItemDto item = toDiffItem(row, marginThreshold);
+                if (Collections.disjoint(item.getChanges(), wanted)) {
+                    return;
+                }
+                result.setChangedCount(result.getChangedCount() + 1);
+                if (item.getChanges().contains(SnapshotChange.THRESHOLD_CROSSED)) {
+                    result.setThresholdCrossedCount(result.getThresholdCrossedCount() + 1);
+                }
+                if (item.getChanges().contains(SnapshotChange.PRICE_CHANGED)) {
+                    result.setPriceChangedCount(result.getPriceChangedCount() + 1);
+                }
+                if (item.getChanges().contains(SnapshotChange.STOCK_DROPPED)) {
+                    result.setStockDroppedCount(result.getStockDroppedCount() + 1);
+                }
+                best.add(item);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            });
+        }
+
+        List<SnapshotDiffItemDto> items = new ArrayList<>(best);
+        items.sort(order);
+        result.setSnapshotDate(date);
+        result.setAppliedMinMarginPercent(marginThreshold);
+        result.setItems(items);
+        return result;
+    }
+
+    private SnapshotDiffItemDto toDiffItem(SnapshotDiffRow row, BigDecimal marginThreshold) {
+        SnapshotDiffItemDto item = new SnapshotDiffItemDto();
+        item.setProductId(row.getProductId());
+        item.setWbProductId(row.getWbProductId());
+        item.setWbArticle(row.getWbArticle());
+        item.setName(row.getName());
+        item.setPreviousPrice(row.getPreviousPrice());
+        item.setPrice(row.getPrice());
+        item.setPreviousMargin(row.getPreviousMargin());
+        item.setMargin(row.getMargin());
+        item.setPreviousMarginPercent(row.getPreviousMarginPercent());
+        item.setMarginPercent(row.getMarginPercent());
+        item.setPreviousStock(row.getPreviousStock());
+        item.setStock(row.getStock());
+        item.setPreviouslyProfitable(profitable(row.getPreviousMargin(), row.getPreviousMarginPercent(), marginThreshold));
+        item.setProfitable(profitable(row.getMargin(), row.getMarginPercent(), marginThreshold));
 
+        if (row.getMarginPercent() != null && row.getPreviousMarginPercent() != null) {
+            item.setMarginPercentDelta(row.getMarginPercent().subtract(row.getPreviousMarginPercent()));
+        }
+        if (row.getPrice() != null && row.getPreviousPrice() != null && row.getPreviousPrice().signum() > 0) {
+            item.setPriceDeltaPercent(row.getPrice().subtract(row.getPreviousPrice())
+                    .multiply(HUNDRED)
+                    .divide(row.getPreviousPrice(), 2, RoundingMode.HALF_UP));
+        }
+
+        if (item.isProfitable() != item.isPreviouslyProfitable()) {
+            item.getChanges().add(SnapshotChange.THRESHOLD_CROSSED);
+        }
+        boolean priceChanged = row.getPrice() == null || row.getPreviousPrice() == null
+                ? row.getPrice() != row.getPreviousPrice()
+                : row.getPrice().compareTo(row.getPreviousPrice()) != 0;
+        if (priceChanged) {
+            item.getChanges().add(SnapshotChange.PRICE_CHANGED);
+        }
+        if (row.getStock() != null && row.getPreviousStock() != null && row.getStock() < row.getPreviousStock()) {
+            item.getChanges().add(SnapshotChange.STOCK_DROPPED);
+        }
+        return item;
+    }
+
+    private static boolean profitable(BigDecimal margin, BigDecimal marginPercent, BigDecimal threshold) {
+        return margin != null && marginPercent != null
+                && margin.signum() >= 0 && marginPercent.compareTo(threshold) >= 0;
+    }
+}
@@ -0,0 +1,243 @@
+package com.marketplacehelper.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Построчное чтение первого листа XLSX через {@link XSSFReader} и SAX: в памяти только текущая строка,
+ * таблица общих строк и стили. Текст числовых ячеек форматируется так же, как {@code DataFormatter.formatCellValue},
+ * а само число передаётся отдельно.
+ */
+final class XlsxSheetReader {
+
+    private XlsxSheetReader() {
+    }
+
+    static void read(File file, Consumer<ImportRow> consumer) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("Не удалось прочитать первый лист Excel");
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(strings, styles, consumer));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static final class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable strings;
+        private final StylesTable styles;
+        private final Consumer<ImportRow> consumer;
+        private final DataFormatter formatter = new DataFormatter();
+        private final StringBuilder value = new StringBuilder();
+
+        private BufferedRow row;
+        private int nextRowNumber = 1;
+        private int column;
+        private int nextColumn;
+        private String type;
+        private String style;
+        private boolean inValue;
+
+        private SheetHandler(ReadOnlySharedStringsTable strings, StylesTable styles, Consumer<ImportRow> consumer) {
+            this.strings = strings;
+            this.styles = styles;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attributes.getValue("r");
+                    int number = r != null ? Integer.parseInt(r) : nextRowNumber;
+                    nextRowNumber = number + 1;
+                    row = new BufferedRow(number);
+                    nextColumn = 0;
+                }
+                case "c" -> {
+                    String r = attributes.getValue("r");
+                    column = r != null ? new CellReference(r).getCol() : nextColumn;
+                    nextColumn = column + 1;
+                    type = attributes.getValue("t");
+                    style = attributes.getValue("s");
+                    value.setLength(0);
+                }
+                // <v> — значение, <t> — текст встроенной строки
+                case "v", "t" -> inValue = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> inValue = false;
+                case "c" -> {
+                    if (row != null) {
+                        cell();
+                    }
+                }
+                case "row" -> {
+                    if (row != null) {
+                        consumer.accept(row);
+                        row = null;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        private void cell() {
+            String raw = value.toString();
+            if (raw.isEmpty()) {
+                // ячейка только со стилем: как и DataFormatter, отдаём пустую строку
+                row.put(column, "", null);
+            } else if ("s".equals(type)) {
+                row.put(column, strings.getItemAt(Integer.parseInt(raw)).getString(), null);
+            } else if ("b".equals(type)) {
+                row.put(column, "1".equals(raw) ? "TRUE" : "FALSE", null);
+            } else if ("inlineStr".equals(type) || "str".equals(type) || "e".equals(type)) {
+                row.put(column, raw, null);
+            } else if ("d".equals(type)) {
+                // дата в ISO 8601 — отдаём как числовую ячейку с датой: серийный номер Excel и текст по формату
+                LocalDateTime dateTime = parseIsoDate(raw);
+                if (dateTime != null) {
+                    double number = DateUtil.getExcelDate(dateTime);
+                    row.put(column, format(number), number);
+                } else {
+                    row.put(column, raw, null);
+                }
+            } else {
+                double number = Double.parseDouble(raw);
+                row.put(column, format(number), number);
+            }
+        }
+
+        private static LocalDateTime parseIsoDate(String raw) {
+            try {
+                if (raw.length() <= 10) {
+                    return LocalDate.parse(raw).atStartOfDay();
+                }
+                return LocalDateTime.from(DateTimeFormatter.ISO_DATE_TIME.parse(raw));
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+
+        private String format(double number) {
+            // в файлах, собранных не Excel, части со стилями может не быть
+            XSSFCellStyle cellStyle = null;
+            if (styles != null) {
+                cellStyle = style != null ? styles.getStyleAt(Integer.parseInt(style))
+                        : styles.getNumCellStyles() > 0 ? styles.getStyleAt(0) : null;
+            }
+            if (cellStyle == null) {
+                return formatter.formatRawCellContents(number, 0, "General");
+            }
+            short formatIndex = cellStyle.getDataFormat();
+            String formatString = cellStyle.getDataFormatString();
+            if (formatString == null) {
+                formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+            }
+            return formatter.formatRawCellContents(number, formatIndex, formatString != null ? formatString : "General");
+        }
+    }
+
+    /**
+     * Текущая строка: колонки хранятся в массивах по номеру, в списке колонок — только встреченные ячейки.
+     */
+    private static final class BufferedRow implements ImportRow {
+        private final int rowNumber;
+        private String[] texts = new String[16];
+        private Double[] numbers = new Double[16];
+        private int[] columns = new int[16];
+        private int count;
+
+        private BufferedRow(int rowNumber) {
+            this.rowNumber = rowNumber;
+        }
+
+        private void put(int column, String text, Double number) {
+            if (column >= texts.length) {
+                int capacity = Math.max(column + 1, texts.length * 2);
+                texts = Arrays.copyOf(texts, capacity);
+                numbers = Arrays.copyOf(numbers, capacity);
+            }
+            if (texts[column] == null) {
+                if (count == columns.length) {
+                    columns = Arrays.copyOf(columns, count * 2);
+                }
+                columns[count++] = column;
+            }
+            texts[column] = text;
+            numbers[column] = number;
+        }
+
+        @Override
+        public int rowNumber() {
+            return rowNumber;
+        }
+
+        @Override
+        public String text(int column) {
+            return column < texts.length ? texts[column] : null;
+        }
+
+        @Override
+        public Double number(int column) {
+            return column < numbers.length ? numbers[column] : null;
+        }
+
+        @Override
+        public int[] columns() {
+            int[] result = Arrays.copyOf(columns, count);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.marketplacehelper.controller;
 
 import com.marketplacehelper.dto.AlertDto;
+import com.marketplacehelper.service.AlertBroadcaster;
 import com.marketplacehelper.service.AlertService;
+import com.marketplacehelper.service.CatalogChangeTracker;
 import com.marketplacehelper.auth.SimpleAuthFilter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +11,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
@@ -20,6 +23,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(controllers = AlertsController.class,
         excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = SimpleAuthFilter.class))
+@Import({AlertBroadcaster.class, CatalogChangeTracker.class})
 class AlertsControllerTest {
 
     @Autowired
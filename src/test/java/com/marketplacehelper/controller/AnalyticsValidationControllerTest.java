@@ -1,5 +1,14 @@
 package com.marketplacehelper.controller;
 
+import com.marketplacehelper.dto.AnalyticsRankedItemDto;
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.ProductAnalyticsFilter;
+import com.marketplacehelper.dto.ProductAnalyticsPageDto;
+import com.marketplacehelper.dto.ProductIssue;
+import com.marketplacehelper.dto.ProductValidationDto;
+import com.marketplacehelper.service.AnalyticsColumnStore;
+import com.marketplacehelper.service.AnalyticsExportService;
+import com.marketplacehelper.service.AnalyticsReadModelService;
 import com.marketplacehelper.service.AnalyticsService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,12 +20,25 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = AnalyticsController.class, excludeAutoConfiguration = {
@@ -32,6 +54,15 @@ class AnalyticsValidationControllerTest {
     @MockBean
     private AnalyticsService analyticsService;
 
+    @MockBean
+    private AnalyticsReadModelService analyticsReadModelService;
+
+    @MockBean
+    private AnalyticsExportService analyticsExportService;
+
+    @MockBean
+    private AnalyticsColumnStore analyticsColumnStore;
+
     static class TestConfig {
         @Bean
         com.marketplacehelper.auth.SimpleAuthService simpleAuthService() {
@@ -59,6 +90,112 @@ class AnalyticsValidationControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray());
     }
-}
 
+    @Test
+    void rendersIssueMessagesUnlessCodesRequested() throws Exception {
+        ProductValidationDto validation = new ProductValidationDto();
+        validation.setProductId(7L);
+        validation.setIssueMask(ProductIssue.NO_PURCHASE_PRICE.bit() | ProductIssue.NO_OTHER_EXPENSES.bit());
+        validation.setPurchasePriceSuggested(true);
+        when(analyticsService.buildValidationReport(true, null)).thenReturn(List.of(validation));
+
+        mockMvc.perform(get("/api/analytics/validation")
+                        .header("Authorization", "Bearer test")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].issueCodes[0]").value("NO_PURCHASE_PRICE"))
+                .andExpect(jsonPath("$[0].issues[0].field").value("purchasePrice"))
+                .andExpect(jsonPath("$[0].issues[0].suggestion").value("60% от price"))
+                .andExpect(jsonPath("$[0].issues[1].blocking").value(false));
+
+        mockMvc.perform(get("/api/analytics/validation")
+                        .param("issues", "codes")
+                        .header("Authorization", "Bearer test")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].productId").value(7))
+                .andExpect(jsonPath("$[0].issueCodes[1]").value("NO_OTHER_EXPENSES"))
+                .andExpect(jsonPath("$[0].issues").doesNotExist());
+    }
+
+    @Test
+    void returnsRequestedAnalyticsPage() throws Exception {
+        ProductAnalyticsPageDto page = new ProductAnalyticsPageDto();
+        page.setItems(List.of());
+        page.setPage(2);
+        page.setSize(20);
+        when(analyticsReadModelService.findPage(any(ProductAnalyticsFilter.class), isNull(), eq(2), eq(20), eq("stock"), eq("asc")))
+                .thenReturn(page);
 
+        mockMvc.perform(get("/api/analytics/products/page")
+                        .param("page", "2")
+                        .param("size", "20")
+                        .param("sort", "stock")
+                        .param("direction", "asc")
+                        .param("dataSources", "MERGED", "WB_ONLY")
+                        .header("Authorization", "Bearer test")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.page").value(2))
+                .andExpect(jsonPath("$.items").isArray());
+    }
+
+    @Test
+    void ranksFromReadModelWhenColumnStoreDisabled() throws Exception {
+        when(analyticsColumnStore.isEnabled()).thenReturn(false);
+        ProductAnalyticsDto item = new ProductAnalyticsDto();
+        item.setName("SKU 1");
+        when(analyticsReadModelService.top(eq(AnalyticsColumnStore.RankMetric.STOCK), eq(false), eq(3),
+                any(ProductAnalyticsFilter.class), isNull()))
+                .thenReturn(List.of(new AnalyticsRankedItemDto(new BigDecimal("4"), item)));
+
+        mockMvc.perform(get("/api/analytics/products/top")
+                        .param("metric", "stock")
+                        .param("order", "bottom")
+                        .param("limit", "3")
+                        .header("Authorization", "Bearer test")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].value").value(4))
+                .andExpect(jsonPath("$[0].item.name").value("SKU 1"));
+    }
+
+    @Test
+    void simulationIsUnavailableWhenColumnStoreDisabled() throws Exception {
+        when(analyticsColumnStore.isEnabled()).thenReturn(false);
+
+        mockMvc.perform(post("/api/analytics/simulate")
+                        .header("Authorization", "Bearer test")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"scenarios\":[{\"name\":\"+5%\",\"pricePercent\":5}]}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("Колоночное хранилище аналитики отключено"));
+    }
+
+    @Test
+    void streamsValidationExport() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("ID товара;Артикул\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(analyticsExportService).exportValidationReport(any(), eq(AnalyticsExportService.Format.CSV), eq(true), isNull());
+
+        MvcResult result = mockMvc.perform(get("/api/analytics/validation/export")
+                        .header("Authorization", "Bearer test"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", org.hamcrest.Matchers.containsString("validation-report-")))
+                .andExpect(content().string("ID товара;Артикул\n"));
+    }
+
+    @Test
+    void rejectsUnknownExportFormat() throws Exception {
+        mockMvc.perform(get("/api/analytics/products/export")
+                        .param("format", "pdf")
+                        .header("Authorization", "Bearer test"))
+                .andExpect(status().isBadRequest());
+    }
+}
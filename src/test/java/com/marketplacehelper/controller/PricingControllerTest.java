@@ -17,6 +17,7 @@ import java.math.BigDecimal;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -119,6 +120,22 @@ class PricingControllerTest {
                 .andExpect(jsonPath("$.failed").value(1))
                 .andExpect(jsonPath("$.items[0].success").value(false));
     }
-}
 
+    @Test
+    void batchUpdate_shouldRejectInvalidBoundsUpFront() throws Exception {
+        mockMvc.perform(post("/api/pricing/batch-update")
+                        .contentType("application/json")
+                        .content("{\"ceilPrice\":1e30,\"items\":[{\"wbProductId\":1,\"newPrice\":100}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Максимальная цена вне допустимого диапазона: "
+                        + "1000000000000000000000000000000"));
 
+        mockMvc.perform(post("/api/pricing/batch-update")
+                        .contentType("application/json")
+                        .content("{\"floorPrice\":200,\"ceilPrice\":100,\"items\":[{\"wbProductId\":1,\"newPrice\":150}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Минимальная цена больше максимальной"));
+
+        verifyNoInteractions(wbProductService, productService);
+    }
+}
@@ -1,7 +1,10 @@
 package com.marketplacehelper.controller;
 
 import com.marketplacehelper.auth.SimpleAuthFilter;
+import com.marketplacehelper.dto.ImportJobDto;
+import com.marketplacehelper.dto.ImportJobStatus;
 import com.marketplacehelper.dto.ProductImportResultDto;
+import com.marketplacehelper.service.ProductImportJobService;
 import com.marketplacehelper.service.ProductImportService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,9 +16,12 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.Optional;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -30,6 +36,9 @@ class ProductImportControllerTest {
     @MockBean
     private ProductImportService productImportService;
 
+    @MockBean
+    private ProductImportJobService productImportJobService;
+
     @Test
     void dryRunReturnsOkAndDoesNotCreate() throws Exception {
         ProductImportResultDto result = new ProductImportResultDto();
@@ -58,6 +67,27 @@ class ProductImportControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.created").value(1));
     }
-}
 
+    @Test
+    void jobSubmitReturnsAcceptedWithJobId() throws Exception {
+        ImportJobDto job = new ImportJobDto();
+        job.setId("job-1");
+        job.setStatus(ImportJobStatus.QUEUED);
+        when(productImportJobService.submit(any(), eq(false))).thenReturn(job);
+
+        MockMultipartFile file = new MockMultipartFile("file", "test.xlsx", MediaType.APPLICATION_OCTET_STREAM_VALUE, new byte[]{1});
 
+        mockMvc.perform(multipart("/api/products/import/jobs").file(file))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void unknownJobReturnsNotFound() throws Exception {
+        when(productImportJobService.getJob("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/products/import/jobs/missing"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,74 @@
+package com.marketplacehelper.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KopecksTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void marginPercentMatchesBigDecimalRounding() {
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal sale = randomMoney(500_000);
+            BigDecimal margin = sale.subtract(randomMoney(800_000));
+            if (sale.signum() <= 0) {
+                continue;
+            }
+            BigDecimal expected = margin.divide(sale, 4, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(100))
+                    .setScale(2, RoundingMode.HALF_UP);
+
+            long actual = Kopecks.ratioHundredths(Kopecks.of(margin), Kopecks.of(sale));
+
+            assertThat(Kopecks.percentToDecimal(actual)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void priceForMarginMatchesBigDecimalRounding() {
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal costs = randomMoney(500_000);
+            BigDecimal targetPercent = BigDecimal.valueOf(random.nextInt(9_000), 2 + random.nextInt(2));
+            BigDecimal target = targetPercent.divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
+            BigDecimal expected = costs.divide(BigDecimal.ONE.subtract(target), 4, RoundingMode.HALF_UP)
+                    .setScale(2, RoundingMode.HALF_UP);
+
+            long actual = Kopecks.priceForMargin(Kopecks.of(costs), Kopecks.percentHundredths(targetPercent));
+
+            assertThat(Kopecks.toRubles(actual)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void percentOfMatchesBigDecimalRounding() {
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal base = randomMoney(500_000);
+            BigDecimal percent = BigDecimal.valueOf(random.nextInt(20_000), random.nextInt(4));
+            BigDecimal expected = base.multiply(percent).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+
+            assertThat(Kopecks.toRubles(Kopecks.percentOf(Kopecks.of(base), percent))).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void divideHalfUpRoundsHalfAwayFromZero() {
+        assertThat(Kopecks.divideHalfUp(5, 2)).isEqualTo(3);
+        assertThat(Kopecks.divideHalfUp(-5, 2)).isEqualTo(-3);
+        assertThat(Kopecks.divideHalfUp(5, -2)).isEqualTo(-3);
+        assertThat(Kopecks.divideHalfUp(7, 3)).isEqualTo(2);
+        assertThat(Kopecks.divideHalfUp(-7, 3)).isEqualTo(-2);
+        assertThat(Kopecks.of(new BigDecimal("10.005"))).isEqualTo(1001);
+        assertThat(Kopecks.of(new BigDecimal("-10.005"))).isEqualTo(-1001);
+    }
+
+    private BigDecimal randomMoney(int maxRubles) {
+        long kopecks = (long) (random.nextDouble() * maxRubles * 100);
+        return BigDecimal.valueOf(kopecks, 2);
+    }
+}
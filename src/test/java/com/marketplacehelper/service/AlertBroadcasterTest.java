@@ -0,0 +1,44 @@
+package com.marketplacehelper.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplacehelper.dto.AlertDto;
+import com.marketplacehelper.dto.AlertStreamStatsDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AlertBroadcasterTest {
+
+    @Test
+    void shouldBuildAlertsOncePerCatalogVersionForAllSubscribers() {
+        AlertService alertService = mock(AlertService.class);
+        when(alertService.buildAlerts()).thenReturn(List.of(new AlertDto()));
+        CatalogChangeTracker changeTracker = new CatalogChangeTracker(mock(ApplicationEventPublisher.class));
+        AlertBroadcaster broadcaster = new AlertBroadcaster(alertService, changeTracker, new ObjectMapper(), 3600);
+        try {
+            for (int i = 0; i < 50; i++) {
+                broadcaster.subscribe();
+            }
+            verify(alertService, times(1)).buildAlerts();
+
+            changeTracker.catalogChanged();
+            broadcaster.subscribe();
+            verify(alertService, times(2)).buildAlerts();
+
+            AlertStreamStatsDto stats = broadcaster.getStats();
+            assertThat(stats.getSubscribers()).isEqualTo(51);
+            assertThat(stats.getBuilds()).isEqualTo(2);
+            assertThat(stats.getAlerts()).isEqualTo(1);
+        } finally {
+            broadcaster.shutdown();
+        }
+        assertThat(broadcaster.getStats().getSubscribers()).isZero();
+    }
+}
@@ -0,0 +1,288 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.AnalyticsRankedItemDto;
+import com.marketplacehelper.dto.AnalyticsRollupDto;
+import com.marketplacehelper.dto.AnalyticsSummaryDto;
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.ProductAnalyticsFilter;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.dto.WhatIfRequest;
+import com.marketplacehelper.dto.WhatIfResultDto;
+import com.marketplacehelper.model.ProductAnalytics;
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.WbProduct;
+import com.marketplacehelper.repository.ProductAnalyticsRepository;
+import com.marketplacehelper.repository.ProductRepository;
+import com.marketplacehelper.repository.WbProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({AnalyticsColumnStore.class, AnalyticsReadModelProjector.class, AnalyticsReadModelService.class,
+        ProductAnalyticsCalculator.class})
+@TestPropertySource(properties = {
+        "app.analytics.min-margin-percent=10",
+        "app.analytics.filter-negative-margin=true"
+})
+class AnalyticsColumnStoreTest {
+
+    @Autowired
+    private AnalyticsColumnStore columnStore;
+
+    @Autowired
+    private AnalyticsReadModelProjector projector;
+
+    @Autowired
+    private AnalyticsReadModelService readModelService;
+
+    @Autowired
+    private ProductAnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WbProductRepository wbProductRepository;
+
+    private Product changed;
+
+    @BeforeEach
+    void setUp() {
+        analyticsRepository.deleteAll();
+        productRepository.deleteAll();
+        wbProductRepository.deleteAll();
+
+        for (int i = 0; i < 12; i++) {
+            long nmId = 500L + i;
+            wbProductRepository.save(wbProduct(nmId, i % 3 == 0 ? "Alpha" : "Beta", i % 2 == 0 ? "Чехлы" : "Сумки", 4 + i));
+            if (i < 10) {
+                Product product = productRepository.save(product("SKU " + i, String.valueOf(nmId), new BigDecimal(550 + i * 50)));
+                if (i == 3) {
+                    changed = product;
+                }
+            }
+        }
+        productRepository.save(product("Local", "local-1", null));
+        productRepository.flush();
+        projector.rebuildAll();
+        columnStore.rebuild();
+    }
+
+    @Test
+    void summaryAndRollupMatchSqlAggregates() {
+        assertThat(columnStore.size()).isEqualTo(analyticsRepository.count());
+        for (ProductAnalyticsFilter filter : filters()) {
+            for (BigDecimal threshold : List.of(BigDecimal.ZERO, new BigDecimal("25.001"), new BigDecimal("40"))) {
+                assertSameSummary(columnStore.summarize(filter, threshold), readModelService.summarize(filter, threshold));
+                for (String groupBy : List.of("brand", "category", "subject")) {
+                    assertSameRollup(columnStore.rollup(groupBy, filter, threshold, 8),
+                            readModelService.rollup(groupBy, filter, threshold, 8));
+                }
+            }
+        }
+    }
+
+    @Test
+    void applyReplacesOnlyChangedRows() {
+        changed.setPurchasePrice(new BigDecimal("1200"));
+        productRepository.saveAndFlush(changed);
+        WbProduct orphan = wbProductRepository.findByNmIdIn(List.of(511L)).get(0);
+        wbProductRepository.delete(orphan);
+        wbProductRepository.flush();
+
+        projector.refresh(Set.of(changed.getId()), Set.of(orphan.getId()), Set.of(), Set.of());
+        columnStore.apply(Set.of(changed.getId()), Set.of(orphan.getId()));
+
+        assertThat(columnStore.size()).isEqualTo(analyticsRepository.count());
+        AnalyticsSummaryDto summary = columnStore.summarize(new ProductAnalyticsFilter(), null);
+        // SKU 8, SKU 9 и SKU 3 с новой закупкой
+        assertThat(summary.getNegativeMarginCount()).isEqualTo(3);
+        assertThat(summary.getWbOnlyCount()).isEqualTo(1);
+        assertSameSummary(summary, readModelService.summarize(new ProductAnalyticsFilter(), null));
+        assertSameRollup(columnStore.rollup("brand", new ProductAnalyticsFilter(), null, null),
+                readModelService.rollup("brand", new ProductAnalyticsFilter(), null, null));
+    }
+
+    @Test
+    void applyKeepsDictionaryBoundedWhenValuesChange() {
+        WbProduct card = wbProductRepository.findByNmIdIn(List.of(503L)).get(0);
+        for (int i = 0; i < 300; i++) {
+            card.setBrand("Brand " + i);
+            wbProductRepository.saveAndFlush(card);
+            projector.refresh(Set.of(changed.getId()), Set.of(card.getId()), Set.of(), Set.of());
+            columnStore.apply(Set.of(changed.getId()), Set.of(card.getId()));
+        }
+
+        // живых значений единицы, а прежние 300 брендов словарь не копит
+        assertThat(columnStore.dictionarySize()).isLessThan(100);
+        assertSameRollup(columnStore.rollup("brand", new ProductAnalyticsFilter(), null, null),
+                readModelService.rollup("brand", new ProductAnalyticsFilter(), null, null));
+        for (ProductAnalyticsFilter filter : filters()) {
+            assertSameSummary(columnStore.summarize(filter, null), readModelService.summarize(filter, null));
+        }
+    }
+
+    @Test
+    void topAndBottomMatchSortedPage() {
+        for (ProductAnalyticsFilter filter : filters()) {
+            for (String direction : List.of("asc", "desc")) {
+                List<AnalyticsRankedItemDto> ranked = columnStore.top(AnalyticsColumnStore.RankMetric.MARGIN,
+                        "desc".equals(direction), 4, filter, null);
+                // товары без маржи в топ не попадают
+                List<ProductAnalyticsDto> page = readModelService.findPage(filter, null, 0, 100, "margin", direction)
+                        .getItems().stream().filter(dto -> dto.getMargin() != null).limit(4).toList();
+                assertThat(ranked).extracting(item -> item.getItem().getProductId())
+                        .containsExactlyElementsOf(page.stream().map(ProductAnalyticsDto::getProductId).toList());
+            }
+        }
+
+        List<AnalyticsRankedItemDto> lowStock = columnStore.top(AnalyticsColumnStore.RankMetric.STOCK, false, 2,
+                new ProductAnalyticsFilter(), null);
+        assertThat(lowStock).extracting(AnalyticsRankedItemDto::getValue)
+                .containsExactly(new BigDecimal("4"), new BigDecimal("5"));
+
+        // при целевой марже 20% рекомендованная цена SKU 9 = (1000 + 40) / 0.8 = 1300, текущая цена 1000
+        List<AnalyticsRankedItemDto> delta = columnStore.top(AnalyticsColumnStore.RankMetric.PRICE_DELTA, true, 1,
+                new ProductAnalyticsFilter(), new BigDecimal("20"));
+        assertThat(delta).singleElement().satisfies(item -> {
+            assertThat(item.getItem().getName()).isEqualTo("SKU 9");
+            assertThat(item.getValue()).isEqualByComparingTo("300");
+        });
+    }
+
+    @Test
+    void readModelTopMatchesColumnStoreTop() {
+        for (AnalyticsColumnStore.RankMetric metric : AnalyticsColumnStore.RankMetric.values()) {
+            for (ProductAnalyticsFilter filter : filters()) {
+                for (boolean highest : List.of(true, false)) {
+                    List<AnalyticsRankedItemDto> expected = columnStore.top(metric, highest, 5, filter, new BigDecimal("20"));
+                    List<AnalyticsRankedItemDto> actual = readModelService.top(metric, highest, 5, filter, new BigDecimal("20"));
+                    assertThat(actual).extracting(item -> item.getItem().getName())
+                            .containsExactlyElementsOf(expected.stream().map(item -> item.getItem().getName()).toList());
+                    assertThat(actual).extracting(AnalyticsRankedItemDto::getValue)
+                            .containsExactlyElementsOf(expected.stream().map(AnalyticsRankedItemDto::getValue).toList());
+                }
+            }
+        }
+    }
+
+    @Test
+    void simulationAppliesScenariosWithoutChangingSnapshot() {
+        WhatIfRequest.Scenario unchanged = new WhatIfRequest.Scenario();
+        WhatIfRequest.Scenario logistics = new WhatIfRequest.Scenario();
+        logistics.setName("Логистика x2");
+        logistics.setLogisticsPercent(new BigDecimal("100"));
+        WhatIfRequest.Scenario discount = new WhatIfRequest.Scenario();
+        discount.setDiscountPoints(new BigDecimal("5"));
+        discount.setMarketingShareOfPrice(new BigDecimal("10"));
+        WhatIfRequest request = new WhatIfRequest();
+        request.setScenarios(List.of(unchanged, logistics, discount));
+        request.setGroupBy("brand");
+
+        AnalyticsSummaryDto before = columnStore.summarize(new ProductAnalyticsFilter(), null);
+        WhatIfResultDto result = columnStore.simulate(request);
+
+        // 10 сопоставленных товаров и Local; у карточек без товара маржи нет
+        BigDecimal marginSum = analyticsRepository.findAll().stream()
+                .map(ProductAnalytics::getMargin).filter(Objects::nonNull).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(result.getBaseline().getPricedCount()).isEqualTo(11);
+        assertThat(result.getBaseline().getMarginSum()).isEqualByComparingTo(marginSum);
+        assertThat(result.getBaseline().getProfitableCount()).isEqualTo(before.getProfitableCount());
+
+        WhatIfResultDto.ScenarioResult same = result.getScenarios().get(0);
+        assertThat(same.getName()).isEqualTo("Сценарий 1");
+        assertThat(same).usingRecursiveComparison().ignoringFields("name")
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(result.getBaseline());
+
+        WhatIfResultDto.ScenarioResult doubled = result.getScenarios().get(1);
+        assertThat(doubled.getMarginSumDelta()).isEqualByComparingTo("-440");
+        assertThat(doubled.getGroups()).extracting(WhatIfResultDto.GroupDelta::getMarginSumDelta)
+                .map(BigDecimal::negate).map(BigDecimal::intValue)
+                .containsExactlyInAnyOrder(160, 240, 40);
+        assertThat(doubled.getProfitableDelta()).isEqualTo(-doubled.getBecameUnprofitable() + doubled.getBecameProfitable());
+
+        // скидка +5 п.п. от цены WB 1000: цена продажи 900.50, маркетинг 90.05 у каждого сопоставленного товара;
+        // Local продаётся по своей цене 1000 без скидки, маркетинг 100
+        WhatIfResultDto.ScenarioResult discounted = result.getScenarios().get(2);
+        assertThat(discounted.getRevenue()).isEqualByComparingTo(
+                result.getBaseline().getRevenue().subtract(new BigDecimal("500")));
+        assertThat(discounted.getMarginSumDelta()).isEqualByComparingTo("-1500.50");
+        assertThat(discounted.getDistribution().stream().mapToLong(WhatIfResultDto.Bucket::getCount).sum())
+                .isEqualTo(11L);
+
+        assertSameSummary(columnStore.summarize(new ProductAnalyticsFilter(), null), before);
+
+        WhatIfRequest.Scenario conflicting = new WhatIfRequest.Scenario();
+        conflicting.setMarketingPercent(BigDecimal.ONE);
+        conflicting.setMarketingShareOfPrice(BigDecimal.TEN);
+        request.setScenarios(List.of(conflicting));
+        assertThatThrownBy(() -> columnStore.simulate(request)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<ProductAnalyticsFilter> filters() {
+        ProductAnalyticsFilter merged = new ProductAnalyticsFilter();
+        merged.setDataSources(List.of(ProductDataSource.MERGED));
+        ProductAnalyticsFilter brand = new ProductAnalyticsFilter();
+        brand.setBrand(" alpha ");
+        ProductAnalyticsFilter subject = new ProductAnalyticsFilter();
+        subject.setSubject("сумки");
+        subject.setProfitable(false);
+        ProductAnalyticsFilter search = new ProductAnalyticsFilter();
+        search.setSearch("sku");
+        search.setMarginBelowThreshold(true);
+        ProductAnalyticsFilter flags = new ProductAnalyticsFilter();
+        flags.setRequiresCorrection(true);
+        flags.setNegativeMargin(false);
+        return List.of(new ProductAnalyticsFilter(), merged, brand, subject, search, flags);
+    }
+
+    private void assertSameSummary(AnalyticsSummaryDto actual, AnalyticsSummaryDto expected) {
+        assertThat(actual).usingRecursiveComparison().withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(expected);
+    }
+
+    private void assertSameRollup(List<AnalyticsRollupDto> actual, List<AnalyticsRollupDto> expected) {
+        assertThat(actual).usingRecursiveFieldByFieldElementComparator()
+                .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    private WbProduct wbProduct(long nmId, String brand, String subject, int stock) {
+        WbProduct wbProduct = new WbProduct();
+        wbProduct.setNmId(nmId);
+        wbProduct.setVendorCode("VN-" + nmId);
+        wbProduct.setName("Card " + nmId);
+        wbProduct.setBrand(brand);
+        wbProduct.setSubject(subject);
+        wbProduct.setPrice(new BigDecimal("1000"));
+        wbProduct.setPriceWithDiscount(new BigDecimal("950.50"));
+        wbProduct.setTotalQuantity(stock);
+        return wbProduct;
+    }
+
+    private Product product(String name, String wbArticle, BigDecimal purchasePrice) {
+        Product product = new Product();
+        product.setName(name);
+        product.setWbArticle(wbArticle);
+        product.setPrice(new BigDecimal("1000"));
+        product.setPurchasePrice(purchasePrice);
+        product.setLogisticsCost(new BigDecimal("40"));
+        product.setMarketingCost(BigDecimal.ZERO);
+        product.setOtherExpenses(BigDecimal.ZERO);
+        product.setStockQuantity(5);
+        return product;
+    }
+}
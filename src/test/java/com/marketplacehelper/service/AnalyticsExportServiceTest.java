@@ -0,0 +1,124 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.WbProduct;
+import com.marketplacehelper.repository.ProductAnalyticsRepository;
+import com.marketplacehelper.repository.ProductRepository;
+import com.marketplacehelper.repository.WbProductRepository;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({AnalyticsExportService.class, AnalyticsReadModelProjector.class, AnalyticsReadModelService.class,
+        AnalyticsService.class, AnalyticsReportCache.class, CatalogChangeTracker.class, ProductAnalyticsCalculator.class})
+@TestPropertySource(properties = {
+        "app.analytics.min-margin-percent=10",
+        "app.analytics.filter-negative-margin=true"
+})
+class AnalyticsExportServiceTest {
+
+    @Autowired
+    private AnalyticsExportService exportService;
+
+    @Autowired
+    private AnalyticsReadModelProjector projector;
+
+    @Autowired
+    private ProductAnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WbProductRepository wbProductRepository;
+
+    @BeforeEach
+    void setUp() {
+        analyticsRepository.deleteAll();
+        productRepository.deleteAll();
+        wbProductRepository.deleteAll();
+
+        wbProductRepository.save(wbProduct(186961443L, "ch5_bl"));
+        wbProductRepository.save(wbProduct(200000001L, "orphan"));
+        productRepository.save(product("Чехол; чёрный", "186961443", new BigDecimal("950")));
+        productRepository.flush();
+        projector.rebuildAll();
+    }
+
+    @Test
+    void csvContainsProfitableRowsOnly() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportProfitableProducts(out, AnalyticsExportService.Format.CSV, true, null);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("Артикул;Название;Источник;Маржа");
+        assertThat(lines[1]).isEqualTo(
+                "186961443;\"Чехол; чёрный\";WB + Excel;322.26;19.04;2059.55;1692.26;950.00;210.00;130.00;80.00;12;76");
+    }
+
+    @Test
+    void xlsxHasHeaderAndNumericCells() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportProfitableProducts(out, AnalyticsExportService.Format.XLSX, true, null);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertThat(sheet.getLastRowNum()).isEqualTo(1);
+            assertThat(sheet.getRow(0).getCell(0).getStringCellValue()).isEqualTo("Артикул");
+            assertThat(sheet.getRow(1).getCell(1).getStringCellValue()).isEqualTo("Чехол; чёрный");
+            assertThat(sheet.getRow(1).getCell(3).getNumericCellValue()).isEqualTo(322.26);
+        }
+    }
+
+    @Test
+    void validationReportListsIssuesPerProduct() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportValidationReport(out, AnalyticsExportService.Format.CSV, true, null);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).isEqualTo("ID товара;Артикул;Название;Требует исправления;Блокирующие;Проблемы");
+        assertThat(lines).anySatisfy(line -> assertThat(line)
+                .contains("200000001")
+                .contains(";Да;")
+                .contains("excelData: Нет корпоративных данных"));
+    }
+
+    private WbProduct wbProduct(long nmId, String vendorCode) {
+        WbProduct wbProduct = new WbProduct();
+        wbProduct.setNmId(nmId);
+        wbProduct.setVendorCode(vendorCode);
+        wbProduct.setName("Card " + nmId);
+        wbProduct.setPrice(new BigDecimal("2059.55"));
+        wbProduct.setPriceWithDiscount(new BigDecimal("1692.26"));
+        wbProduct.setTotalQuantity(76);
+        return wbProduct;
+    }
+
+    private Product product(String name, String wbArticle, BigDecimal purchasePrice) {
+        Product product = new Product();
+        product.setName(name);
+        product.setWbArticle(wbArticle);
+        product.setPrice(new BigDecimal("2059.55"));
+        product.setPurchasePrice(purchasePrice);
+        product.setLogisticsCost(new BigDecimal("210"));
+        product.setMarketingCost(new BigDecimal("130"));
+        product.setOtherExpenses(new BigDecimal("80"));
+        product.setStockQuantity(12);
+        return product;
+    }
+}
@@ -0,0 +1,192 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.AnalyticsReportDto;
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.dto.WbMatchMethod;
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.ProductAnalytics;
+import com.marketplacehelper.model.WbProduct;
+import com.marketplacehelper.repository.ProductAnalyticsRepository;
+import com.marketplacehelper.repository.ProductRepository;
+import com.marketplacehelper.repository.WbProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({AnalyticsReadModelProjector.class, AnalyticsReadModelService.class, ProductAnalyticsCalculator.class})
+@TestPropertySource(properties = {
+        "app.analytics.min-margin-percent=10",
+        "app.analytics.filter-negative-margin=true"
+})
+class AnalyticsReadModelProjectorTest {
+
+    @Autowired
+    private AnalyticsReadModelProjector projector;
+
+    @Autowired
+    private AnalyticsReadModelService readModelService;
+
+    @Autowired
+    private ProductAnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WbProductRepository wbProductRepository;
+
+    @BeforeEach
+    void cleanUp() {
+        analyticsRepository.deleteAll();
+        productRepository.deleteAll();
+        wbProductRepository.deleteAll();
+    }
+
+    @Test
+    void rebuildMatchesByNmIdAndVendorCode() {
+        wbProductRepository.saveAndFlush(buildWbProduct(186961443L, "ch5_bl"));
+        wbProductRepository.saveAndFlush(buildWbProduct(200000001L, "NET-01"));
+        wbProductRepository.saveAndFlush(buildWbProduct(300000001L, "orphan"));
+        productRepository.saveAndFlush(buildProduct("00186961443"));
+        productRepository.saveAndFlush(buildProduct(" net-01 "));
+        productRepository.saveAndFlush(buildProduct("local-only"));
+
+        projector.rebuildAll();
+
+        AnalyticsReportDto report = readModelService.buildProductAnalyticsReport(true, null, true);
+        assertThat(report.getAllItems()).hasSize(4);
+        assertThat(report.getAllItems())
+                .extracting(ProductAnalyticsDto::getDataSource)
+                .containsExactlyInAnyOrder(ProductDataSource.MERGED, ProductDataSource.MERGED,
+                        ProductDataSource.LOCAL_ONLY, ProductDataSource.WB_ONLY);
+        assertThat(report.getProfitable()).hasSize(3);
+        assertThat(report.getAllItems().get(0).getDataSource()).isEqualTo(ProductDataSource.MERGED);
+        assertThat(report.getAllItems().get(0).getWarnings()).isEmpty();
+
+        AnalyticsReportDto mergedOnly = readModelService.buildProductAnalyticsReport(false, null, true);
+        assertThat(mergedOnly.getAllItems()).hasSize(2);
+        assertThat(mergedOnly.getAllItems())
+                .extracting(ProductAnalyticsDto::getMatchMethod)
+                .containsExactlyInAnyOrder(WbMatchMethod.NM_ID, WbMatchMethod.VENDOR_CODE);
+        assertThat(analyticsRepository.findAll())
+                .filteredOn(row -> row.getDataSource() != ProductDataSource.MERGED)
+                .extracting(ProductAnalytics::getMatchMethod)
+                .containsOnlyNulls();
+    }
+
+    @Test
+    void refreshRecalculatesOnlyChangedProduct() {
+        WbProduct wbProduct = wbProductRepository.saveAndFlush(buildWbProduct(186961443L, "ch5_bl"));
+        Product product = productRepository.saveAndFlush(buildProduct("186961443"));
+        projector.rebuildAll();
+
+        product.setPurchasePrice(new BigDecimal("1500"));
+        productRepository.saveAndFlush(product);
+        projector.refresh(Set.of(product.getId()), Set.of(), Set.of(), Set.of(186961443L));
+
+        List<ProductAnalytics> rows = analyticsRepository.findByProductIdIn(List.of(product.getId()));
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).getWbProductId()).isEqualTo(wbProduct.getId());
+        assertThat(rows.get(0).getMargin()).isEqualByComparingTo("-227.74");
+        assertThat(rows.get(0).isNegativeMargin()).isTrue();
+
+        AnalyticsReportDto report = readModelService.buildProductAnalyticsReport(true, null, true);
+        assertThat(report.getProfitable()).isEmpty();
+        assertThat(report.getRequiresAttention()).hasSize(1);
+    }
+
+    @Test
+    void refreshUpdatesExistingRowsInPlace() {
+        WbProduct orphan = wbProductRepository.saveAndFlush(buildWbProduct(300000001L, "orphan"));
+        Product product = productRepository.saveAndFlush(buildProduct("local-only"));
+        projector.rebuildAll();
+        Long productRowId = analyticsRepository.findByProductIdIn(List.of(product.getId())).get(0).getId();
+
+        product.setPurchasePrice(new BigDecimal("1000"));
+        productRepository.saveAndFlush(product);
+        projector.refresh(Set.of(product.getId()), Set.of(orphan.getId()), Set.of(), Set.of());
+        projector.refresh(Set.of(product.getId()), Set.of(orphan.getId()), Set.of(), Set.of());
+
+        assertThat(analyticsRepository.findAll()).hasSize(2);
+        List<ProductAnalytics> productRows = analyticsRepository.findByProductIdIn(List.of(product.getId()));
+        assertThat(productRows).singleElement()
+                .satisfies(row -> {
+                    assertThat(row.getId()).isEqualTo(productRowId);
+                    assertThat(row.getPurchasePrice()).isEqualByComparingTo("1000");
+                });
+        assertThat(analyticsRepository.findByWbOnlyProductIdIn(List.of(orphan.getId()))).hasSize(1);
+    }
+
+    @Test
+    void deletedProductLeavesWildberriesCardAsWbOnly() {
+        WbProduct wbProduct = wbProductRepository.saveAndFlush(buildWbProduct(186961443L, "ch5_bl"));
+        Product product = productRepository.saveAndFlush(buildProduct("186961443"));
+        projector.rebuildAll();
+        assertThat(analyticsRepository.count()).isEqualTo(1);
+
+        Long productId = product.getId();
+        productRepository.delete(product);
+        productRepository.flush();
+        projector.refresh(Set.of(productId), Set.of(), Set.of("186961443"), Set.of(186961443L));
+
+        List<ProductAnalytics> rows = analyticsRepository.findAll();
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).getProductId()).isNull();
+        assertThat(rows.get(0).getWbProductId()).isEqualTo(wbProduct.getId());
+        assertThat(rows.get(0).getDataSource()).isEqualTo(ProductDataSource.WB_ONLY);
+    }
+
+    @Test
+    void newWildberriesCardReplacesLocalOnlyRow() {
+        Product product = productRepository.saveAndFlush(buildProduct("NET-01"));
+        projector.rebuildAll();
+        assertThat(analyticsRepository.findAll())
+                .extracting(ProductAnalytics::getDataSource)
+                .containsExactly(ProductDataSource.LOCAL_ONLY);
+
+        WbProduct wbProduct = wbProductRepository.saveAndFlush(buildWbProduct(200000001L, "net-01"));
+        projector.refresh(Set.of(), Set.of(wbProduct.getId()), Set.of(), Set.of());
+
+        List<ProductAnalytics> rows = analyticsRepository.findAll();
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).getProductId()).isEqualTo(product.getId());
+        assertThat(rows.get(0).getDataSource()).isEqualTo(ProductDataSource.MERGED);
+    }
+
+    private WbProduct buildWbProduct(Long nmId, String vendorCode) {
+        WbProduct wbProduct = new WbProduct();
+        wbProduct.setNmId(nmId);
+        wbProduct.setName("Чехол для рыболовного подсака");
+        wbProduct.setVendorCode(vendorCode);
+        wbProduct.setBrand("FISHING BAND");
+        wbProduct.setSubject("Чехлы");
+        wbProduct.setPrice(new BigDecimal("2059.55"));
+        wbProduct.setPriceWithDiscount(new BigDecimal("1692.26"));
+        wbProduct.setTotalQuantity(76);
+        return wbProduct;
+    }
+
+    private Product buildProduct(String wbArticle) {
+        Product product = new Product();
+        product.setName("Чехол " + wbArticle.trim());
+        product.setWbArticle(wbArticle);
+        product.setPrice(new BigDecimal("2059.55"));
+        product.setPurchasePrice(new BigDecimal("950"));
+        product.setLogisticsCost(new BigDecimal("210"));
+        product.setMarketingCost(new BigDecimal("130"));
+        product.setOtherExpenses(new BigDecimal("80"));
+        product.setStockQuantity(12);
+        return product;
+    }
+}
@@ -0,0 +1,189 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.AnalyticsRollupDto;
+import com.marketplacehelper.dto.AnalyticsSummaryDto;
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.ProductAnalyticsFilter;
+import com.marketplacehelper.dto.ProductAnalyticsPageDto;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.WbProduct;
+import com.marketplacehelper.repository.ProductAnalyticsRepository;
+import com.marketplacehelper.repository.ProductRepository;
+import com.marketplacehelper.repository.WbProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({AnalyticsReadModelProjector.class, AnalyticsReadModelService.class, ProductAnalyticsCalculator.class,
+        AnalyticsService.class, AnalyticsReportCache.class, CatalogChangeTracker.class})
+@TestPropertySource(properties = {
+        "app.analytics.min-margin-percent=10",
+        "app.analytics.filter-negative-margin=true"
+})
+class AnalyticsReadModelServiceTest {
+
+    @Autowired
+    private AnalyticsReadModelProjector projector;
+
+    @Autowired
+    private AnalyticsReadModelService readModelService;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private ProductAnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WbProductRepository wbProductRepository;
+
+    @BeforeEach
+    void setUp() {
+        analyticsRepository.deleteAll();
+        productRepository.deleteAll();
+        wbProductRepository.deleteAll();
+
+        // 5 MERGED с маржой 1000 - 600 - i*120, 1 LOCAL_ONLY и 1 WB_ONLY
+        for (int i = 0; i < 5; i++) {
+            long nmId = 100L + i;
+            wbProductRepository.save(wbProduct(nmId, i % 2 == 0 ? "Alpha" : "Beta", 10 + i));
+            productRepository.save(product("SKU " + i, String.valueOf(nmId), new BigDecimal(600 + i * 120)));
+        }
+        productRepository.save(product("Local", "local-1", new BigDecimal("100")));
+        wbProductRepository.save(wbProduct(999L, "Alpha", 3));
+        productRepository.flush();
+        projector.rebuildAll();
+    }
+
+    @Test
+    void returnsRequestedPageOnly() {
+        ProductAnalyticsPageDto first = readModelService.findPage(new ProductAnalyticsFilter(), null, 0, 3, "margin", "desc");
+        ProductAnalyticsPageDto second = readModelService.findPage(new ProductAnalyticsFilter(), null, 1, 3, "margin", "desc");
+
+        assertThat(first.getTotalElements()).isEqualTo(7);
+        assertThat(first.getTotalPages()).isEqualTo(3);
+        assertThat(first.getItems()).hasSize(3);
+        assertThat(first.getItems()).extracting(ProductAnalyticsDto::getMargin)
+                .containsExactly(new BigDecimal("900.00"), new BigDecimal("400.00"), new BigDecimal("280.00"));
+        assertThat(second.getItems()).extracting(ProductAnalyticsDto::getName)
+                .doesNotContainAnyElementsOf(first.getItems().stream().map(ProductAnalyticsDto::getName).toList());
+    }
+
+    @Test
+    void filtersByDataSourceBrandAndFlags() {
+        ProductAnalyticsFilter filter = new ProductAnalyticsFilter();
+        filter.setDataSources(List.of(ProductDataSource.MERGED));
+        filter.setBrand("alpha");
+        ProductAnalyticsPageDto alpha = readModelService.findPage(filter, null, 0, 50, "stock", "asc");
+        assertThat(alpha.getItems()).extracting(ProductAnalyticsDto::getWbStock).containsExactly(10, 12, 14);
+
+        ProductAnalyticsFilter profitable = new ProductAnalyticsFilter();
+        profitable.setProfitable(true);
+        profitable.setDataSources(List.of(ProductDataSource.MERGED));
+        ProductAnalyticsPageDto page = readModelService.findPage(profitable, new BigDecimal("25"), 0, 50, "name", null);
+        assertThat(page.getItems()).extracting(ProductAnalyticsDto::getName).containsExactly("SKU 0", "SKU 1");
+        assertThat(page.getItems()).allMatch(ProductAnalyticsDto::isProfitable);
+    }
+
+    @Test
+    void summaryCountsMatchFlags() {
+        AnalyticsSummaryDto summary = readModelService.summarize(new ProductAnalyticsFilter(), new BigDecimal("25"));
+
+        assertThat(summary.getTotalProducts()).isEqualTo(7);
+        assertThat(summary.getMergedCount()).isEqualTo(5);
+        assertThat(summary.getLocalOnlyCount()).isEqualTo(1);
+        assertThat(summary.getWbOnlyCount()).isEqualTo(1);
+        // прибыльные: SKU 0, SKU 1 и LOCAL_ONLY с маржой 90%
+        assertThat(summary.getProfitableCount()).isEqualTo(3);
+        // всё, кроме прибыльных MERGED
+        assertThat(summary.getRequiresAttentionCount()).isEqualTo(5);
+        assertThat(summary.getNegativeMarginCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rollupAggregatesPerBrand() {
+        List<AnalyticsRollupDto> groups = readModelService.rollup("brand", new ProductAnalyticsFilter(), null, null);
+
+        assertThat(groups).extracting(AnalyticsRollupDto::getGroup).containsExactly("Alpha", "Beta", null);
+        AnalyticsRollupDto alpha = groups.get(0);
+        // SKU 0, 2, 4 и карточка без закупки, по которой маржа не считается
+        assertThat(alpha.getCount()).isEqualTo(4);
+        assertThat(alpha.getPricedCount()).isEqualTo(3);
+        assertThat(alpha.getRevenue()).isEqualByComparingTo("3000");
+        assertThat(alpha.getMarginSum()).isEqualByComparingTo("480");
+        assertThat(alpha.getTotalCost()).isEqualByComparingTo("2520");
+        assertThat(alpha.getWeightedMarginPercent()).isEqualByComparingTo("16");
+        assertThat(alpha.getTotalStock()).isEqualTo(39);
+        assertThat(alpha.getLowStockCount()).isEqualTo(1);
+
+        ProductAnalyticsFilter merged = new ProductAnalyticsFilter();
+        merged.setDataSources(List.of(ProductDataSource.MERGED));
+        assertThat(readModelService.rollup("category", merged, null, 15))
+                .singleElement()
+                .satisfies(group -> {
+                    assertThat(group.getCount()).isEqualTo(5);
+                    assertThat(group.getLowStockCount()).isEqualTo(5);
+                });
+    }
+
+    @Test
+    void reportOrderMatchesInMemoryReportWithUnpricedItems() {
+        wbProductRepository.save(wbProduct(998L, "Beta", 7));
+        productRepository.save(product("No cost", "local-2", null));
+        productRepository.flush();
+        projector.rebuildAll();
+
+        List<ProductAnalyticsDto> fromReadModel = readModelService
+                .buildProductAnalyticsReport(true, new BigDecimal("25"), true).getAllItems();
+        List<ProductAnalyticsDto> inMemory = analyticsService
+                .buildProductAnalyticsReport(true, new BigDecimal("25"), true).getAllItems();
+
+        assertThat(fromReadModel).extracting(ProductAnalyticsDto::getMargin).contains((BigDecimal) null);
+        assertThat(fromReadModel).extracting(ProductAnalyticsDto::getName)
+                .containsExactlyElementsOf(inMemory.stream().map(ProductAnalyticsDto::getName).toList());
+    }
+
+    @Test
+    void rejectsUnknownSortKey() {
+        assertThatThrownBy(() -> readModelService.findPage(new ProductAnalyticsFilter(), null, 0, 10, "price", null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private WbProduct wbProduct(long nmId, String brand, int stock) {
+        WbProduct wbProduct = new WbProduct();
+        wbProduct.setNmId(nmId);
+        wbProduct.setVendorCode("VN-" + nmId);
+        wbProduct.setName("Card " + nmId);
+        wbProduct.setBrand(brand);
+        wbProduct.setPrice(new BigDecimal("1000"));
+        wbProduct.setTotalQuantity(stock);
+        return wbProduct;
+    }
+
+    private Product product(String name, String wbArticle, BigDecimal purchasePrice) {
+        Product product = new Product();
+        product.setName(name);
+        product.setWbArticle(wbArticle);
+        product.setPrice(new BigDecimal("1000"));
+        product.setPurchasePrice(purchasePrice);
+        product.setLogisticsCost(BigDecimal.ZERO);
+        product.setMarketingCost(BigDecimal.ZERO);
+        product.setOtherExpenses(BigDecimal.ZERO);
+        product.setStockQuantity(5);
+        return product;
+    }
+}
@@ -0,0 +1,138 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.AnalyticsReportDto;
+import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.model.WbProduct;
+import com.marketplacehelper.repository.AnalyticsSourceRow;
+import com.marketplacehelper.repository.ProductRepository;
+import com.marketplacehelper.repository.WbProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@DataJpaTest
+@Import({AnalyticsService.class, AnalyticsReportCache.class, CatalogChangeTracker.class, ProductAnalyticsCalculator.class})
+@TestPropertySource(properties = {
+        "app.analytics.min-margin-percent=10",
+        "app.analytics.parallel.enabled=true",
+        "app.analytics.parallel.pool-size=4",
+        "app.analytics.parallel.threshold=1"
+})
+class AnalyticsServiceParallelTest {
+
+    @Autowired
+    private AnalyticsService parallelService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WbProductRepository wbProductRepository;
+
+    @SpyBean
+    private ProductAnalyticsCalculator calculator;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        wbProductRepository.deleteAll();
+
+        for (int i = 0; i < 300; i++) {
+            long nmId = 1000L + i;
+            wbProductRepository.save(wbProduct(nmId, "VC-" + i));
+            if (i % 3 == 0) {
+                productRepository.save(product("SKU " + i, String.valueOf(nmId), new BigDecimal(300 + i * 3)));
+            } else if (i % 3 == 1) {
+                productRepository.save(product("SKU " + i, "vc-" + i, new BigDecimal(300 + i * 3)));
+            }
+        }
+        productRepository.save(product("Local", "local-1", new BigDecimal("100")));
+        productRepository.flush();
+    }
+
+    @Test
+    void parallelReportEqualsSequential() {
+        AnalyticsService sequentialService = new AnalyticsService(productRepository, wbProductRepository,
+                new AnalyticsReportCache(new CatalogChangeTracker(event -> { }), 1), calculator,
+                new BigDecimal("10"), false, 0, 1);
+
+        AnalyticsReportDto parallel = parallelService.buildProductAnalyticsReport(true, null, true);
+        AnalyticsReportDto sequential = sequentialService.buildProductAnalyticsReport(true, null, true);
+
+        assertThat(parallel.getTotalProducts()).isEqualTo(301);
+        assertThat(keys(parallel.getAllItems())).containsExactlyElementsOf(keys(sequential.getAllItems()));
+        assertThat(keys(parallel.getRequiresAttention())).containsExactlyElementsOf(keys(sequential.getRequiresAttention()));
+        assertThat(parallel.getAllItems())
+                .filteredOn(dto -> dto.getDataSource() == ProductDataSource.WB_ONLY)
+                .hasSize(100);
+    }
+
+    @Test
+    void parallelReportComputesRowsOnPoolWithSameValues() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return invocation.callRealMethod();
+        }).when(calculator).toDto(any(AnalyticsSourceRow.class), any());
+        AnalyticsService sequentialService = new AnalyticsService(productRepository, wbProductRepository,
+                new AnalyticsReportCache(new CatalogChangeTracker(event -> { }), 1), calculator,
+                new BigDecimal("10"), false, 0, 1);
+
+        AnalyticsReportDto parallel = parallelService.buildProductAnalyticsReport(true, null, true);
+
+        // строки считаются в потоках пула, а не в потоке, читающем курсор
+        assertThat(threads).isNotEmpty().allMatch(name -> name.startsWith("analytics-"));
+
+        threads.clear();
+        AnalyticsReportDto sequential = sequentialService.buildProductAnalyticsReport(true, null, true);
+
+        assertThat(threads).containsOnly(Thread.currentThread().getName());
+        assertThat(parallel.getAllItems())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(sequential.getAllItems());
+    }
+
+    private List<String> keys(List<ProductAnalyticsDto> items) {
+        return items.stream()
+                .map(dto -> dto.getDataSource() + ":" + dto.getProductId() + ":" + dto.getWbProductId() + ":" + dto.getMargin())
+                .toList();
+    }
+
+    private WbProduct wbProduct(long nmId, String vendorCode) {
+        WbProduct wbProduct = new WbProduct();
+        wbProduct.setNmId(nmId);
+        wbProduct.setVendorCode(vendorCode);
+        wbProduct.setName("Card " + nmId);
+        wbProduct.setPrice(new BigDecimal("1000"));
+        wbProduct.setTotalQuantity(10);
+        return wbProduct;
+    }
+
+    private Product product(String name, String wbArticle, BigDecimal purchasePrice) {
+        Product product = new Product();
+        product.setName(name);
+        product.setWbArticle(wbArticle);
+        product.setPrice(new BigDecimal("1000"));
+        product.setPurchasePrice(purchasePrice);
+        product.setLogisticsCost(BigDecimal.ZERO);
+        product.setMarketingCost(BigDecimal.ZERO);
+        product.setOtherExpenses(BigDecimal.ZERO);
+        product.setStockQuantity(5);
+        return product;
+    }
+}
@@ -1,8 +1,10 @@
 package com.marketplacehelper.service;
 
+import com.marketplacehelper.dto.AnalyticsCacheStatsDto;
 import com.marketplacehelper.dto.AnalyticsReportDto;
 import com.marketplacehelper.dto.ProductAnalyticsDto;
 import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.dto.ProductIssue;
 import com.marketplacehelper.model.Product;
 import com.marketplacehelper.model.WbProduct;
 import com.marketplacehelper.repository.ProductRepository;
@@ -20,7 +22,7 @@ import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
-@Import(AnalyticsService.class)
+@Import({AnalyticsService.class, AnalyticsReportCache.class, CatalogChangeTracker.class, ProductAnalyticsCalculator.class})
 @TestPropertySource(properties = {
         "app.analytics.min-margin-percent=10",
         "app.analytics.filter-negative-margin=true"
@@ -89,6 +91,93 @@ class AnalyticsServiceTest {
         assertThat(report.getRequiresAttention()).isEmpty();
     }
 
+    @Test
+    void shouldRenderIssuesFromBitmaskWithAppliedThreshold() {
+        wbProductRepository.saveAndFlush(buildFishingCover());
+        productRepository.saveAndFlush(buildExcelProduct());
+
+        ProductAnalyticsDto dto = analyticsService.buildProductAnalyticsReport(true, new BigDecimal("95.5"), true)
+                .getAllItems().get(0);
+        assertThat(dto.getIssueCodes()).containsExactly(ProductIssue.MARGIN_BELOW_THRESHOLD);
+        assertThat(dto.getWarnings()).containsExactly("Маржа ниже порога 95.5%.");
+        // в отчёт о полноте данных пороговые проблемы не попадают
+        assertThat(analyticsService.toValidation(dto).getIssues()).isEmpty();
+    }
+
+    @Test
+    void shouldServeCachedReportUntilCatalogChanges() {
+        wbProductRepository.saveAndFlush(buildFishingCover());
+
+        AnalyticsReportDto first = analyticsService.buildProductAnalyticsReport(true, new BigDecimal("15"), true);
+        AnalyticsReportDto second = analyticsService.buildProductAnalyticsReport(true, new BigDecimal("15.00"), true);
+        assertThat(second.getAllItems().get(0)).isSameAs(first.getAllItems().get(0));
+
+        productRepository.saveAndFlush(buildExcelProduct());
+
+        AnalyticsReportDto afterWrite = analyticsService.buildProductAnalyticsReport(true, new BigDecimal("15"), true);
+        assertThat(afterWrite.getAllItems()).hasSize(1);
+        assertThat(afterWrite.getAllItems().get(0).getDataSource()).isEqualTo(ProductDataSource.MERGED);
+
+        AnalyticsCacheStatsDto stats = analyticsService.getCacheStats();
+        assertThat(stats.getHits()).isGreaterThanOrEqualTo(1);
+        assertThat(stats.getRebuilds()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void shouldPreferNmIdMatchOverVendorCodeAndKeepUnmatchedRows() {
+        // карточка с артикулом поставщика «100» создана раньше, но совпадение по nmId важнее
+        WbProduct byVendorCode = wbProductRepository.saveAndFlush(wbCard(200L, "100"));
+        WbProduct byNmId = wbProductRepository.saveAndFlush(wbCard(100L, "A-1"));
+        WbProduct onlyVendorCode = wbProductRepository.saveAndFlush(wbCard(300L, "B-2"));
+        WbProduct wbOnly = wbProductRepository.saveAndFlush(wbCard(400L, "C-3"));
+        Product numeric = productRepository.saveAndFlush(localProduct("100"));
+        Product vendorCoded = productRepository.saveAndFlush(localProduct("b-2"));
+        Product unmatched = productRepository.saveAndFlush(localProduct("Z-9"));
+
+        List<ProductAnalyticsDto> items = analyticsService.buildProductAnalyticsReport(true, null, true).getAllItems();
+
+        assertThat(items).filteredOn(item -> numeric.getId().equals(item.getProductId()))
+                .singleElement()
+                .satisfies(item -> assertThat(item.getWbProductId()).isEqualTo(byNmId.getId()));
+        assertThat(items).filteredOn(item -> vendorCoded.getId().equals(item.getProductId()))
+                .singleElement()
+                .satisfies(item -> assertThat(item.getWbProductId()).isEqualTo(onlyVendorCode.getId()));
+        assertThat(items).filteredOn(item -> unmatched.getId().equals(item.getProductId()))
+                .singleElement()
+                .satisfies(item -> {
+                    assertThat(item.getWbProductId()).isNull();
+                    assertThat(item.getDataSource()).isEqualTo(ProductDataSource.LOCAL_ONLY);
+                });
+        assertThat(items).filteredOn(item -> wbOnly.getId().equals(item.getWbProductId()))
+                .singleElement()
+                .satisfies(item -> assertThat(item.getDataSource()).isEqualTo(ProductDataSource.WB_ONLY));
+        assertThat(items).noneMatch(item -> byVendorCode.getId().equals(item.getWbProductId())
+                && item.getProductId() != null);
+
+        List<ProductAnalyticsDto> matchedOnly = analyticsService.buildProductAnalyticsReport(false, null, true)
+                .getAllItems();
+        assertThat(matchedOnly).extracting(ProductAnalyticsDto::getProductId)
+                .containsExactlyInAnyOrder(numeric.getId(), vendorCoded.getId());
+    }
+
+    private WbProduct wbCard(long nmId, String vendorCode) {
+        WbProduct wbProduct = new WbProduct();
+        wbProduct.setNmId(nmId);
+        wbProduct.setName("Карточка " + nmId);
+        wbProduct.setVendorCode(vendorCode);
+        wbProduct.setPrice(new BigDecimal("1000"));
+        wbProduct.setPriceWithDiscount(new BigDecimal("900"));
+        return wbProduct;
+    }
+
+    private Product localProduct(String wbArticle) {
+        Product product = new Product();
+        product.setName("Товар " + wbArticle);
+        product.setWbArticle(wbArticle);
+        product.setPrice(new BigDecimal("1000"));
+        return product;
+    }
+
     private WbProduct buildFishingCover() {
         WbProduct wbProduct = new WbProduct();
         wbProduct.setNmId(186961443L);
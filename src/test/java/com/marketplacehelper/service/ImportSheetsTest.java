@@ -0,0 +1,141 @@
+package com.marketplacehelper.service;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImportSheetsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReadTextUploadWithoutExtensionAsCsv() throws Exception {
+        File upload = write("product-import-1.upload",
+                "Артикул WB;Цена\n186961443;2059,55\n".getBytes(StandardCharsets.UTF_8));
+
+        List<String> cells = new ArrayList<>();
+        ImportSheets.read(upload, row -> cells.add(row.text(0) + "|" + row.text(1)));
+
+        assertThat(cells).containsExactly("Артикул WB|Цена", "186961443|2059,55");
+    }
+
+    @Test
+    void shouldRejectBinaryAndNonSpreadsheetFiles() throws Exception {
+        byte[] binary = new byte[4096];
+        for (int i = 0; i < binary.length; i++) {
+            binary[i] = (byte) (i * 31);
+        }
+        File archive = write("product-import-2.upload", binary);
+        File pdf = write("report.upload", "%PDF-1.7\n1 0 obj\n".getBytes(StandardCharsets.US_ASCII));
+
+        assertThatThrownBy(() -> ImportSheets.read(archive, row -> { }))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Неподдерживаемый формат файла");
+        assertThatThrownBy(() -> ImportSheets.read(pdf, row -> { }))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Неподдерживаемый формат файла");
+    }
+
+    @Test
+    void shouldTrustCsvExtensionForTextWithControlCharacters() throws Exception {
+        byte[] content = "a;b\n\u0001\u0002\u0003;1\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> ImportSheets.read(write("costs.upload", content), row -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        List<Integer> rows = new ArrayList<>();
+        ImportSheets.read(write("costs.csv", content), row -> rows.add(row.rowNumber()));
+        assertThat(rows).containsExactly(1, 2);
+    }
+
+    @Test
+    void shouldReadIsoDateCellsAsExcelDates() throws Exception {
+        File file = write("sales.upload", excelWithIsoDates());
+
+        List<ImportRow> rows = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        List<Double> numbers = new ArrayList<>();
+        ImportSheets.read(file, row -> {
+            rows.add(row);
+            texts.add(row.text(1));
+            numbers.add(row.number(1));
+        });
+
+        assertThat(rows).hasSize(4);
+        assertThat(texts).containsExactly("Дата продажи", "05.03.2024", "06.03.2024", "не дата");
+        // 05.03.2024 — 45356-й день в системе дат Excel 1900, 10:30 — 0.4375 суток
+        assertThat(numbers).containsExactly(null, 45356.0, 45357.4375, null);
+    }
+
+    /**
+     * Книга с датами в ячейках {@code t="d"}: POI пишет даты числами, поэтому ячейки подменяются в XML листа.
+     */
+    private byte[] excelWithIsoDates() throws Exception {
+        byte[] workbookBytes;
+        try (var workbook = new XSSFWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            XSSFCellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("dd.mm.yyyy"));
+            Sheet sheet = workbook.createSheet("Отчёт");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Srid");
+            header.createCell(1).setCellValue("Дата продажи");
+            double[] markers = {11111, 22222, 33333};
+            for (int i = 0; i < markers.length; i++) {
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue("a" + i);
+                row.createCell(1).setCellValue(markers[i]);
+                row.getCell(1).setCellStyle(dateStyle);
+            }
+            workbook.write(outputStream);
+            workbookBytes = outputStream.toByteArray();
+        }
+
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(workbookBytes));
+             ZipOutputStream out = new ZipOutputStream(patched)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                byte[] content = in.readAllBytes();
+                if (entry.getName().startsWith("xl/worksheets/")) {
+                    String xml = new String(content, StandardCharsets.UTF_8)
+                            .replace(" t=\"n\"", "")
+                            .replaceAll("(<c r=\"B[2-4]\"[^>]*)>", "$1 t=\"d\">")
+                            .replace("<v>11111.0</v>", "<v>2024-03-05</v>")
+                            .replace("<v>22222.0</v>", "<v>2024-03-06T10:30:00</v>")
+                            .replace("<v>33333.0</v>", "<v>не дата</v>");
+                    assertThat(xml).contains("t=\"d\"><v>2024-03-05</v>");
+                    content = xml.getBytes(StandardCharsets.UTF_8);
+                }
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+        return patched.toByteArray();
+    }
+
+    private File write(String name, byte[] content) throws Exception {
+        Path file = directory.resolve(name);
+        Files.write(file, content);
+        return file.toFile();
+    }
+}
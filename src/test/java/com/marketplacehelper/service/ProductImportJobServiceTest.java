@@ -0,0 +1,57 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ImportJobDto;
+import com.marketplacehelper.dto.ImportJobStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductImportJobServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldFailJobAndAllowResumeWhenImportThrowsError() throws Exception {
+        ProductImportService importService = mock(ProductImportService.class);
+        when(importService.importFromFile(any(), anyBoolean(), any(), anyBoolean(), anyInt(), anyInt(), any()))
+                .thenThrow(new StackOverflowError("разбор формулы"))
+                .thenReturn(new ImportProgress(2, 1, 1, 0, 0, 0, false, 0, 0, List.of(), List.of()));
+        ProductImportJobService jobService = new ProductImportJobService(importService, directory.toString(), 100, 50);
+        try {
+            ImportJobDto job = jobService.submit(new MockMultipartFile("file", "costs.csv", "text/csv",
+                    "Артикул WB;Цена\n186961443;2059,55\n".getBytes(StandardCharsets.UTF_8)), false);
+
+            ImportJobDto failed = awaitFinished(jobService, job.getId());
+            assertThat(failed.getStatus()).isEqualTo(ImportJobStatus.FAILED);
+            assertThat(failed.getMessage()).contains("StackOverflowError");
+
+            jobService.resume(job.getId()).orElseThrow();
+            assertThat(awaitFinished(jobService, job.getId()).getStatus()).isEqualTo(ImportJobStatus.COMPLETED);
+        } finally {
+            jobService.shutdown();
+        }
+    }
+
+    private static ImportJobDto awaitFinished(ProductImportJobService jobService, String jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            ImportJobDto job = jobService.getJob(jobId).orElseThrow();
+            if (job.getStatus() != ImportJobStatus.QUEUED && job.getStatus() != ImportJobStatus.RUNNING) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Задача импорта не завершилась");
+    }
+}
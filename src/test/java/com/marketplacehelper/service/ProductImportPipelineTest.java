@@ -0,0 +1,214 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.repository.ProductBatchWriter;
+import com.marketplacehelper.repository.ProductRepository;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Конвейерный импорт: чтение в отдельном потоке, разбор в пуле из нескольких потоков, запись чанками.
+ */
+@DataJpaTest
+@Import({ProductImportService.class, ProductBatchWriter.class, CatalogChangeTracker.class})
+@TestPropertySource(properties = {
+        "app.import.chunk-size=100",
+        "app.import.parallel.enabled=true",
+        "app.import.parallel.workers=4"
+})
+class ProductImportPipelineTest {
+
+    private static final String READER_THREAD = "product-import-reader";
+    // число-метка в ячейке цены, которое в файле заменяется на NaN
+    private static final String BROKEN_PRICE = "777777.77";
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void shouldKeepFileOrderOfRowsAndMessages() {
+        StringBuilder csv = new StringBuilder("Артикул WB;Название;Цена;Закупка\n");
+        List<String> expectedErrors = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int rowNumber = i + 2;
+            // последняя строка повторяет артикул первой и должна её перезаписать
+            int article = i == 4999 ? 100000 : 100000 + i;
+            String price = i % 997 == 500 ? "0" : String.valueOf(100 + i);
+            if ("0".equals(price)) {
+                expectedErrors.add("Строка " + rowNumber + ": цена должна быть больше нуля");
+            }
+            String purchase = i % 2 == 0 ? "" : "50";
+            csv.append(article).append(";Товар ").append(i).append(';').append(price).append(';')
+                    .append(purchase).append('\n');
+        }
+
+        var result = productImportService.importFromExcel(new MockMultipartFile("file", "costs.csv", "text/csv",
+                csv.toString().getBytes(StandardCharsets.UTF_8)), false);
+
+        assertThat(result.getErrors()).containsExactlyElementsOf(expectedErrors);
+        List<Integer> warnedRows = result.getWarnings().stream().map(ProductImportPipelineTest::rowNumber).toList();
+        assertThat(warnedRows).isSorted();
+        assertThat(warnedRows.get(0)).isEqualTo(2);
+        assertThat(warnedRows.get(warnedRows.size() - 1)).isEqualTo(5001);
+        assertThat(result.getCreated()).isEqualTo(5000 - expectedErrors.size() - 1);
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(productRepository.count()).isEqualTo(5000 - expectedErrors.size() - 1);
+        Product repeated = productRepository.findByWbArticle("100000").orElseThrow();
+        assertThat(repeated.getName()).isEqualTo("Товар 4999");
+        assertThat(repeated.getPrice()).isEqualByComparingTo(new BigDecimal("5099"));
+    }
+
+    @Test
+    void shouldStopReaderAndKeepOnlyEarlierChunksWhenWorkerFails() throws Exception {
+        int brokenRow = 1500;
+        Path file = Files.createTempFile("import-pipeline-", ".xlsx");
+        try {
+            Files.write(file, excelWithBrokenPrice(20000, brokenRow));
+            List<ImportProgress> committed = new ArrayList<>();
+
+            assertThatThrownBy(() -> productImportService.importFromFile(file.toFile(), false, Map.of(), false,
+                    0, 10, progressRecorder(committed, Integer.MAX_VALUE)))
+                    .isInstanceOf(NumberFormatException.class);
+
+            awaitReaderStopped();
+            assertThat(committed).isNotEmpty();
+            ImportProgress last = committed.get(committed.size() - 1);
+            assertThat(last.lastRowNumber()).isLessThan(brokenRow);
+            assertThat(productRepository.count()).isEqualTo(last.created());
+            assertThat(productRepository.findAll())
+                    .extracting(product -> Integer.parseInt(product.getWbArticle()) - 100000 + 2)
+                    .allMatch(rowNumber -> rowNumber <= last.lastRowNumber());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void shouldStopReaderWhenCancelledMidStream() throws Exception {
+        StringBuilder csv = new StringBuilder("Артикул WB;Название;Цена\n");
+        for (int i = 0; i < 20000; i++) {
+            csv.append(100000 + i).append(";Товар ").append(i).append(';').append(100 + i).append('\n');
+        }
+        Path file = Files.createTempFile("import-pipeline-", ".csv");
+        try {
+            Files.writeString(file, csv, StandardCharsets.UTF_8);
+            List<ImportProgress> committed = new ArrayList<>();
+
+            assertThatThrownBy(() -> productImportService.importFromFile(file.toFile(), false, Map.of(), false,
+                    0, 10, progressRecorder(committed, 3))).isInstanceOf(CancellationException.class);
+
+            awaitReaderStopped();
+            assertThat(committed).hasSize(3);
+            assertThat(committed.get(2).lastRowNumber()).isEqualTo(301);
+            assertThat(productRepository.count()).isEqualTo(300);
+            assertThat(productRepository.findByWbArticle("100300")).isEmpty();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static ImportProgressListener progressRecorder(List<ImportProgress> committed, int cancelAfterChunks) {
+        return new ImportProgressListener() {
+            @Override
+            public boolean isCancelled() {
+                return committed.size() >= cancelAfterChunks;
+            }
+
+            @Override
+            public void chunkCommitted(ImportProgress progress) {
+                committed.add(progress);
+            }
+        };
+    }
+
+    private static void awaitReaderStopped() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> READER_THREAD.equals(thread.getName()) && thread.isAlive())) {
+            if (System.nanoTime() > deadline) {
+                fail("Поток чтения не остановился");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static int rowNumber(String message) {
+        return Integer.parseInt(message.substring("Строка ".length(), message.indexOf(':')));
+    }
+
+    /**
+     * Лист Excel, в котором цена строки {@code brokenRow} — NaN: такую ячейку POI записать не даёт,
+     * поэтому значение подменяется прямо в XML листа.
+     */
+    private static byte[] excelWithBrokenPrice(int rows, int brokenRow) throws Exception {
+        byte[] workbookBytes;
+        try (var workbook = new XSSFWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Товары");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Артикул WB");
+            header.createCell(1).setCellValue("Название");
+            header.createCell(2).setCellValue("Цена");
+            for (int i = 0; i < rows; i++) {
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue(String.valueOf(100000 + i));
+                row.createCell(1).setCellValue("Товар " + i);
+                row.createCell(2).setCellValue(i + 2 == brokenRow ? Double.parseDouble(BROKEN_PRICE) : 100 + i);
+            }
+            workbook.write(outputStream);
+            workbookBytes = outputStream.toByteArray();
+        }
+
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(workbookBytes));
+             ZipOutputStream out = new ZipOutputStream(patched)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                byte[] content = in.readAllBytes();
+                if (entry.getName().startsWith("xl/worksheets/")) {
+                    String xml = new String(content, StandardCharsets.UTF_8);
+                    assertThat(xml).contains("<v>" + BROKEN_PRICE + "</v>");
+                    content = xml.replace("<v>" + BROKEN_PRICE + "</v>", "<v>NaN</v>").getBytes(StandardCharsets.UTF_8);
+                }
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+        return patched.toByteArray();
+    }
+}
@@ -1,25 +1,44 @@
 package com.marketplacehelper.service;
 
+import com.marketplacehelper.dto.ImportField;
+import com.marketplacehelper.model.ImportProfile;
 import com.marketplacehelper.model.Product;
+import com.marketplacehelper.repository.ImportProfileRepository;
+import com.marketplacehelper.repository.ProductBatchWriter;
 import com.marketplacehelper.repository.ProductRepository;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @DataJpaTest
-@Import(ProductImportService.class)
+@Import({ProductImportService.class, ProductBatchWriter.class, CatalogChangeTracker.class})
 class ProductImportServiceTest {
 
     @Autowired
@@ -28,9 +47,15 @@ class ProductImportServiceTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ImportProfileRepository importProfileRepository;
+
     @Autowired
     private TestEntityManager entityManager;
 
+    @SpyBean
+    private CatalogChangeTracker catalogChangeTracker;
+
     @BeforeEach
     void setUp() {
         productRepository.deleteAll();
@@ -73,6 +98,308 @@ class ProductImportServiceTest {
         assertThat(product.getStockQuantity()).isEqualTo(2);
     }
 
+    @Test
+    void shouldStreamLargeSheetKeepingDryRunAndRowMessages() throws Exception {
+        MockMultipartFile file = createLargeExcel(1200);
+
+        var dryRun = productImportService.importFromExcel(file, true);
+
+        assertThat(dryRun.getCreated()).isEqualTo(1199);
+        assertThat(dryRun.getSkipped()).isEqualTo(1);
+        assertThat(dryRun.getErrors()).containsExactly("Строка 502: цена должна быть больше нуля");
+        assertThat(dryRun.getWarnings()).hasSize(1199 * 3);
+        assertThat(dryRun.getWarnings().get(0)).startsWith("Строка 2:");
+        assertThat(dryRun.getWarnings().get(dryRun.getWarnings().size() - 1)).startsWith("Строка 1201:");
+        assertThat(productRepository.count()).isZero();
+
+        var result = productImportService.importFromExcel(file, false);
+
+        assertThat(result.getCreated()).isEqualTo(1199);
+        assertThat(result.getRowsPerSecond()).isPositive();
+        assertThat(productRepository.count()).isEqualTo(1199);
+        Product product = productRepository.findByWbArticle("100007").orElseThrow();
+        assertThat(product.getName()).isEqualTo("Товар 7");
+        assertThat(product.getPrice()).isEqualByComparingTo(new BigDecimal("107.50"));
+        assertThat(product.getPurchasePrice()).isEqualByComparingTo(new BigDecimal("40.00"));
+        assertThat(product.getStockQuantity()).isEqualTo(7);
+    }
+
+    @Test
+    void shouldResumeCancelledImportFromLastCommittedChunk() throws Exception {
+        Path file = Files.createTempFile("import-test-", ".xlsx");
+        try {
+            Files.write(file, createLargeExcel(1200).getBytes());
+            List<ImportProgress> committed = new ArrayList<>();
+            ImportProgressListener cancelAfterFirstChunk = new ImportProgressListener() {
+                @Override
+                public boolean isCancelled() {
+                    return !committed.isEmpty();
+                }
+
+                @Override
+                public void chunkCommitted(ImportProgress progress) {
+                    committed.add(progress);
+                }
+            };
+
+            assertThatThrownBy(() -> productImportService.importFromFile(file.toFile(), false, Map.of(), false,
+                    0, 10, cancelAfterFirstChunk)).isInstanceOf(CancellationException.class);
+
+            assertThat(committed).hasSize(1);
+            ImportProgress first = committed.get(0);
+            assertThat(first.lastRowNumber()).isEqualTo(1001);
+            assertThat(first.created()).isEqualTo(999);
+            assertThat(first.errorCount()).isEqualTo(1);
+            assertThat(first.warningCount()).isEqualTo(999 * 3);
+            assertThat(first.warnings()).hasSize(10);
+            assertThat(productRepository.count()).isEqualTo(999);
+
+            ImportProgress rest = productImportService.importFromFile(file.toFile(), false, Map.of(), false,
+                    first.lastRowNumber(), 10, null);
+
+            assertThat(rest.rowsRead()).isEqualTo(200);
+            assertThat(rest.created()).isEqualTo(200);
+            assertThat(rest.lastRowNumber()).isEqualTo(1201);
+            assertThat(productRepository.count()).isEqualTo(1199);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void shouldImportSemicolonCsvInWindows1251AndTabSeparatedUtf8() throws Exception {
+        String csv = "Артикул WB;Название;Цена;Закупка;Остаток\r\n"
+                + "186961443;\"Чехол \"\"Премиум\"\"; 80*85\";2\u00A0059,55;950;3\r\n"
+                + "\r\n"
+                + "186961444;\"Подсак\nскладной\";1 200,5;;\r\n";
+        MockMultipartFile semicolons = new MockMultipartFile("file", "costs.csv", "text/csv",
+                csv.getBytes(Charset.forName("windows-1251")));
+
+        var result = productImportService.importFromExcel(semicolons, false);
+
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getSkipped()).isZero();
+        assertThat(result.getWarnings()).contains("Строка 4: не заполнено поле «Закупка».");
+        Product first = productRepository.findByWbArticle("186961443").orElseThrow();
+        assertThat(first.getName()).isEqualTo("Чехол \"Премиум\"; 80*85");
+        assertThat(first.getPrice()).isEqualByComparingTo(new BigDecimal("2059.55"));
+        assertThat(first.getPurchasePrice()).isEqualByComparingTo(new BigDecimal("950"));
+        assertThat(first.getStockQuantity()).isEqualTo(3);
+        Product second = productRepository.findByWbArticle("186961444").orElseThrow();
+        assertThat(second.getName()).isEqualTo("Подсак\nскладной");
+        assertThat(second.getPrice()).isEqualByComparingTo(new BigDecimal("1200.5"));
+
+        String tsv = "\uFEFFАртикул WB\tНазвание\tЦена\n186961443\tЧехол, чёрный\t2 159,55\n";
+        MockMultipartFile tabs = new MockMultipartFile("file", "costs.tsv", "text/tab-separated-values",
+                tsv.getBytes(StandardCharsets.UTF_8));
+
+        var update = productImportService.importFromExcel(tabs, false);
+
+        assertThat(update.getUpdated()).isEqualTo(1);
+        Product updated = productRepository.findByWbArticle("186961443").orElseThrow();
+        assertThat(updated.getName()).isEqualTo("Чехол, чёрный");
+        assertThat(updated.getPrice()).isEqualByComparingTo(new BigDecimal("2159.55"));
+    }
+
+    @Test
+    void shouldMapColumnsThroughSavedProfile() throws Exception {
+        ImportProfile profile = new ImportProfile();
+        profile.setName("Выгрузка 1С");
+        profile.getColumns().putAll(Map.of(
+                ImportField.WB_ARTICLE, "Код",
+                ImportField.NAME, "Номенклатура",
+                ImportField.PRICE, "Цена продажи",
+                ImportField.PURCHASE_PRICE, "Себестоимость"));
+        Long profileId = importProfileRepository.save(profile).getId();
+
+        // без профиля «Номенклатура» считалась бы артикулом, а «Код» и «Себестоимость» не читались бы
+        String csv = "Код;Номенклатура;Цена продажи;Себестоимость\n186961443;Чехол для подсака;2059,55;950\n";
+        MockMultipartFile file = new MockMultipartFile("file", "1c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+
+        var result = productImportService.importFromExcel(file, false, profileId, false);
+
+        assertThat(result.getCreated()).isEqualTo(1);
+        Product product = productRepository.findByWbArticle("186961443").orElseThrow();
+        assertThat(product.getName()).isEqualTo("Чехол для подсака");
+        assertThat(product.getPrice()).isEqualByComparingTo(new BigDecimal("2059.55"));
+        assertThat(product.getPurchasePrice()).isEqualByComparingTo(new BigDecimal("950"));
+
+        MockMultipartFile other = new MockMultipartFile("file", "wb.csv", "text/csv",
+                "Артикул WB;Цена\n186961443;100\n".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> productImportService.importFromExcel(other, false, profileId, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("«Код»");
+    }
+
+    @Test
+    void shouldSkipIdenticalFileAndUnchangedRows() throws Exception {
+        String csv = "Артикул WB;Название;Цена;Закупка\n"
+                + "1001;Чехол;100;50\n"
+                + "1002;Подсак;200;80\n";
+        productImportService.importFromExcel(csv("costs.csv", csv));
+        LocalDateTime firstUpdate = productRepository.findByWbArticle("1001").orElseThrow().getUpdatedAt();
+
+        var again = productImportService.importFromExcel(csv("costs-copy.csv", csv));
+
+        assertThat(again.getAlreadyImported()).isTrue();
+        assertThat(again.getUnchanged()).isEqualTo(2);
+        assertThat(again.getCreated()).isZero();
+        assertThat(again.getUpdated()).isZero();
+
+        // те же значения в другом виде и одна изменённая строка
+        String changed = "Название;Артикул WB;Цена;Закупка\n"
+                + "Чехол; 1001 ;100,00;50\n"
+                + "Подсак;1002;210;80\n";
+        var result = productImportService.importFromExcel(csv("costs-v2.csv", changed));
+
+        assertThat(result.getAlreadyImported()).isNull();
+        assertThat(result.getUnchanged()).isEqualTo(1);
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(productRepository.findByWbArticle("1001").orElseThrow().getUpdatedAt()).isEqualTo(firstUpdate);
+        assertThat(productRepository.findByWbArticle("1002").orElseThrow().getPrice())
+                .isEqualByComparingTo(new BigDecimal("210"));
+
+        var forced = productImportService.importFromExcel(csv("costs.csv", csv), false, null, true);
+
+        assertThat(forced.getUnchanged()).isEqualTo(1);
+        assertThat(forced.getUpdated()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReportSameWarningsForUnchangedRows() throws Exception {
+        String csv = "Артикул WB;Название;Цена;Закупка\n"
+                + "1001;Чехол;100;\n"
+                + "1002;Подсак;200;80\n";
+        var first = productImportService.importFromExcel(csv("costs.csv", csv));
+
+        var again = productImportService.importFromExcel(csv("costs.csv", csv), false, null, true);
+
+        assertThat(again.getUnchanged()).isEqualTo(2);
+        assertThat(again.getWarnings()).isEqualTo(first.getWarnings());
+        assertThat(again.getWarnings()).contains("Строка 2: не заполнено поле «Закупка».");
+    }
+
+    @Test
+    void shouldReapplyFileImportedBeforeAnotherFile() throws Exception {
+        String fileA = "Артикул WB;Название;Цена\n1001;Чехол;100\n";
+        String fileB = "Артикул WB;Название;Цена\n1001;Чехол;150\n";
+        productImportService.importFromExcel(csv("a.csv", fileA));
+        productImportService.importFromExcel(csv("b.csv", fileB));
+
+        var again = productImportService.importFromExcel(csv("a.csv", fileA));
+
+        assertThat(again.getAlreadyImported()).isNull();
+        assertThat(again.getUpdated()).isEqualTo(1);
+        assertThat(productRepository.findByWbArticle("1001").orElseThrow().getPrice())
+                .isEqualByComparingTo(new BigDecimal("100"));
+
+        // без изменений каталога между загрузками файл по-прежнему пропускается
+        assertThat(productImportService.importFromExcel(csv("a.csv", fileA)).getAlreadyImported()).isTrue();
+    }
+
+    @Test
+    void shouldReportJdbcBatchWritesToCatalogChangeTracker() throws Exception {
+        long versionBefore = catalogChangeTracker.currentVersion();
+        clearInvocations(catalogChangeTracker);
+
+        productImportService.importFromExcel(csv("costs.csv", "Артикул WB;Название;Цена\n1001;Чехол;100\n1002;Подсак;200\n"));
+
+        // по одному уведомлению на товар: JDBC-запись сообщает сама, JPA-слушатель не срабатывает повторно
+        ArgumentCaptor<Product> created = ArgumentCaptor.forClass(Product.class);
+        verify(catalogChangeTracker, times(2)).productChanged(created.capture());
+        assertThat(created.getAllValues()).extracting(Product::getWbArticle).containsExactly("1001", "1002");
+        assertThat(created.getAllValues()).extracting(Product::getId).doesNotContainNull();
+        assertThat(catalogChangeTracker.currentVersion()).isGreaterThan(versionBefore);
+
+        Long updatedId = productRepository.findByWbArticle("1002").orElseThrow().getId();
+        clearInvocations(catalogChangeTracker);
+
+        productImportService.importFromExcel(csv("costs-v2.csv", "Артикул WB;Название;Цена\n1001;Чехол;100\n1002;Подсак;250\n"));
+
+        ArgumentCaptor<Product> updated = ArgumentCaptor.forClass(Product.class);
+        verify(catalogChangeTracker, times(1)).productChanged(updated.capture());
+        assertThat(updated.getValue().getId()).isEqualTo(updatedId);
+    }
+
+    @Test
+    void shouldWriteImportedRowsWithoutEntityListeners() throws Exception {
+        productImportService.importFromExcel(csv("costs.csv", "Артикул WB;Название;Цена\n1001;Чехол;100\n"));
+        entityManager.clear();
+        Product created = productRepository.findByWbArticle("1001").orElseThrow();
+        String createdHash = created.getImportHash();
+        LocalDateTime createdAt = created.getCreatedAt();
+        assertThat(createdHash).isNotNull();
+
+        productImportService.importFromExcel(csv("costs-v2.csv", "Артикул WB;Название;Цена\n1001;Чехол;150\n"));
+        entityManager.clear();
+
+        // @PreUpdate сбросил бы хэш строки: обновление из файла его, наоборот, записывает
+        Product updated = productRepository.findByWbArticle("1001").orElseThrow();
+        assertThat(updated.getImportHash()).isNotNull().isNotEqualTo(createdHash);
+        assertThat(updated.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(updated.getPrice()).isEqualByComparingTo(new BigDecimal("150"));
+
+        // правка через JPA проходит через слушатель и сбрасывает хэш
+        updated.setBrand("FISHING BAND");
+        productRepository.saveAndFlush(updated);
+        entityManager.clear();
+        assertThat(productRepository.findByWbArticle("1001").orElseThrow().getImportHash()).isNull();
+    }
+
+    @Test
+    void shouldUpdateProductCreatedInPreviousChunkForRepeatedArticle() throws Exception {
+        // первый чанк — строки 2..1001, повтор артикула из строки 1001 приходит в строке 1003
+        StringBuilder content = new StringBuilder("Артикул WB;Название;Цена\n");
+        for (int i = 0; i < 1002; i++) {
+            int article = i == 1001 ? 100999 : 100000 + i;
+            content.append(article).append(";Товар ").append(i).append(';').append(100 + i).append('\n');
+        }
+
+        var result = productImportService.importFromExcel(csv("chunks.csv", content.toString()));
+
+        assertThat(result.getCreated()).isEqualTo(1001);
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(productRepository.count()).isEqualTo(1001);
+        Product repeated = productRepository.findByWbArticle("100999").orElseThrow();
+        assertThat(repeated.getName()).isEqualTo("Товар 1001");
+        assertThat(repeated.getPrice()).isEqualByComparingTo(new BigDecimal("1101"));
+    }
+
+    @Test
+    void shouldUpdateFirstProductByIdWhenArticleIsDuplicated() throws Exception {
+        Product first = productRepository.saveAndFlush(product("1001", "Первый", "100"));
+        Product second = productRepository.saveAndFlush(product("1001", "Второй", "100"));
+
+        var result = productImportService.importFromExcel(csv("costs.csv", "Артикул WB;Название;Цена\n1001;Чехол;150\n"));
+
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(result.getCreated()).isZero();
+        entityManager.clear();
+        assertThat(productRepository.findById(first.getId()).orElseThrow())
+                .satisfies(product -> {
+                    assertThat(product.getName()).isEqualTo("Чехол");
+                    assertThat(product.getPrice()).isEqualByComparingTo(new BigDecimal("150"));
+                });
+        assertThat(productRepository.findById(second.getId()).orElseThrow())
+                .satisfies(product -> {
+                    assertThat(product.getName()).isEqualTo("Второй");
+                    assertThat(product.getPrice()).isEqualByComparingTo(new BigDecimal("100"));
+                });
+    }
+
+    private Product product(String wbArticle, String name, String price) {
+        Product product = new Product();
+        product.setWbArticle(wbArticle);
+        product.setName(name);
+        product.setPrice(new BigDecimal(price));
+        return product;
+    }
+
+    private MockMultipartFile csv(String name, String content) {
+        return new MockMultipartFile("file", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
     private MockMultipartFile createWildberriesExcel() throws Exception {
         try (var workbook = new XSSFWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
             Sheet sheet = workbook.createSheet("Отчёт");
@@ -110,6 +437,39 @@ class ProductImportServiceTest {
         }
     }
 
+    private MockMultipartFile createLargeExcel(int rows) throws Exception {
+        try (var workbook = new XSSFWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Товары");
+            var moneyStyle = workbook.createCellStyle();
+            moneyStyle.setDataFormat(workbook.createDataFormat().getFormat("# ##0.00"));
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Артикул WB");
+            header.createCell(1).setCellValue("Название");
+            header.createCell(2).setCellValue("Остаток");
+            header.createCell(3).setCellValue("Цена");
+            header.createCell(4).setCellValue("Закупка");
+
+            for (int i = 1; i <= rows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(100000 + i);
+                row.createCell(1).setCellValue("Товар " + i);
+                row.createCell(2).setCellValue(i);
+                var price = row.createCell(3);
+                price.setCellValue(i == 501 ? 0 : 100.5 + i);
+                price.setCellStyle(moneyStyle);
+                row.createCell(4).setCellValue(40);
+            }
+
+            workbook.write(outputStream);
+            return new MockMultipartFile(
+                    "file",
+                    "large.xlsx",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                    outputStream.toByteArray()
+            );
+        }
+    }
+
     private MockMultipartFile createWildberriesExcelWithUpdatedPrice() throws Exception {
         try (var workbook = new XSSFWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
             Sheet sheet = workbook.createSheet("Отчёт");
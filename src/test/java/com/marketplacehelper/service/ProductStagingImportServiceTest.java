@@ -0,0 +1,159 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ProductImportResultDto;
+import com.marketplacehelper.dto.StagedImportRowDto;
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.repository.ProductBatchWriter;
+import com.marketplacehelper.repository.ProductRepository;
+import com.marketplacehelper.repository.ProductStagingWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({ProductStagingImportService.class, ProductImportService.class, ProductBatchWriter.class,
+        ProductStagingWriter.class, CatalogChangeTracker.class})
+class ProductStagingImportServiceTest {
+
+    private static final String FILE = """
+            Артикул WB;Название;Цена;Закупка
+            100;Подсак обновлённый;600;300
+            200;Подсак новый;700;350
+            300;Подсак с ошибкой;-5;100
+            ;;;
+            200;Подсак новый, исправленный;710;350
+            """;
+
+    @Autowired
+    private ProductStagingImportService productStagingImportService;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void shouldPreviewWholeFileAndApplyItWithOneMerge() {
+        Product existing = productRepository.save(new Product("Подсак", "100", new BigDecimal("500")));
+        entityManager.flush();
+
+        ProductImportResultDto preview = productStagingImportService.importFile(csv(), true, null);
+
+        assertThat(preview.getStagingId()).isNotNull();
+        assertThat(preview.getCreated()).isEqualTo(1);
+        assertThat(preview.getUpdated()).isEqualTo(1);
+        // строка с ошибкой, пустая строка и первая из двух строк артикула 200
+        assertThat(preview.getSkipped()).isEqualTo(3);
+        assertThat(preview.getErrors()).containsExactly("Строка 4: цена должна быть больше нуля");
+        assertThat(productRepository.count()).isEqualTo(1);
+
+        List<StagedImportRowDto> errors = productStagingImportService
+                .getRows(preview.getStagingId(), "error", 0, 10).orElseThrow();
+        assertThat(errors).extracting(StagedImportRowDto::getWbArticle).containsExactly("300");
+        List<StagedImportRowDto> rows = productStagingImportService
+                .getRows(preview.getStagingId(), null, 0, 10).orElseThrow();
+        assertThat(rows).extracting(StagedImportRowDto::getAction)
+                .containsExactly("UPDATE", "SUPERSEDED", "ERROR", "CREATE");
+        assertThat(rows.get(0).getProductId()).isEqualTo(existing.getId());
+
+        ProductImportResultDto applied = productStagingImportService.apply(preview.getStagingId()).orElseThrow();
+
+        assertThat(applied.getCreated()).isEqualTo(1);
+        assertThat(applied.getUpdated()).isEqualTo(1);
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(productRepository.findById(existing.getId()).orElseThrow().getPrice())
+                .isEqualByComparingTo("600");
+        Product created = productRepository.findByWbArticleInOrderByIdAsc(List.of("200")).get(0);
+        assertThat(created.getName()).isEqualTo("Подсак новый, исправленный");
+        assertThat(created.getPrice()).isEqualByComparingTo("710");
+        assertThat(created.getArticleNmId()).isEqualTo(200L);
+        assertThatThrownBy(() -> productStagingImportService.apply(preview.getStagingId()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        ProductImportResultDto repeated = productStagingImportService.importFile(csv(), false, null);
+
+        assertThat(repeated.getCreated()).isZero();
+        assertThat(repeated.getUpdated()).isZero();
+        assertThat(repeated.getUnchanged()).isEqualTo(2);
+        assertThat(productRepository.count()).isEqualTo(2);
+        assertThat(productStagingImportService.discard(repeated.getStagingId())).isTrue();
+        assertThat(productStagingImportService.getRows(repeated.getStagingId(), null, 0, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldLeaveSameCatalogAndReportAsRowImporter() {
+        String file = """
+                Артикул WB;Название;Цена;Закупка;Логистика;Маркетинг;Прочие
+                100;;;300;10;5;1
+                200;;;;10;5;1
+                300;Сачок;250;100;;5;1
+                400;Садок;-1;100;10;5;1
+                """;
+        productRepository.save(new Product("Подсак", "100", new BigDecimal("500")));
+        entityManager.flush();
+        ProductImportResultDto byRows = productImportService.importFromExcel(csv("rows.csv", file));
+        entityManager.flush();
+        entityManager.clear();
+        List<String> rowsCatalog = catalog();
+
+        productRepository.deleteAllInBatch();
+        productRepository.save(new Product("Подсак", "100", new BigDecimal("500")));
+        entityManager.flush();
+        ProductImportResultDto staged = productStagingImportService.importFile(csv("staged.csv", file), false, null);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(catalog()).isEqualTo(rowsCatalog);
+        assertThat(rowsCatalog).containsExactly(
+                "100|Подсак|500|300|10|5|1",
+                "200|Товар 200|1||10|5|1",
+                "300|Сачок|250|100||5|1");
+        assertThat(staged.getCreated()).isEqualTo(byRows.getCreated());
+        assertThat(staged.getUpdated()).isEqualTo(byRows.getUpdated());
+        assertThat(staged.getSkipped()).isEqualTo(byRows.getSkipped());
+        assertThat(staged.getErrors()).isEqualTo(byRows.getErrors());
+        assertThat(staged.getWarnings()).isEqualTo(byRows.getWarnings());
+        // цена не указана у обновляемого товара 100 и у нового 200, предупреждение — только у нового
+        assertThat(staged.getWarnings()).containsExactly(
+                "Строка 3: не указана цена, установлено значение по умолчанию 1",
+                "Строка 3: не заполнено поле «Закупка».",
+                "Строка 4: не указаны логистические расходы.");
+    }
+
+    private List<String> catalog() {
+        return productRepository.findAll(Sort.by("wbArticle")).stream()
+                .map(product -> String.join("|", product.getWbArticle(), product.getName(),
+                        plain(product.getPrice()), plain(product.getPurchasePrice()),
+                        plain(product.getLogisticsCost()), plain(product.getMarketingCost()),
+                        plain(product.getOtherExpenses())))
+                .toList();
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : "";
+    }
+
+    private MockMultipartFile csv() {
+        return csv("prices.csv", FILE);
+    }
+
+    private MockMultipartFile csv(String name, String content) {
+        return new MockMultipartFile("file", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
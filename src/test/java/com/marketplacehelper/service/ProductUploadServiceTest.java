@@ -0,0 +1,125 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.ImportJobDto;
+import com.marketplacehelper.dto.ImportJobStatus;
+import com.marketplacehelper.dto.UploadSessionDto;
+import com.marketplacehelper.repository.ProductBatchWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({ProductUploadService.class, ProductImportJobService.class, ProductImportService.class,
+        ProductBatchWriter.class, CatalogChangeTracker.class})
+class ProductUploadServiceTest {
+
+    @Autowired
+    private ProductUploadService productUploadService;
+
+    @Autowired
+    private ProductImportJobService productImportJobService;
+
+    @Test
+    void shouldResumeAfterDroppedChunkAndHandOffVerifiedFile() throws Exception {
+        StringBuilder csv = new StringBuilder("Артикул WB;Название;Цена\n");
+        for (int i = 1; i <= 500; i++) {
+            csv.append(700000 + i).append(";Товар ").append(i).append(";").append(100 + i).append('\n');
+        }
+        byte[] content = csv.toString().getBytes(StandardCharsets.UTF_8);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        UploadSessionDto session = productUploadService.create("costs.csv", (long) content.length, null);
+        String id = session.getId();
+
+        // соединение обрывается после 3000 байт первой части
+        int half = content.length / 2;
+        assertThatThrownBy(() -> productUploadService.append(id, 0, new DroppingStream(content, half, 3000)))
+                .isInstanceOf(IOException.class);
+        long received = productUploadService.getSession(id).orElseThrow().getReceived();
+        assertThat(received).isEqualTo(3000);
+
+        assertThatThrownBy(() -> productUploadService.append(id, 0, new ByteArrayInputStream(content)))
+                .isInstanceOf(IllegalStateException.class);
+        productUploadService.append(id, received, slice(content, (int) received, half));
+        productUploadService.append(id, half, slice(content, half, content.length));
+
+        assertThatThrownBy(() -> productUploadService.complete(id, "0".repeat(64), true, null, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Контрольная сумма");
+
+        ImportJobDto job = productUploadService.complete(id, sha256, true, null, false).orElseThrow();
+
+        assertThat(productUploadService.getSession(id)).isEmpty();
+        ImportJobDto finished = awaitFinished(job.getId());
+        assertThat(finished.getStatus()).isEqualTo(ImportJobStatus.COMPLETED);
+        assertThat(finished.getFileName()).isEqualTo("costs.csv");
+        assertThat(finished.getCreated()).isEqualTo(500);
+    }
+
+    @Test
+    void shouldRejectBytesBeyondDeclaredSize() throws Exception {
+        UploadSessionDto session = productUploadService.create("costs.csv", 10L, null);
+
+        assertThatThrownBy(() -> productUploadService.append(session.getId(), 0,
+                new ByteArrayInputStream(new byte[11])))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(productUploadService.getSession(session.getId()).orElseThrow().getReceived()).isZero();
+        assertThat(productUploadService.cancel(session.getId())).isTrue();
+    }
+
+    private ImportJobDto awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            ImportJobDto job = productImportJobService.getJob(jobId).orElseThrow();
+            if (job.getStatus() != ImportJobStatus.QUEUED && job.getStatus() != ImportJobStatus.RUNNING) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Задача импорта не завершилась");
+    }
+
+    private static InputStream slice(byte[] content, int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(content, from, to));
+    }
+
+    /**
+     * Отдаёт первые {@code dropAfter} байт части и падает, как оборванное соединение.
+     */
+    private static final class DroppingStream extends InputStream {
+        private final InputStream delegate;
+        private int remaining;
+
+        private DroppingStream(byte[] content, int length, int dropAfter) {
+            this.delegate = new ByteArrayInputStream(content, 0, length);
+            this.remaining = dropAfter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                throw new IOException("Connection reset");
+            }
+            int read = delegate.read(b, off, Math.min(len, remaining));
+            remaining -= read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.marketplacehelper.service;
+
+import com.marketplacehelper.dto.SalesArticleStatsDto;
+import com.marketplacehelper.dto.SalesImportResultDto;
+import com.marketplacehelper.model.Product;
+import com.marketplacehelper.repository.ProductRepository;
+import com.marketplacehelper.repository.SaleFactRepository;
+import com.marketplacehelper.repository.SalesFactWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({SalesReportImportService.class, SalesFactWriter.class, SalesStatsService.class, CatalogChangeTracker.class})
+class SalesReportImportServiceTest {
+
+    private static final String REPORT = """
+            Srid;Код номенклатуры;Артикул поставщика;Тип документа;Обоснование для оплаты;Дата продажи;Кол-во;Цена розничная;Вайлдберриз реализовал Товар (Пр);К перечислению Продавцу за реализованный Товар;Услуги по доставке товара покупателю;Общая сумма штрафов
+            a1;186961443;FB-80;Продажа;Продажа;05.03.2024;1;2059,55;1500;1300;0;0
+            a2;186961443;FB-80;Продажа;Продажа;06.03.2024;2;2059,55;3000;2600;0;0
+            a3;186961443;FB-80;Возврат;Возврат;07.03.2024;1;2059,55;1500;1300;0;0
+            a1;186961443;FB-80;Продажа;Логистика;05.03.2024;0;0;0;0;120;0
+            a2;186961443;FB-80;Продажа;Логистика;06.03.2024;0;0;0;0;90;0
+            a4;186961443;FB-80;Продажа;Штраф;08.03.2024;0;0;0;0;0;50
+            ;;;;;;;;;;;
+            """;
+
+    @Autowired
+    private SalesReportImportService salesReportImportService;
+
+    @Autowired
+    private SalesStatsService salesStatsService;
+
+    @Autowired
+    private SaleFactRepository saleFactRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void shouldAggregateReportAndIgnoreRepeatedLoad() {
+        SalesImportResultDto first = salesReportImportService.importReport(report());
+
+        assertThat(first.getRowsRead()).isEqualTo(7);
+        assertThat(first.getInserted()).isEqualTo(6);
+        assertThat(first.getSkipped()).isEqualTo(1);
+        assertThat(first.getErrors()).isNull();
+        assertThat(first.getArticles()).isEqualTo(1);
+
+        SalesArticleStatsDto stats = salesStatsService.getStats(186961443L).orElseThrow();
+        assertThat(stats.getVendorCode()).isEqualTo("FB-80");
+        assertThat(stats.getUnitsSold()).isEqualTo(2);
+        assertThat(stats.getSalesCount()).isEqualTo(3);
+        assertThat(stats.getReturnsCount()).isEqualTo(1);
+        assertThat(stats.getRevenue()).isEqualByComparingTo("3000");
+        assertThat(stats.getPayout()).isEqualByComparingTo("2600");
+        assertThat(stats.getLogistics()).isEqualByComparingTo("210");
+        assertThat(stats.getPenalties()).isEqualByComparingTo("50");
+        assertThat(stats.getLogisticsPerUnit()).isEqualByComparingTo("105");
+        assertThat(stats.getPenaltiesPerUnit()).isEqualByComparingTo("25");
+
+        SalesImportResultDto second = salesReportImportService.importReport(report());
+
+        assertThat(second.getInserted()).isZero();
+        assertThat(second.getDuplicates()).isEqualTo(6);
+        assertThat(saleFactRepository.count()).isEqualTo(6);
+        assertThat(salesStatsService.getStats(186961443L).orElseThrow().getRevenue()).isEqualByComparingTo("3000");
+    }
+
+    @Test
+    void shouldKeepIdenticalLinesOfOneReportAndSkipOnlyReuploadedReport() {
+        String excelReport = """
+                №;Srid;Код номенклатуры;Обоснование для оплаты;Дата продажи;Услуги по доставке товара покупателю
+                1;a1;186961443;Логистика;05.03.2024;120
+                2;a1;186961443;Логистика;05.03.2024;120
+                """;
+        SalesImportResultDto first = salesReportImportService.importReport(csv("week-10.csv", excelReport));
+
+        assertThat(first.getInserted()).isEqualTo(2);
+        assertThat(salesStatsService.getStats(186961443L).orElseThrow().getLogistics()).isEqualByComparingTo("240");
+
+        // следующий отчёт — новые операции, а с ними новые факты
+        SalesImportResultDto nextWeek = salesReportImportService.importReport(csv("week-11.csv", """
+                №;Srid;Код номенклатуры;Обоснование для оплаты;Дата продажи;Услуги по доставке товара покупателю
+                1;a2;186961443;Логистика;12.03.2024;90
+                2;a2;186961443;Логистика;12.03.2024;90
+                """));
+        assertThat(nextWeek.getInserted()).isEqualTo(2);
+
+        SalesImportResultDto reupload = salesReportImportService.importReport(csv("week-10-copy.csv", excelReport));
+        assertThat(reupload.getInserted()).isZero();
+        assertThat(reupload.getDuplicates()).isEqualTo(2);
+
+        String apiReport = """
+                rrd_id;srid;nm_id;supplier_oper_name;penalty
+                9001;b1;186961443;Штраф;50
+                9002;b1;186961443;Штраф;50
+                """;
+        assertThat(salesReportImportService.importReport(csv("api.csv", apiReport)).getInserted()).isEqualTo(2);
+        // те же строки API в другом файле узнаются по rrd_id
+        SalesImportResultDto apiAgain = salesReportImportService.importReport(csv("api-period.csv",
+                apiReport + "9003;b2;186961443;Штраф;10\n"));
+        assertThat(apiAgain.getInserted()).isEqualTo(1);
+        assertThat(apiAgain.getDuplicates()).isEqualTo(2);
+        assertThat(saleFactRepository.count()).isEqualTo(7);
+    }
+
+    @Test
+    void shouldSkipReportDownloadedAgainAsDifferentFile() {
+        salesReportImportService.importReport(report());
+
+        // та же выгрузка, пересохранённая в Excel: другие переводы строк, порядок колонок и лишняя колонка
+        StringBuilder resaved = new StringBuilder();
+        for (String line : REPORT.split("\n")) {
+            String[] cells = line.split(";", -1);
+            String[] reordered = new String[cells.length + 1];
+            reordered[0] = cells[1];
+            reordered[1] = cells[0];
+            System.arraycopy(cells, 2, reordered, 2, cells.length - 2);
+            reordered[cells.length] = line.startsWith("Srid") ? "Комментарий" : "";
+            resaved.append(String.join(";", reordered)).append("\r\n");
+        }
+        SalesImportResultDto again = salesReportImportService.importReport(csv("report (1).csv", resaved.toString()));
+
+        assertThat(again.getRowsRead()).isEqualTo(7);
+        assertThat(again.getInserted()).isZero();
+        assertThat(again.getDuplicates()).isEqualTo(6);
+        assertThat(saleFactRepository.count()).isEqualTo(6);
+        assertThat(salesStatsService.getStats(186961443L).orElseThrow().getLogistics()).isEqualByComparingTo("210");
+    }
+
+    @Test
+    void shouldApplyActualLogisticsToMatchingProducts() {
+        Product product = new Product();
+        product.setName("Чехол для подсака");
+        product.setWbArticle("186961443");
+        product.setPrice(new BigDecimal("2059.55"));
+        product.setLogisticsCost(new BigDecimal("80"));
+        product = productRepository.save(product);
+        salesReportImportService.importReport(report());
+
+        assertThat(salesStatsService.applyActualLogistics(true)).isZero();
+        assertThat(salesStatsService.applyActualLogistics(false)).isEqualTo(1);
+
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getLogisticsCost())
+                .isEqualByComparingTo("105");
+    }
+
+    private static MockMultipartFile report() {
+        return csv("report.csv", REPORT);
+    }
+
+    private static MockMultipartFile csv(String name, String content) {
+        return new MockMultipartFile("file", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,8 +2,14 @@ package com.marketplacehelper.service;
 
 import com.marketplacehelper.dto.AnalyticsReportDto;
 import com.marketplacehelper.dto.ProductAnalyticsDto;
+import com.marketplacehelper.dto.ProductDataSource;
+import com.marketplacehelper.dto.SnapshotChange;
+import com.marketplacehelper.dto.SnapshotDiffDto;
+import com.marketplacehelper.dto.SnapshotDiffItemDto;
 import com.marketplacehelper.model.DailySnapshot;
+import com.marketplacehelper.model.ProductAnalytics;
 import com.marketplacehelper.repository.DailySnapshotRepository;
+import com.marketplacehelper.repository.ProductAnalyticsRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -15,6 +21,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 
 @DataJpaTest
@@ -27,6 +34,9 @@ class SnapshotServiceTest {
     @Autowired
     private DailySnapshotRepository snapshotRepository;
 
+    @Autowired
+    private ProductAnalyticsRepository analyticsRepository;
+
     @MockBean
     private AnalyticsService analyticsService;
 
@@ -58,6 +68,95 @@ class SnapshotServiceTest {
         assertThat(s.getStockLocal()).isEqualTo(5);
         assertThat(s.getStockWb()).isEqualTo(7);
     }
-}
 
+    @Test
+    void diffReturnsOnlyChangedArticlesSortedByMagnitude() {
+        when(analyticsService.getDefaultMinMarginPercent()).thenReturn(new BigDecimal("10"));
+        LocalDate monday = LocalDate.of(2025, 1, 6);
+        analyticsRepository.save(analyticsRow("100", "1000", "50", "5", 8));
+        analyticsRepository.save(analyticsRow("200", "550", "121", "22", 10));
+        analyticsRepository.save(analyticsRow("300", "800", "160", "20", 4));
+        analyticsRepository.save(analyticsRow("400", "700", "140", "20", 3));
+        analyticsRepository.save(analyticsRow("500", "900", "90", "10", 1));
+        snapshotRepository.save(snapshot(monday, "100", "1000", "300", "30", 8));
+        snapshotRepository.save(snapshot(monday, "200", "500", "100", "20", 10));
+        snapshotRepository.save(snapshot(monday, "300", "800", "160", "20", 4));
+        snapshotRepository.save(snapshot(monday, "400", "700", "140", "20", 10));
+        snapshotRepository.save(snapshot(monday, "600", "100", "10", "10", 1));
+        snapshotRepository.save(snapshot(monday.minusDays(1), "300", "10", "1", "10", 40));
+
+        SnapshotDiffDto diff = snapshotService.diff(monday, null, null, null, 100);
+        assertThat(diff.getChangedCount()).isEqualTo(3);
+        assertThat(diff.getThresholdCrossedCount()).isEqualTo(1);
+        assertThat(diff.getPriceChangedCount()).isEqualTo(1);
+        assertThat(diff.getStockDroppedCount()).isEqualTo(1);
+        assertThat(diff.getItems()).extracting(SnapshotDiffItemDto::getWbArticle).containsExactly("100", "200", "400");
+        SnapshotDiffItemDto crossed = diff.getItems().get(0);
+        assertThat(crossed.getChanges()).containsExactly(SnapshotChange.THRESHOLD_CROSSED);
+        assertThat(crossed.isPreviouslyProfitable()).isTrue();
+        assertThat(crossed.isProfitable()).isFalse();
+        assertThat(crossed.getMarginPercentDelta()).isEqualByComparingTo("-25");
+        assertThat(diff.getItems().get(1).getPriceDeltaPercent()).isEqualByComparingTo("10");
 
+        assertThat(snapshotService.diff(monday, null, "stock", null, 100).getItems())
+                .extracting(SnapshotDiffItemDto::getWbArticle).containsExactly("400", "100", "200");
+        SnapshotDiffDto drops = snapshotService.diff(monday, null, "stock", List.of(SnapshotChange.STOCK_DROPPED), 100);
+        assertThat(drops.getChangedCount()).isEqualTo(1);
+        assertThat(drops.getItems()).singleElement().satisfies(item -> assertThat(item.getStock()).isEqualTo(3));
+        assertThat(snapshotService.diff(monday, null, "price", null, 1).getItems())
+                .extracting(SnapshotDiffItemDto::getWbArticle).containsExactly("200");
+
+        // при пороге 4% товар 100 по-прежнему прибыльный
+        assertThat(snapshotService.diff(monday, new BigDecimal("4"), null, null, 100).getItems())
+                .extracting(SnapshotDiffItemDto::getWbArticle).containsExactly("200", "400");
+        assertThatThrownBy(() -> snapshotService.diff(monday.plusDays(1), null, null, null, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void diffComparesWithLatestSnapshotOfDateAndSortsStockByMagnitude() {
+        when(analyticsService.getDefaultMinMarginPercent()).thenReturn(new BigDecimal("10"));
+        LocalDate monday = LocalDate.of(2025, 1, 6);
+        analyticsRepository.save(analyticsRow("100", "1000", "300", "30", 20));
+        analyticsRepository.save(analyticsRow("200", "1000", "300", "30", 2));
+        analyticsRepository.save(analyticsRow("300", "1000", "300", "30", 5));
+        analyticsRepository.save(analyticsRow("400", "1000", "300", "30", 5));
+        // остаток вырос на 15 при изменении цены и упал на 8
+        snapshotRepository.save(snapshot(monday, "100", "900", "300", "30", 5));
+        snapshotRepository.save(snapshot(monday, "200", "1000", "300", "30", 10));
+        // повторные снимки за ту же дату: сравнение с последним
+        snapshotRepository.save(snapshot(monday, "300", "800", "300", "30", 5));
+        snapshotRepository.save(snapshot(monday, "300", "1000", "300", "30", 5));
+        snapshotRepository.save(snapshot(monday, "400", "1000", "300", "30", 5));
+        snapshotRepository.save(snapshot(monday, "400", "500", "300", "30", 5));
+
+        SnapshotDiffDto diff = snapshotService.diff(monday, null, "stock", null, 100);
+
+        assertThat(diff.getChangedCount()).isEqualTo(3);
+        assertThat(diff.getItems()).extracting(SnapshotDiffItemDto::getWbArticle).containsExactly("100", "200", "400");
+        assertThat(diff.getItems().get(2).getPreviousPrice()).isEqualByComparingTo("500");
+    }
+
+    private ProductAnalytics analyticsRow(String article, String price, String margin, String marginPercent, int stock) {
+        ProductAnalytics row = new ProductAnalytics();
+        row.setWbArticle(article);
+        row.setName("SKU " + article);
+        row.setDataSource(ProductDataSource.MERGED);
+        row.setWbPrice(new BigDecimal(price));
+        row.setMargin(new BigDecimal(margin));
+        row.setMarginPercent(new BigDecimal(marginPercent));
+        row.setWbStock(stock);
+        return row;
+    }
+
+    private DailySnapshot snapshot(LocalDate date, String article, String price, String margin, String marginPercent, int stock) {
+        DailySnapshot snapshot = new DailySnapshot();
+        snapshot.setSnapshotDate(date);
+        snapshot.setWbArticle(article);
+        snapshot.setPrice(new BigDecimal(price));
+        snapshot.setMargin(new BigDecimal(margin));
+        snapshot.setMarginPercent(new BigDecimal(marginPercent));
+        snapshot.setStockWb(stock);
+        return snapshot;
+    }
+}
@@ -18,7 +18,7 @@ import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
-@Import(AnalyticsService.class)
+@Import({AnalyticsService.class, AnalyticsReportCache.class, CatalogChangeTracker.class, ProductAnalyticsCalculator.class})
 @TestPropertySource(properties = {
         "app.analytics.min-margin-percent=10",
         "app.analytics.filter-negative-margin=true"